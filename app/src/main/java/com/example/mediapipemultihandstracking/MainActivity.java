@@ -15,13 +15,42 @@
 package com.example.mediapipemultihandstracking;
 
 import android.content.pm.ActivityInfo;
+import android.content.res.AssetFileDescriptor;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.WindowManager;
 import android.widget.TextView;
 
 import com.example.mediapipemultihandstracking.basic.BasicActivity;
-import com.google.mediapipe.formats.proto.LandmarkProto;
+import com.example.mediapipemultihandstracking.recognition.AdaptiveFrameScheduler;
+import com.example.mediapipemultihandstracking.recognition.DecisionTreeClassifier;
+import com.example.mediapipemultihandstracking.recognition.Diagnostics;
+import com.example.mediapipemultihandstracking.recognition.GestureClassifier;
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.GestureResult;
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.HandGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.HandRecognizer;
+import com.example.mediapipemultihandstracking.recognition.HandRectPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkDebugFormatter;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+import com.example.mediapipemultihandstracking.recognition.Lexicon;
+import com.example.mediapipemultihandstracking.recognition.LetterListener;
+import com.example.mediapipemultihandstracking.recognition.LetterPresenter;
+import com.example.mediapipemultihandstracking.recognition.MotionGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.MotionRecognizer;
+import com.example.mediapipemultihandstracking.recognition.OneEuroFilter;
+import com.example.mediapipemultihandstracking.recognition.PacketFusion;
+import com.example.mediapipemultihandstracking.recognition.ProtoWireDecoder;
+import com.example.mediapipemultihandstracking.recognition.RecognitionPipeline;
+import com.example.mediapipemultihandstracking.recognition.SentenceBuilder;
+import com.example.mediapipemultihandstracking.recognition.ThresholdProfile;
+import com.example.mediapipemultihandstracking.recognition.TrajectoryMatcher;
+import com.example.mediapipemultihandstracking.recognition.metrics.PipelineMetrics;
+import com.example.mediapipemultihandstracking.recognition.trace.TraceWriter;
+import com.google.mediapipe.formats.proto.ClassificationProto.ClassificationList;
 import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmark;
 import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
 import com.google.mediapipe.formats.proto.RectProto;
@@ -30,9 +59,19 @@ import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketCallback;
 import com.google.mediapipe.framework.PacketGetter;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main activity of MediaPipe multi-hand tracking app.
@@ -41,58 +80,181 @@ public class MainActivity extends BasicActivity {
     private static final String TAG = "MainActivity";
 
     private static final String OUTPUT_HAND_RECT = "hand_rects_from_palm_detections";
-    private List<NormalizedLandmarkList> multiHandLandmarks;
 
     private static final String INPUT_NUM_HANDS_SIDE_PACKET_NAME = "num_hands";
     private static final String OUTPUT_LANDMARKS_STREAM_NAME = "hand_landmarks";
-    // Max number of hands to detect/process.
-    private static final int NUM_HANDS = 1;
+    // Left or Right label of every hand, in the order of the landmarks, see handedness.txt.
+    private static final String OUTPUT_HANDEDNESS_STREAM_NAME = "handedness";
+    // Max number of hands to detect/process, unless the "numHands" manifest metadata says otherwise.
+    private static final int DEFAULT_NUM_HANDS = 2;
+    // A bit more than the longest motion template window, at 30 packets per second.
+    private static final int MOTION_HISTORY_SIZE = 36;
+
+    // Letter decision, frame skipping and letter reuse thresholds, see loadThresholdProfile.
+    private static final String THRESHOLDS_FILE = "thresholds.json";
+    // Recent stage timings kept with their packet timestamp in a metrics dump.
+    private static final int METRICS_SPANS = 4096;
+    // Frames being joined at the same time, see PacketFusion.
+    private static final int FUSION_CAPACITY = 4;
+    // The graph lets one camera frame in at a time, both halves of a frame come before any
+    // packet of the next one: a half is not waited for past the next packet.
+    private static final long FUSION_MAX_WAIT_MICROS = 0;
 
     private TextView gesture;
     private TextView result;
 
-    private long timestamp;
-    String sentence = "";
+    // Letters and corrected sentence, built by the recognition thread and shown on the next
+    // display frame, see renderFrame.
+    private LetterPresenter presenter;
+    private Choreographer choreographer;
+    // Reused for every frame, a publish posts it when none is pending.
+    private final Choreographer.FrameCallback renderFrame = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            presenter.render(textDisplay);
+        }
+    };
+    private final LetterPresenter.Display textDisplay = new LetterPresenter.Display() {
+        @Override
+        public void showGesture(char[] text, int length) {
+            gesture.setText(text, 0, length);
+        }
+
+        @Override
+        public void showSentence(char[] text, int length) {
+            result.setText(text, 0, length);
+        }
+    };
+    private int numHands;
+
+    // Recent numeric events, off unless the "diagnosticsLevel" manifest metadata enables it.
+    private final Diagnostics diagnostics = new Diagnostics(1024, Diagnostics.LEVEL_OFF);
+    // Copy of the last landmark packet for the dumps, only kept at DEBUG level.
+    private final LandmarkPacket lastLandmarks = new LandmarkPacket();
+
+    // Set while a trace is recorded, see the "recordLandmarkTrace" manifest metadata.
+    private volatile TraceWriter traceWriter;
+    // Stage timings and counters, null unless the "recordMetrics" manifest metadata enables them.
+    private PipelineMetrics metrics;
+    // Timestamp of the packet being recognized, only touched by the recognition thread.
+    private long recognizedTimestamp;
+    // Decode the protos of the landmark, hand rectangle and handedness callbacks, one per thread.
+    private final ProtoWireDecoder landmarkDecoder = new ProtoWireDecoder();
+    private final ProtoWireDecoder rectDecoder = new ProtoWireDecoder();
+    private final ProtoWireDecoder handednessDecoder = new ProtoWireDecoder();
+
+    // Joins the landmark, hand rectangle and handedness packets of a timestamp into one frame.
+    private PacketFusion packetFusion;
+    // Recognizes the joined frames away from the UI thread.
+    private RecognitionPipeline<LandmarkPacket> recognitionPipeline;
+    // Rule table or decision tree, see the "gestureClassifier" manifest metadata.
+    private HandGestureCalculator gestureCalculator;
+    // Static letters of every hand, run by the recognition thread.
+    private HandRecognizer handRecognizer;
+    // Classifies the second hand and the next ones, null with a single hand or core.
+    private ExecutorService classificationExecutor;
+    // Motion letters of every hand, run by the recognition thread.
+    private MotionRecognizer motionRecognizer;
+    // Reads the threshold profile away from the UI thread, one resume after the other.
+    private final ExecutorService thresholdLoader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ThresholdLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Reusable joined frames, taken by the packet fusion and given back by the pipeline: one per
+    // fusion slot, plus the pending and the recognized frame.
+    private final LandmarkPacket.Pool landmarkPacketPool =
+            new LandmarkPacket.Pool(FUSION_CAPACITY + 2);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         gesture = findViewById(R.id.gesture);
         result = findViewById(R.id.resultString);
-        timestamp = System.currentTimeMillis();
-
-        AndroidPacketCreator packetCreator = processor.getPacketCreator();
-        Map<String, Packet> inputSidePackets = new HashMap<>();
-        inputSidePackets.put(INPUT_NUM_HANDS_SIDE_PACKET_NAME, packetCreator.createInt32(NUM_HANDS));
-        processor.setInputSidePackets(inputSidePackets);
+        diagnostics.setLevel(
+                applicationInfo.metaData.getInt("diagnosticsLevel", Diagnostics.LEVEL_OFF));
+        numHands = Math.max(1, Math.min(LandmarkPacket.MAX_HANDS,
+                applicationInfo.metaData.getInt("numHands", DEFAULT_NUM_HANDS)));
+        if (applicationInfo.metaData.getBoolean("recordMetrics", false)) {
+            metrics = new PipelineMetrics(METRICS_SPANS);
+        }
+        choreographer = Choreographer.getInstance();
+        presenter = new LetterPresenter(
+                new SentenceBuilder(loadLexicon(), SentenceBuilder.DEFAULT_BEAM_WIDTH), numHands,
+                () -> choreographer.postFrameCallback(renderFrame));
+        presenter.setMetrics(metrics);
+        createRecognizers();
+        // Long press on the sentence dumps the recent diagnostic events to logcat, and the
+        // metrics to a file.
+        result.setOnLongClickListener(view -> {
+            dumpDiagnostics();
+            dumpMetrics();
+            return true;
+        });
 
         // keep screen on and only portrait mode
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
 
+        recognitionPipeline = new RecognitionPipeline<>(
+                "HandGestureRecognition", this::recognizeHands, landmarkPacketPool);
+        // A frame the recognizers fail on is logged and skipped, the next one is recognized.
+        recognitionPipeline.setErrorListener(
+                error -> Log.e(TAG, "Cannot recognize frame", error));
+
+        // All halves of a frame are recognized in one pass. A half missing when another
+        // stream moves on is recognized without, one arriving after its frame left is dropped.
+        packetFusion = new PacketFusion(FUSION_CAPACITY, FUSION_MAX_WAIT_MICROS, true,
+                landmarkPacketPool, recognitionPipeline::submit);
+    }
+
+    /**
+     * Connects the recognition to the graph once the startup loaded it, see BasicActivity.
+     */
+    @Override
+    protected void onGraphReady() {
+        AndroidPacketCreator packetCreator = processor.getPacketCreator();
+        Map<String, Packet> inputSidePackets = new HashMap<>();
+        inputSidePackets.put(INPUT_NUM_HANDS_SIDE_PACKET_NAME, packetCreator.createInt32(numHands));
+        processor.setInputSidePackets(inputSidePackets);
+
         processor.addPacketCallback(
                 OUTPUT_LANDMARKS_STREAM_NAME,
                 (packet) -> {
-                    Log.d(TAG, "Received multi-hand landmarks packet.");
-                    multiHandLandmarks =
-                            PacketGetter.getProtoVector(packet, NormalizedLandmarkList.parser());
-
-                    runOnUiThread(() -> {
-                        String letter = handGestureCalculator(multiHandLandmarks);
-                        gesture.setText(letter);
-                        if (timestamp + 1000 < System.currentTimeMillis()
-                                && !letter.equals("No hand detected")
-                                && !letter.equals("no gesture")){
-                            addToSentence(letter);
-                            timestamp = System.currentTimeMillis();
+                    long arrival = metrics != null ? System.nanoTime() : 0;
+                    LandmarkPacket landmarkPacket =
+                            packetFusion.beginLandmarks(packet.getTimestamp());
+                    if (landmarkPacket == null) {
+                        return;
+                    }
+                    boolean read = false;
+                    try {
+                        readLandmarkPacket(packet, landmarkPacket);
+                        read = true;
+                        if (metrics != null) {
+                            metrics.markArrival(packet.getTimestamp(), arrival);
+                            metrics.record(PipelineMetrics.STAGE_PARSE, packet.getTimestamp(),
+                                    System.nanoTime() - arrival);
+                            metrics.increment(PipelineMetrics.COUNTER_PACKETS);
                         }
-                    });
-                    Log.d(
-                            TAG,
-                            "[TS:"
-                                    + packet.getTimestamp()
-                                    + "] "
-                                    + getMultiHandLandmarksDebugString(multiHandLandmarks));
+                        diagnostics.record(Diagnostics.LEVEL_DEBUG,
+                                Diagnostics.EVENT_LANDMARK_PACKET, packet.getTimestamp(),
+                                landmarkPacket.getHandCount(),
+                                recognitionPipeline.getDroppedFrames(),
+                                recognitionPipeline.getSkippedFrames());
+                        if (diagnostics.isEnabled(Diagnostics.LEVEL_DEBUG)) {
+                            keepLastLandmarks(landmarkPacket);
+                        }
+                        TraceWriter writer = traceWriter;
+                        if (writer != null) {
+                            recordLandmarks(writer, landmarkPacket);
+                        }
+                    } finally {
+                        // The joined frame goes to the recognition thread, where older pending
+                        // frames are dropped and the scheduler skips frames while the hands
+                        // hold still or the thread lags.
+                        packetFusion.endLandmarks(packet.getTimestamp(), read);
+                    }
                 });
 
         processor.addPacketCallback(
@@ -100,416 +262,450 @@ public class MainActivity extends BasicActivity {
                 , new PacketCallback() {
                     @Override
                     public void process(Packet packet) {
-
-                        List<RectProto.NormalizedRect> normalizedRectsList = PacketGetter.getProtoVector(packet, RectProto.NormalizedRect.parser());
-
+                        HandRectPacket rectPacket = packetFusion.beginRects(packet.getTimestamp());
+                        if (rectPacket == null) {
+                            return;
+                        }
+                        boolean read = false;
                         try {
-                            runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    gesture.setText(handGestureMoveCalculator(normalizedRectsList));
-                                    if (timestamp + 1000 < System.currentTimeMillis()
-                                            && !handGestureMoveCalculator(normalizedRectsList).equals("No hand detected")
-                                            && !handGestureMoveCalculator(normalizedRectsList).equals("no gesture")){
-                                        addToSentence(handGestureMoveCalculator(normalizedRectsList));
-                                        timestamp = System.currentTimeMillis();
-                                    }
-                                }
-                            });
-                        } catch (Exception e) {
-                            e.printStackTrace();
+                            readHandRectPacket(packet, rectPacket);
+                            read = true;
+                            if (diagnostics.isEnabled(Diagnostics.LEVEL_DEBUG)
+                                    && rectPacket.getRectCount() > 0) {
+                                diagnostics.record(Diagnostics.LEVEL_DEBUG,
+                                        Diagnostics.EVENT_RECT_PACKET, packet.getTimestamp(),
+                                        rectPacket.getRectCount(), rectPacket.xCenter(0),
+                                        rectPacket.yCenter(0));
+                            }
+                            TraceWriter writer = traceWriter;
+                            if (writer != null) {
+                                recordRects(writer, rectPacket);
+                            }
+                        } finally {
+                            packetFusion.endRects(packet.getTimestamp(), read);
                         }
                     }
                 });
+
+        processor.addPacketCallback(
+                OUTPUT_HANDEDNESS_STREAM_NAME,
+                (packet) -> {
+                    LandmarkPacket handednessPacket =
+                            packetFusion.beginHandedness(packet.getTimestamp());
+                    if (handednessPacket == null) {
+                        return;
+                    }
+                    boolean read = false;
+                    try {
+                        readHandednessPacket(packet, handednessPacket);
+                        read = true;
+                    } catch (IOException e) {
+                        // The frame goes on without handedness, its hands keep their mirroring.
+                        Log.w(TAG, "Handedness packet not read: " + e);
+                    } finally {
+                        packetFusion.endHandedness(packet.getTimestamp(), read);
+                    }
+                });
     }
 
-    private String getMultiHandLandmarksDebugString(List<NormalizedLandmarkList> multiHandLandmarks) {
-        if (multiHandLandmarks.isEmpty()) {
-            return "No hand landmarks";
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // The recognition thread is stopped, nothing else touches the recognizers.
+        handRecognizer.reset();
+        motionRecognizer.reset();
+        // The recognizers keep the previous thresholds until the profile is read.
+        thresholdLoader.execute(() -> applyThresholds(loadThresholdProfile()));
+        recognitionPipeline.start();
+        if (applicationInfo.metaData.getBoolean("recordLandmarkTrace", false)) {
+            startTraceRecording();
         }
-        String multiHandLandmarksStr = "Number of hands detected: " + multiHandLandmarks.size() + "\n";
-        int handIndex = 0;
-        for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
-            multiHandLandmarksStr +=
-                    "\t#Hand landmarks for hand[" + handIndex + "]: " + landmarks.getLandmarkCount() + "\n";
-            int landmarkIndex = 0;
-            for (NormalizedLandmark landmark : landmarks.getLandmarkList()) {
-                multiHandLandmarksStr +=
-                        "\t\tLandmark ["
-                                + landmarkIndex
-                                + "]: ("
-                                + landmark.getX()
-                                + ", "
-                                + landmark.getY()
-                                + ", "
-                                + landmark.getZ()
-                                + ")\n";
-                ++landmarkIndex;
-            }
-            ++handIndex;
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        recognitionPipeline.stop();
+        stopTraceRecording();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        thresholdLoader.shutdown();
+        if (classificationExecutor != null) {
+            classificationExecutor.shutdown();
         }
-        return multiHandLandmarksStr;
     }
 
-    private String handGestureCalculator(List<LandmarkProto.NormalizedLandmarkList> multiHandLandmarks) {
-        if (multiHandLandmarks.isEmpty()) {
-            return "";
-        }
-        // Different conditions for each of the finger positions
-        boolean indexStraightUp = false;
-        boolean indexStraightDown = false;
-        boolean middleStraightUp = false;
-        boolean middleStraightDown = false;
-        boolean ringStraightUp = false;
-        boolean ringStraightDown = false;
-        boolean pinkyStraightUp = false;
-        boolean pinkyStraightDown = false;
-        boolean thumbIsOpen = false;
-        boolean thumbIsBend = false;
-
-        for (LandmarkProto.NormalizedLandmarkList landmarks : multiHandLandmarks) {
-            List<LandmarkProto.NormalizedLandmark> landmarkList = landmarks.getLandmarkList();
-
-            //Logging to the console the X-axis points that make the base of the palm and do not move like the ones on the fingers
-            Log.d("Palm base", "" + landmarkList.get(0).getX() + " " + landmarkList.get(1).getX() + " " + landmarkList.get(2).getX() + " " + landmarkList.get(17).getX());
-            //Logging to the console the Y-axis points that make the base of the palm and do not move like the ones on the fingers
-            Log.d("Palm base", "" + landmarkList.get(0).getY() + " " + landmarkList.get(1).getY() + " " + landmarkList.get(2).getY() + " " + landmarkList.get(17).getY());
-
-            /*1st CONDITION
-             * To identify when a finger is straight up or straight down.
-             * Each of the following conditions allowed me to create the state straightUp on each finger.
-             * INDEX_FINGER */
-            if (landmarkList.get(8).getY() < landmarkList.get(7).getY()
-                    && landmarkList.get(7).getY() < landmarkList.get(6).getY()
-                    && landmarkList.get(6).getY() < landmarkList.get(5).getY()){
-                indexStraightUp = true;
-            }else if (getEuclideanDistanceAB(landmarkList.get(8).getX(),landmarkList.get(8).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(5).getX(),landmarkList.get(5).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                indexStraightDown = true;
+    /**
+     * Creates the static and motion recognizers, with one slot per hand and the landmark filter
+     * configured by the "landmarkFilter*" manifest metadata.
+     */
+    private void createRecognizers() {
+        String backend = applicationInfo.metaData.getString("gestureClassifier", "rules");
+        GestureClassifier classifier = backend.equals("tree")
+                ? DecisionTreeClassifier.loadDefault()
+                : GestureRuleEngine.loadDefault();
+        Log.i(TAG, "Gesture classifier: " + backend);
+        gestureCalculator = new HandGestureCalculator(classifier);
+        handRecognizer = new HandRecognizer(gestureCalculator, numHands,
+                ThresholdProfile.DEFAULT::newLetterDebouncer, new LetterListener() {
+            @Override
+            public void onLetterChanged(int hand, int letter) {
+                // Runs on the recognition thread, shown once the frame is recognized.
+                diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_LETTER_CHANGED,
+                        recognizedTimestamp, Diagnostics.letterValue(letter), hand, 0);
+                presenter.setHandLetter(hand, letter);
             }
 
-            /*MIDDLE_FINGER */
-            if (landmarkList.get(12).getY() < landmarkList.get(11).getY()
-                    && landmarkList.get(11).getY() < landmarkList.get(10).getY()
-                    && landmarkList.get(10).getY() < landmarkList.get(9).getY()){
-                middleStraightUp = true;
-            }else if (getEuclideanDistanceAB(landmarkList.get(12).getX(),landmarkList.get(12).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(9).getX(),landmarkList.get(9).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                middleStraightDown = true;
+            @Override
+            public void onLetterCommitted(int hand, GestureResult result) {
+                diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_LETTER_COMMITTED,
+                        recognizedTimestamp, Diagnostics.letterValue(result.getCode()), hand, 0);
+                presenter.commitLetter(result, recognizedTimestamp);
             }
-
-            /*RING_FINGER */
-            if (landmarkList.get(16).getY() < landmarkList.get(15).getY()
-                    && landmarkList.get(15).getY() < landmarkList.get(14).getY()
-                    && landmarkList.get(14).getY() < landmarkList.get(13).getY()){
-                ringStraightUp = true;
-            } else if (getEuclideanDistanceAB(landmarkList.get(16).getX(),landmarkList.get(16).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(13).getX(),landmarkList.get(13).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                ringStraightDown = true;
+        });
+        handRecognizer.setMetrics(metrics);
+        // The label says how the hand looks in the image, whichever camera took it, so left
+        // hands are mirrored for the front and the back camera alike.
+        handRecognizer.setHandednessMirroring(true);
+
+        float minCutoff = applicationInfo.metaData.getFloat("landmarkFilterMinCutoff", 1.0f);
+        if (minCutoff > 0) {
+            float beta = applicationInfo.metaData.getFloat("landmarkFilterBeta", 5.0f);
+            float derivativeCutoff =
+                    applicationInfo.metaData.getFloat("landmarkFilterDerivativeCutoff", 1.0f);
+            OneEuroFilter[] filters = new OneEuroFilter[numHands];
+            for (int i = 0; i < filters.length; i++) {
+                filters[i] = new OneEuroFilter(minCutoff, beta, derivativeCutoff);
             }
-            /*PINKY_FINGER */
-            if (landmarkList.get(20).getY() < landmarkList.get(19).getY()
-                    && landmarkList.get(19).getY() < landmarkList.get(18).getY()
-                    && landmarkList.get(18).getY() < landmarkList.get(17).getY()){
-                pinkyStraightUp = true;
-            } else if (getEuclideanDistanceAB(landmarkList.get(20).getX(),landmarkList.get(20).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(17).getX(),landmarkList.get(17).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                pinkyStraightDown = true;
+            handRecognizer.setLandmarkFilters(filters);
+        }
+        // J and Z drawn with a fingertip. The rectangle templates get their own matcher below.
+        handRecognizer.setTrajectoryMatcher(TrajectoryMatcher.loadDefault());
+
+        // The recognition thread takes the first hand, the pool the other ones.
+        int threads = Math.min(numHands, Runtime.getRuntime().availableProcessors()) - 1;
+        if (threads > 0) {
+            classificationExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "HandClassification");
+                thread.setDaemon(true);
+                return thread;
+            });
+            handRecognizer.setExecutor(classificationExecutor);
+        }
+
+        motionRecognizer = new MotionRecognizer(new MotionGestureCalculator(), numHands,
+                MOTION_HISTORY_SIZE, ThresholdProfile.DEFAULT::newMotionDebouncer,
+                new LetterListener() {
+            @Override
+            public void onLetterChanged(int hand, int letter) {
+                // Runs on the recognition thread, after the static letters of the same frame.
+                // Motion letters only show while held.
+                presenter.setMotionLetter(hand, letter);
             }
-            /*THUMB */
-            if (getEuclideanDistanceAB(landmarkList.get(4).getX(), landmarkList.get(4).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(3).getX(), landmarkList.get(3).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY())){
-                thumbIsBend = true;
-            }else {
-                thumbIsOpen = true;
+
+            @Override
+            public void onLetterCommitted(int hand, GestureResult result) {
+                presenter.commitLetter(result, recognizedTimestamp);
             }
+        });
+    }
+
+    /**
+     * @return Scheduler keeping the recognition latency under the "latencyBudgetMillis" manifest
+     *         metadata, null to classify every frame when the budget is 0
+     */
+    private AdaptiveFrameScheduler createFrameScheduler(ThresholdProfile profile) {
+        int budgetMillis = applicationInfo.metaData.getInt("latencyBudgetMillis", 100);
+        if (budgetMillis <= 0) {
+            return null;
+        }
+        return new AdaptiveFrameScheduler(budgetMillis * 1_000_000L, profile.getMaxFrameStride(),
+                profile.getStillHandThreshold(), profile.getMaxStillIntervalMicros(),
+                profile.getLetterWindowSize());
+    }
 
-            // Hand gesture recognition conditions for each letter
-            if (indexStraightDown && middleStraightDown && ringStraightDown
-                    && pinkyStraightDown && thumbIsOpen
-                    && arePointsNear(landmarkList.get(4), landmarkList.get(6))
-                    && landmarkList.get(4).getX() < landmarkList.get(6).getX())
-                return "A"; // final ok
-            else if(indexStraightUp && middleStraightUp
-                    && ringStraightUp && pinkyStraightUp &&
-                    !(landmarkList.get(0).getX() > landmarkList.get(17).getX()) &&
-                    getEuclideanDistanceAB(landmarkList.get(4).getX(), landmarkList.get(4).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY())
-                            < getEuclideanDistanceAB(landmarkList.get(3).getX(), landmarkList.get(3).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY()))
-                return "B"; // final ok
-            else if (!indexStraightUp && !middleStraightUp && !ringStraightUp && !pinkyStraightUp && thumbIsOpen && !arePointsNear(landmarkList.get(4), landmarkList.get(8))
-                    && !arePointsNear(landmarkList.get(4), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(12), landmarkList.get(16))
-                    && !arePointsNear(landmarkList.get(4), landmarkList.get(16))
-                    && !arePointsNear(landmarkList.get(4), landmarkList.get(20))
-                    && arePointsNear(landmarkList.get(16), landmarkList.get(20))
-                    && landmarkList.get(0).getX() > landmarkList.get(17).getX())
-                return "C"; // final ok
-            else if(arePointsNear(landmarkList.get(4), landmarkList.get(8)) && thumbIsOpen
-                    && arePointsNear(landmarkList.get(4), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(12), landmarkList.get(16))
-                    && arePointsNear(landmarkList.get(4), landmarkList.get(16))
-                    && arePointsNear(landmarkList.get(4), landmarkList.get(20))
-                    && arePointsNear(landmarkList.get(16), landmarkList.get(20))
-                    && (landmarkList.get(0).getX() > landmarkList.get(17).getX() || landmarkList.get(0).getX() < landmarkList.get(17).getX())
-                    && getEuclideanDistanceAB(landmarkList.get(7).getX(), landmarkList.get(7).getY(), landmarkList.get(2).getX(), landmarkList.get(2).getY())
-                    > getEuclideanDistanceAB(landmarkList.get(8).getX(), landmarkList.get(8).getY(), landmarkList.get(4).getX(), landmarkList.get(4).getY()))
-                return "O"; // final ok
-            else if(arePointsNear(landmarkList.get(8), landmarkList.get(5))
-                    && arePointsNear(landmarkList.get(12), landmarkList.get(9))
-                    && arePointsNear(landmarkList.get(16), landmarkList.get(13))
-                    && arePointsNear(landmarkList.get(20), landmarkList.get(17))
-                    && landmarkList.get(0).getX() < landmarkList.get(17).getX()
-                    && thumbIsBend && !indexStraightDown && !middleStraightDown
-                    && !ringStraightDown && !pinkyStraightDown)
-                return "E"; // final ok
-            else if (middleStraightUp && ringStraightUp && pinkyStraightUp
-                    && arePointsNear(landmarkList.get(4), landmarkList.get(8)))
-                return "F"; // final ok
-            else if (getEuclideanDistanceAB(landmarkList.get(4).getX(), landmarkList.get(4).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(3).getX(), landmarkList.get(3).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY()) &&
-                    indexStraightDown && middleStraightDown && ringStraightDown
-                    && pinkyStraightUp)
-                return "I"; // final ok
-            else if(thumbIsOpen && landmarkList.get(4).getX() >= landmarkList.get(5).getX() &&
-                    landmarkList.get(4).getX() <= landmarkList.get(9).getX() &&
-                    indexStraightUp && middleStraightUp && ringStraightDown && pinkyStraightDown &&
-                    getEuclideanDistanceAB(landmarkList.get(8).getX(), landmarkList.get(8).getY(), landmarkList.get(12).getX(), landmarkList.get(12).getY())
-                            > getEuclideanDistanceAB(landmarkList.get(5).getX(), landmarkList.get(5).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY()) &&
-                    arePointsNear(landmarkList.get(3), landmarkList.get(5)) ||
-                    indexStraightUp && middleStraightUp
-                            && getEuclideanDistanceAB(landmarkList.get(8).getX(), landmarkList.get(8).getY(), landmarkList.get(12).getX(), landmarkList.get(12).getY())
-                            > getEuclideanDistanceAB(landmarkList.get(5).getX(), landmarkList.get(5).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())
-                            && arePointsNear(landmarkList.get(2), landmarkList.get(5)) && landmarkList.get(0).getY() > landmarkList.get(17).getY()
-                            && landmarkList.get(0).getX() > landmarkList.get(17).getX() && !pinkyStraightUp)
-                return "K"; // final ok + has another variation
-            else if(!arePointsNear(landmarkList.get(4), landmarkList.get(7)) && !(landmarkList.get(0).getX() > landmarkList.get(17).getX()) && !thumbIsBend && thumbIsOpen && indexStraightUp && middleStraightDown && ringStraightDown && pinkyStraightDown)
-                return "L"; // final ok
-            else if(arePointsNear(landmarkList.get(4), landmarkList.get(6)) && middleStraightDown && ringStraightDown && pinkyStraightDown
-                    && !(arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(12), landmarkList.get(16)))
-                    && !(landmarkList.get(0).getX() > landmarkList.get(20).getX()))
-                return "T"; // final ok
-            else if(landmarkList.get(20).getY() < landmarkList.get(2).getY() && getEuclideanDistanceAB(landmarkList.get(4).getX(), landmarkList.get(4).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(3).getX(), landmarkList.get(3).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY()) && indexStraightDown && middleStraightDown
-                    && ringStraightDown && pinkyStraightDown
-                    && arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(12), landmarkList.get(16))
-                    && arePointsNear(landmarkList.get(16), landmarkList.get(20))
-                    && !(landmarkList.get(20).getY() > landmarkList.get(2).getY()))
-                return "S";
-            else if(landmarkList.get(20).getY() > landmarkList.get(16).getY()
-                    && !(landmarkList.get(0).getX() > landmarkList.get(17).getX())
-                    && arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && arePointsNear(landmarkList.get(12), landmarkList.get(16))
-                    && !(landmarkList.get(16).getY() > landmarkList.get(2).getY()) &&
-                    landmarkList.get(20).getY() > landmarkList.get(2).getY()
-                    && !(getEuclideanDistanceAB(landmarkList.get(4).getX(), landmarkList.get(4).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(3).getX(), landmarkList.get(3).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())))
-                return "M"; // final ok
-            else if(landmarkList.get(20).getY() > landmarkList.get(2).getY() && !(landmarkList.get(0).getX() > landmarkList.get(20).getX()) && !indexStraightUp && !middleStraightUp && !ringStraightUp && !pinkyStraightUp && !(landmarkList.get(0).getX() > landmarkList.get(17).getX()) && landmarkList.get(16).getY() > landmarkList.get(2).getY()
-                    && getEuclideanDistanceAB(landmarkList.get(4).getX(), landmarkList.get(4).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(3).getX(), landmarkList.get(3).getY(), landmarkList.get(13).getX(), landmarkList.get(13).getY()))
-                return "N"; // final ok
-            else if(thumbIsBend && indexStraightUp
-                    && middleStraightUp
-                    && landmarkList.get(8).getX() >= landmarkList.get(12).getX()
-                    && ringStraightDown
-                    && arePointsNear(landmarkList.get(7), landmarkList.get(11))
-                    && arePointsNear(landmarkList.get(6), landmarkList.get(10)) &&
-                    pinkyStraightDown)
-                return "R"; // final ok
-            else if(thumbIsBend && indexStraightUp && middleStraightUp
-                    && ringStraightDown && pinkyStraightDown &&
-                    arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && !(getEuclideanDistanceAB(landmarkList.get(8).getX(), landmarkList.get(8).getY(), landmarkList.get(12).getX(), landmarkList.get(12).getY())
-                    > getEuclideanDistanceAB(landmarkList.get(5).getX(), landmarkList.get(5).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())))
-                return "U"; // final ok
-            else if(indexStraightUp && middleStraightUp
-                    && ringStraightDown && pinkyStraightDown &&
-                    getEuclideanDistanceAB(landmarkList.get(8).getX(), landmarkList.get(8).getY(), landmarkList.get(12).getX(), landmarkList.get(12).getY())
-                            > getEuclideanDistanceAB(landmarkList.get(5).getX(), landmarkList.get(5).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())
-                    && !arePointsNear(landmarkList.get(8), landmarkList.get(12)))
-                return "V"; // final ok
-            else if(indexStraightUp && middleStraightUp
-                    && ringStraightUp && pinkyStraightDown && arePointsNear(landmarkList.get(4), landmarkList.get(20)))
-                return "W"; //final ok
-            else if(thumbIsOpen && indexStraightDown && middleStraightDown
-                    && ringStraightDown && pinkyStraightUp)
-                return "Y"; // final ok
-            else if(!indexStraightUp && landmarkList.get(20).getX() < landmarkList.get(19).getX()
-                    && landmarkList.get(19).getX() < landmarkList.get(18).getX()
-                    && landmarkList.get(0).getX() > landmarkList.get(17).getX()
-                    && landmarkList.get(0).getX() < landmarkList.get(1).getX())
-                return "J"; // needs polishing
-            else if(landmarkList.get(4).getY() < landmarkList.get(3).getY()
-                    && landmarkList.get(3).getY() < landmarkList.get(2).getY()
-                    && landmarkList.get(8).getY() < landmarkList.get(5).getY()
-                    && landmarkList.get(12).getY() < landmarkList.get(9).getY()
-                    && landmarkList.get(16).getY() < landmarkList.get(13).getY()
-                    && landmarkList.get(20).getY() < landmarkList.get(17).getY()
-                    && landmarkList.get(17).getY() >= landmarkList.get(2).getY())
-                return "SPACE"; // final ok
-            else if(landmarkList.get(4).getY() > landmarkList.get(3).getY()
-                    && landmarkList.get(3).getY() > landmarkList.get(2).getY()
-                    && landmarkList.get(8).getY() > landmarkList.get(7).getY()
-                    && landmarkList.get(7).getY() > landmarkList.get(6).getY()
-                    && landmarkList.get(0).getY() < landmarkList.get(5).getY())
-                return "Q"; // final ok
-            else if (landmarkList.get(8).getX() < landmarkList.get(7).getX()
-                    && landmarkList.get(7).getX() < landmarkList.get(6).getX()
-                    && !(landmarkList.get(12).getX() < landmarkList.get(11).getX())
-                    && !(landmarkList.get(11).getX() < landmarkList.get(10).getX())
-                    && landmarkList.get(0).getX() > landmarkList.get(17).getX()
-                    && !(landmarkList.get(12).getY() > landmarkList.get(11).getY()))
-                return "G"; // final ok
-            else if (arePointsNear(landmarkList.get(8), landmarkList.get(12))
-                    && landmarkList.get(0).getX() > landmarkList.get(17).getX() && arePointsNear(landmarkList.get(2), landmarkList.get(5))
-                    && landmarkList.get(2).getY() < landmarkList.get(17).getY())
-                return "H"; // final ok
-            else if (getEuclideanDistanceAB(landmarkList.get(8).getX(), landmarkList.get(8).getY(), landmarkList.get(12).getX(), landmarkList.get(12).getY())
-                    > getEuclideanDistanceAB(landmarkList.get(5).getX(), landmarkList.get(5).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())
-                    && landmarkList.get(0).getX() > landmarkList.get(17).getX()
-                    && landmarkList.get(0).getY() < landmarkList.get(17).getY())
-                return "P";
-            else if(arePointsNear(landmarkList.get(3), landmarkList.get(10)) && !indexStraightUp && arePointsNear(landmarkList.get(8), landmarkList.get(7)) && landmarkList.get(0).getX() > landmarkList.get(17).getX())
-                return "X"; // final ok
-            else if (!indexStraightDown && indexStraightUp && middleStraightDown && ringStraightDown && pinkyStraightDown && thumbIsBend
-                    || arePointsNear(landmarkList.get(4), landmarkList.get(20)) && indexStraightUp && landmarkList.get(0).getX() > landmarkList.get(17).getX())
-                return "D"; // final ok + has another variation
-
-        }
-        return "";
+    /**
+     * Reads the thresholds from files/thresholds.json when it exists, so they can be tuned with
+     * adb push and a pause of the app, or else from the asset named by the "thresholdProfile"
+     * manifest metadata. Runs on the threshold loader thread.
+     *
+     * @return Profile read, the default profile when it cannot be read
+     */
+    private ThresholdProfile loadThresholdProfile() {
+        File tuned = new File(getExternalFilesDir(null), THRESHOLDS_FILE);
+        String asset = applicationInfo.metaData.getString("thresholdProfile", THRESHOLDS_FILE);
+        try (InputStream in = tuned.isFile()
+                ? new FileInputStream(tuned) : getAssets().open(asset)) {
+            return ThresholdProfile.parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot read thresholds, using the default ones: " + e);
+            return ThresholdProfile.DEFAULT;
+        }
+    }
+
+    /**
+     * Hands a profile to both recognizers and the frame scheduler, from any thread. The
+     * recognizers switch to it on their own thread, at the start of their next packet.
+     */
+    private void applyThresholds(ThresholdProfile profile) {
+        Log.i(TAG, "Thresholds " + profile);
+        handRecognizer.setThresholds(profile);
+        motionRecognizer.setThresholds(profile);
+        recognitionPipeline.setScheduler(createFrameScheduler(profile));
     }
 
-    float previousXCenter;
-    float previousYCenter;
-    float previousRectangleHeight;
-    boolean frameCounter;
-
-    private String handGestureMoveCalculator(List<RectProto.NormalizedRect> normalizedRectList) {
-
-        RectProto.NormalizedRect normalizedRect = normalizedRectList.get(0);
-        float height = normalizedRect.getHeight();
-        float centerX = normalizedRect.getXCenter();
-        float centerY = normalizedRect.getYCenter();
-        if (previousXCenter != 0) {
-            double mouvementDistance = getEuclideanDistanceAB(centerX, centerY,
-                    previousXCenter, previousYCenter);
-            // LOG(INFO) << "Distance: " << mouvementDistance;
-
-            double mouvementDistanceFactor = 0.02; // only large mouvements will be recognized.
-
-            // the height is normed [0.0, 1.0] to the camera window height.
-            // so the mouvement (when the hand is near the camera) should be equivalent to the mouvement when the hand is far.
-            double mouvementDistanceThreshold = mouvementDistanceFactor * height;
-            if (mouvementDistance > mouvementDistanceThreshold) {
-                double angle = radianToDegree(getAngleABC(centerX, centerY,
-                        previousXCenter, previousYCenter, previousXCenter + 0.1,
-                        previousYCenter));
-                // LOG(INFO) << "Angle: " << angle;
-                if (angle >= -45 && angle < 45) {
-                    return "Z";
-                } else if (angle >= 45 && angle < 135) {
-                    return "Z";
-                } else if (angle >= 135 || angle < -135) {
-                    return "Z";
-                } else if (angle >= -135 && angle < -45) {
-                    return "Z";
-                }
+    /**
+     * Logs the recent diagnostic events, then the landmarks of the last packet at DEBUG level.
+     */
+    private void dumpDiagnostics() {
+        StringBuilder dump = new StringBuilder();
+        try {
+            diagnostics.dump(dump);
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+        }
+        if (diagnostics.isEnabled(Diagnostics.LEVEL_DEBUG)) {
+            synchronized (lastLandmarks) {
+                dump.append(
+                        LandmarkDebugFormatter.getMultiHandLandmarksDebugString(lastLandmarks));
             }
         }
+        for (String line : dump.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
 
-        previousXCenter = centerX;
-        previousYCenter = centerY;
+    /**
+     * Copies the hands of a packet, which goes back to the pool once recognized.
+     */
+    private void keepLastLandmarks(LandmarkPacket landmarkPacket) {
+        synchronized (lastLandmarks) {
+            lastLandmarks.reset(landmarkPacket.getTimestamp());
+            for (int i = 0; i < landmarkPacket.getHandCount(); i++) {
+                lastLandmarks.addHand().copyFrom(landmarkPacket.getHand(i));
+            }
+        }
+    }
 
-        previousRectangleHeight = height;
-        // each odd Frame is skipped. For a better result.
-        frameCounter = !frameCounter;
+    /**
+     * Writes the metrics to a new file in the app files, to read with MetricsSnapshot.
+     */
+    private void dumpMetrics() {
+        if (metrics == null) {
+            return;
+        }
+        File directory = new File(getExternalFilesDir(null), "metrics");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create metrics directory " + directory);
+            return;
+        }
+        metrics.set(PipelineMetrics.COUNTER_DROPPED, recognitionPipeline.getDroppedFrames());
+        metrics.set(PipelineMetrics.COUNTER_SKIPPED, recognitionPipeline.getSkippedFrames());
+        metrics.set(PipelineMetrics.COUNTER_LATE, packetFusion.getLatePackets());
+        File file = new File(directory, "metrics-" + System.currentTimeMillis() + ".pmet");
+        String label = Build.MANUFACTURER + " " + Build.MODEL + ", Android "
+                + Build.VERSION.RELEASE + ", " + numHands + " hands";
+        try (OutputStream out = new FileOutputStream(file)) {
+            metrics.writeTo(out, label);
+            Log.i(TAG, "Metrics written to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write metrics: " + e);
+        }
+    }
 
-        return "";
+    /**
+     * Starts writing the landmark and hand rectangle packets to a new trace in the app files,
+     * so they can be replayed offline with TraceReplayer.
+     */
+    private void startTraceRecording() {
+        File directory = new File(getExternalFilesDir(null), "traces");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create trace directory " + directory);
+            return;
+        }
+        File file = new File(directory, "trace-" + System.currentTimeMillis() + ".htrc");
+        try {
+            traceWriter = TraceWriter.create(file);
+            Log.i(TAG, "Recording landmark trace to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot create landmark trace: " + e);
+        }
     }
 
+    private void stopTraceRecording() {
+        TraceWriter writer = traceWriter;
+        traceWriter = null;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot close landmark trace: " + e);
+        }
+    }
+
+    private void recordLandmarks(TraceWriter writer, LandmarkPacket landmarkPacket) {
+        try {
+            writer.writeLandmarks(landmarkPacket);
+        } catch (IOException e) {
+            // The trace was closed by onPause while this packet was in flight.
+            Log.w(TAG, "Landmark packet not recorded: " + e);
+        }
+    }
+
+    private void recordRects(TraceWriter writer, HandRectPacket rects) {
+        try {
+            writer.writeRects(rects);
+        } catch (IOException e) {
+            Log.w(TAG, "Hand rectangle packet not recorded: " + e);
+        }
+    }
 
     /**
-     * This method takes the letter obtained on the sign, and it gets added into the actual
-     * sentence on the result view.
-     *
-     * @param letter String value for the letter obtained from the gesture recognition
+     * Decodes the landmarks of every hand straight from the serialized protos into the pooled
+     * frame reserved by the packet fusion, so no protobuf object is created per frame. Falls
+     * back to the protobuf parser when the serialized protos are not reachable or do not decode.
      */
-    private void addToSentence(String letter){
-        if (letter.equals("SPACE"))
-            letter = " ";
-        sentence = result.getText().toString();
-        sentence += letter;
-        result.setText(sentence);
+    private void readLandmarkPacket(Packet packet, LandmarkPacket landmarkPacket) {
+        byte[][] hands = ProtoVectorBytes.get(packet);
+        if (hands != null) {
+            try {
+                landmarkDecoder.readLandmarks(hands, packet.getTimestamp(), landmarkPacket);
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Landmark packet not decoded: " + e);
+            }
+        }
+        toLandmarkPacket(PacketGetter.getProtoVector(packet, NormalizedLandmarkList.parser()),
+                packet.getTimestamp(), landmarkPacket);
     }
 
     /**
-     * This Boolean method calculated the Euclidean distance between 2 points and returns
-     * true when the distance is smaller than 0.1, so the points are near.
-     *
-     * @param point1 X and Y values for Point 1
-     * @param point2 X and Y values for Point 2
-     * @return Boolean result
+     * Decodes the hand rectangles straight from the serialized protos into the rectangles of
+     * the reserved frame, like {@link #readLandmarkPacket(Packet, LandmarkPacket)}.
      */
-    private boolean arePointsNear(LandmarkProto.NormalizedLandmark point1,
-                                  LandmarkProto.NormalizedLandmark point2) {
-        double distance = getEuclideanDistanceAB(point1.getX(),
-                point1.getY(), point2.getX(), point2.getY());
-        return distance < 0.1;
+    private void readHandRectPacket(Packet packet, HandRectPacket rectPacket) {
+        byte[][] rects = ProtoVectorBytes.get(packet);
+        if (rects != null) {
+            try {
+                rectDecoder.readRects(rects, packet.getTimestamp(), rectPacket);
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Hand rectangle packet not decoded: " + e);
+            }
+        }
+        toHandRectPacket(PacketGetter.getProtoVector(packet, RectProto.NormalizedRect.parser()),
+                packet.getTimestamp(), rectPacket);
     }
 
     /**
-     * The following method calculates the distance between 2 points (A and B) using euclidean distance
-     * formula.
-     *
-     * @param a_x Value of X for the given position of point A
-     * @param a_y Value of Y for the given position of point A
-     * @param b_x Value of X for the given position of point B
-     * @param b_y Value of Y for the given position of point B
-     * @return Euclidean distance result
+     * Decodes the handedness of every hand into the reserved frame, like
+     * {@link #readLandmarkPacket(Packet, LandmarkPacket)}.
      */
-    private double getEuclideanDistanceAB(double a_x, double a_y,
-                                          double b_x, double b_y) {
-        double dist = Math.pow(a_x - b_x, 2) + Math.pow(a_y - b_y, 2);
-        return Math.sqrt(dist);
+    private void readHandednessPacket(Packet packet, LandmarkPacket handednessPacket)
+            throws IOException {
+        byte[][] hands = ProtoVectorBytes.get(packet);
+        if (hands != null) {
+            try {
+                handednessDecoder.readHandedness(hands, handednessPacket);
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Handedness packet not decoded: " + e);
+            }
+        }
+        // Serialized again, the decoder knows the labels.
+        List<ClassificationList> lists =
+                PacketGetter.getProtoVector(packet, ClassificationList.parser());
+        hands = new byte[lists.size()][];
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = lists.get(i).toByteArray();
+        }
+        handednessDecoder.readHandedness(hands, handednessPacket);
     }
 
     /**
-     * This method calculates the angle between 3 given points (A,B,C) using the angle between vectors
-     * formula. The vector 1 is made with points AB and vector 2 is made with points BC, being point B
-     * the vertex.
+     * Copies the parsed landmarks of every hand into a primitive packet, so the classifier never
+     * has to go through the protobuf accessors.
      *
-     * @param a_x Value of X for the given position of A
-     * @param a_y Value of Y for the given position of A
-     * @param b_x Value of X for the given position of B
-     * @param b_y Value of Y for the given position of B
-     * @param c_x Value of X for the given position of C
-     * @param c_y Value of Y for the given position of C
-     * @return Angle in radians
+     * @param multiHandLandmarks Landmarks parsed from the packet
+     * @param packetTimestamp Timestamp of the packet
+     * @param landmarkPacket Pooled packet to fill
+     */
+    private void toLandmarkPacket(List<NormalizedLandmarkList> multiHandLandmarks,
+                                  long packetTimestamp, LandmarkPacket landmarkPacket) {
+        landmarkPacket.reset(packetTimestamp);
+        for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
+            HandFrame hand = landmarkPacket.addHand();
+            if (hand == null) {
+                break;
+            }
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                NormalizedLandmark landmark = landmarks.getLandmark(i);
+                hand.setLandmark(i, landmark.getX(), landmark.getY(), landmark.getZ());
+            }
+        }
+    }
+
+    /**
+     * Copies the hand rectangles into a primitive packet.
      */
-    private double getAngleABC(double a_x, double a_y, double b_x, double b_y, double c_x, double c_y) {
-        //Vector 1 (AB)
-        double ab_x = b_x - a_x;
-        double ab_y = b_y - a_y;
-        //Vector 2 (CB)
-        double cb_x = b_x - c_x;
-        double cb_y = b_y - c_y;
-
-        double dot = (ab_x * cb_x + ab_y * cb_y);   // dot product
-        double cross = (ab_x * cb_y - ab_y * cb_x); // cross product
-
-        return Math.atan2(cross, dot);
+    private void toHandRectPacket(List<RectProto.NormalizedRect> normalizedRectsList,
+                                  long packetTimestamp, HandRectPacket rectPacket) {
+        rectPacket.reset(packetTimestamp);
+        for (RectProto.NormalizedRect rect : normalizedRectsList) {
+            if (!rectPacket.addRect(rect.getXCenter(), rect.getYCenter(), rect.getWidth(),
+                    rect.getHeight(), rect.getRotation())) {
+                break;
+            }
+        }
     }
 
     /**
-     * Method to convert radian to degree results obtained from the getAngleABC method
-     * @param radian Value of radians to convert
-     * @return Angle in degrees
+     * Recognizes the static letters, then the motion letters, of a joined frame. Each
+     * recognizer keeps its state when its half is missing.
      */
-    private int radianToDegree(double radian) {
-        return (int) Math.floor(radian * 180. / Math.PI + 0.5);
+    private void recognizeHands(LandmarkPacket packet) {
+        recognizedTimestamp = packet.getTimestamp();
+        if (packet.hasLandmarks()) {
+            recognizeStaticLetters(packet);
+        }
+        if (packet.hasRects()) {
+            // One tracker update per hand and packet, the UI only hears about stable motion
+            // letters.
+            motionRecognizer.process(packet.getRects());
+        }
+        presenter.publish();
+    }
+
+    private void recognizeStaticLetters(LandmarkPacket packet) {
+        if (diagnostics.isEnabled(Diagnostics.LEVEL_DEBUG)) {
+            for (int handIndex = 0; handIndex < packet.getHandCount(); handIndex++) {
+                // Points of the base of the palm, they do not move like the ones on the fingers.
+                HandFrame hand = packet.getHand(handIndex);
+                diagnostics.record(Diagnostics.LEVEL_DEBUG, Diagnostics.EVENT_PALM_BASE,
+                        packet.getTimestamp(), handIndex, hand.x(0), hand.x(17));
+            }
+        }
+        handRecognizer.process(packet);
+    }
+
+    /**
+     * Memory-maps the lexicon asset, stored uncompressed in the APK.
+     *
+     * @return Lexicon, or null to write the letters as read when the asset cannot be mapped
+     */
+    private Lexicon loadLexicon() {
+        try (AssetFileDescriptor descriptor = getAssets().openFd(Lexicon.DEFAULT_ASSET);
+             FileInputStream in = descriptor.createInputStream()) {
+            return Lexicon.map(in.getChannel(), descriptor.getStartOffset(),
+                    descriptor.getLength());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot map lexicon, words will not be corrected: " + e);
+            return null;
+        }
     }
 }
@@ -0,0 +1,52 @@
+package com.example.mediapipemultihandstracking;
+
+import android.util.Log;
+
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketGetter;
+
+import java.lang.reflect.Method;
+
+/**
+ * Serialized protos of a vector packet, as handed over by JNI, before PacketGetter parses them
+ * into protobuf objects.
+ *
+ * The MediaPipe AAR only exposes the parsed list, so the native getter is looked up by
+ * reflection once. When a MediaPipe update renames it, {@link #get(Packet)} returns null and
+ * the callers fall back to {@link PacketGetter#getProtoVector}.
+ */
+final class ProtoVectorBytes {
+    private static final String TAG = "ProtoVectorBytes";
+
+    private static final Method NATIVE_GET_PROTO_VECTOR = findNativeGetProtoVector();
+
+    private ProtoVectorBytes() {
+    }
+
+    /**
+     * @return One serialized proto per element of the packet, null when they are not reachable
+     */
+    static byte[][] get(Packet packet) {
+        if (NATIVE_GET_PROTO_VECTOR == null) {
+            return null;
+        }
+        try {
+            return (byte[][]) NATIVE_GET_PROTO_VECTOR.invoke(null, packet.getNativeHandle());
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            Log.w(TAG, "Serialized protos not reachable: " + e);
+            return null;
+        }
+    }
+
+    private static Method findNativeGetProtoVector() {
+        try {
+            Method method =
+                    PacketGetter.class.getDeclaredMethod("nativeGetProtoVector", long.class);
+            method.setAccessible(true);
+            return method;
+        } catch (ReflectiveOperationException | SecurityException e) {
+            Log.w(TAG, "PacketGetter.nativeGetProtoVector not found: " + e);
+            return null;
+        }
+    }
+}
@@ -19,8 +19,11 @@ import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.graphics.SurfaceTexture;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.util.Size;
+import android.view.Surface;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.view.View;
@@ -29,6 +32,7 @@ import android.view.ViewGroup;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.mediapipemultihandstracking.R;
+import com.example.mediapipemultihandstracking.recognition.startup.StartupOrchestrator;
 import com.google.mediapipe.components.CameraHelper;
 import com.google.mediapipe.components.CameraXPreviewHelper;
 import com.google.mediapipe.components.ExternalTextureConverter;
@@ -36,6 +40,8 @@ import com.google.mediapipe.components.FrameProcessor;
 import com.google.mediapipe.components.PermissionHelper;
 import com.google.mediapipe.framework.AndroidAssetUtil;
 import com.google.mediapipe.glutil.EglManager;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** Main activity of MediaPipe basic app. */
 public class BasicActivity extends AppCompatActivity {
@@ -49,16 +55,14 @@ public class BasicActivity extends AppCompatActivity {
   // NOTE: use "flipFramesVertically" in manifest metadata to override this behavior.
   private static final boolean FLIP_FRAMES_VERTICALLY = true;
 
-  static {
-    // Load all native libraries needed by the app.
-    System.loadLibrary("mediapipe_jni");
-    try {
-      System.loadLibrary("opencv_java3");
-    } catch (UnsatisfiedLinkError e) {
-      // Some example apps (e.g. template matching) require OpenCV 4.
-      System.loadLibrary("opencv_java4");
-    }
-  }
+  // Startup phases, see createStartup.
+  private static final String PHASE_LIBRARIES = "libraries";
+  private static final String PHASE_ASSETS = "assets";
+  private static final String PHASE_EGL = "egl";
+  private static final String PHASE_GRAPH = "graph";
+  private static final String PHASE_PERMISSION = "camera permission";
+  private static final String PHASE_PREVIEW = "preview";
+  private static final String PHASE_PROCESSING = "processing";
 
   // Sends camera-preview frames into a MediaPipe graph for processing, and displays the processed
   // frames onto a {@link Surface}.
@@ -78,7 +82,18 @@ public class BasicActivity extends AppCompatActivity {
   private ExternalTextureConverter converter;
 
   // ApplicationInfo for retrieving metadata defined in the manifest.
-  private ApplicationInfo applicationInfo;
+  protected ApplicationInfo applicationInfo;
+
+  // Loads the native libraries and the graph in the background while the camera permission is
+  // asked for and the camera starts.
+  private StartupOrchestrator startup;
+  private ExecutorService startupExecutor;
+  // Main thread state: the camera can start, the processor is connected, the activity is resumed.
+  private boolean previewReady;
+  private boolean processorReady;
+  private boolean resumed;
+  // Display surface created before the processor was connected.
+  private Surface displaySurface;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -95,42 +110,163 @@ public class BasicActivity extends AppCompatActivity {
     previewDisplayView = new SurfaceView(this);
     setupPreviewDisplayView();
 
-    // Initialize asset manager so that MediaPipe native libraries can access the app assets, e.g.,
-    // binary graphs.
-    AndroidAssetUtil.initializeNativeAssetManager(this);
-    eglManager = new EglManager(null);
-    processor =
-        new FrameProcessor(
-            this,
-            eglManager.getNativeContext(),
-            applicationInfo.metaData.getString("binaryGraphName"),
-            applicationInfo.metaData.getString("inputVideoStreamName"),
-            applicationInfo.metaData.getString("outputVideoStreamName"));
-
-    processor
-        .getVideoSurfaceOutput()
-        .setFlipY(
-            applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY));
-
+    startup = createStartup();
+    startup.start();
     PermissionHelper.checkAndRequestCameraPermissions(this);
   }
 
   @Override
   protected void onResume() {
     super.onResume();
-    converter = new ExternalTextureConverter(eglManager.getContext());
-    converter.setFlipY(
-        applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY));
-    converter.setConsumer(processor);
+    resumed = true;
     if (PermissionHelper.cameraPermissionsGranted(this)) {
-      startCamera();
+      startup.signal(PHASE_PERMISSION);
+    }
+    if (previewReady) {
+      startPreview();
     }
   }
 
   @Override
   protected void onPause() {
     super.onPause();
-    converter.close();
+    resumed = false;
+    if (converter != null) {
+      converter.close();
+    }
+  }
+
+  /**
+   * Called on the main thread once the graph is loaded, before any camera frame reaches it.
+   * Subclasses add their packet callbacks and input side packets to {@link #processor} here.
+   */
+  protected void onGraphReady() {}
+
+  /**
+   * Builds the startup phases. The native libraries, the asset manager, the EGL context and the
+   * graph are loaded on background threads instead of in a static initializer and onCreate,
+   * and the camera starts as soon as the EGL context and the permission are there, while the
+   * graph may still be loading. Every phase is timed and logged.
+   */
+  private StartupOrchestrator createStartup() {
+    startupExecutor =
+        Executors.newFixedThreadPool(
+            2,
+            runnable -> {
+              Thread thread = new Thread(runnable, "Startup");
+              thread.setDaemon(true);
+              return thread;
+            });
+    Handler mainHandler = new Handler(Looper.getMainLooper());
+    StartupOrchestrator orchestrator =
+        new StartupOrchestrator(
+            startupExecutor,
+            mainHandler::post,
+            new StartupOrchestrator.Listener() {
+              @Override
+              public void onPhaseDone(String name, long startNanos, long durationNanos) {
+                Log.i(
+                    TAG,
+                    "Startup phase "
+                        + name
+                        + " at "
+                        + startNanos / 1_000_000
+                        + " ms took "
+                        + durationNanos / 1_000_000
+                        + " ms");
+              }
+
+              @Override
+              public void onStartupDone(long totalNanos) {
+                Log.i(TAG, "Startup took " + totalNanos / 1_000_000 + " ms");
+                startupExecutor.shutdown();
+              }
+
+              @Override
+              public void onStartupFailed(String name, Throwable error) {
+                startupExecutor.shutdown();
+                // Nothing works without the libraries or the graph.
+                throw new IllegalStateException("Startup phase " + name + " failed", error);
+              }
+            });
+
+    boolean flipFramesVertically =
+        applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY);
+    orchestrator.addPhase(PHASE_LIBRARIES, false, BasicActivity::loadLibraries);
+    // Initialize asset manager so that MediaPipe native libraries can access the app assets, e.g.,
+    // binary graphs.
+    orchestrator.addPhase(
+        PHASE_ASSETS,
+        false,
+        () -> AndroidAssetUtil.initializeNativeAssetManager(this),
+        PHASE_LIBRARIES);
+    orchestrator.addPhase(PHASE_EGL, false, () -> eglManager = new EglManager(null));
+    orchestrator.addPhase(
+        PHASE_GRAPH,
+        false,
+        () -> {
+          processor =
+              new FrameProcessor(
+                  this,
+                  eglManager.getNativeContext(),
+                  applicationInfo.metaData.getString("binaryGraphName"),
+                  applicationInfo.metaData.getString("inputVideoStreamName"),
+                  applicationInfo.metaData.getString("outputVideoStreamName"));
+          processor.getVideoSurfaceOutput().setFlipY(flipFramesVertically);
+        },
+        PHASE_ASSETS,
+        PHASE_EGL);
+    orchestrator.addSignal(PHASE_PERMISSION);
+    orchestrator.addPhase(
+        PHASE_PREVIEW,
+        true,
+        () -> {
+          previewReady = true;
+          if (resumed) {
+            startPreview();
+          }
+        },
+        PHASE_EGL,
+        PHASE_PERMISSION);
+    orchestrator.addPhase(
+        PHASE_PROCESSING,
+        true,
+        () -> {
+          onGraphReady();
+          processorReady = true;
+          if (displaySurface != null) {
+            processor.getVideoSurfaceOutput().setSurface(displaySurface);
+          }
+          if (converter != null) {
+            converter.setConsumer(processor);
+          }
+        },
+        PHASE_GRAPH);
+    return orchestrator;
+  }
+
+  private static void loadLibraries() {
+    // Load all native libraries needed by the app.
+    System.loadLibrary("mediapipe_jni");
+    try {
+      System.loadLibrary("opencv_java3");
+    } catch (UnsatisfiedLinkError e) {
+      // Some example apps (e.g. template matching) require OpenCV 4.
+      System.loadLibrary("opencv_java4");
+    }
+  }
+
+  /**
+   * Connects a new converter to the camera, and to the processor once it is there.
+   */
+  private void startPreview() {
+    converter = new ExternalTextureConverter(eglManager.getContext());
+    converter.setFlipY(
+        applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY));
+    if (processorReady) {
+      converter.setConsumer(processor);
+    }
+    startCamera();
   }
 
   @Override
@@ -198,7 +334,10 @@ public class BasicActivity extends AppCompatActivity {
             new SurfaceHolder.Callback() {
               @Override
               public void surfaceCreated(SurfaceHolder holder) {
-                processor.getVideoSurfaceOutput().setSurface(holder.getSurface());
+                displaySurface = holder.getSurface();
+                if (processorReady) {
+                  processor.getVideoSurfaceOutput().setSurface(displaySurface);
+                }
               }
 
               @Override
@@ -208,7 +347,10 @@ public class BasicActivity extends AppCompatActivity {
 
               @Override
               public void surfaceDestroyed(SurfaceHolder holder) {
-                processor.getVideoSurfaceOutput().setSurface(null);
+                displaySurface = null;
+                if (processorReady) {
+                  processor.getVideoSurfaceOutput().setSurface(null);
+                }
               }
             });
   }
@@ -0,0 +1,43 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+/**
+ * Builds the inputs of the benchmarks from the landmark corpus.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param corpus Labelled poses
+     * @param letter Letter to pick, "" for the poses without letter
+     * @return One single-hand packet per pose of the letter
+     */
+    static LandmarkPacket[] packetsFor(LandmarkCorpus corpus, String letter) {
+        int[] indices = corpus.indicesOf(letter);
+        if (indices.length == 0) {
+            throw new IllegalArgumentException("No pose for letter '" + letter + "'");
+        }
+        LandmarkPacket[] packets = new LandmarkPacket[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            packets[i] = new LandmarkPacket();
+            corpus.copyTo(indices[i], packets[i]);
+        }
+        return packets;
+    }
+
+    /**
+     * @return One single-hand packet per pose of the corpus, in corpus order
+     */
+    static LandmarkPacket[] allPackets(LandmarkCorpus corpus) {
+        LandmarkPacket[] packets = new LandmarkPacket[corpus.size()];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = new LandmarkPacket();
+            corpus.copyTo(i, packets[i]);
+        }
+        return packets;
+    }
+}
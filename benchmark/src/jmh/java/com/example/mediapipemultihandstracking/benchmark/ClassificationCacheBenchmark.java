@@ -0,0 +1,71 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.ClassificationCache;
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.HandGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of classifying a held corpus pose with the rule engine, from scratch or through a
+ * {@link ClassificationCache}. The hand either jitters below the cache threshold or moves its
+ * index finger beyond it on every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassificationCacheBenchmark {
+    private static final float THRESHOLD = 0.005f;
+
+    @Param({"held", "index"})
+    public String motion;
+
+    private final HandGestureCalculator calculator =
+            new HandGestureCalculator(GestureRuleEngine.loadDefault());
+    private final ClassificationCache cache = new ClassificationCache(THRESHOLD);
+    private final HandFrame hand = new HandFrame();
+    private HandFrame pose;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        pose = corpus.getHand(corpus.indicesOf("D")[0]);
+    }
+
+    @Benchmark
+    public int full() {
+        nextFrame();
+        return calculator.handGestureCalculator(hand);
+    }
+
+    @Benchmark
+    public int cached() {
+        nextFrame();
+        int letter = cache.lookup(hand);
+        return letter != ClassificationCache.MISS
+                ? letter : calculator.handGestureCalculator(hand, null, cache);
+    }
+
+    private void nextFrame() {
+        frame++;
+        float jitter = (frame & 1) == 0 ? THRESHOLD / 4 : -THRESHOLD / 4;
+        float move = motion.equals("index") && (frame & 1) == 0 ? 4 * THRESHOLD : 0;
+        hand.beginUpdate();
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            float dx = i >= 5 && i <= 8 ? move : 0;
+            hand.setLandmark(i, pose.x(i) + jitter + dx, pose.y(i), pose.z(i));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.FeatureExtractor;
+import com.example.mediapipemultihandstracking.recognition.HandFeatures;
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping one hand of the corpus into the canonical frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeatureExtractorBenchmark {
+
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final HandFeatures features = new HandFeatures();
+    private LandmarkPacket[] packets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        packets = BenchmarkData.allPackets(LandmarkCorpus.load());
+    }
+
+    @Benchmark
+    public HandFeatures extract() {
+        HandFrame hand = packets[next].getHand(0);
+        next = next + 1 == packets.length ? 0 : next + 1;
+        hand.beginUpdate();
+        extractor.extract(hand, features);
+        return features;
+    }
+}
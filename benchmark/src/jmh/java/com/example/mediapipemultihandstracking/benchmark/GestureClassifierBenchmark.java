@@ -0,0 +1,74 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.DecisionTreeClassifier;
+import com.example.mediapipemultihandstracking.recognition.FeatureExtractor;
+import com.example.mediapipemultihandstracking.recognition.GestureClassifier;
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.HandFeatures;
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of classifying the hands of the whole corpus with each backend, feature extraction
+ * included when the backend needs it. The accuracy of each backend on the corpus is printed
+ * once at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GestureClassifierBenchmark {
+
+    @Param({"rules", "tree"})
+    public String backend;
+
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final HandFeatures features = new HandFeatures();
+    private GestureClassifier classifier;
+    private LandmarkPacket[] packets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        classifier = backend.equals("tree")
+                ? DecisionTreeClassifier.loadDefault()
+                : GestureRuleEngine.loadDefault();
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        packets = BenchmarkData.allPackets(corpus);
+        int correct = 0;
+        for (int i = 0; i < packets.length; i++) {
+            if (classify(packets[i].getHand(0)) == corpus.getGesture(i)) {
+                correct++;
+            }
+        }
+        System.out.println(backend + ": " + correct + " of " + packets.length
+                + " corpus poses correct");
+    }
+
+    @Benchmark
+    public int classify() {
+        HandFrame hand = packets[next].getHand(0);
+        next = next + 1 == packets.length ? 0 : next + 1;
+        // The distance cache of the frame is reset, as it would be for a fresh packet.
+        hand.beginUpdate();
+        return classify(hand);
+    }
+
+    private int classify(HandFrame hand) {
+        if (classifier.needsFeatures()) {
+            extractor.extract(hand, features);
+        }
+        return classifier.classify(hand, features);
+    }
+}
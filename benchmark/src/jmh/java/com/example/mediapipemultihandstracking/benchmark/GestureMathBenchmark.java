@@ -0,0 +1,87 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.GeometryKernel;
+import com.example.mediapipemultihandstracking.recognition.GestureMath;
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the geometry helpers on varying inputs, so the JIT cannot fold them away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GestureMathBenchmark {
+    private static final int POINTS = 1024;
+
+    private final double[] x = new double[POINTS];
+    private final double[] y = new double[POINTS];
+    // The same points laid out like HandFrame coordinates.
+    private final float[] coordinates = new float[POINTS * HandFrame.LANDMARK_STRIDE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+            coordinates[i * HandFrame.LANDMARK_STRIDE] = (float) x[i];
+            coordinates[i * HandFrame.LANDMARK_STRIDE + 1] = (float) y[i];
+        }
+    }
+
+    @Benchmark
+    public double getEuclideanDistanceAB() {
+        int a = next;
+        int b = (a + 1) & (POINTS - 1);
+        next = b;
+        return GestureMath.getEuclideanDistanceAB(x[a], y[a], x[b], y[b]);
+    }
+
+    @Benchmark
+    public float distanceSquared() {
+        int a = next;
+        int b = (a + 1) & (POINTS - 1);
+        next = b;
+        return GeometryKernel.distanceSquared(coordinates, a, b);
+    }
+
+    @Benchmark
+    public boolean euclideanCloser() {
+        int a = next;
+        int b = (a + 1) & (POINTS - 1);
+        int c = (a + 2) & (POINTS - 1);
+        next = b;
+        return GestureMath.getEuclideanDistanceAB(x[a], y[a], x[b], y[b])
+                < GestureMath.getEuclideanDistanceAB(x[a], y[a], x[c], y[c]);
+    }
+
+    @Benchmark
+    public boolean kernelCloser() {
+        int a = next;
+        int b = (a + 1) & (POINTS - 1);
+        int c = (a + 2) & (POINTS - 1);
+        next = b;
+        return GeometryKernel.isCloser(coordinates, a, b, a, c);
+    }
+
+    @Benchmark
+    public double getAngleABC() {
+        int a = next;
+        int b = (a + 1) & (POINTS - 1);
+        int c = (a + 2) & (POINTS - 1);
+        next = b;
+        return GestureMath.getAngleABC(x[a], y[a], x[b], y[b], x[c], y[c]);
+    }
+}
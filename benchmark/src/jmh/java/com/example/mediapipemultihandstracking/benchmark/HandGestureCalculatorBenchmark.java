@@ -0,0 +1,51 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.HandGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of classifying one landmark packet, per letter of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandGestureCalculatorBenchmark {
+
+    // NONE stands for the poses without letter.
+    @Param({"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N", "O", "P", "Q",
+            "R", "S", "T", "U", "V", "W", "X", "Y", "SPACE", "NONE"})
+    public String letter;
+
+    private HandGestureCalculator calculator;
+    private LandmarkPacket[] packets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        calculator = new HandGestureCalculator(GestureRuleEngine.loadDefault());
+        packets = BenchmarkData.packetsFor(LandmarkCorpus.load(),
+                letter.equals("NONE") ? "" : letter);
+    }
+
+    @Benchmark
+    public int handGestureCalculator() {
+        LandmarkPacket packet = packets[next];
+        next = next + 1 == packets.length ? 0 : next + 1;
+        // The distance cache of the frame is reset, as it would be for a fresh packet.
+        packet.getHand(0).beginUpdate();
+        return calculator.handGestureCalculator(packet);
+    }
+}
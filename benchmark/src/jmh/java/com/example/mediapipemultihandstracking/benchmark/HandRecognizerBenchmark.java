@@ -0,0 +1,112 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.GestureResult;
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.HandGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.HandRecognizer;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+import com.example.mediapipemultihandstracking.recognition.LetterDebouncer;
+import com.example.mediapipemultihandstracking.recognition.LetterListener;
+import com.example.mediapipemultihandstracking.recognition.OneEuroFilter;
+import com.example.mediapipemultihandstracking.recognition.metrics.PipelineMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recognizing a landmark packet with one or two hands, filtered, classified and
+ * debounced, with every hand on the calling thread or the second one on an executor, and with
+ * or without stage metrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandRecognizerBenchmark {
+    private static final long FRAME_INTERVAL_MICROS = 33_333;
+
+    @Param({"1", "2"})
+    public int hands;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private HandRecognizer recognizer;
+    private ExecutorService executor;
+    private LandmarkPacket[] packets;
+    private final LandmarkPacket packet = new LandmarkPacket();
+    private int next;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        recognizer = new HandRecognizer(
+                new HandGestureCalculator(GestureRuleEngine.loadDefault()), hands,
+                () -> new LetterDebouncer(5, 4, 1_000_000, 300_000), new LetterListener() {
+            @Override
+            public void onLetterChanged(int hand, int letter) {
+            }
+
+            @Override
+            public void onLetterCommitted(int hand, GestureResult result) {
+            }
+        });
+        OneEuroFilter[] filters = new OneEuroFilter[hands];
+        for (int i = 0; i < hands; i++) {
+            filters[i] = new OneEuroFilter(1, 5, 1);
+        }
+        recognizer.setLandmarkFilters(filters);
+        if (metrics) {
+            recognizer.setMetrics(new PipelineMetrics(4096));
+        }
+        if (parallel) {
+            executor = Executors.newSingleThreadExecutor();
+            recognizer.setExecutor(executor);
+        }
+        // Each packet holds consecutive poses of the corpus, one per hand.
+        packets = new LandmarkPacket[corpus.size()];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = new LandmarkPacket();
+            packets[i].reset(0);
+            for (int hand = 0; hand < hands; hand++) {
+                packets[i].addHand().copyFrom(corpus.getHand((i + hand) % corpus.size()));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int process() {
+        // The filters work in place, so every packet starts from a copy of the corpus poses.
+        LandmarkPacket source = packets[next];
+        next = next + 1 == packets.length ? 0 : next + 1;
+        timestamp += FRAME_INTERVAL_MICROS;
+        packet.reset(timestamp);
+        for (int hand = 0; hand < source.getHandCount(); hand++) {
+            packet.addHand().copyFrom(source.getHand(hand));
+        }
+        recognizer.process(packet);
+        return recognizer.getActiveSlots();
+    }
+}
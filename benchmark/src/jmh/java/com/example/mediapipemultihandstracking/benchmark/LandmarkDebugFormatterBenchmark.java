@@ -0,0 +1,38 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkDebugFormatter;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the landmark debug string that used to be built for every packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LandmarkDebugFormatterBenchmark {
+    private LandmarkPacket[] packets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        packets = BenchmarkData.allPackets(LandmarkCorpus.load());
+    }
+
+    @Benchmark
+    public String getMultiHandLandmarksDebugString() {
+        LandmarkPacket packet = packets[next];
+        next = next + 1 == packets.length ? 0 : next + 1;
+        return LandmarkDebugFormatter.getMultiHandLandmarksDebugString(packet);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.MotionGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.MotionTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one hand rectangle update, tracker included, for a hand that holds still and one
+ * that keeps moving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MotionGestureCalculatorBenchmark {
+    private static final int PATH_LENGTH = 1024;
+
+    // Size of the step between two rectangles, in normalized image units.
+    @Param({"0.0005", "0.02"})
+    public float step;
+
+    private final float[] centerX = new float[PATH_LENGTH];
+    private final float[] centerY = new float[PATH_LENGTH];
+    private final float[] height = new float[PATH_LENGTH];
+    private MotionGestureCalculator calculator;
+    private MotionTracker tracker;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        calculator = new MotionGestureCalculator();
+        tracker = new MotionTracker(36);
+        Random random = new Random(1);
+        float x = 0.5f;
+        float y = 0.5f;
+        for (int i = 0; i < PATH_LENGTH; i++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            x = Math.min(0.9f, Math.max(0.1f, x + (float) Math.cos(angle) * step));
+            y = Math.min(0.9f, Math.max(0.1f, y + (float) Math.sin(angle) * step));
+            centerX[i] = x;
+            centerY[i] = y;
+            height[i] = 0.3f + 0.05f * random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public int handGestureMoveCalculator() {
+        int i = next;
+        next = (next + 1) & (PATH_LENGTH - 1);
+        tracker.update(i * 33_333L, centerX[i], centerY[i], height[i]);
+        return calculator.handGestureMoveCalculator(tracker);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.HandRectPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkProtos;
+import com.example.mediapipemultihandstracking.recognition.ProtoWireDecoder;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the serialized protos of a two hand frame into the primitive packets, parsed
+ * into protobuf messages then copied, or decoded by {@link ProtoWireDecoder}. Run with the gc
+ * profiler for the bytes allocated per frame.
+ *
+ * DynamicMessage stands in for the generated lite classes of the app, which allocate less but
+ * still create a message per landmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtoDecodeBenchmark {
+    private static final FieldDescriptor LANDMARK =
+            LandmarkProtos.LANDMARK_LIST.findFieldByName("landmark");
+    private static final FieldDescriptor X = LandmarkProtos.LANDMARK.findFieldByName("x");
+    private static final FieldDescriptor Y = LandmarkProtos.LANDMARK.findFieldByName("y");
+    private static final FieldDescriptor Z = LandmarkProtos.LANDMARK.findFieldByName("z");
+
+    private final ProtoWireDecoder decoder = new ProtoWireDecoder();
+    private final LandmarkPacket landmarkPacket = new LandmarkPacket();
+    private final HandRectPacket rectPacket = new HandRectPacket();
+    private byte[][] hands;
+    private byte[][] rects;
+
+    @Setup
+    public void setUp() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame left = corpus.getHand(corpus.indicesOf("A")[0]);
+        HandFrame right = corpus.getHand(corpus.indicesOf("L")[0]);
+        hands = new byte[][] {
+                LandmarkProtos.landmarkList(left).toByteArray(),
+                LandmarkProtos.landmarkList(right).toByteArray(),
+        };
+        rects = new byte[][] {
+                LandmarkProtos.rect(0.3f, 0.5f, 0.4f, 0.4f, 0.1f, 1).toByteArray(),
+                LandmarkProtos.rect(0.7f, 0.5f, 0.4f, 0.4f, -0.1f, 2).toByteArray(),
+        };
+    }
+
+    @Benchmark
+    public LandmarkPacket protobufLandmarks() throws InvalidProtocolBufferException {
+        landmarkPacket.reset(0);
+        for (byte[] bytes : hands) {
+            DynamicMessage list = DynamicMessage.parseFrom(LandmarkProtos.LANDMARK_LIST, bytes);
+            HandFrame hand = landmarkPacket.addHand();
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                DynamicMessage landmark = (DynamicMessage) list.getRepeatedField(LANDMARK, i);
+                hand.setLandmark(i, (Float) landmark.getField(X), (Float) landmark.getField(Y),
+                        (Float) landmark.getField(Z));
+            }
+        }
+        return landmarkPacket;
+    }
+
+    @Benchmark
+    public LandmarkPacket wireLandmarks() throws IOException {
+        decoder.readLandmarks(hands, 0, landmarkPacket);
+        return landmarkPacket;
+    }
+
+    @Benchmark
+    public HandRectPacket protobufRects() throws InvalidProtocolBufferException {
+        rectPacket.reset(0);
+        for (byte[] bytes : rects) {
+            DynamicMessage rect = DynamicMessage.parseFrom(LandmarkProtos.RECT, bytes);
+            rectPacket.addRect(LandmarkProtos.getFloat(rect, "x_center"),
+                    LandmarkProtos.getFloat(rect, "y_center"),
+                    LandmarkProtos.getFloat(rect, "width"),
+                    LandmarkProtos.getFloat(rect, "height"),
+                    LandmarkProtos.getFloat(rect, "rotation"));
+        }
+        return rectPacket;
+    }
+
+    @Benchmark
+    public HandRectPacket wireRects() throws IOException {
+        decoder.readRects(rects, 0, rectPacket);
+        return rectPacket;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.Gestures;
+import com.example.mediapipemultihandstracking.recognition.LexiconBuilder;
+import com.example.mediapipemultihandstracking.recognition.SentenceBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one committed letter, word correction included, signing a sentence with a misread
+ * letter over and over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SentenceBuilderBenchmark {
+    private static final int[] LETTERS = codes(
+            "H", "E", "L", "K", "O", "SPACE", "M", "Y", "SPACE", "N", "A", "M", "E", "SPACE",
+            "I", "S", "SPACE", "A", "N", "N", "A", "SPACE");
+
+    @Param({"1", "4", "16"})
+    public int beamWidth;
+
+    private SentenceBuilder sentence;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sentence = new SentenceBuilder(LexiconBuilder.loadDefault().build(), beamWidth);
+    }
+
+    @Benchmark
+    public int addLetter() {
+        if (next == 0) {
+            sentence.clear();
+        }
+        sentence.addLetter(LETTERS[next]);
+        next = next + 1 == LETTERS.length ? 0 : next + 1;
+        return sentence.length();
+    }
+
+    private static int[] codes(String... names) {
+        int[] codes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            codes[i] = Gestures.code(names[i]);
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.HandGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.MotionGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.SyntheticTraces;
+import com.example.mediapipemultihandstracking.recognition.trace.TraceReplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to decode and classify a whole trace. Set -Dtrace=path to replay a recorded trace
+ * instead of the synthetic session, which holds every corpus pose for one second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TraceReplayBenchmark {
+    private static final int FRAMES_PER_POSE = 30;
+
+    private File trace;
+    private boolean temporary;
+    private TraceReplayer replayer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String recorded = System.getProperty("trace");
+        if (recorded != null) {
+            trace = new File(recorded);
+        } else {
+            trace = File.createTempFile("session", ".htrc");
+            temporary = true;
+            SyntheticTraces.writeSigningSession(
+                    trace, LandmarkCorpus.load(), FRAMES_PER_POSE, 0.003f, 1);
+        }
+        replayer = new TraceReplayer(new HandGestureCalculator(GestureRuleEngine.loadDefault()),
+                new MotionGestureCalculator());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (temporary) {
+            trace.delete();
+        }
+    }
+
+    @Benchmark
+    public TraceReplayer.Result replay() throws IOException {
+        return replayer.replay(trace);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Picks the landmark packets worth classifying, from the load of the recognition thread and
+ * the movement of the hands.
+ *
+ * Two rules decide, both on the thread submitting the packets:
+ * <ul>
+ *     <li>Stride: only one packet out of stride is classified. The stride is adapted every
+ *     ADAPT_INTERVAL packets from the average processing time, the share of packets that found
+ *     the queue still busy and the packet interval. It grows while the estimated latency is over
+ *     budget or the recognition thread is busy most of the time, and shrinks once the thread
+ *     would stay well within budget with a smaller stride.</li>
+ *     <li>Stillness: once the hands have held still for minStillFrames classified packets,
+ *     packets whose wrist and fingertips did not move by more than a fraction of the palm size
+ *     since the last classified packet are skipped, except one every maxStillInterval so the
+ *     letter of a held pose keeps being repeated.</li>
+ * </ul>
+ * The average processing time is measured by the recognition thread, everything else belongs to
+ * the submitting thread.
+ */
+public final class AdaptiveFrameScheduler
+        implements RecognitionPipeline.Scheduler<LandmarkPacket> {
+    // Packets between two stride changes.
+    static final int ADAPT_INTERVAL = 15;
+    // Weight of the newest sample in the moving averages.
+    private static final float SMOOTHING = 0.125f;
+    // Share of the time between two classified packets the recognition thread may be busy.
+    private static final float MAX_UTILIZATION = 0.8f;
+    private static final float MIN_UTILIZATION = 0.5f;
+    // Landmarks compared to detect a still hand: wrist and fingertips.
+    private static final int[] STILL_LANDMARKS = {0, 4, 8, 12, 16, 20};
+
+    private final long latencyBudgetNanos;
+    private final int maxStride;
+    private final float motionThreshold;
+    private final long maxStillInterval;
+    private final int minStillFrames;
+
+    // Written by the recognition thread.
+    private volatile float averageProcessingNanos;
+
+    private float averageIntervalNanos;
+    private float replacedRate;
+    private long previousTimestamp = -1;
+    private volatile int stride = 1;
+    private int sinceAdapted;
+    private int sinceAccepted;
+
+    // Last classified packet.
+    private long acceptedTimestamp = -1;
+    private int acceptedHands = -1;
+    private final float[] acceptedX = new float[LandmarkPacket.MAX_HANDS * STILL_LANDMARKS.length];
+    private final float[] acceptedY = new float[LandmarkPacket.MAX_HANDS * STILL_LANDMARKS.length];
+    private int stillFrames;
+
+    /**
+     * @param latencyBudgetNanos Target time between a packet and its letter
+     * @param maxStride Largest stride, 1 to never skip packets because of the load
+     * @param motionThreshold Largest move of a still hand, in palm sizes
+     * @param maxStillInterval Longest time without a classified packet while the hands are
+     *                         still, in packet timestamp units
+     * @param minStillFrames Classified still packets before still packets are skipped, usually
+     *                       the number of packets a letter needs to become stable
+     */
+    public AdaptiveFrameScheduler(long latencyBudgetNanos, int maxStride, float motionThreshold,
+                                  long maxStillInterval, int minStillFrames) {
+        if (maxStride < 1) {
+            throw new IllegalArgumentException("Stride must be positive: " + maxStride);
+        }
+        this.latencyBudgetNanos = latencyBudgetNanos;
+        this.maxStride = maxStride;
+        this.motionThreshold = motionThreshold;
+        this.maxStillInterval = maxStillInterval;
+        this.minStillFrames = minStillFrames;
+    }
+
+    @Override
+    public boolean accept(LandmarkPacket packet) {
+        if (!packet.hasLandmarks()) {
+            // Only hand rectangles, cheap and needed by every motion tracker.
+            return true;
+        }
+        long timestamp = packet.getTimestamp();
+        if (previousTimestamp >= 0 && timestamp > previousTimestamp) {
+            // Packet timestamps are in microseconds.
+            averageIntervalNanos = average(averageIntervalNanos,
+                    (timestamp - previousTimestamp) * 1000f);
+        }
+        previousTimestamp = timestamp;
+        if (++sinceAdapted >= ADAPT_INTERVAL) {
+            sinceAdapted = 0;
+            adaptStride();
+        }
+
+        if (++sinceAccepted < stride) {
+            return false;
+        }
+        if (isStill(packet)) {
+            if (stillFrames >= minStillFrames
+                    && timestamp - acceptedTimestamp < maxStillInterval) {
+                return false;
+            }
+            stillFrames++;
+        } else {
+            stillFrames = 0;
+        }
+        remember(packet);
+        sinceAccepted = 0;
+        return true;
+    }
+
+    @Override
+    public void onSubmitted(boolean replacedPending) {
+        replacedRate = average(replacedRate, replacedPending ? 1 : 0);
+    }
+
+    @Override
+    public void onProcessed(long processingNanos) {
+        averageProcessingNanos = average(averageProcessingNanos, processingNanos);
+    }
+
+    /**
+     * @return Current stride, 1 when every moving packet is classified
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @return Average time the recognition thread takes per packet
+     */
+    public float getAverageProcessingNanos() {
+        return averageProcessingNanos;
+    }
+
+    /**
+     * Latency estimate: the processing time, plus the wait of the packets that find the queue
+     * busy, which is up to one more processing time.
+     */
+    private float estimatedLatencyNanos() {
+        return averageProcessingNanos * (1 + replacedRate);
+    }
+
+    private void adaptStride() {
+        float processing = averageProcessingNanos;
+        if (processing == 0 || averageIntervalNanos == 0) {
+            return;
+        }
+        float latency = estimatedLatencyNanos();
+        if (stride < maxStride && (latency > latencyBudgetNanos
+                || processing > MAX_UTILIZATION * stride * averageIntervalNanos)) {
+            stride++;
+        } else if (stride > 1 && latency < latencyBudgetNanos / 2f
+                && processing < MIN_UTILIZATION * (stride - 1) * averageIntervalNanos) {
+            stride--;
+        }
+    }
+
+    /**
+     * @return True when the packet has the hands of the last classified one, none of them
+     *         having moved
+     */
+    private boolean isStill(LandmarkPacket packet) {
+        int handCount = packet.getHandCount();
+        if (handCount != acceptedHands) {
+            return false;
+        }
+        for (int hand = 0; hand < handCount; hand++) {
+            HandFrame frame = packet.getHand(hand);
+            float palmX = frame.x(9) - frame.x(0);
+            float palmY = frame.y(9) - frame.y(0);
+            float maxMove = motionThreshold * motionThreshold * (palmX * palmX + palmY * palmY);
+            for (int i = 0; i < STILL_LANDMARKS.length; i++) {
+                int index = hand * STILL_LANDMARKS.length + i;
+                float dx = frame.x(STILL_LANDMARKS[i]) - acceptedX[index];
+                float dy = frame.y(STILL_LANDMARKS[i]) - acceptedY[index];
+                if (dx * dx + dy * dy > maxMove) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void remember(LandmarkPacket packet) {
+        acceptedTimestamp = packet.getTimestamp();
+        acceptedHands = packet.getHandCount();
+        for (int hand = 0; hand < acceptedHands; hand++) {
+            HandFrame frame = packet.getHand(hand);
+            for (int i = 0; i < STILL_LANDMARKS.length; i++) {
+                int index = hand * STILL_LANDMARKS.length + i;
+                acceptedX[index] = frame.x(STILL_LANDMARKS[i]);
+                acceptedY[index] = frame.y(STILL_LANDMARKS[i]);
+            }
+        }
+    }
+
+    private static float average(float average, float sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Last classification of one hand, reused while the hand holds still.
+ *
+ * The cache keeps the landmarks the letter was computed from. A new frame whose landmarks all
+ * lie within threshold of them, per coordinate, gets the cached letter without classifying.
+ * Otherwise only the landmarks that moved beyond threshold are updated, and classifiers that
+ * support it recompute only the finger states reading those landmarks, see
+ * {@link #fingerStates(HandFrame)}. Every landmark a result depends on is thus within threshold
+ * of its current position.
+ *
+ * One cache per hand slot, used by one thread at a time.
+ */
+public final class ClassificationCache {
+    // Returned by lookup when the hand has to be classified.
+    public static final int MISS = -1;
+
+    // Landmarks read by the state of each finger, see GestureRuleEngine.fingerStates.
+    private static final int[] FINGER_LANDMARKS = {
+            mask(3, 4, 13),
+            mask(0, 5, 6, 7, 8),
+            mask(0, 9, 10, 11, 12),
+            mask(0, 13, 14, 15, 16),
+            mask(0, 17, 18, 19, 20),
+    };
+    private static final int ALL_LANDMARKS = (1 << HandFrame.NUM_LANDMARKS) - 1;
+
+    private final float threshold;
+    private final float[] x = new float[HandFrame.NUM_LANDMARKS];
+    private final float[] y = new float[HandFrame.NUM_LANDMARKS];
+    private final int[] fingerStates = new int[FINGER_LANDMARKS.length];
+    // Landmarks that moved since the cached classification, all of them when there is none.
+    private int moved = ALL_LANDMARKS;
+    // Gesture code of the cached classification, MISS when there is none.
+    private int letter = MISS;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param threshold Largest move of a landmark coordinate that keeps the cached letter, in
+     *                  normalized image units
+     */
+    public ClassificationCache(float threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compares a hand to the landmarks of the cached letter.
+     *
+     * @return Cached gesture code when no landmark moved beyond threshold, MISS when the hand
+     *         has to be classified
+     */
+    public int lookup(HandFrame hand) {
+        if (letter != MISS) {
+            int moved = 0;
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                float distance =
+                        Math.max(Math.abs(hand.x(i) - x[i]), Math.abs(hand.y(i) - y[i]));
+                moved |= (distance > threshold ? 1 : 0) << i;
+            }
+            this.moved = moved;
+            if (moved == 0) {
+                hits++;
+                return letter;
+            }
+        }
+        misses++;
+        return MISS;
+    }
+
+    /**
+     * Finger states of the hand of the last lookup, the fingers whose landmarks did not move
+     * keeping their cached state.
+     *
+     * @return Combination of the GestureRuleEngine finger state bits
+     */
+    public int fingerStates(HandFrame hand) {
+        int states = 0;
+        for (int finger = 0; finger < FINGER_LANDMARKS.length; finger++) {
+            if ((moved & FINGER_LANDMARKS[finger]) != 0) {
+                fingerStates[finger] = GestureRuleEngine.fingerState(hand, finger);
+            }
+            states |= fingerStates[finger];
+        }
+        return states;
+    }
+
+    /**
+     * Caches the letter of the hand of the last lookup.
+     */
+    public void store(HandFrame hand, int letter) {
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            if ((moved & (1 << i)) != 0) {
+                x[i] = hand.x(i);
+                y[i] = hand.y(i);
+            }
+        }
+        this.letter = letter;
+    }
+
+    /**
+     * Forgets the cached letter, for a new hand.
+     */
+    public void reset() {
+        letter = MISS;
+        moved = ALL_LANDMARKS;
+    }
+
+    /**
+     * @return Number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of lookups that needed a classification
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    private static int mask(int... landmarks) {
+        int mask = 0;
+        for (int landmark : landmarks) {
+            mask |= 1 << landmark;
+        }
+        return mask;
+    }
+}
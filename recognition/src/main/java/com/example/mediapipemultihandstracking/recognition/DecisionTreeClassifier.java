@@ -0,0 +1,184 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Learned classifier: a binary decision tree over the {@link HandFeatures}.
+ *
+ * Every inner node compares one feature to a threshold, every leaf holds a letter, so a frame
+ * costs one comparison per level and no allocation. The tree is trained offline from labelled
+ * poses (see DecisionTreeTrainer in the test fixtures) and bundled as a small binary file.
+ * Thresholds are quantized to multiples of 1/4096, the same values are used in memory and in
+ * the file.
+ *
+ * File layout, big endian: magic "GTRE", version (short), label count (short), labels
+ * (modified UTF-8), node count (int), then the nodes in preorder. A node starts with its feature
+ * index as an unsigned byte, 255 for a leaf. A leaf is followed by its label index (short). An
+ * inner node is followed by its quantized threshold (short) and the index of its right child
+ * (int). The left child, taken when the feature is smaller than the threshold, is the next node.
+ */
+public final class DecisionTreeClassifier implements GestureClassifier {
+    // Name of the tree bundled next to this class.
+    public static final String DEFAULT_TREE = "gesture_tree.bin";
+
+    static final int MAGIC = 0x47545245;
+    static final int VERSION = 1;
+    static final float THRESHOLD_SCALE = 4096;
+    static final int LEAF = -1;
+    private static final int LEAF_BYTE = 0xFF;
+
+    // Gesture code of every label.
+    private final int[] labels;
+    // Per node: feature index or LEAF, threshold, right child and label of leaves.
+    private final int[] features;
+    private final float[] thresholds;
+    private final int[] rightChildren;
+    private final int[] nodeLabels;
+
+    /**
+     * @param labels Gesture names of the leaves, see {@link Gestures#code(String)}
+     * @param features Feature index of every node, LEAF for leaves
+     * @param quantizedThresholds Threshold of inner nodes, in 1/THRESHOLD_SCALE units
+     * @param rightChildren Right child of inner nodes
+     * @param nodeLabels Label index of leaves
+     */
+    DecisionTreeClassifier(String[] labels, int[] features, short[] quantizedThresholds,
+                           int[] rightChildren, int[] nodeLabels) {
+        this.labels = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            this.labels[i] = Gestures.code(labels[i]);
+        }
+        this.features = features;
+        this.rightChildren = rightChildren;
+        this.nodeLabels = nodeLabels;
+        thresholds = new float[features.length];
+        for (int node = 0; node < features.length; node++) {
+            thresholds[node] = quantizedThresholds[node] / THRESHOLD_SCALE;
+        }
+    }
+
+    /**
+     * Loads the tree bundled with the app.
+     */
+    public static DecisionTreeClassifier loadDefault() {
+        try (InputStream in = DecisionTreeClassifier.class.getResourceAsStream(DEFAULT_TREE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing decision tree " + DEFAULT_TREE);
+            }
+            return read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read decision tree " + DEFAULT_TREE, e);
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #write(OutputStream)}.
+     *
+     * @param in Source of the tree, not closed
+     * @throws IOException When the tree cannot be read or is malformed
+     */
+    public static DecisionTreeClassifier read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readShort() != VERSION) {
+            throw new IOException("Not a decision tree");
+        }
+        String[] labels = new String[data.readShort()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = data.readUTF();
+            try {
+                Gestures.code(labels[i]);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad label " + labels[i], e);
+            }
+        }
+        int nodeCount = data.readInt();
+        int[] features = new int[nodeCount];
+        short[] thresholds = new short[nodeCount];
+        int[] rightChildren = new int[nodeCount];
+        int[] nodeLabels = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            int feature = data.readUnsignedByte();
+            features[node] = feature == LEAF_BYTE ? LEAF : feature;
+            if (features[node] == LEAF) {
+                nodeLabels[node] = data.readShort();
+                if (nodeLabels[node] < 0 || nodeLabels[node] >= labels.length) {
+                    throw new IOException("Bad label at node " + node);
+                }
+            } else {
+                thresholds[node] = data.readShort();
+                rightChildren[node] = data.readInt();
+                if (features[node] >= HandFeatures.FEATURE_COUNT
+                        || rightChildren[node] <= node + 1 || rightChildren[node] >= nodeCount) {
+                    throw new IOException("Bad split at node " + node);
+                }
+            }
+        }
+        return new DecisionTreeClassifier(labels, features, thresholds, rightChildren, nodeLabels);
+    }
+
+    /**
+     * Writes the tree in the layout described in the class comment.
+     *
+     * @param out Destination, not closed
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeShort(labels.length);
+        for (int label : labels) {
+            data.writeUTF(Gestures.name(label));
+        }
+        data.writeInt(features.length);
+        for (int node = 0; node < features.length; node++) {
+            data.writeByte(features[node] == LEAF ? LEAF_BYTE : features[node]);
+            if (features[node] == LEAF) {
+                data.writeShort(nodeLabels[node]);
+            } else {
+                data.writeShort(Math.round(thresholds[node] * THRESHOLD_SCALE));
+                data.writeInt(rightChildren[node]);
+            }
+        }
+        data.flush();
+    }
+
+    @Override
+    public int classify(HandFrame hand, HandFeatures features) {
+        if (!features.isValid()) {
+            return Gestures.NONE;
+        }
+        float[] values = features.values();
+        int node = 0;
+        int feature;
+        while ((feature = this.features[node]) != LEAF) {
+            node = values[feature] < thresholds[node] ? node + 1 : rightChildren[node];
+        }
+        return labels[nodeLabels[node]];
+    }
+
+    /**
+     * @return Number of nodes, leaves included
+     */
+    public int getNodeCount() {
+        return features.length;
+    }
+
+    /**
+     * @return Number of comparisons on the longest path
+     */
+    public int getDepth() {
+        return depth(0);
+    }
+
+    private int depth(int node) {
+        if (features[node] == LEAF) {
+            return 0;
+        }
+        return 1 + Math.max(depth(node + 1), depth(rightChildren[node]));
+    }
+}
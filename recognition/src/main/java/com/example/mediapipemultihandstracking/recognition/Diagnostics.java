@@ -0,0 +1,154 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Level-gated recorder of numeric diagnostic events.
+ *
+ * Events are a code, a packet timestamp and up to three float values, written into preallocated
+ * arrays used as a ring buffer: the newest events overwrite the oldest ones. Recording never
+ * allocates, and when the level of an event is disabled the call costs a field read and a
+ * branch. Nothing is formatted until {@link #dump(Appendable)} is called.
+ *
+ * Writers on different threads each claim their own slot. A dump taken while events are
+ * recorded may show a slot that is half written, which is fine for diagnostics.
+ */
+public final class Diagnostics {
+    public static final int LEVEL_OFF = 0;
+    // Rare events, like letter changes.
+    public static final int LEVEL_INFO = 1;
+    // Events recorded for every packet.
+    public static final int LEVEL_DEBUG = 2;
+
+    // Event codes, see EVENT_NAMES for the meaning of their values.
+    public static final int EVENT_LANDMARK_PACKET = 0;
+    public static final int EVENT_PALM_BASE = 1;
+    public static final int EVENT_RECT_PACKET = 2;
+    public static final int EVENT_LETTER_CHANGED = 3;
+    public static final int EVENT_LETTER_COMMITTED = 4;
+
+    private static final String[] EVENT_NAMES = {
+            "landmarks hands=%0 dropped=%1 skipped=%2",
+            "palm base hand=%0 x0=%1 x17=%2",
+            "rects count=%0 x=%1 y=%2",
+            "letter changed %c0 hand=%1",
+            "letter committed %c0 hand=%1",
+    };
+
+    private static final int VALUES_PER_EVENT = 3;
+
+    private volatile int level;
+    private final int capacity;
+    private final int[] events;
+    private final long[] timestamps;
+    private final float[] values;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param capacity Number of events kept, rounded up to a power of two
+     * @param level Initial level, LEVEL_OFF disables recording
+     */
+    public Diagnostics(int capacity, int level) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.capacity = size;
+        this.level = level;
+        events = new int[size];
+        timestamps = new long[size];
+        values = new float[size * VALUES_PER_EVENT];
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return True when events of the given level are recorded. Use it to skip computing values.
+     */
+    public boolean isEnabled(int eventLevel) {
+        return eventLevel <= level;
+    }
+
+    public void record(int eventLevel, int event, long timestamp, float a) {
+        record(eventLevel, event, timestamp, a, 0, 0);
+    }
+
+    public void record(int eventLevel, int event, long timestamp, float a, float b, float c) {
+        if (eventLevel > level) {
+            return;
+        }
+        int slot = (int) (sequence.getAndIncrement() & (capacity - 1));
+        events[slot] = event;
+        timestamps[slot] = timestamp;
+        int offset = slot * VALUES_PER_EVENT;
+        values[offset] = a;
+        values[offset + 1] = b;
+        values[offset + 2] = c;
+    }
+
+    /**
+     * @return Number of events recorded since the creation, overwritten ones included
+     */
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Writes the events still held by the ring buffer, oldest first, one per line.
+     *
+     * @param out Destination of the dump
+     * @throws IOException When the destination fails
+     */
+    public void dump(Appendable out) throws IOException {
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity);
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i & (capacity - 1));
+            int event = events[slot];
+            out.append("[TS:").append(Long.toString(timestamps[slot])).append("] ");
+            if (event < 0 || event >= EVENT_NAMES.length) {
+                out.append("event ").append(Integer.toString(event)).append('\n');
+                continue;
+            }
+            format(out, EVENT_NAMES[event], slot * VALUES_PER_EVENT);
+            out.append('\n');
+        }
+    }
+
+    private void format(Appendable out, String pattern, int offset) throws IOException {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                out.append(c);
+                continue;
+            }
+            boolean asChar = pattern.charAt(i + 1) == 'c';
+            if (asChar) {
+                i++;
+            }
+            float value = values[offset + pattern.charAt(++i) - '0'];
+            if (asChar) {
+                out.append(value == 0 ? "-" : String.valueOf((char) value));
+            } else if (value == (int) value) {
+                out.append(Integer.toString((int) value));
+            } else {
+                out.append(Float.toString(value));
+            }
+        }
+    }
+
+    /**
+     * Numeric value of a gesture for the letter events: its letter, ' ' for SPACE and 0 for
+     * NONE.
+     */
+    public static float letterValue(int gesture) {
+        if (Gestures.isLetter(gesture)) {
+            return Gestures.letter(gesture);
+        }
+        return gesture == Gestures.SPACE ? ' ' : 0;
+    }
+}
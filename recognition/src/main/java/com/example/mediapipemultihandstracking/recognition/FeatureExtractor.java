@@ -0,0 +1,77 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Maps the landmarks of a hand into a canonical frame that does not depend on where the hand
+ * is, how far it is from the camera or how it is tilted.
+ *
+ * The wrist (landmark 0) becomes the origin, the distance between the wrist and the middle
+ * finger base (landmark 9) becomes the unit, and the hand is rotated around Z so that this axis
+ * points up. Z is scaled like X and Y. The result is written into a reusable
+ * {@link HandFeatures} once per frame, together with the other blocks described there, and
+ * shared by every classifier. Stateless, so one instance can be used by several threads.
+ */
+public final class FeatureExtractor {
+    /**
+     * Landmark pairs whose distance is part of the features, two indices per pair. These are
+     * the pairs the rule table compares.
+     */
+    public static final int[] DISTANCE_PAIRS = {
+            4, 6, 4, 8, 4, 12, 8, 12, 12, 16, 4, 16, 4, 20, 16, 20,
+            8, 5, 12, 9, 16, 13, 20, 17, 4, 7, 3, 5, 2, 5, 7, 11,
+            6, 10, 3, 10, 8, 7, 4, 9, 3, 9, 5, 9, 4, 13, 3, 13};
+
+    // Palms smaller than that, in normalized image units, are treated as degenerate.
+    private static final double MIN_PALM_SIZE = 1e-6;
+
+    /**
+     * @param hand Landmarks of the hand, in normalized image coordinates
+     * @param features Receives the features
+     * @return False when the palm is degenerate and the features are all 0
+     */
+    public boolean extract(HandFrame hand, HandFeatures features) {
+        float[] values = features.values();
+        double axisX = (double) hand.x(9) - hand.x(0);
+        double axisY = (double) hand.y(9) - hand.y(0);
+        double palmSize = hand.distance(0, 9);
+        if (palmSize < MIN_PALM_SIZE) {
+            Arrays.fill(values, 0);
+            features.setValid(false);
+            return false;
+        }
+
+        // Rotation that maps the palm axis to (0, -palmSize), followed by the scaling.
+        double scale = 1 / palmSize;
+        double cos = -axisY * scale;
+        double sin = -axisX * scale;
+        float originX = hand.x(0);
+        float originY = hand.y(0);
+        float originZ = hand.z(0);
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            double x = hand.x(i) - originX;
+            double y = hand.y(i) - originY;
+            int offset = i * HandFrame.LANDMARK_STRIDE;
+            values[offset] = (float) ((cos * x - sin * y) * scale);
+            values[offset + 1] = (float) ((sin * x + cos * y) * scale);
+            values[offset + 2] = (float) ((hand.z(i) - originZ) * scale);
+            values[HandFeatures.UPRIGHT + 2 * i] = (float) (x * scale);
+            values[HandFeatures.UPRIGHT + 2 * i + 1] = (float) (y * scale);
+        }
+        values[HandFeatures.ORIENTATION_X] = (float) (axisX * scale);
+        values[HandFeatures.ORIENTATION_Y] = (float) (axisY * scale);
+        values[HandFeatures.PALM_SIZE] = (float) palmSize;
+
+        for (int pair = 0; pair < HandFeatures.NUM_DISTANCES; pair++) {
+            double distance = hand.distance(DISTANCE_PAIRS[2 * pair], DISTANCE_PAIRS[2 * pair + 1]);
+            values[HandFeatures.DISTANCES + pair] = (float) (distance * scale);
+            values[HandFeatures.IMAGE_DISTANCES + pair] = (float) distance;
+        }
+        int states = GestureRuleEngine.fingerStates(hand);
+        for (int bit = 0; bit < HandFeatures.NUM_FINGER_STATES; bit++) {
+            values[HandFeatures.FINGER_STATES + bit] = (states >> bit) & 1;
+        }
+        features.setValid(true);
+        return true;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Distance predicates of the gesture rules, on the flat landmark array of a {@link HandFrame}.
+ *
+ * Callers only ever compare distances, to each other or to a radius, so everything works on
+ * float squared distances on the X/Y plane: no square root, no double. Comparisons are turned
+ * into 0/1 ints and combined with bit operators instead of && and ||, so a batch of predicates
+ * is straight-line code the JIT can inline and schedule freely.
+ *
+ * Decisions match the ones on Euclidean distances, except when the two compared distances are
+ * within float rounding of each other.
+ */
+public final class GeometryKernel {
+    // Tip landmarks of the index, middle, ring and pinky fingers. The joints of a finger are
+    // the three landmarks before its tip, the base (MCP) being tip - 3.
+    private static final int INDEX_TIP = 8;
+    private static final int MIDDLE_TIP = 12;
+    private static final int RING_TIP = 16;
+    private static final int PINKY_TIP = 20;
+    private static final int WRIST = 0;
+    private static final int STRIDE = HandFrame.LANDMARK_STRIDE;
+
+    private GeometryKernel() {
+    }
+
+    /**
+     * @param coordinates Landmarks laid out like {@link HandFrame#coordinates()}
+     * @return Squared distance between two landmarks on the X/Y plane
+     */
+    public static float distanceSquared(float[] coordinates, int a, int b) {
+        int i = a * STRIDE;
+        int j = b * STRIDE;
+        float dx = coordinates[i] - coordinates[j];
+        float dy = coordinates[i + 1] - coordinates[j + 1];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return True when landmark a is closer to b than p is to q
+     */
+    public static boolean isCloser(float[] coordinates, int a, int b, int p, int q) {
+        return distanceSquared(coordinates, a, b) < distanceSquared(coordinates, p, q);
+    }
+
+    /**
+     * @param radiusSquared Square of the radius
+     * @return True when the distance between both landmarks is smaller than the radius
+     */
+    public static boolean isWithin(float[] coordinates, int a, int b, float radiusSquared) {
+        return distanceSquared(coordinates, a, b) < radiusSquared;
+    }
+
+    /**
+     * @param tip Tip landmark of the index, middle, ring or pinky finger
+     * @return 1 when the tip is closer to the wrist than the base of the finger, 0 otherwise
+     */
+    public static int curled(float[] coordinates, int tip) {
+        return less(distanceSquared(coordinates, tip, WRIST),
+                distanceSquared(coordinates, tip - 3, WRIST));
+    }
+
+    /**
+     * @param tip Tip landmark of the index, middle, ring or pinky finger
+     * @return 1 when the joints of the finger go up from its base to its tip, in image
+     *         coordinates where y grows downward, 0 otherwise
+     */
+    public static int raised(float[] coordinates, int tip) {
+        int y = tip * STRIDE + 1;
+        return less(coordinates[y], coordinates[y - STRIDE])
+                & less(coordinates[y - STRIDE], coordinates[y - 2 * STRIDE])
+                & less(coordinates[y - 2 * STRIDE], coordinates[y - 3 * STRIDE]);
+    }
+
+    /**
+     * {@link #curled(float[], int)} for the four fingers at once.
+     *
+     * @return Bit 0 for the index finger up to bit 3 for the pinky
+     */
+    public static int curledFingers(float[] coordinates) {
+        return curled(coordinates, INDEX_TIP)
+                | curled(coordinates, MIDDLE_TIP) << 1
+                | curled(coordinates, RING_TIP) << 2
+                | curled(coordinates, PINKY_TIP) << 3;
+    }
+
+    /**
+     * {@link #raised(float[], int)} for the four fingers at once.
+     *
+     * @return Bit 0 for the index finger up to bit 3 for the pinky
+     */
+    public static int raisedFingers(float[] coordinates) {
+        return raised(coordinates, INDEX_TIP)
+                | raised(coordinates, MIDDLE_TIP) << 1
+                | raised(coordinates, RING_TIP) << 2
+                | raised(coordinates, PINKY_TIP) << 3;
+    }
+
+    /**
+     * @param landmarks Landmarks compared pairwise, like the five fingertips
+     * @param radiusSquared Square of the radius
+     * @return True when every pair of the landmarks is closer than the radius
+     */
+    public static boolean allWithin(float[] coordinates, int[] landmarks, float radiusSquared) {
+        int within = 1;
+        for (int i = 0; i < landmarks.length; i++) {
+            for (int j = i + 1; j < landmarks.length; j++) {
+                within &= less(distanceSquared(coordinates, landmarks[i], landmarks[j]),
+                        radiusSquared);
+            }
+        }
+        return within != 0;
+    }
+
+    /**
+     * @return 1 when a is smaller than b, 0 otherwise. Compiles to a flag move, not a jump.
+     */
+    private static int less(float a, float b) {
+        return a < b ? 1 : 0;
+    }
+}
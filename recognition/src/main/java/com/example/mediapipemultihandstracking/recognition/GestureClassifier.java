@@ -0,0 +1,39 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Finds the letter signed by one hand, as a {@link Gestures} code. Implementations are
+ * thread-safe and do not allocate, so one instance can classify every hand of a packet in
+ * parallel.
+ */
+public interface GestureClassifier {
+    /**
+     * @param hand Landmarks of the hand, in normalized image coordinates
+     * @param features Canonical features of the same hand, see {@link FeatureExtractor}
+     * @return Gesture code signed by the hand, NONE when it signs none
+     */
+    int classify(HandFrame hand, HandFeatures features);
+
+    /**
+     * Classifies a hand that moved since its cached classification. Implementations may reuse
+     * what the cache knows about the landmarks that did not move.
+     *
+     * @param cache Cache of the hand, after a lookup that missed
+     */
+    default int classify(HandFrame hand, HandFeatures features, ClassificationCache cache) {
+        return classify(hand, features);
+    }
+
+    /**
+     * @return False when classify never reads the features, so callers can skip extracting them
+     */
+    default boolean needsFeatures() {
+        return true;
+    }
+
+    /**
+     * @return Classifier using the thresholds of a profile, this one when it uses none of them
+     */
+    default GestureClassifier withThresholds(ThresholdProfile profile) {
+        return this;
+    }
+}
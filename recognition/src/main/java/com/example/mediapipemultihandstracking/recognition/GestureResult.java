@@ -0,0 +1,49 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Decided gesture with the confidence of every gesture code, see {@link Gestures}. Reusable:
+ * the owner fills it again for every decision, so readers must not keep it past the call that
+ * handed it over.
+ */
+public final class GestureResult {
+    private final float[] confidences = new float[Gestures.COUNT];
+    private int code = Gestures.NONE;
+
+    /**
+     * @return Code of the decided gesture
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return Confidence of a gesture code, within [0, 1], the confidences summing up to 1
+     */
+    public float getConfidence(int code) {
+        return confidences[code];
+    }
+
+    /**
+     * Decides a gesture read with certainty.
+     */
+    public void set(int code) {
+        Arrays.fill(confidences, 0);
+        confidences[code] = 1;
+        this.code = code;
+    }
+
+    /**
+     * Decides a gesture from votes, every code getting its share of them as confidence.
+     *
+     * @param votes Votes per gesture code
+     * @param total Sum of the votes, positive
+     */
+    void setVotes(int code, int[] votes, int total) {
+        for (int i = 0; i < Gestures.COUNT; i++) {
+            confidences[i] = (float) votes[i] / total;
+        }
+        this.code = code;
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table-driven replacement of the letter if/else chain.
+ *
+ * Every letter is described by one line of a rule table: the finger states it requires or
+ * forbids, followed by geometric predicates over landmark indices. A line looks like
+ * <pre>
+ * A   I- M- R- P- T+   near(4,6) x&lt;(4,6)
+ * </pre>
+ * Finger states are written as I (index), M (middle), R (ring), P (pinky) followed by + for
+ * straight up or - for straight down, and T+ / T- for an open or bent thumb. A leading ! negates
+ * a state or a predicate. Available predicates:
+ * <ul>
+ *     <li>near(a,b): distance between a and b smaller than 0.1, or the near distance of the
+ *     {@link ThresholdProfile}</li>
+ *     <li>x&lt;(a,b), x&lt;=(a,b), y&lt;(a,b), y&lt;=(a,b): coordinate of a compared to b</li>
+ *     <li>d&lt;(a,b,c,d): distance a-b smaller than distance c-d</li>
+ * </ul>
+ * Lines are tried in table order and the first matching one wins. A letter can have several
+ * lines to express alternatives.
+ *
+ * When compiled, the finger states of each rule become a bit mask. For every possible finger
+ * state combination the engine precomputes the ordered list of rules whose masks agree with it,
+ * so a frame only evaluates the predicates of the few candidate rules.
+ */
+public final class GestureRuleEngine implements GestureClassifier {
+    // Name of the rule table bundled next to this class.
+    public static final String DEFAULT_RULES = "gesture_rules.txt";
+
+    // Finger state bits, see fingerStates.
+    public static final int INDEX_UP = 1;
+    public static final int INDEX_DOWN = 1 << 1;
+    public static final int MIDDLE_UP = 1 << 2;
+    public static final int MIDDLE_DOWN = 1 << 3;
+    public static final int RING_UP = 1 << 4;
+    public static final int RING_DOWN = 1 << 5;
+    public static final int PINKY_UP = 1 << 6;
+    public static final int PINKY_DOWN = 1 << 7;
+    public static final int THUMB_OPEN = 1 << 8;
+    public static final int THUMB_BEND = 1 << 9;
+    private static final int STATE_COMBINATIONS = 1 << 10;
+
+    // Predicate opcodes, followed by their landmark operands in the compiled program.
+    private static final int OP_NEAR = 0;
+    private static final int OP_X_LESS = 1;
+    private static final int OP_X_LESS_EQUAL = 2;
+    private static final int OP_Y_LESS = 3;
+    private static final int OP_Y_LESS_EQUAL = 4;
+    private static final int OP_DISTANCE_LESS = 5;
+    private static final int OP_NEGATE = 0x100;
+
+    // Gesture code of every rule.
+    private final int[] letters;
+    private final int[][] programs;
+    private final int[][] candidatesByState;
+    private final double nearDistance;
+    private final float nearDistanceSquared;
+
+    private GestureRuleEngine(int[] letters, int[] requiredStates, int[] forbiddenStates,
+                              int[][] programs) {
+        this.letters = letters;
+        this.programs = programs;
+        nearDistance = ThresholdProfile.DEFAULT.getNearDistance();
+        nearDistanceSquared = (float) (nearDistance * nearDistance);
+        candidatesByState = new int[STATE_COMBINATIONS][];
+        int[] candidates = new int[letters.length];
+        for (int state = 0; state < STATE_COMBINATIONS; state++) {
+            int count = 0;
+            for (int rule = 0; rule < letters.length; rule++) {
+                if ((state & requiredStates[rule]) == requiredStates[rule]
+                        && (state & forbiddenStates[rule]) == 0) {
+                    candidates[count++] = rule;
+                }
+            }
+            int[] stateCandidates = new int[count];
+            System.arraycopy(candidates, 0, stateCandidates, 0, count);
+            candidatesByState[state] = stateCandidates;
+        }
+    }
+
+    private GestureRuleEngine(GestureRuleEngine rules, double nearDistance) {
+        letters = rules.letters;
+        programs = rules.programs;
+        candidatesByState = rules.candidatesByState;
+        this.nearDistance = nearDistance;
+        nearDistanceSquared = (float) (nearDistance * nearDistance);
+    }
+
+    /**
+     * Compiles the rule table bundled with the app.
+     */
+    public static GestureRuleEngine loadDefault() {
+        try (InputStream in = GestureRuleEngine.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing rule table " + DEFAULT_RULES);
+            }
+            return compile(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read rule table " + DEFAULT_RULES, e);
+        }
+    }
+
+    /**
+     * Compiles a rule table. Empty lines and lines starting with # are ignored.
+     *
+     * @param reader Source of the rule table
+     * @return Engine evaluating the rules in table order
+     * @throws IOException When the table cannot be read
+     * @throws IllegalArgumentException When a line is malformed
+     */
+    public static GestureRuleEngine compile(Reader reader) throws IOException {
+        List<Integer> letters = new ArrayList<>();
+        List<int[]> masks = new ArrayList<>();
+        List<int[]> programs = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            int[] mask = new int[2];
+            List<Integer> program = new ArrayList<>();
+            try {
+                letters.add(Gestures.code(tokens[0]));
+                for (int i = 1; i < tokens.length; i++) {
+                    compileToken(tokens[i], mask, program);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            if ((mask[0] & mask[1]) != 0) {
+                throw new IllegalArgumentException(
+                        "Line " + lineNumber + ": a state is both required and forbidden");
+            }
+            int[] compiled = new int[program.size()];
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = program.get(i);
+            }
+            masks.add(mask);
+            programs.add(compiled);
+        }
+
+        int size = letters.size();
+        int[] codes = new int[size];
+        int[] required = new int[size];
+        int[] forbidden = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = letters.get(i);
+            required[i] = masks.get(i)[0];
+            forbidden[i] = masks.get(i)[1];
+        }
+        return new GestureRuleEngine(codes, required, forbidden,
+                programs.toArray(new int[0][]));
+    }
+
+    private static void compileToken(String token, int[] mask, List<Integer> program) {
+        boolean negated = token.startsWith("!");
+        String body = negated ? token.substring(1) : token;
+
+        int state = stateBit(body);
+        if (state != 0) {
+            mask[negated ? 1 : 0] |= state;
+            return;
+        }
+
+        int open = body.indexOf('(');
+        if (open < 0 || !body.endsWith(")")) {
+            throw new IllegalArgumentException("Unknown token " + token);
+        }
+        String name = body.substring(0, open);
+        String[] operands = body.substring(open + 1, body.length() - 1).split(",");
+        int opcode;
+        int arity = 2;
+        switch (name) {
+            case "near":
+                opcode = OP_NEAR;
+                break;
+            case "x<":
+                opcode = OP_X_LESS;
+                break;
+            case "x<=":
+                opcode = OP_X_LESS_EQUAL;
+                break;
+            case "y<":
+                opcode = OP_Y_LESS;
+                break;
+            case "y<=":
+                opcode = OP_Y_LESS_EQUAL;
+                break;
+            case "d<":
+                opcode = OP_DISTANCE_LESS;
+                arity = 4;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown predicate " + name);
+        }
+        if (operands.length != arity) {
+            throw new IllegalArgumentException(name + " expects " + arity + " landmarks: " + token);
+        }
+        program.add(negated ? opcode | OP_NEGATE : opcode);
+        for (String operand : operands) {
+            int landmark = Integer.parseInt(operand.trim());
+            if (landmark < 0 || landmark >= HandFrame.NUM_LANDMARKS) {
+                throw new IllegalArgumentException("Landmark out of range: " + token);
+            }
+            program.add(landmark);
+        }
+    }
+
+    private static int stateBit(String token) {
+        switch (token) {
+            case "I+": return INDEX_UP;
+            case "I-": return INDEX_DOWN;
+            case "M+": return MIDDLE_UP;
+            case "M-": return MIDDLE_DOWN;
+            case "R+": return RING_UP;
+            case "R-": return RING_DOWN;
+            case "P+": return PINKY_UP;
+            case "P-": return PINKY_DOWN;
+            case "T+": return THUMB_OPEN;
+            case "T-": return THUMB_BEND;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Computes the finger states of a hand.
+     *
+     * A finger is straight up when its joints are ordered bottom to top, and straight down
+     * when it is not up and its tip is closer to the wrist than its base. The thumb is bent when
+     * its tip is closer to the ring finger base than its IP joint, and open otherwise.
+     *
+     * @param hand Landmarks of the hand
+     * @return Combination of the finger state bits
+     */
+    public static int fingerStates(HandFrame hand) {
+        float[] coordinates = hand.coordinates();
+        int up = GeometryKernel.raisedFingers(coordinates);
+        int down = GeometryKernel.curledFingers(coordinates) & ~up;
+        return spread(up) | spread(down) << 1 | thumbState(hand);
+    }
+
+    /**
+     * Moves bit i of a finger mask to bit 2i, where the up state bit of finger i is.
+     */
+    private static int spread(int fingers) {
+        return (fingers & 1) | (fingers & 2) << 1 | (fingers & 4) << 2 | (fingers & 8) << 3;
+    }
+
+    /**
+     * State of one finger, see {@link #fingerStates(HandFrame)}.
+     *
+     * @param finger 0 for the thumb, then index, middle, ring and pinky
+     */
+    static int fingerState(HandFrame hand, int finger) {
+        switch (finger) {
+            case 0: return thumbState(hand);
+            case 1: return fingerState(hand, 8, INDEX_UP, INDEX_DOWN);
+            case 2: return fingerState(hand, 12, MIDDLE_UP, MIDDLE_DOWN);
+            case 3: return fingerState(hand, 16, RING_UP, RING_DOWN);
+            default: return fingerState(hand, 20, PINKY_UP, PINKY_DOWN);
+        }
+    }
+
+    private static int thumbState(HandFrame hand) {
+        return GeometryKernel.isCloser(hand.coordinates(), 4, 13, 3, 13)
+                ? THUMB_BEND : THUMB_OPEN;
+    }
+
+    private static int fingerState(HandFrame hand, int tip, int upBit, int downBit) {
+        float[] coordinates = hand.coordinates();
+        if (GeometryKernel.raised(coordinates, tip) != 0) {
+            return upBit;
+        }
+        return GeometryKernel.curled(coordinates, tip) != 0 ? downBit : 0;
+    }
+
+    /**
+     * Finds the letter signed by a hand.
+     *
+     * @param hand Landmarks of the hand
+     * @return Gesture code of the first rule of the table that matches, NONE when none does
+     */
+    public int classify(HandFrame hand) {
+        return classify(hand, fingerStates(hand));
+    }
+
+    /**
+     * Finds the letter signed by a hand whose finger states are known.
+     *
+     * @param states Finger states of the hand, see {@link #fingerStates(HandFrame)}
+     * @return Gesture code of the first rule of the table that matches, NONE when none does
+     */
+    public int classify(HandFrame hand, int states) {
+        int[] candidates = candidatesByState[states];
+        for (int rule : candidates) {
+            if (matches(programs[rule], hand, nearDistanceSquared)) {
+                return letters[rule];
+            }
+        }
+        return Gestures.NONE;
+    }
+
+    /**
+     * The rules are written in image coordinates, some letters only differ by the orientation of
+     * the hand in the image, so they read the landmarks and not the canonical features.
+     */
+    @Override
+    public int classify(HandFrame hand, HandFeatures features) {
+        return classify(hand);
+    }
+
+    /**
+     * Only recomputes the states of the fingers whose landmarks moved.
+     */
+    @Override
+    public int classify(HandFrame hand, HandFeatures features, ClassificationCache cache) {
+        return classify(hand, cache.fingerStates(hand));
+    }
+
+    @Override
+    public boolean needsFeatures() {
+        return false;
+    }
+
+    /**
+     * Shares the compiled table with this engine.
+     */
+    @Override
+    public GestureRuleEngine withThresholds(ThresholdProfile profile) {
+        return profile.getNearDistance() == nearDistance
+                ? this : new GestureRuleEngine(this, profile.getNearDistance());
+    }
+
+    /**
+     * @return Number of rule lines in the table
+     */
+    public int getRuleCount() {
+        return letters.length;
+    }
+
+    private static boolean matches(int[] program, HandFrame hand, float nearDistanceSquared) {
+        float[] landmarks = hand.coordinates();
+        int pc = 0;
+        while (pc < program.length) {
+            int instruction = program[pc];
+            int a = program[pc + 1];
+            int b = program[pc + 2];
+            boolean result;
+            switch (instruction & ~OP_NEGATE) {
+                case OP_NEAR:
+                    result = GeometryKernel.isWithin(landmarks, a, b, nearDistanceSquared);
+                    pc += 3;
+                    break;
+                case OP_X_LESS:
+                    result = hand.x(a) < hand.x(b);
+                    pc += 3;
+                    break;
+                case OP_X_LESS_EQUAL:
+                    result = hand.x(a) <= hand.x(b);
+                    pc += 3;
+                    break;
+                case OP_Y_LESS:
+                    result = hand.y(a) < hand.y(b);
+                    pc += 3;
+                    break;
+                case OP_Y_LESS_EQUAL:
+                    result = hand.y(a) <= hand.y(b);
+                    pc += 3;
+                    break;
+                default:
+                    result = GeometryKernel.isCloser(landmarks, a, b, program[pc + 3],
+                            program[pc + 4]);
+                    pc += 5;
+                    break;
+            }
+            if (result == ((instruction & OP_NEGATE) != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Codes of the gestures the recognizers decide between: NONE, the letters A to Z and SPACE.
+ *
+ * Classifiers, debouncers and listeners pass these ints around, so the per-frame path neither
+ * allocates nor compares strings. Names are only parsed when tables are loaded, and only
+ * looked up, never built, when a gesture is shown.
+ */
+public final class Gestures {
+    // No gesture held, or no hand.
+    public static final int NONE = 0;
+    public static final int A = 1;
+    public static final int Z = 26;
+    // Ends the current word.
+    public static final int SPACE = 27;
+    // Number of codes, every code is within [0, COUNT).
+    public static final int COUNT = 28;
+
+    private static final String[] NAMES = new String[COUNT];
+
+    static {
+        NAMES[NONE] = "";
+        for (int code = A; code <= Z; code++) {
+            NAMES[code] = String.valueOf((char) ('A' + code - A));
+        }
+        NAMES[SPACE] = "SPACE";
+    }
+
+    private Gestures() {
+    }
+
+    /**
+     * @param name Name used by the rule, tree and template tables: "A" to "Z", "SPACE", or ""
+     *             for NONE
+     * @return Code of the gesture
+     * @throws IllegalArgumentException When the name is not a gesture
+     */
+    public static int code(String name) {
+        for (int code = 0; code < COUNT; code++) {
+            if (NAMES[code].equals(name)) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("Unknown gesture " + name);
+    }
+
+    /**
+     * @param letter Upper case letter from A to Z
+     * @return Code of the letter
+     */
+    public static int ofLetter(char letter) {
+        if (!LetterScores.isLetter(letter)) {
+            throw new IllegalArgumentException("Not a letter from A to Z: " + letter);
+        }
+        return A + letter - 'A';
+    }
+
+    /**
+     * @return Name of a gesture, "" for NONE. The same instance is returned for every call.
+     */
+    public static String name(int code) {
+        return NAMES[code];
+    }
+
+    /**
+     * @return Whether the code is one of the letters A to Z
+     */
+    public static boolean isLetter(int code) {
+        return code >= A && code <= Z;
+    }
+
+    /**
+     * @param code Code of a letter, see {@link #isLetter(int)}
+     * @return Upper case letter from A to Z
+     */
+    public static char letter(int code) {
+        return (char) ('A' + code - A);
+    }
+}
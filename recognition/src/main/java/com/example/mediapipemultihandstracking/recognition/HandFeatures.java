@@ -0,0 +1,84 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Fixed-length feature vector of one hand, filled by a {@link FeatureExtractor}.
+ *
+ * The vector starts with the landmarks in the canonical hand frame, laid out like
+ * {@link HandFrame#coordinates()}: wrist at the origin, palm size as unit and the wrist to
+ * middle finger base axis pointing up (negative Y, like in the image). The blocks after it keep
+ * what the canonical frame throws away and what the rules look at, so learned classifiers can
+ * use it too:
+ * <ul>
+ *     <li>ORIENTATION_X, ORIENTATION_Y: direction of the palm axis in the image</li>
+ *     <li>PALM_SIZE: wrist to middle finger base distance in normalized image units</li>
+ *     <li>UPRIGHT: X and Y of every landmark relative to the wrist, in palm units but not
+ *     rotated, so sideways hands stay sideways</li>
+ *     <li>DISTANCES and IMAGE_DISTANCES: distances of the {@link FeatureExtractor#DISTANCE_PAIRS}
+ *     in palm units and in image units</li>
+ *     <li>FINGER_STATES: the finger state bits of {@link GestureRuleEngine#fingerStates}, as 0
+ *     or 1</li>
+ * </ul>
+ * Vectors are meant to be reused, nothing here allocates after construction.
+ */
+public final class HandFeatures {
+    public static final int ORIENTATION_X = HandFrame.NUM_COORDINATES;
+    public static final int ORIENTATION_Y = ORIENTATION_X + 1;
+    public static final int PALM_SIZE = ORIENTATION_Y + 1;
+    public static final int UPRIGHT = PALM_SIZE + 1;
+    public static final int DISTANCES = UPRIGHT + 2 * HandFrame.NUM_LANDMARKS;
+    public static final int NUM_DISTANCES = FeatureExtractor.DISTANCE_PAIRS.length / 2;
+    public static final int IMAGE_DISTANCES = DISTANCES + NUM_DISTANCES;
+    public static final int FINGER_STATES = IMAGE_DISTANCES + NUM_DISTANCES;
+    public static final int NUM_FINGER_STATES = 10;
+    public static final int FEATURE_COUNT = FINGER_STATES + NUM_FINGER_STATES;
+
+    private final float[] values = new float[FEATURE_COUNT];
+    private boolean valid;
+
+    /**
+     * Gives direct access to the feature values, see the class comment for the layout.
+     */
+    public float[] values() {
+        return values;
+    }
+
+    /**
+     * @return Canonical X of a landmark
+     */
+    public float x(int landmark) {
+        return values[landmark * HandFrame.LANDMARK_STRIDE];
+    }
+
+    /**
+     * @return Canonical Y of a landmark
+     */
+    public float y(int landmark) {
+        return values[landmark * HandFrame.LANDMARK_STRIDE + 1];
+    }
+
+    /**
+     * @return Canonical Z of a landmark
+     */
+    public float z(int landmark) {
+        return values[landmark * HandFrame.LANDMARK_STRIDE + 2];
+    }
+
+    /**
+     * @return Distance between the wrist and the middle finger base in the image, in normalized
+     *         image units
+     */
+    public float getPalmSize() {
+        return values[PALM_SIZE];
+    }
+
+    /**
+     * @return False when the palm was too small to define a canonical frame, all values are 0
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    void setValid(boolean valid) {
+        this.valid = valid;
+    }
+}
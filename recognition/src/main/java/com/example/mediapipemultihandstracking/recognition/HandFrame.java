@@ -0,0 +1,104 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * The 21 normalized landmarks of one hand stored as a flat primitive array.
+ *
+ * A frame is filled once per packet and then read by every gesture predicate without touching
+ * the protobuf objects again. Distances between two landmarks are computed on first use and
+ * cached until the next {@link #beginUpdate()}, so the features that measure the same pairs
+ * share the work. The rules only compare distances, they use the squared distances of
+ * {@link GeometryKernel} instead. Frames are meant to be reused, nothing here allocates after
+ * construction.
+ */
+public final class HandFrame {
+    public static final int NUM_LANDMARKS = 21;
+    public static final int LANDMARK_STRIDE = 3;
+    public static final int NUM_COORDINATES = NUM_LANDMARKS * LANDMARK_STRIDE;
+
+    // x, y, z of landmark i are at i * LANDMARK_STRIDE.
+    private final float[] coordinates = new float[NUM_COORDINATES];
+
+    // Lazily filled distance cache, an entry is valid when its stamp matches the frame stamp.
+    private final double[] distances = new double[NUM_LANDMARKS * NUM_LANDMARKS];
+    private final int[] distanceStamps = new int[NUM_LANDMARKS * NUM_LANDMARKS];
+    private int stamp = 1;
+
+    /**
+     * Invalidates the distance cache. Has to be called before the landmarks are overwritten.
+     */
+    public void beginUpdate() {
+        stamp++;
+        if (stamp == 0) {
+            // The stamp wrapped around, old entries could look valid again.
+            Arrays.fill(distanceStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    public void setLandmark(int index, float x, float y, float z) {
+        int offset = index * LANDMARK_STRIDE;
+        coordinates[offset] = x;
+        coordinates[offset + 1] = y;
+        coordinates[offset + 2] = z;
+    }
+
+    /**
+     * Copies all landmarks of another frame into this one.
+     *
+     * @param other Frame to copy from
+     */
+    public void copyFrom(HandFrame other) {
+        beginUpdate();
+        System.arraycopy(other.coordinates, 0, coordinates, 0, NUM_COORDINATES);
+    }
+
+    /**
+     * Mirrors the hand horizontally in the image, x becoming 1 - x, so a left hand reads like
+     * a right one. Distances do not change, the cache stays valid.
+     */
+    public void mirror() {
+        for (int offset = 0; offset < NUM_COORDINATES; offset += LANDMARK_STRIDE) {
+            coordinates[offset] = 1 - coordinates[offset];
+        }
+    }
+
+    public float x(int index) {
+        return coordinates[index * LANDMARK_STRIDE];
+    }
+
+    public float y(int index) {
+        return coordinates[index * LANDMARK_STRIDE + 1];
+    }
+
+    public float z(int index) {
+        return coordinates[index * LANDMARK_STRIDE + 2];
+    }
+
+    /**
+     * Gives direct access to the landmark array, laid out as x, y, z per landmark.
+     * Callers must not keep the reference past the lifetime of the frame.
+     */
+    public float[] coordinates() {
+        return coordinates;
+    }
+
+    /**
+     * Euclidean distance between two landmarks on the X/Y plane, cached for the current frame.
+     *
+     * @param a Index of landmark A
+     * @param b Index of landmark B
+     * @return Euclidean distance result
+     */
+    public double distance(int a, int b) {
+        int key = a < b ? a * NUM_LANDMARKS + b : b * NUM_LANDMARKS + a;
+        if (distanceStamps[key] != stamp) {
+            double dx = (double) x(a) - x(b);
+            double dy = (double) y(a) - y(b);
+            distances[key] = Math.sqrt(dx * dx + dy * dy);
+            distanceStamps[key] = stamp;
+        }
+        return distances[key];
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Finds the letter signed in a landmark packet with a {@link GestureClassifier}, either the
+ * rules of a {@link GestureRuleEngine} or a learned {@link DecisionTreeClassifier}.
+ */
+public final class HandGestureCalculator {
+    private final GestureClassifier classifier;
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    // Only used by the overloads that extract the features themselves.
+    private final HandFeatures features = new HandFeatures();
+
+    public HandGestureCalculator(GestureClassifier classifier) {
+        this.classifier = classifier;
+    }
+
+    /**
+     * Extracts the features of a hand and classifies it. Uses a feature vector owned by the
+     * calculator, so it must not be called from several threads at once.
+     *
+     * @param hand Landmarks of one hand
+     * @return Gesture code signed by the hand, NONE when it signs none
+     */
+    public int handGestureCalculator(HandFrame hand) {
+        if (classifier.needsFeatures()) {
+            extractor.extract(hand, features);
+        }
+        return classifier.classify(hand, features);
+    }
+
+    /**
+     * @return Calculator whose classifier uses the thresholds of a profile, this one when they
+     *         do not change it
+     */
+    public HandGestureCalculator withThresholds(ThresholdProfile profile) {
+        GestureClassifier tuned = classifier.withThresholds(profile);
+        return tuned == classifier ? this : new HandGestureCalculator(tuned);
+    }
+
+    /**
+     * @return False when the features do not have to be extracted before classification
+     */
+    public boolean needsFeatures() {
+        return classifier.needsFeatures();
+    }
+
+    /**
+     * Classifies a hand whose features were already extracted for this frame. Thread-safe.
+     *
+     * @param hand Landmarks of one hand
+     * @param features Features of the same hand
+     * @return Gesture code signed by the hand, NONE when it signs none
+     */
+    public int handGestureCalculator(HandFrame hand, HandFeatures features) {
+        return classifier.classify(hand, features);
+    }
+
+    /**
+     * Classifies a hand the cache did not know, and caches the letter. Thread-safe.
+     *
+     * @param hand Landmarks of one hand
+     * @param features Features of the same hand, when the classifier needs them
+     * @param cache Cache of the hand, after a lookup that missed
+     * @return Gesture code signed by the hand, NONE when it signs none
+     */
+    public int handGestureCalculator(HandFrame hand, HandFeatures features,
+                                     ClassificationCache cache) {
+        int letter = classifier.classify(hand, features, cache);
+        cache.store(hand, letter);
+        return letter;
+    }
+
+    /**
+     * Same threading rule as {@link #handGestureCalculator(HandFrame)}.
+     *
+     * @param packet Hands of one landmark packet
+     * @return Gesture code of the first hand that signs one, NONE when no hand does
+     */
+    public int handGestureCalculator(LandmarkPacket packet) {
+        for (int handIndex = 0; handIndex < packet.getHandCount(); handIndex++) {
+            int letter = handGestureCalculator(packet.getHand(handIndex));
+            if (letter != Gestures.NONE) {
+                return letter;
+            }
+        }
+        return Gestures.NONE;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Gives every hand of a packet a slot that stays the same from one packet to the next, so the
+ * state kept per hand (tracker, filter, debouncer) follows the hand and not its index in the
+ * packet, which MediaPipe does not keep stable.
+ *
+ * Hands are matched to the slots of the previous packet by the distance between their centers,
+ * closest pairs first. A hand too far from every previous hand gets a free slot and its state
+ * has to start from scratch. Not thread-safe, use one instance per stream.
+ */
+public final class HandMatcher {
+    private final float maxDistanceSquared;
+    private final float[] slotX;
+    private final float[] slotY;
+    // Bit i is set when slot i held a hand in the last packet.
+    private int activeSlots;
+
+    /**
+     * @param slotCount Number of slots, at most 32
+     * @param maxDistance Largest move of a hand center between two packets, in normalized image
+     *                    units
+     */
+    public HandMatcher(int slotCount, float maxDistance) {
+        if (slotCount < 1 || slotCount > Integer.SIZE) {
+            throw new IllegalArgumentException("Slot count must be within 1 and 32: " + slotCount);
+        }
+        maxDistanceSquared = maxDistance * maxDistance;
+        slotX = new float[slotCount];
+        slotY = new float[slotCount];
+    }
+
+    public int getSlotCount() {
+        return slotX.length;
+    }
+
+    /**
+     * Assigns the hands of a new packet to slots.
+     *
+     * @param x Center X of every hand
+     * @param y Center Y of every hand
+     * @param count Number of hands in the packet, hands beyond the slot count are ignored
+     * @param slots Receives the slot of every hand, -1 for ignored hands
+     * @return Mask of the slots that got a new hand and have to reset their state
+     */
+    public int match(float[] x, float[] y, int count, int[] slots) {
+        int previous = activeSlots;
+        int assigned = 0;
+        int matchedHands = 0;
+        for (int i = 0; i < count; i++) {
+            slots[i] = -1;
+        }
+        // Closest pair first. Packets hold a handful of hands, so brute force is fine.
+        while (true) {
+            int bestHand = -1;
+            int bestSlot = -1;
+            float bestDistance = maxDistanceSquared;
+            for (int hand = 0; hand < count; hand++) {
+                if ((matchedHands & (1 << hand)) != 0) {
+                    continue;
+                }
+                for (int slot = 0; slot < slotX.length; slot++) {
+                    if ((previous & ~assigned & (1 << slot)) == 0) {
+                        continue;
+                    }
+                    float dx = x[hand] - slotX[slot];
+                    float dy = y[hand] - slotY[slot];
+                    float distance = dx * dx + dy * dy;
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        bestHand = hand;
+                        bestSlot = slot;
+                    }
+                }
+            }
+            if (bestHand < 0) {
+                break;
+            }
+            slots[bestHand] = bestSlot;
+            matchedHands |= 1 << bestHand;
+            assigned |= 1 << bestSlot;
+        }
+
+        // New hands take the free slots, preferring the ones that were not used last packet.
+        int fresh = 0;
+        for (int hand = 0; hand < count; hand++) {
+            if (slots[hand] >= 0) {
+                continue;
+            }
+            int slot = freeSlot(assigned | previous);
+            if (slot < 0) {
+                slot = freeSlot(assigned);
+            }
+            if (slot < 0) {
+                break;
+            }
+            slots[hand] = slot;
+            assigned |= 1 << slot;
+            fresh |= 1 << slot;
+        }
+
+        for (int hand = 0; hand < count; hand++) {
+            int slot = slots[hand];
+            if (slot >= 0) {
+                slotX[slot] = x[hand];
+                slotY[slot] = y[hand];
+            }
+        }
+        activeSlots = assigned;
+        return fresh;
+    }
+
+    /**
+     * @return Mask of the slots that held a hand in the last packet
+     */
+    public int getActiveSlots() {
+        return activeSlots;
+    }
+
+    /**
+     * Forgets every hand.
+     */
+    public void reset() {
+        activeSlots = 0;
+    }
+
+    private int freeSlot(int used) {
+        for (int slot = 0; slot < slotX.length; slot++) {
+            if ((used & (1 << slot)) == 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,475 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import com.example.mediapipemultihandstracking.recognition.metrics.PipelineMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Turns landmark packets into letters, independently for every hand.
+ *
+ * Hands are matched across packets by a {@link HandMatcher}, and each slot keeps its own
+ * {@link LetterDebouncer} and optional {@link OneEuroFilter}. When the classifier needs them,
+ * the features of every hand are extracted once per packet, after filtering, and handed to the
+ * classifier with the landmarks.
+ * With a reuse threshold, each slot keeps a {@link ClassificationCache}: a hand holding a
+ * letter is not classified again, nor are its features extracted, until a landmark moves.
+ * With handedness mirroring, hands labeled Right are mirrored once filtered, before anything
+ * else reads them, so the single rule set and tree, written for the hand labeled Left, read
+ * both hands.
+ * With a {@link TrajectoryMatcher}, each slot also tracks the fingertips used by its templates,
+ * and a letter drawn in the air, like J or Z, replaces the static letter of the frame.
+ * When a packet holds more than one hand and an executor is set, the other hands are filtered
+ * and classified on the executor while the calling thread does the first one, so two-handed
+ * signing does not take twice as long.
+ * Debouncing and listener calls always happen on the calling thread, in hand order, and a hand
+ * failing on the executor fails the packet on the calling thread.
+ * With {@link PipelineMetrics}, the feature extraction, classification and decision of every
+ * packet are timed.
+ * A {@link ThresholdProfile} set from any thread replaces the thresholds of the classifier,
+ * the caches, the debouncers and the trajectory matcher at the start of the next packet.
+ *
+ * Not thread-safe: process and reset have to be called from one thread at a time, usually the
+ * thread of a {@link RecognitionPipeline}.
+ */
+public final class HandRecognizer implements RecognitionPipeline.Processor<LandmarkPacket> {
+    // Largest move of a hand between two packets, in normalized image units.
+    private static final float MAX_HAND_MOVE = 0.25f;
+    // Fingertip positions kept per slot, a bit more than the longest motion template window.
+    private static final int FINGERTIP_HISTORY_SIZE = 36;
+    // Distance from 0.5 the Left score has to reach before a slot flips its mirroring, so an
+    // unsure handedness model does not flip it every frame.
+    private static final float HANDEDNESS_MARGIN = 0.2f;
+
+    private HandGestureCalculator calculator;
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final LetterListener listener;
+    private final HandMatcher matcher;
+    private final LetterDebouncer[] debouncers;
+    private final int[] stableLetters;
+    private OneEuroFilter[] filters;
+    private boolean mirroring;
+    // Per slot, whether its hand is mirrored.
+    private final boolean[] mirrored;
+    private ClassificationCache[] caches;
+    private PipelineMetrics metrics;
+    private Executor executor;
+    private TrajectoryMatcher trajectoryMatcher;
+    private int[] fingertips;
+    // Per slot, one tracker per fingertip.
+    private MotionTracker[][] fingertipTrackers;
+    // Published by setThresholds, applied by process.
+    private volatile ThresholdProfile thresholds;
+    private ThresholdProfile appliedThresholds;
+
+    // Per packet scratch space, indexed by hand.
+    private final float[] centerX = new float[LandmarkPacket.MAX_HANDS];
+    private final float[] centerY = new float[LandmarkPacket.MAX_HANDS];
+    private final float[] heights = new float[LandmarkPacket.MAX_HANDS];
+    private final int[] slots = new int[LandmarkPacket.MAX_HANDS];
+    // Gesture code of every hand.
+    private final int[] letters = new int[LandmarkPacket.MAX_HANDS];
+    private final HandFeatures[] features = new HandFeatures[LandmarkPacket.MAX_HANDS];
+    private final ClassifyTask[] tasks = new ClassifyTask[LandmarkPacket.MAX_HANDS];
+    private final AtomicInteger remainingTasks = new AtomicInteger();
+    private volatile Thread waiter;
+    // First failure of a task of the current packet, rethrown on the calling thread.
+    private volatile RuntimeException taskError;
+    private LandmarkPacket packet;
+
+    /**
+     * @param calculator Classifies single hands, has to be thread-safe when an executor is set
+     * @param slotCount Number of hands followed at the same time
+     * @param debouncers Creates the debouncer of every slot
+     * @param listener Receives the letters of every slot
+     */
+    public HandRecognizer(HandGestureCalculator calculator, int slotCount,
+                          Supplier<LetterDebouncer> debouncers, LetterListener listener) {
+        this.calculator = calculator;
+        this.listener = listener;
+        matcher = new HandMatcher(slotCount, MAX_HAND_MOVE);
+        this.debouncers = new LetterDebouncer[slotCount];
+        stableLetters = new int[slotCount];
+        mirrored = new boolean[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            this.debouncers[slot] = debouncers.get();
+        }
+        for (int hand = 0; hand < tasks.length; hand++) {
+            tasks[hand] = new ClassifyTask(hand);
+            features[hand] = new HandFeatures();
+        }
+    }
+
+    /**
+     * @param filters Smooth the landmarks of every slot before classification, one per slot, or
+     *                null to classify the landmarks as they are
+     */
+    public void setLandmarkFilters(OneEuroFilter[] filters) {
+        if (filters != null && filters.length != debouncers.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + debouncers.length + " filters: " + filters.length);
+        }
+        this.filters = filters;
+    }
+
+    /**
+     * @param mirroring True to mirror the hands the handedness model labels Right, see
+     *                  {@link LandmarkPacket#getLeftScore(int)}. The rule and tree tables
+     *                  describe the hand labeled Left, a right hand when the image is not
+     *                  mirrored, whichever camera took it. Hands of unknown handedness keep the
+     *                  last choice of their slot, and are not mirrored at first.
+     */
+    public void setHandednessMirroring(boolean mirroring) {
+        this.mirroring = mirroring;
+    }
+
+    /**
+     * @param executor Classifies the second hand and the next ones, null to classify every
+     *                 hand on the calling thread
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param metrics Receives the stage durations and counters, null to measure nothing
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param threshold Largest landmark move, in normalized image units, for which a slot
+     *                  keeps its last letter without classifying the hand again, 0 to classify
+     *                  every frame
+     */
+    public void setReuseThreshold(float threshold) {
+        if (threshold <= 0) {
+            caches = null;
+            return;
+        }
+        caches = new ClassificationCache[debouncers.length];
+        for (int slot = 0; slot < caches.length; slot++) {
+            caches[slot] = new ClassificationCache(threshold);
+        }
+    }
+
+    /**
+     * @return Classifications saved by the caches of every slot
+     */
+    public long getCacheHits() {
+        long hits = 0;
+        if (caches != null) {
+            for (ClassificationCache cache : caches) {
+                hits += cache.getHits();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @param trajectoryMatcher Recognizes letters drawn with a fingertip, used on the calling
+     *                          thread only, or null to recognize static letters only
+     */
+    public void setTrajectoryMatcher(TrajectoryMatcher trajectoryMatcher) {
+        this.trajectoryMatcher = trajectoryMatcher;
+        if (trajectoryMatcher == null) {
+            fingertips = null;
+            fingertipTrackers = null;
+            return;
+        }
+        if (appliedThresholds != null) {
+            trajectoryMatcher.setThresholds(appliedThresholds);
+        }
+        fingertips = trajectoryMatcher.getLandmarkSources();
+        fingertipTrackers = new MotionTracker[debouncers.length][fingertips.length];
+        for (MotionTracker[] trackers : fingertipTrackers) {
+            for (int i = 0; i < trackers.length; i++) {
+                trackers[i] = new MotionTracker(FINGERTIP_HISTORY_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Switches to the thresholds of a profile at the start of the next packet. Can be called
+     * from any thread while packets are processed. The debouncers and caches of every slot are
+     * replaced, so a held letter is decided, and committed, again.
+     */
+    public void setThresholds(ThresholdProfile profile) {
+        thresholds = profile;
+    }
+
+    /**
+     * Forgets every hand, without telling the listener.
+     */
+    public void reset() {
+        matcher.reset();
+        for (int slot = 0; slot < debouncers.length; slot++) {
+            resetTrackers(slot);
+            resetCache(slot);
+            debouncers[slot].reset();
+            stableLetters[slot] = Gestures.NONE;
+            mirrored[slot] = false;
+        }
+    }
+
+    @Override
+    public void process(LandmarkPacket packet) {
+        ThresholdProfile thresholds = this.thresholds;
+        if (thresholds != appliedThresholds) {
+            applyThresholds(thresholds);
+        }
+        int handCount = Math.min(packet.getHandCount(), debouncers.length);
+        for (int hand = 0; hand < handCount; hand++) {
+            center(packet.getHand(hand), hand);
+        }
+        int previous = matcher.getActiveSlots();
+        int fresh = matcher.match(centerX, centerY, handCount, slots);
+        int gone = previous & ~matcher.getActiveSlots();
+        for (int slot = 0; slot < debouncers.length; slot++) {
+            int bit = 1 << slot;
+            if ((gone & bit) != 0 || (fresh & bit) != 0) {
+                debouncers[slot].reset();
+                resetTrackers(slot);
+                resetCache(slot);
+                if (filters != null) {
+                    filters[slot].reset();
+                }
+                mirrored[slot] = false;
+                setStableLetter(slot, Gestures.NONE);
+            }
+        }
+
+        classifyAll(packet, handCount);
+
+        long timestamp = packet.getTimestamp();
+        PipelineMetrics metrics = this.metrics;
+        long decisionStart = metrics != null ? System.nanoTime() : 0;
+        for (int hand = 0; hand < handCount; hand++) {
+            int slot = slots[hand];
+            if (slot < 0) {
+                continue;
+            }
+            int drawn = Gestures.NONE;
+            if (fingertipTrackers != null) {
+                drawn = drawnLetter(slot, packet.getHand(hand), heights[hand], timestamp,
+                        letters[hand]);
+            }
+            int letter = drawn != Gestures.NONE ? drawn : letters[hand];
+            LetterDebouncer debouncer = debouncers[slot];
+            int committed = debouncer.update(letter, timestamp);
+            setStableLetter(slot, debouncer.getStableLetter());
+            if (committed != Gestures.NONE) {
+                if (drawn != Gestures.NONE) {
+                    // The drawing is used up, the next letter is read from scratch.
+                    resetTrackers(slot);
+                }
+                if (metrics != null) {
+                    metrics.increment(PipelineMetrics.COUNTER_LETTERS);
+                }
+                listener.onLetterCommitted(slot, debouncer.getCommitted());
+            }
+        }
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.STAGE_DECISION, timestamp,
+                    System.nanoTime() - decisionStart);
+        }
+    }
+
+    /**
+     * @return Mask of the slots that held a hand in the last packet
+     */
+    public int getActiveSlots() {
+        return matcher.getActiveSlots();
+    }
+
+    private void applyThresholds(ThresholdProfile profile) {
+        calculator = calculator.withThresholds(profile);
+        for (int slot = 0; slot < debouncers.length; slot++) {
+            debouncers[slot] = profile.newLetterDebouncer();
+        }
+        setReuseThreshold(profile.getReuseThreshold());
+        if (trajectoryMatcher != null) {
+            trajectoryMatcher.setThresholds(profile);
+        }
+        appliedThresholds = profile;
+    }
+
+    private void classifyAll(LandmarkPacket packet, int handCount) {
+        Executor executor = this.executor;
+        if (executor == null || handCount < 2) {
+            for (int hand = 0; hand < handCount; hand++) {
+                classify(packet, hand);
+            }
+            return;
+        }
+        this.packet = packet;
+        waiter = Thread.currentThread();
+        taskError = null;
+        remainingTasks.set(handCount - 1);
+        for (int hand = 1; hand < handCount; hand++) {
+            try {
+                executor.execute(tasks[hand]);
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down, do the work here.
+                tasks[hand].run();
+            }
+        }
+        try {
+            classify(packet, 0);
+        } finally {
+            // The tasks read the packet, it is not handed back before they are done.
+            while (remainingTasks.get() > 0) {
+                LockSupport.park(this);
+            }
+            this.packet = null;
+        }
+        RuntimeException error = taskError;
+        if (error != null) {
+            taskError = null;
+            throw error;
+        }
+    }
+
+    private void classify(LandmarkPacket packet, int hand) {
+        HandFrame frame = packet.getHand(hand);
+        int slot = slots[hand];
+        if (slot < 0) {
+            letters[hand] = Gestures.NONE;
+            return;
+        }
+        if (filters != null) {
+            filters[slot].filter(frame, packet.getTimestamp());
+        }
+        if (mirroring && isMirrored(slot, packet.getLeftScore(hand))) {
+            frame.mirror();
+        }
+        PipelineMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        ClassificationCache cache = caches != null ? caches[slot] : null;
+        int cached = cache != null ? cache.lookup(frame) : ClassificationCache.MISS;
+        if (cached != ClassificationCache.MISS) {
+            letters[hand] = cached;
+        } else {
+            if (calculator.needsFeatures()) {
+                extractor.extract(frame, features[hand]);
+                if (metrics != null) {
+                    long extracted = System.nanoTime();
+                    metrics.record(PipelineMetrics.STAGE_FEATURES, packet.getTimestamp(),
+                            extracted - start);
+                    start = extracted;
+                }
+            }
+            letters[hand] = cache != null
+                    ? calculator.handGestureCalculator(frame, features[hand], cache)
+                    : calculator.handGestureCalculator(frame, features[hand]);
+        }
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.STAGE_CLASSIFY, packet.getTimestamp(),
+                    System.nanoTime() - start);
+            metrics.increment(PipelineMetrics.COUNTER_HANDS);
+        }
+    }
+
+    /**
+     * Updates the mirroring of a slot with the handedness of its hand, with hysteresis.
+     */
+    private boolean isMirrored(int slot, float leftScore) {
+        if (leftScore > 0.5f + HANDEDNESS_MARGIN) {
+            mirrored[slot] = false;
+        } else if (leftScore < 0.5f - HANDEDNESS_MARGIN) {
+            mirrored[slot] = true;
+        }
+        return mirrored[slot];
+    }
+
+    /**
+     * Adds the fingertips of a hand to the trackers of its slot and matches their paths.
+     *
+     * @param height Height of the hand, scales the shortest path matched
+     * @param pose Static gesture code of the hand in this frame
+     * @return Gesture code drawn by a fingertip, NONE when none is drawn
+     */
+    private int drawnLetter(int slot, HandFrame hand, float height, long timestamp, int pose) {
+        MotionTracker[] trackers = fingertipTrackers[slot];
+        int drawn = Gestures.NONE;
+        for (int i = 0; i < fingertips.length; i++) {
+            MotionTracker tracker = trackers[i];
+            tracker.update(timestamp, hand.x(fingertips[i]), hand.y(fingertips[i]), height);
+            if (drawn == Gestures.NONE) {
+                drawn = trajectoryMatcher.match(tracker, fingertips[i], pose);
+            }
+        }
+        return drawn;
+    }
+
+    private void resetTrackers(int slot) {
+        if (fingertipTrackers != null) {
+            for (MotionTracker tracker : fingertipTrackers[slot]) {
+                tracker.reset();
+            }
+        }
+    }
+
+    private void resetCache(int slot) {
+        if (caches != null) {
+            caches[slot].reset();
+        }
+    }
+
+    private void setStableLetter(int slot, int letter) {
+        if (letter != stableLetters[slot]) {
+            stableLetters[slot] = letter;
+            listener.onLetterChanged(slot, letter);
+        }
+    }
+
+    /**
+     * Center of the bounding box of the landmarks, close to the center of the hand rectangle.
+     */
+    private void center(HandFrame hand, int index) {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            minX = Math.min(minX, hand.x(i));
+            maxX = Math.max(maxX, hand.x(i));
+            minY = Math.min(minY, hand.y(i));
+            maxY = Math.max(maxY, hand.y(i));
+        }
+        centerX[index] = (minX + maxX) / 2;
+        centerY[index] = (minY + maxY) / 2;
+        heights[index] = maxY - minY;
+    }
+
+    /**
+     * Classifies one hand of the current packet on an executor thread.
+     */
+    private final class ClassifyTask implements Runnable {
+        private final int hand;
+
+        ClassifyTask(int hand) {
+            this.hand = hand;
+        }
+
+        @Override
+        public void run() {
+            try {
+                classify(packet, hand);
+            } catch (RuntimeException e) {
+                letters[hand] = Gestures.NONE;
+                if (taskError == null) {
+                    taskError = e;
+                }
+            } finally {
+                if (remainingTasks.decrementAndGet() == 0) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+    }
+}
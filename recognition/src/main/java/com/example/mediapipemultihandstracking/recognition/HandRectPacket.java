@@ -0,0 +1,80 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * The hand rectangles received in one packet, stored as primitives so they can be reused.
+ */
+public final class HandRectPacket implements Timestamped {
+    public static final int MAX_RECTS = LandmarkPacket.MAX_HANDS;
+    // x center, y center, width, height and rotation of rectangle i are at i * RECT_STRIDE.
+    public static final int RECT_STRIDE = 5;
+
+    private final float[] values = new float[MAX_RECTS * RECT_STRIDE];
+    private int rectCount;
+    private long timestamp;
+
+    /**
+     * Empties the packet so it can be filled again.
+     *
+     * @param timestamp Packet timestamp of the new content
+     */
+    public void reset(long timestamp) {
+        this.timestamp = timestamp;
+        rectCount = 0;
+    }
+
+    /**
+     * Appends a normalized rectangle.
+     *
+     * @return False when the packet is full and the rectangle was ignored
+     */
+    public boolean addRect(float xCenter, float yCenter, float width, float height,
+                           float rotation) {
+        if (rectCount == MAX_RECTS) {
+            return false;
+        }
+        int offset = rectCount * RECT_STRIDE;
+        values[offset] = xCenter;
+        values[offset + 1] = yCenter;
+        values[offset + 2] = width;
+        values[offset + 3] = height;
+        values[offset + 4] = rotation;
+        rectCount++;
+        return true;
+    }
+
+    public float xCenter(int index) {
+        return values[index * RECT_STRIDE];
+    }
+
+    public float yCenter(int index) {
+        return values[index * RECT_STRIDE + 1];
+    }
+
+    public float width(int index) {
+        return values[index * RECT_STRIDE + 2];
+    }
+
+    public float height(int index) {
+        return values[index * RECT_STRIDE + 3];
+    }
+
+    public float rotation(int index) {
+        return values[index * RECT_STRIDE + 4];
+    }
+
+    /**
+     * Gives direct access to the rectangle values, laid out as described by RECT_STRIDE.
+     */
+    public float[] values() {
+        return values;
+    }
+
+    public int getRectCount() {
+        return rectCount;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Human readable dumps of landmark packets.
+ */
+public final class LandmarkDebugFormatter {
+
+    private LandmarkDebugFormatter() {
+    }
+
+    /**
+     * Only meant for on-demand dumps, like the diagnostics dump of the app, use
+     * {@link Diagnostics} for anything recorded per packet.
+     */
+    public static String getMultiHandLandmarksDebugString(LandmarkPacket packet) {
+        if (packet.getHandCount() == 0) {
+            return "No hand landmarks";
+        }
+        StringBuilder multiHandLandmarksStr = new StringBuilder(
+                64 + packet.getHandCount() * HandFrame.NUM_LANDMARKS * 48);
+        multiHandLandmarksStr.append("Number of hands detected: ")
+                .append(packet.getHandCount()).append('\n');
+        for (int handIndex = 0; handIndex < packet.getHandCount(); handIndex++) {
+            HandFrame hand = packet.getHand(handIndex);
+            multiHandLandmarksStr.append("\t#Hand landmarks for hand[").append(handIndex)
+                    .append("]: ").append(HandFrame.NUM_LANDMARKS).append('\n');
+            for (int landmarkIndex = 0; landmarkIndex < HandFrame.NUM_LANDMARKS; ++landmarkIndex) {
+                multiHandLandmarksStr.append("\t\tLandmark [").append(landmarkIndex)
+                        .append("]: (").append(hand.x(landmarkIndex))
+                        .append(", ").append(hand.y(landmarkIndex))
+                        .append(", ").append(hand.z(landmarkIndex))
+                        .append(")\n");
+            }
+        }
+        return multiHandLandmarksStr.toString();
+    }
+}
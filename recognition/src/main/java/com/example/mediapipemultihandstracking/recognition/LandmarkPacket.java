@@ -0,0 +1,185 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * All hands received in one landmark packet. Instances come from a {@link Pool} and are handed
+ * back to it once the recognition thread is done with them.
+ *
+ * A packet joined by a {@link PacketFusion} also carries the hand rectangles of its timestamp,
+ * and either half may be missing. When the fusion also joins the handedness stream, the packet
+ * carries the handedness of every hand, in the order of the landmarks.
+ */
+public final class LandmarkPacket implements Timestamped {
+    // Upper bound of hands a single packet can hold.
+    public static final int MAX_HANDS = 4;
+
+    private final HandFrame[] hands = new HandFrame[MAX_HANDS];
+    private int handCount;
+    private long timestamp;
+    private final HandRectPacket rects = new HandRectPacket();
+    private boolean hasLandmarks = true;
+    private boolean hasRects;
+    // Probability of the Left label of every hand, see addHandedness.
+    private final float[] leftScores = new float[MAX_HANDS];
+    private int handednessCount;
+    private boolean hasHandedness;
+
+    public LandmarkPacket() {
+        for (int i = 0; i < MAX_HANDS; i++) {
+            hands[i] = new HandFrame();
+        }
+    }
+
+    /**
+     * Empties the packet so it can be filled again.
+     *
+     * @param timestamp Packet timestamp of the new content
+     */
+    public void reset(long timestamp) {
+        this.timestamp = timestamp;
+        handCount = 0;
+        hasLandmarks = true;
+        hasRects = false;
+        hasHandedness = false;
+    }
+
+    /**
+     * Empties the handedness of the hands so it can be filled again. Leaves the landmarks
+     * alone, they are written by another stream.
+     */
+    public void resetHandedness() {
+        handednessCount = 0;
+    }
+
+    /**
+     * Appends the handedness of the next hand.
+     *
+     * @param leftScore Probability that the hand has the Left label of handedness.txt
+     * @return False when the packet is full and the handedness was ignored
+     */
+    public boolean addHandedness(float leftScore) {
+        if (handednessCount == MAX_HANDS) {
+            return false;
+        }
+        leftScores[handednessCount++] = leftScore;
+        return true;
+    }
+
+    /**
+     * Tells which parts of a joined frame arrived, see {@link PacketFusion}.
+     */
+    void setHalves(long timestamp, boolean landmarks, boolean rects, boolean handedness) {
+        this.timestamp = timestamp;
+        hasLandmarks = landmarks;
+        hasRects = rects;
+        hasHandedness = handedness;
+        if (!landmarks) {
+            handCount = 0;
+        }
+    }
+
+    /**
+     * Reserves the next hand of the packet.
+     *
+     * @return Frame to write the landmarks into, or null when the packet is full
+     */
+    public HandFrame addHand() {
+        if (handCount == MAX_HANDS) {
+            return null;
+        }
+        HandFrame hand = hands[handCount++];
+        hand.beginUpdate();
+        return hand;
+    }
+
+    public HandFrame getHand(int index) {
+        return hands[index];
+    }
+
+    public int getHandCount() {
+        return handCount;
+    }
+
+    /**
+     * @return False when the landmark packet of a joined frame did not arrive, the hands are
+     *         then unknown rather than gone
+     */
+    public boolean hasLandmarks() {
+        return hasLandmarks;
+    }
+
+    /**
+     * @return True when the packet carries the hand rectangles of its timestamp
+     */
+    public boolean hasRects() {
+        return hasRects;
+    }
+
+    /**
+     * @return True when the packet carries the handedness of its hands
+     */
+    public boolean hasHandedness() {
+        return hasHandedness;
+    }
+
+    /**
+     * The handedness model labels hands as if the image was mirrored, like a selfie: Left is a
+     * right hand in an image that is not mirrored.
+     *
+     * @return Probability that a hand has the Left label, 0.5 when its handedness is unknown
+     */
+    public float getLeftScore(int hand) {
+        return hasHandedness && hand < handednessCount ? leftScores[hand] : 0.5f;
+    }
+
+    /**
+     * @return Hand rectangles of the same timestamp, only valid when {@link #hasRects()}
+     */
+    public HandRectPacket getRects() {
+        return rects;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Small fixed-size pool so landmark packets are reused instead of allocated per frame.
+     */
+    public static final class Pool implements RecognitionPipeline.Recycler<LandmarkPacket> {
+        private final LandmarkPacket[] free;
+        private int size;
+
+        /**
+         * @param capacity Number of packets kept around. One per frame a producer fills at the
+         *                 same time, like the slots of a {@link PacketFusion}, plus one pending
+         *                 slot and one consumer.
+         */
+        public Pool(int capacity) {
+            free = new LandmarkPacket[capacity];
+            for (int i = 0; i < capacity; i++) {
+                free[i] = new LandmarkPacket();
+            }
+            size = capacity;
+        }
+
+        /**
+         * @return A free packet, a new one is only allocated when the pool ran dry
+         */
+        public synchronized LandmarkPacket acquire() {
+            if (size == 0) {
+                return new LandmarkPacket();
+            }
+            LandmarkPacket packet = free[--size];
+            free[size] = null;
+            return packet;
+        }
+
+        @Override
+        public synchronized void recycle(LandmarkPacket packet) {
+            if (size < free.length) {
+                free[size++] = packet;
+            }
+        }
+    }
+}
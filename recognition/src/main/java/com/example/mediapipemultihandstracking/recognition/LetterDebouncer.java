@@ -0,0 +1,121 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Streaming decision stage between the per-frame classification and the sentence.
+ *
+ * Keeps the letters of the last frames in a sliding window. A letter becomes stable as soon as
+ * it got enough votes in the window, and stays stable until another letter (or no letter) gets
+ * enough votes, so a single noisy frame can neither commit a wrong letter nor interrupt a held
+ * one. A stable letter is committed once when it becomes stable, and again every repeat
+ * interval while it is held. Time is measured with packet timestamps, not the wall clock, so
+ * replays behave like live sessions. Letters are {@link Gestures} codes and the votes are
+ * counted as frames enter and leave the window, so a frame costs the same whatever the window
+ * size. Not thread-safe, use one instance per hand and thread.
+ */
+public final class LetterDebouncer {
+    private final int[] window;
+    private final long[] timestamps;
+    private final int minVotes;
+    private final long repeatInterval;
+    private final long maxFrameGap;
+
+    // Index of the newest frame in the window.
+    private int head = -1;
+    private int size;
+    private final int[] votes = new int[Gestures.COUNT];
+
+    private int stableLetter = Gestures.NONE;
+    // Timestamp of the last commit of the stable letter, -1 when it was not committed yet.
+    private long committedAt = -1;
+    private final GestureResult committed = new GestureResult();
+
+    /**
+     * @param windowSize Number of frames voting
+     * @param minVotes Votes a letter needs to become stable, at most windowSize
+     * @param repeatInterval Time a stable letter has to be held before it is committed again,
+     *                       in packet timestamp units
+     * @param maxFrameGap Frames further apart than that do not vote together, the window is
+     *                    cleared instead
+     */
+    public LetterDebouncer(int windowSize, int minVotes, long repeatInterval, long maxFrameGap) {
+        if (minVotes < 1 || minVotes > windowSize) {
+            throw new IllegalArgumentException(
+                    "Votes must be within 1 and " + windowSize + ": " + minVotes);
+        }
+        window = new int[windowSize];
+        timestamps = new long[windowSize];
+        this.minVotes = minVotes;
+        this.repeatInterval = repeatInterval;
+        this.maxFrameGap = maxFrameGap;
+    }
+
+    /**
+     * Adds the classification of a new frame.
+     *
+     * @param letter Gesture code of the frame, NONE when no gesture was recognized
+     * @param timestamp Packet timestamp of the frame
+     * @return Gesture code to commit to the sentence, see {@link #getCommitted()}, or NONE when
+     *         nothing has to be committed
+     */
+    public int update(int letter, long timestamp) {
+        if (size > 0 && timestamp - timestamps[head] > maxFrameGap) {
+            // The previous frames are too old to tell anything about this one.
+            clearWindow();
+        }
+        head = head + 1 == window.length ? 0 : head + 1;
+        if (size < window.length) {
+            size++;
+        } else {
+            votes[window[head]]--;
+        }
+        window[head] = letter;
+        timestamps[head] = timestamp;
+        votes[letter]++;
+
+        if (letter != stableLetter && votes[letter] >= minVotes) {
+            stableLetter = letter;
+            committedAt = -1;
+        }
+        if (stableLetter == Gestures.NONE) {
+            return Gestures.NONE;
+        }
+        if (committedAt < 0 || timestamp - committedAt >= repeatInterval) {
+            committedAt = timestamp;
+            committed.setVotes(stableLetter, votes, size);
+            return stableLetter;
+        }
+        return Gestures.NONE;
+    }
+
+    /**
+     * @return Gesture code currently held, NONE when no letter is stable
+     */
+    public int getStableLetter() {
+        return stableLetter;
+    }
+
+    /**
+     * @return Letter of the last commit, with the share of the window voting for every gesture
+     *         as confidence. Filled again by the next commit.
+     */
+    public GestureResult getCommitted() {
+        return committed;
+    }
+
+    /**
+     * Forgets every frame and the stable letter.
+     */
+    public void reset() {
+        head = -1;
+        clearWindow();
+        stableLetter = Gestures.NONE;
+        committedAt = -1;
+    }
+
+    private void clearWindow() {
+        Arrays.fill(votes, 0);
+        size = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Receives the decisions of the recognizers, per hand. Methods are called on the thread that
+ * runs the recognizer, so implementations have to post to the UI themselves.
+ */
+public interface LetterListener {
+    /**
+     * Called when the stable letter of a hand changes.
+     *
+     * @param hand Slot of the hand, see {@link HandMatcher}
+     * @param letter New stable gesture code, NONE when no gesture is held or the hand left the
+     *               image, see {@link Gestures}
+     */
+    void onLetterChanged(int hand, int letter);
+
+    /**
+     * Called when a letter has to be added to the sentence.
+     *
+     * @param hand Slot of the hand, see {@link HandMatcher}
+     * @param result Committed gesture with the confidence of every gesture, only valid during
+     *               the call
+     */
+    void onLetterCommitted(int hand, GestureResult result);
+}
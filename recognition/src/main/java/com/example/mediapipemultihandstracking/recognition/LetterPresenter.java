@@ -0,0 +1,230 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import com.example.mediapipemultihandstracking.recognition.metrics.PipelineMetrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the letters and the sentence over from the recognition thread to the UI thread, at
+ * most once per display frame.
+ *
+ * The recognition thread changes the letters and the sentence, then calls {@link #publish()}.
+ * The state is copied into one of three buffers and swapped with the middle one through a
+ * single atomic slot, so neither thread waits for the other and the UI always gets the latest
+ * state. A publish only asks for a frame when none is pending yet, with the frame request
+ * given to the constructor, usually a Choreographer frame callback posting itself. On the frame,
+ * {@link #render(Display)} touches the views only when their text changed.
+ *
+ * Nothing is allocated per letter or frame, except when the sentence outgrows its buffers.
+ */
+public final class LetterPresenter {
+
+    /**
+     * Views showing the text. Called on the UI thread, the array is left alone until the next
+     * call of the same method, like TextView.setText(char[], int, int) wants.
+     */
+    public interface Display {
+        void showGesture(char[] text, int length);
+
+        void showSentence(char[] text, int length);
+    }
+
+    // Middle buffer: its index, DIRTY when published and not rendered yet.
+    private static final int INDEX = 3;
+    private static final int DIRTY = 4;
+
+    private final Runnable frameRequest;
+    private final State[] states = {new State(), new State(), new State()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+    private PipelineMetrics metrics;
+
+    // Recognition thread side.
+    private final SentenceBuilder sentence;
+    // Gesture codes, see Gestures.
+    private final int[] handLetters;
+    private final int[] motionLetters;
+    private int back = 0;
+    private boolean changed = true;
+    private long committedTimestamp = -1;
+    private long committedNanos;
+
+    // UI thread side, the arrays are owned by the display.
+    private int front = 2;
+    private char[] shownGesture = new char[16];
+    private int shownGestureLength;
+    private char[] shownSentence = new char[64];
+    private int shownSentenceLength;
+
+    /**
+     * @param sentence Builds the sentence, only used by the recognition thread from now on
+     * @param handCount Number of hands with a letter of their own
+     * @param frameRequest Asks for a call of {@link #render(Display)} on the next display
+     *                     frame, from the recognition thread
+     */
+    public LetterPresenter(SentenceBuilder sentence, int handCount, Runnable frameRequest) {
+        this.sentence = sentence;
+        this.frameRequest = frameRequest;
+        handLetters = new int[handCount];
+        motionLetters = new int[handCount];
+    }
+
+    /**
+     * @param metrics Receives the UI dispatch latency of the committed letters, null to stop
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the stable static gesture code of a hand, shown unless a motion letter is held.
+     */
+    public void setHandLetter(int hand, int letter) {
+        if (handLetters[hand] != letter) {
+            handLetters[hand] = letter;
+            changed = true;
+        }
+    }
+
+    /**
+     * Sets the gesture code of the motion letter a hand is drawing, NONE once it is done.
+     */
+    public void setMotionLetter(int hand, int letter) {
+        if (motionLetters[hand] != letter) {
+            motionLetters[hand] = letter;
+            changed = true;
+        }
+    }
+
+    /**
+     * Adds a committed letter to the sentence.
+     *
+     * @param result Committed gesture, only read during the call
+     * @param timestamp Timestamp of the packet the letter was committed on
+     */
+    public void commitLetter(GestureResult result, long timestamp) {
+        sentence.addLetter(result);
+        committedTimestamp = timestamp;
+        committedNanos = metrics != null ? System.nanoTime() : 0;
+        changed = true;
+    }
+
+    /**
+     * Hands the state over to the UI thread when it changed since the last publish. Called by
+     * the recognition thread, once per packet.
+     */
+    public void publish() {
+        if (!changed) {
+            return;
+        }
+        changed = false;
+        State state = states[back];
+        // The held motion letters replace the static ones.
+        int[] letters = hasLetter(motionLetters) ? motionLetters : handLetters;
+        state.gestureLength = 0;
+        for (int letter : letters) {
+            if (letter == Gestures.NONE) {
+                continue;
+            }
+            if (state.gestureLength > 0) {
+                state.appendGesture(' ');
+            }
+            String name = Gestures.name(letter);
+            for (int i = 0; i < name.length(); i++) {
+                state.appendGesture(name.charAt(i));
+            }
+        }
+        state.sentenceLength = sentence.length();
+        if (state.sentence.length < state.sentenceLength) {
+            state.sentence = new char[state.sentenceLength * 2];
+        }
+        sentence.getChars(0, state.sentenceLength, state.sentence, 0);
+        state.committedTimestamp = committedTimestamp;
+        state.committedNanos = committedNanos;
+
+        back = middle.getAndSet(back | DIRTY) & INDEX;
+        if (frameRequested.compareAndSet(false, true)) {
+            frameRequest.run();
+        }
+    }
+
+    /**
+     * Shows the latest published state, the views whose text did not change are left alone.
+     * Called by the UI thread, on the frame asked for by a publish.
+     */
+    public void render(Display display) {
+        // Publishes from now on ask for another frame.
+        frameRequested.set(false);
+        if ((middle.get() & DIRTY) == 0) {
+            return;
+        }
+        front = middle.getAndSet(front) & INDEX;
+        State state = states[front];
+        if (!same(state.gesture, state.gestureLength, shownGesture, shownGestureLength)) {
+            if (shownGesture.length < state.gestureLength) {
+                shownGesture = new char[state.gesture.length];
+            }
+            System.arraycopy(state.gesture, 0, shownGesture, 0, state.gestureLength);
+            shownGestureLength = state.gestureLength;
+            display.showGesture(shownGesture, shownGestureLength);
+        }
+        if (!same(state.sentence, state.sentenceLength, shownSentence, shownSentenceLength)) {
+            if (shownSentence.length < state.sentenceLength) {
+                shownSentence = new char[state.sentence.length];
+            }
+            System.arraycopy(state.sentence, 0, shownSentence, 0, state.sentenceLength);
+            shownSentenceLength = state.sentenceLength;
+            display.showSentence(shownSentence, shownSentenceLength);
+
+            PipelineMetrics metrics = this.metrics;
+            if (metrics != null && state.committedNanos != 0) {
+                long shown = System.nanoTime();
+                metrics.record(PipelineMetrics.STAGE_UI_DISPATCH, state.committedTimestamp,
+                        shown - state.committedNanos);
+                metrics.recordShown(state.committedTimestamp, shown);
+            }
+        }
+    }
+
+    private static boolean hasLetter(int[] letters) {
+        for (int letter : letters) {
+            if (letter != Gestures.NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean same(char[] a, int aLength, char[] b, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Text of the views, owned by the recognition thread, the middle slot or the UI thread.
+     */
+    private static final class State {
+        char[] gesture = new char[16];
+        int gestureLength;
+        char[] sentence = new char[64];
+        int sentenceLength;
+        long committedTimestamp;
+        long committedNanos;
+
+        void appendGesture(char c) {
+            if (gestureLength == gesture.length) {
+                gesture = Arrays.copyOf(gesture, gestureLength * 2);
+            }
+            gesture[gestureLength++] = c;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Evidence for every letter from A to Z, as costs: negative log probabilities in nats, lower
+ * is more likely. Reusable, fill it again for every observation.
+ */
+public final class LetterScores {
+    public static final int LETTER_COUNT = 26;
+
+    private final float[] costs = new float[LETTER_COUNT];
+
+    /**
+     * Describes a letter read with a given confidence, the other letters sharing the rest.
+     *
+     * @param letter Upper case letter from A to Z
+     * @param confidence Probability that the letter is right, within (0, 1)
+     */
+    public void setObserved(char letter, float confidence) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("Confidence must be within (0, 1): " + confidence);
+        }
+        Arrays.fill(costs, (float) -Math.log((1 - confidence) / (LETTER_COUNT - 1)));
+        costs[index(letter)] = (float) -Math.log(confidence);
+    }
+
+    /**
+     * Describes letters read with the confidences of a result. Each letter gets its share of the
+     * confidence of all letters, the result being right with the given confidence, so a result
+     * holding one letter scores like {@link #setObserved(char, float)}.
+     *
+     * @param result Result holding at least one letter with a confidence
+     * @param confidence Probability that the result is right, within (0, 1)
+     */
+    public void setObserved(GestureResult result, float confidence) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("Confidence must be within (0, 1): " + confidence);
+        }
+        float total = 0;
+        for (int i = 0; i < LETTER_COUNT; i++) {
+            total += result.getConfidence(Gestures.A + i);
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("No letter in " + Gestures.name(result.getCode()));
+        }
+        for (int i = 0; i < LETTER_COUNT; i++) {
+            float share = result.getConfidence(Gestures.A + i) / total;
+            costs[i] = (float) -Math.log(confidence * share
+                    + (1 - confidence) * (1 - share) / (LETTER_COUNT - 1));
+        }
+    }
+
+    /**
+     * Sets the probability of a letter. Letters that are not set keep their previous cost.
+     *
+     * @param letter Upper case letter from A to Z
+     * @param probability Probability of the letter, 0 for impossible
+     */
+    public void setProbability(char letter, float probability) {
+        costs[index(letter)] =
+                probability <= 0 ? Float.POSITIVE_INFINITY : (float) -Math.log(probability);
+    }
+
+    /**
+     * @return Cost of the letter
+     */
+    public float cost(char letter) {
+        return costs[index(letter)];
+    }
+
+    /**
+     * @return Letter with the lowest cost
+     */
+    public char best() {
+        int best = 0;
+        for (int i = 1; i < LETTER_COUNT; i++) {
+            if (costs[i] < costs[best]) {
+                best = i;
+            }
+        }
+        return (char) ('A' + best);
+    }
+
+    /**
+     * @return Whether the letter can be scored, only A to Z can
+     */
+    public static boolean isLetter(char letter) {
+        return letter >= 'A' && letter <= 'Z';
+    }
+
+    private static int index(char letter) {
+        if (!isLetter(letter)) {
+            throw new IllegalArgumentException("Not a letter from A to Z: " + letter);
+        }
+        return letter - 'A';
+    }
+}
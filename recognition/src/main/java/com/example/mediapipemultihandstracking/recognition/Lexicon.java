@@ -0,0 +1,184 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only trie of words with their costs, read in place from a byte buffer.
+ *
+ * The trie is meant to be memory-mapped from an uncompressed asset: nothing is copied or
+ * decoded when it is opened, nodes are read straight from the buffer when the decoder visits
+ * them. Costs are negative log probabilities of the words, in nats.
+ *
+ * Layout, big endian: magic "LEXT" (int), version (short), reserved (short), node count (int),
+ * then fixed-size nodes starting with the root. A node holds its letter (byte, 0 for the root),
+ * its child count (byte), the cost of the word ending on it (short, -1 when no word ends
+ * there), the lowest cost of the words below it (short), 2 reserved bytes, the index of its
+ * first child (int) and the index of its parent (int). Children are stored next to each other,
+ * sorted by letter. Costs are stored in 1/COST_SCALE nats.
+ */
+public final class Lexicon {
+    // Name of the lexicon asset of the app.
+    public static final String DEFAULT_ASSET = "lexicon.bin";
+    public static final int ROOT = 0;
+    // No node, returned by child when the letter does not continue any word.
+    public static final int NONE = -1;
+
+    static final int MAGIC = 0x4C455854;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int NODE_SIZE = 16;
+    static final float COST_SCALE = 64;
+    static final int NO_WORD = -1;
+
+    private static final int LETTER = 0;
+    private static final int CHILD_COUNT = 1;
+    private static final int WORD_COST = 2;
+    private static final int PREFIX_COST = 4;
+    private static final int FIRST_CHILD = 8;
+    private static final int PARENT = 12;
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+
+    private Lexicon(ByteBuffer buffer, int nodeCount) {
+        this.buffer = buffer;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Wraps a lexicon without copying it.
+     *
+     * @param buffer Lexicon in the layout described in the class comment, from position 0
+     * @throws IOException When the buffer does not hold a lexicon
+     */
+    public static Lexicon wrap(ByteBuffer buffer) throws IOException {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (view.capacity() < HEADER_SIZE + NODE_SIZE || view.getInt(0) != MAGIC
+                || view.getShort(4) != VERSION) {
+            throw new IOException("Not a lexicon");
+        }
+        int nodeCount = view.getInt(8);
+        if (nodeCount < 1 || (long) HEADER_SIZE + (long) nodeCount * NODE_SIZE > view.capacity()) {
+            throw new IOException("Truncated lexicon of " + nodeCount + " nodes");
+        }
+        return new Lexicon(view, nodeCount);
+    }
+
+    /**
+     * Memory-maps a lexicon. The mapping stays valid after the channel is closed.
+     *
+     * @param channel File holding the lexicon
+     * @param offset Start of the lexicon in the file, for assets stored inside an APK
+     * @param length Size of the lexicon
+     */
+    public static Lexicon map(FileChannel channel, long offset, long length) throws IOException {
+        return wrap(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Child of the node for an upper case letter, NONE when there is none
+     */
+    public int child(int node, char letter) {
+        int first = firstChild(node);
+        int count = childCount(node);
+        // Few children, most nodes have one or two.
+        for (int child = first; child < first + count; child++) {
+            char childLetter = letter(child);
+            if (childLetter == letter) {
+                return child;
+            }
+            if (childLetter > letter) {
+                break;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return Upper case letter leading to the node, 0 for the root
+     */
+    public char letter(int node) {
+        return (char) (buffer.get(offset(node) + LETTER) & 0xFF);
+    }
+
+    public int childCount(int node) {
+        return buffer.get(offset(node) + CHILD_COUNT) & 0xFF;
+    }
+
+    /**
+     * @return Index of the first child, the other ones follow it
+     */
+    public int firstChild(int node) {
+        return buffer.getInt(offset(node) + FIRST_CHILD);
+    }
+
+    /**
+     * @return Parent of the node, NONE for the root
+     */
+    public int parent(int node) {
+        return buffer.getInt(offset(node) + PARENT);
+    }
+
+    /**
+     * @return Whether a word ends on the node
+     */
+    public boolean isWord(int node) {
+        return buffer.getShort(offset(node) + WORD_COST) != NO_WORD;
+    }
+
+    /**
+     * @return Cost of the word ending on the node, Float.POSITIVE_INFINITY when none does
+     */
+    public float wordCost(int node) {
+        short cost = buffer.getShort(offset(node) + WORD_COST);
+        return cost == NO_WORD ? Float.POSITIVE_INFINITY : cost / COST_SCALE;
+    }
+
+    /**
+     * @return Lowest cost of the words starting with the letters of the node
+     */
+    public float prefixCost(int node) {
+        return buffer.getShort(offset(node) + PREFIX_COST) / COST_SCALE;
+    }
+
+    /**
+     * @return Number of letters from the root to the node
+     */
+    public int depth(int node) {
+        int depth = 0;
+        while (node != ROOT) {
+            node = parent(node);
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Writes the letters from the root to the node.
+     *
+     * @param target Receives the letters, has to hold depth(node) of them from start
+     * @return Number of letters written
+     */
+    public int spell(int node, char[] target, int start) {
+        int length = depth(node);
+        for (int i = start + length - 1; node != ROOT; i--) {
+            target[i] = letter(node);
+            node = parent(node);
+        }
+        return length;
+    }
+
+    private int offset(int node) {
+        if (node < 0 || node >= nodeCount) {
+            throw new IndexOutOfBoundsException("Node " + node + " of " + nodeCount);
+        }
+        return HEADER_SIZE + node * NODE_SIZE;
+    }
+}
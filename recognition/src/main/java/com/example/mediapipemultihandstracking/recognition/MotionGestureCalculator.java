@@ -0,0 +1,42 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Recognizes letters that are signed with a movement of the whole hand, by matching the recent
+ * path of the hand rectangle kept by a {@link MotionTracker} against the rectangle templates of
+ * a {@link TrajectoryMatcher}. Calling it again without a new sample gives the same result.
+ * Not thread-safe.
+ */
+public final class MotionGestureCalculator {
+    private final TrajectoryMatcher matcher;
+
+    /**
+     * Uses the motion templates bundled with the app.
+     */
+    public MotionGestureCalculator() {
+        this(TrajectoryMatcher.loadDefault());
+    }
+
+    /**
+     * @param matcher Matcher used by this calculator only
+     */
+    public MotionGestureCalculator(TrajectoryMatcher matcher) {
+        this.matcher = matcher;
+    }
+
+    /**
+     * Matches the next paths with the trajectory thresholds of a profile.
+     */
+    public void setThresholds(ThresholdProfile profile) {
+        matcher.setThresholds(profile);
+    }
+
+    /**
+     * Looks at the recent path of the tracked hand.
+     *
+     * @param tracker Recent positions of the hand
+     * @return Gesture code drawn by the hand, NONE when it draws none
+     */
+    public int handGestureMoveCalculator(MotionTracker tracker) {
+        return matcher.match(tracker, TrajectoryMatcher.RECT_CENTER, Gestures.NONE);
+    }
+}
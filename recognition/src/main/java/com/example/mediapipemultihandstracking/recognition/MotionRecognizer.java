@@ -0,0 +1,131 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.function.Supplier;
+
+/**
+ * Turns hand rectangle packets into motion letters, independently for every hand.
+ *
+ * Rectangles are matched across packets by a {@link HandMatcher}, and each slot keeps its own
+ * {@link MotionTracker} and {@link LetterDebouncer}. Every tracker is updated exactly once per
+ * packet, and cleared once the letter drawn by its hand is committed. Not thread-safe, call it
+ * from one thread only, usually the recognition thread fed by a {@link PacketFusion}, except
+ * for {@link #setThresholds(ThresholdProfile)}.
+ */
+public final class MotionRecognizer {
+    // Largest move of a hand between two packets, in normalized image units.
+    private static final float MAX_HAND_MOVE = 0.25f;
+
+    private final MotionGestureCalculator calculator;
+    private final LetterListener listener;
+    private final HandMatcher matcher;
+    private final MotionTracker[] trackers;
+    private final LetterDebouncer[] debouncers;
+    private final int[] stableLetters;
+    // Published by setThresholds, applied by process.
+    private volatile ThresholdProfile thresholds;
+    private ThresholdProfile appliedThresholds;
+
+    private final float[] centerX = new float[HandRectPacket.MAX_RECTS];
+    private final float[] centerY = new float[HandRectPacket.MAX_RECTS];
+    private final int[] slots = new int[HandRectPacket.MAX_RECTS];
+
+    /**
+     * @param calculator Recognizes the motion letters from the trackers
+     * @param slotCount Number of hands followed at the same time
+     * @param historySize Number of rectangles kept by every tracker
+     * @param debouncers Creates the debouncer of every slot
+     * @param listener Receives the letters of every slot
+     */
+    public MotionRecognizer(MotionGestureCalculator calculator, int slotCount, int historySize,
+                            Supplier<LetterDebouncer> debouncers, LetterListener listener) {
+        this.calculator = calculator;
+        this.listener = listener;
+        matcher = new HandMatcher(slotCount, MAX_HAND_MOVE);
+        trackers = new MotionTracker[slotCount];
+        this.debouncers = new LetterDebouncer[slotCount];
+        stableLetters = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            trackers[slot] = new MotionTracker(historySize);
+            this.debouncers[slot] = debouncers.get();
+        }
+    }
+
+    /**
+     * Feeds the rectangles of a packet to the trackers of their hands. Trackers of hands that
+     * are not in the packet anymore are reset.
+     *
+     * @param rects Hand rectangles of the packet, possibly empty
+     */
+    public void process(HandRectPacket rects) {
+        ThresholdProfile thresholds = this.thresholds;
+        if (thresholds != appliedThresholds) {
+            calculator.setThresholds(thresholds);
+            for (int slot = 0; slot < debouncers.length; slot++) {
+                debouncers[slot] = thresholds.newMotionDebouncer();
+            }
+            appliedThresholds = thresholds;
+        }
+        int rectCount = Math.min(rects.getRectCount(), trackers.length);
+        for (int i = 0; i < rectCount; i++) {
+            centerX[i] = rects.xCenter(i);
+            centerY[i] = rects.yCenter(i);
+        }
+        int previous = matcher.getActiveSlots();
+        int fresh = matcher.match(centerX, centerY, rectCount, slots);
+        int gone = previous & ~matcher.getActiveSlots();
+        for (int slot = 0; slot < trackers.length; slot++) {
+            int bit = 1 << slot;
+            if ((gone & bit) != 0 || (fresh & bit) != 0) {
+                trackers[slot].reset();
+                debouncers[slot].reset();
+                setStableLetter(slot, Gestures.NONE);
+            }
+        }
+
+        long timestamp = rects.getTimestamp();
+        for (int i = 0; i < rectCount; i++) {
+            int slot = slots[i];
+            if (slot < 0) {
+                continue;
+            }
+            MotionTracker tracker = trackers[slot];
+            tracker.update(timestamp, rects.xCenter(i), rects.yCenter(i), rects.height(i));
+            LetterDebouncer debouncer = debouncers[slot];
+            int committed =
+                    debouncer.update(calculator.handGestureMoveCalculator(tracker), timestamp);
+            setStableLetter(slot, debouncer.getStableLetter());
+            if (committed != Gestures.NONE) {
+                // The drawing is used up, the next letter is read from scratch.
+                tracker.reset();
+                listener.onLetterCommitted(slot, debouncer.getCommitted());
+            }
+        }
+    }
+
+    /**
+     * Switches to the motion thresholds of a profile at the start of the next packet. Can be
+     * called from any thread, the debouncer of every slot starts over.
+     */
+    public void setThresholds(ThresholdProfile profile) {
+        thresholds = profile;
+    }
+
+    /**
+     * Forgets every hand, without telling the listener.
+     */
+    public void reset() {
+        matcher.reset();
+        for (int slot = 0; slot < trackers.length; slot++) {
+            trackers[slot].reset();
+            debouncers[slot].reset();
+            stableLetters[slot] = Gestures.NONE;
+        }
+    }
+
+    private void setStableLetter(int slot, int letter) {
+        if (letter != stableLetters[slot]) {
+            stableLetters[slot] = letter;
+            listener.onLetterChanged(slot, letter);
+        }
+    }
+}
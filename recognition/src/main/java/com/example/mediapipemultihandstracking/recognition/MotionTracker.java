@@ -0,0 +1,155 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Recent positions of one hand, kept in a fixed-size ring buffer of rectangle centers.
+ *
+ * The tracker is updated exactly once per rectangle packet. Queries take an age, 0 being the
+ * newest sample and size() - 1 the oldest one still held, and a span counted in samples back
+ * from the newest one. Packet timestamps are in microseconds, velocities are per second.
+ */
+public final class MotionTracker {
+    private static final double MICROS_PER_SECOND = 1e6;
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final float[] centerX;
+    private final float[] centerY;
+    private final float[] heights;
+    // Index of the newest sample.
+    private int head = -1;
+    private int size;
+
+    /**
+     * @param capacity Number of samples kept
+     */
+    public MotionTracker(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("A tracker needs at least 2 samples: " + capacity);
+        }
+        this.capacity = capacity;
+        timestamps = new long[capacity];
+        centerX = new float[capacity];
+        centerY = new float[capacity];
+        heights = new float[capacity];
+    }
+
+    /**
+     * Adds the rectangle of a new packet.
+     *
+     * @param timestamp Packet timestamp, in microseconds
+     * @param x Normalized X center of the hand rectangle
+     * @param y Normalized Y center of the hand rectangle
+     * @param height Normalized height of the hand rectangle
+     */
+    public void update(long timestamp, float x, float y, float height) {
+        head = head + 1 == capacity ? 0 : head + 1;
+        timestamps[head] = timestamp;
+        centerX[head] = x;
+        centerY[head] = y;
+        heights[head] = height;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    /**
+     * Forgets every sample, for instance when the hand left the image.
+     */
+    public void reset() {
+        head = -1;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long timestamp(int age) {
+        return timestamps[index(age)];
+    }
+
+    public float centerX(int age) {
+        return centerX[index(age)];
+    }
+
+    public float centerY(int age) {
+        return centerY[index(age)];
+    }
+
+    public float height(int age) {
+        return heights[index(age)];
+    }
+
+    /**
+     * @return Straight distance between the newest sample and the one span samples older
+     */
+    public double displacement(int span) {
+        double dx = centerX(0) - centerX(span);
+        double dy = centerY(0) - centerY(span);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return Distance travelled along the last span steps
+     */
+    public double pathLength(int span) {
+        double length = 0;
+        for (int age = 0; age < span; age++) {
+            double dx = centerX(age) - centerX(age + 1);
+            double dy = centerY(age) - centerY(age + 1);
+            length += Math.sqrt(dx * dx + dy * dy);
+        }
+        return length;
+    }
+
+    /**
+     * @return Horizontal velocity over the last span steps, 0 when no time elapsed
+     */
+    public double velocityX(int span) {
+        return perSecond(centerX(0) - centerX(span), span);
+    }
+
+    /**
+     * @return Vertical velocity over the last span steps, 0 when no time elapsed
+     */
+    public double velocityY(int span) {
+        return perSecond(centerY(0) - centerY(span), span);
+    }
+
+    /**
+     * @return Speed over the last span steps, 0 when no time elapsed
+     */
+    public double speed(int span) {
+        return perSecond(displacement(span), span);
+    }
+
+    /**
+     * Direction of the movement over the last span steps, measured like getAngleABC from the
+     * older position with the X axis as reference.
+     *
+     * @return Angle in degrees within [-180, 180]
+     */
+    public int direction(int span) {
+        return GestureMath.radianToDegree(GestureMath.getAngleABC(
+                centerX(0), centerY(0),
+                centerX(span), centerY(span),
+                centerX(span) + 0.1, centerY(span)));
+    }
+
+    private double perSecond(double delta, int span) {
+        long elapsed = timestamp(0) - timestamp(span);
+        return elapsed <= 0 ? 0 : delta * MICROS_PER_SECOND / elapsed;
+    }
+
+    private int index(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("Age " + age + " of " + size + " samples");
+        }
+        int index = head - age;
+        return index < 0 ? index + capacity : index;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive low-pass filter over the 21 landmarks of one hand (One Euro filter, Casiez et al.).
+ *
+ * Every coordinate is smoothed by an exponential filter whose cutoff frequency grows with the
+ * speed of that coordinate: a hand held still is smoothed a lot, which removes the jitter that
+ * makes the thresholds of the rules flip between frames, while a moving hand is followed with
+ * little lag. The state is kept in preallocated arrays, filtering never allocates.
+ *
+ * Not thread-safe, use one instance per hand. Packet timestamps are in microseconds.
+ */
+public final class OneEuroFilter {
+    private static final double MICROS_PER_SECOND = 1e6;
+
+    private final double minCutoff;
+    private final double beta;
+    private final double derivativeCutoff;
+
+    private final float[] values = new float[HandFrame.NUM_COORDINATES];
+    private final float[] derivatives = new float[HandFrame.NUM_COORDINATES];
+    private long lastTimestamp;
+    private boolean initialized;
+
+    /**
+     * @param minCutoff Cutoff frequency of a still hand in Hz, lower values remove more jitter
+     * @param beta Increase of the cutoff frequency per normalized image unit per second, higher
+     *             values reduce the lag of moving hands
+     * @param derivativeCutoff Cutoff frequency in Hz of the speed estimate
+     */
+    public OneEuroFilter(double minCutoff, double beta, double derivativeCutoff) {
+        if (minCutoff <= 0 || derivativeCutoff <= 0 || beta < 0) {
+            throw new IllegalArgumentException("Invalid filter parameters: " + minCutoff + ", "
+                    + beta + ", " + derivativeCutoff);
+        }
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+    }
+
+    /**
+     * Filters the landmarks of a new frame in place.
+     *
+     * @param hand Landmarks of the frame, replaced by the filtered ones
+     * @param timestamp Packet timestamp of the frame
+     */
+    public void filter(HandFrame hand, long timestamp) {
+        float[] coordinates = hand.coordinates();
+        if (!initialized) {
+            System.arraycopy(coordinates, 0, values, 0, HandFrame.NUM_COORDINATES);
+            Arrays.fill(derivatives, 0);
+            lastTimestamp = timestamp;
+            initialized = true;
+            return;
+        }
+        long elapsed = timestamp - lastTimestamp;
+        hand.beginUpdate();
+        if (elapsed <= 0) {
+            // Same or older frame, keep the current estimate.
+            System.arraycopy(values, 0, coordinates, 0, HandFrame.NUM_COORDINATES);
+            return;
+        }
+        lastTimestamp = timestamp;
+        double seconds = elapsed / MICROS_PER_SECOND;
+        double derivativeAlpha = alpha(derivativeCutoff, seconds);
+        for (int i = 0; i < HandFrame.NUM_COORDINATES; i++) {
+            float previous = values[i];
+            double derivative = (coordinates[i] - previous) / seconds;
+            double smoothedDerivative =
+                    derivatives[i] + derivativeAlpha * (derivative - derivatives[i]);
+            double cutoff = minCutoff + beta * Math.abs(smoothedDerivative);
+            float value = (float) (previous + alpha(cutoff, seconds) * (coordinates[i] - previous));
+            derivatives[i] = (float) smoothedDerivative;
+            values[i] = value;
+            coordinates[i] = value;
+        }
+    }
+
+    /**
+     * Forgets the previous frames, for instance when the hand left the image. The next frame
+     * goes through unchanged.
+     */
+    public void reset() {
+        initialized = false;
+    }
+
+    private static double alpha(double cutoff, double seconds) {
+        double tau = 1 / (2 * Math.PI * cutoff);
+        return 1 / (1 + tau / seconds);
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Joins the landmark and the hand rectangle streams of the graph by packet timestamp, so both
+ * halves of a camera frame are recognized together, in one pass of the recognition thread.
+ * Optionally, the handedness stream is joined as a third half, see
+ * {@link #beginHandedness(long)}.
+ *
+ * Each stream writes its half of a frame into a slot of a small ring, between
+ * {@link #beginLandmarks(long)} and {@link #endLandmarks(long, boolean)}, or the rectangle
+ * counterparts. Frames leave the ring in timestamp order, as a {@link LandmarkPacket} carrying
+ * its rectangles, once:
+ * <ul>
+ * <li>all halves arrived,</li>
+ * <li>or the stream of the missing half delivered a newer packet. The graph emits every stream
+ * in timestamp order and skips the packets of empty outputs, so that half is not coming,</li>
+ * <li>or another stream is more than maxWait past the frame, the missing stream may be
+ * silent for a while,</li>
+ * <li>or the ring is full and the frame is the oldest one.</li>
+ * </ul>
+ * A frame sent without one of its halves says so, see {@link LandmarkPacket#hasLandmarks()},
+ * {@link LandmarkPacket#hasRects()} and {@link LandmarkPacket#hasHandedness()}. A half
+ * arriving once its frame or a newer one was sent is late: it is dropped and counted, see
+ * {@link #getLatePackets()}.
+ *
+ * Without locks: slots are claimed, written and sent by compare-and-set on their state, they
+ * are created one at a time behind a compare-and-set flag, and frames are sent by one thread at
+ * a time, whichever stream finished a half last. Each stream has to be written from one thread
+ * at a time, in timestamp order, which is how MediaPipe calls the packet callbacks. Packet
+ * timestamps must not be negative.
+ */
+public final class PacketFusion {
+    private static final int LANDMARKS = 0;
+    private static final int RECTS = 1;
+    private static final int HANDEDNESS = 2;
+
+    // Slot state: packet timestamp << STATE_BITS | flags, or EMPTY. Each of the WRITING,
+    // ARRIVED and WRITTEN flags has one bit per half, shifted by the half.
+    private static final long EMPTY = -1;
+    private static final int STATE_BITS = 10;
+    private static final long WRITING = 1;
+    private static final long ARRIVED = 1 << 3;
+    private static final long WRITTEN = 1 << 6;
+    private static final long WRITING_ANY = WRITING * 7;
+    private static final long ARRIVED_ANY = ARRIVED * 7;
+    private static final long SENDING = 1 << 9;
+
+    private final AtomicLongArray states;
+    // Frame of every slot, owned by the writers of the slot until it is sent.
+    private final LandmarkPacket[] frames;
+    private final LandmarkPacket.Pool pool;
+    private final Consumer<LandmarkPacket> sink;
+
+    // Number of joined streams, 3 when the handedness is joined.
+    private final int halves;
+    // Held by the writer creating a slot, see begin().
+    private final AtomicBoolean creating = new AtomicBoolean();
+    // Newest timestamp delivered by each stream.
+    private final AtomicLongArray newestPackets = new AtomicLongArray(3);
+    private final long maxWait;
+    private volatile long lastSent = -1;
+    // Set by a writer that found no free slot, the oldest frame is sent even if incomplete.
+    private volatile boolean full;
+    // Number of send requests since the sending thread last looked, see send().
+    private final AtomicInteger sendRequests = new AtomicInteger();
+
+    private final AtomicLong latePackets = new AtomicLong();
+    private final AtomicLong partialFrames = new AtomicLong();
+
+    /**
+     * @param capacity Number of frames in flight, 4 leave room for a stream running a frame
+     *                 ahead of the other one
+     * @param maxWait Longest wait for a missing half once the other stream is past its frame,
+     *                in packet timestamp units. 0 sends the frame with the first newer packet.
+     * @param pool Gives the frames of the slots, the sink hands them back
+     * @param sink Receives the joined frames in timestamp order, on one of the stream threads
+     */
+    public PacketFusion(int capacity, long maxWait, LandmarkPacket.Pool pool,
+                        Consumer<LandmarkPacket> sink) {
+        this(capacity, maxWait, false, pool, sink);
+    }
+
+    /**
+     * @param handedness True to join the handedness stream too, frames then wait for it like
+     *                   for the other halves
+     */
+    public PacketFusion(int capacity, long maxWait, boolean handedness,
+                        LandmarkPacket.Pool pool, Consumer<LandmarkPacket> sink) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Ring too small: " + capacity);
+        }
+        states = new AtomicLongArray(capacity);
+        frames = new LandmarkPacket[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            states.set(slot, EMPTY);
+            frames[slot] = pool.acquire();
+        }
+        for (int half = 0; half < newestPackets.length(); half++) {
+            newestPackets.set(half, -1);
+        }
+        halves = handedness ? 3 : 2;
+        this.maxWait = maxWait;
+        this.pool = pool;
+        this.sink = sink;
+    }
+
+    /**
+     * Reserves the landmark half of a frame.
+     *
+     * @return Packet to fill with {@link ProtoWireDecoder#readLandmarks} or
+     *         {@link LandmarkPacket#reset(long)}, or null when the half is late
+     */
+    public LandmarkPacket beginLandmarks(long timestamp) {
+        int slot = begin(LANDMARKS, timestamp);
+        return slot < 0 ? null : frames[slot];
+    }
+
+    /**
+     * Hands back the landmark half reserved by {@link #beginLandmarks(long)}. The packet must
+     * not be touched afterwards.
+     *
+     * @param timestamp Timestamp the half was reserved with
+     * @param written False when the landmarks could not be read, the frame goes on without them
+     */
+    public void endLandmarks(long timestamp, boolean written) {
+        end(LANDMARKS, timestamp, written);
+    }
+
+    /**
+     * Reserves the rectangle half of a frame.
+     *
+     * @return Packet to fill with {@link ProtoWireDecoder#readRects} or
+     *         {@link HandRectPacket#reset(long)}, or null when the half is late
+     */
+    public HandRectPacket beginRects(long timestamp) {
+        int slot = begin(RECTS, timestamp);
+        return slot < 0 ? null : frames[slot].getRects();
+    }
+
+    /**
+     * Hands back the rectangle half reserved by {@link #beginRects(long)}, like
+     * {@link #endLandmarks(long, boolean)}.
+     */
+    public void endRects(long timestamp, boolean written) {
+        end(RECTS, timestamp, written);
+    }
+
+    /**
+     * Reserves the handedness half of a frame, only joined when the fusion was created with
+     * handedness.
+     *
+     * @return Packet to fill with {@link ProtoWireDecoder#readHandedness}, or null when the half
+     *         is late
+     */
+    public LandmarkPacket beginHandedness(long timestamp) {
+        if (halves <= HANDEDNESS) {
+            throw new IllegalStateException("Handedness is not joined");
+        }
+        int slot = begin(HANDEDNESS, timestamp);
+        return slot < 0 ? null : frames[slot];
+    }
+
+    /**
+     * Hands back the handedness half reserved by {@link #beginHandedness(long)}, like
+     * {@link #endLandmarks(long, boolean)}.
+     */
+    public void endHandedness(long timestamp, boolean written) {
+        end(HANDEDNESS, timestamp, written);
+    }
+
+    /**
+     * @return Number of halves dropped because their frame, or a newer one, was already sent
+     */
+    public long getLatePackets() {
+        return latePackets.get();
+    }
+
+    /**
+     * @return Number of frames sent with a half missing
+     */
+    public long getPartialFrames() {
+        return partialFrames.get();
+    }
+
+    private int begin(int half, long timestamp) {
+        if (timestamp > newestPackets.get(half)) {
+            newestPackets.set(half, timestamp);
+        }
+        while (true) {
+            int slot = find(timestamp);
+            if (slot >= 0) {
+                long state = states.get(slot);
+                if (state >>> STATE_BITS != timestamp) {
+                    continue;
+                }
+                if ((state & (SENDING | ARRIVED << half)) != 0) {
+                    // Sent already, or a second packet of the same stream and timestamp.
+                    latePackets.incrementAndGet();
+                    return -1;
+                }
+                if (states.compareAndSet(slot, state, state | WRITING << half)) {
+                    return slot;
+                }
+                continue;
+            }
+            if (timestamp <= lastSent) {
+                latePackets.incrementAndGet();
+                return -1;
+            }
+            // Slots are created one at a time, so two streams never create the slot of the
+            // same timestamp. The flag is only held while a free slot is looked for.
+            if (!creating.compareAndSet(false, true)) {
+                Thread.yield();
+                continue;
+            }
+            try {
+                if (find(timestamp) < 0 && timestamp > lastSent) {
+                    return create(half, timestamp);
+                }
+            } finally {
+                creating.set(false);
+            }
+        }
+    }
+
+    private int create(int half, long timestamp) {
+        long state = timestamp << STATE_BITS | WRITING << half;
+        while (true) {
+            for (int slot = 0; slot < frames.length; slot++) {
+                if (states.get(slot) == EMPTY && states.compareAndSet(slot, EMPTY, state)) {
+                    full = false;
+                    return slot;
+                }
+            }
+            full = true;
+            send();
+            Thread.yield();
+        }
+    }
+
+    private void end(int half, long timestamp, boolean written) {
+        int slot = find(timestamp);
+        if (slot < 0 || (states.get(slot) & WRITING << half) == 0) {
+            throw new IllegalStateException("Half not reserved at " + timestamp);
+        }
+        while (true) {
+            long state = states.get(slot);
+            long next = state & ~(WRITING << half) | ARRIVED << half;
+            if (written) {
+                next |= WRITTEN << half;
+            }
+            if (states.compareAndSet(slot, state, next)) {
+                break;
+            }
+        }
+        send();
+    }
+
+    /**
+     * Sends the frames that are ready. Only one thread sends at a time, the requests made
+     * meanwhile are taken care of by that thread before it returns.
+     */
+    private void send() {
+        if (sendRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            while (sendOldest()) {
+                // Look at the next frame.
+            }
+            requests = sendRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    /**
+     * @return True when the oldest frame was sent or dropped, false when it has to wait
+     */
+    private boolean sendOldest() {
+        int slot = -1;
+        long oldest = EMPTY;
+        for (int i = 0; i < frames.length; i++) {
+            long state = states.get(i);
+            if (state != EMPTY && (slot < 0 || state >>> STATE_BITS < oldest >>> STATE_BITS)) {
+                slot = i;
+                oldest = state;
+            }
+        }
+        if (slot < 0 || (oldest & WRITING_ANY) != 0) {
+            return false;
+        }
+        long timestamp = oldest >>> STATE_BITS;
+        boolean late = timestamp < lastSent;
+        if (!late && !full) {
+            for (int half = 0; half < halves; half++) {
+                if (!given(oldest, half)) {
+                    return false;
+                }
+            }
+        }
+        if (!states.compareAndSet(slot, oldest, oldest | SENDING)) {
+            return true;
+        }
+        full = false;
+        if (late) {
+            // Created after a newer frame was sent, see begin().
+            latePackets.addAndGet(Long.bitCount(oldest & ARRIVED_ANY));
+            states.set(slot, EMPTY);
+            return true;
+        }
+        LandmarkPacket frame = frames[slot];
+        frames[slot] = pool.acquire();
+        lastSent = timestamp;
+        states.set(slot, EMPTY);
+
+        boolean landmarks = (oldest & WRITTEN << LANDMARKS) != 0;
+        boolean rects = (oldest & WRITTEN << RECTS) != 0;
+        boolean handedness = (oldest & WRITTEN << HANDEDNESS) != 0;
+        if (!landmarks || !rects || (halves > HANDEDNESS && !handedness)) {
+            partialFrames.incrementAndGet();
+        }
+        frame.setHalves(timestamp, landmarks, rects, handedness);
+        sink.accept(frame);
+        return true;
+    }
+
+    /**
+     * @return True when a half of a frame arrived, or is not waited for anymore
+     */
+    private boolean given(long state, int half) {
+        long timestamp = state >>> STATE_BITS;
+        if ((state & ARRIVED << half) != 0 || newestPackets.get(half) > timestamp) {
+            return true;
+        }
+        for (int other = 0; other < halves; other++) {
+            if (other != half && newestPackets.get(other) - timestamp > maxWait) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int find(long timestamp) {
+        for (int slot = 0; slot < frames.length; slot++) {
+            long state = states.get(slot);
+            if (state != EMPTY && state >>> STATE_BITS == timestamp) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
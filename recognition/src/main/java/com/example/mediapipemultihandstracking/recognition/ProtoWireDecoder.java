@@ -0,0 +1,344 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.IOException;
+
+/**
+ * Reads serialized MediaPipe landmark, rectangle and handedness protos straight into the
+ * primitive packets, without protobuf objects.
+ *
+ * Only the fields the recognition needs are decoded, as defined by landmark.proto, rect.proto
+ * and classification.proto:
+ * <pre>
+ * NormalizedLandmarkList { repeated NormalizedLandmark landmark = 1; }
+ * NormalizedLandmark     { float x = 1; float y = 2; float z = 3; ... }
+ * NormalizedRect         { float x_center = 1; float y_center = 2; float height = 3;
+ *                          float width = 4; float rotation = 5; ... }
+ * ClassificationList     { repeated Classification classification = 1; }
+ * Classification         { int32 index = 1; float score = 2; ... }
+ * </pre>
+ * Other fields are skipped whatever their wire type, a field seen twice keeps its last value
+ * and a missing field reads as 0, like protobuf-java does. Nothing is allocated, except the
+ * exception thrown on malformed input.
+ *
+ * Not thread-safe, use one decoder per packet callback.
+ */
+public final class ProtoWireDecoder {
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_START_GROUP = 3;
+    private static final int WIRE_END_GROUP = 4;
+    private static final int WIRE_FIXED32 = 5;
+
+    // Field numbers of the decoded messages.
+    private static final int LANDMARK_LIST_LANDMARK = 1;
+    private static final int LANDMARK_X = 1;
+    private static final int LANDMARK_Y = 2;
+    private static final int LANDMARK_Z = 3;
+    private static final int RECT_X_CENTER = 1;
+    private static final int RECT_Y_CENTER = 2;
+    private static final int RECT_HEIGHT = 3;
+    private static final int RECT_WIDTH = 4;
+    private static final int RECT_ROTATION = 5;
+    private static final int CLASSIFICATION_LIST_CLASSIFICATION = 1;
+    private static final int CLASSIFICATION_INDEX = 1;
+    private static final int CLASSIFICATION_SCORE = 2;
+
+    // Label indices of handedness.txt.
+    private static final int HANDEDNESS_LEFT = 0;
+    private static final int HANDEDNESS_RIGHT = 1;
+
+    // Message being decoded and the read position in it.
+    private byte[] bytes;
+    private int position;
+
+    /**
+     * Fills a packet with the hands of a vector of serialized NormalizedLandmarkList.
+     *
+     * @param hands One serialized landmark list per hand, hands past MAX_HANDS are ignored
+     * @param timestamp Timestamp of the packet
+     * @throws IOException When a list is malformed or has less than 21 landmarks
+     */
+    public void readLandmarks(byte[][] hands, long timestamp, LandmarkPacket packet)
+            throws IOException {
+        packet.reset(timestamp);
+        for (byte[] list : hands) {
+            HandFrame hand = packet.addHand();
+            if (hand == null) {
+                break;
+            }
+            readLandmarkList(list, hand);
+        }
+    }
+
+    /**
+     * Fills a packet with the rectangles of a vector of serialized NormalizedRect.
+     *
+     * @param rects One serialized rectangle per hand, rectangles past MAX_RECTS are ignored
+     * @param timestamp Timestamp of the packet
+     * @throws IOException When a rectangle is malformed
+     */
+    public void readRects(byte[][] rects, long timestamp, HandRectPacket packet)
+            throws IOException {
+        packet.reset(timestamp);
+        for (byte[] rect : rects) {
+            if (!readRect(rect, packet)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Fills the handedness of a packet from a vector of serialized ClassificationList, as given
+     * by the handedness stream of the hand tracking graph.
+     *
+     * @param hands One serialized classification list per hand, in the order of the landmarks,
+     *              hands past MAX_HANDS are ignored
+     * @throws IOException When a list is malformed
+     */
+    public void readHandedness(byte[][] hands, LandmarkPacket packet) throws IOException {
+        packet.resetHandedness();
+        for (byte[] list : hands) {
+            if (!packet.addHandedness(readLeftScore(list))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the top classification of a serialized handedness ClassificationList, the first
+     * one.
+     *
+     * @return Probability of the Left label, 0.5 when the list has no Left or Right label
+     */
+    public float readLeftScore(byte[] list) throws IOException {
+        start(list);
+        float leftScore = 0.5f;
+        boolean first = true;
+        while (position < list.length) {
+            long tag = readVarint(list.length);
+            if (tag != (CLASSIFICATION_LIST_CLASSIFICATION << 3 | WIRE_LENGTH_DELIMITED)) {
+                skipField(tag, list.length);
+                continue;
+            }
+            int end = readEnd(list.length);
+            if (first) {
+                leftScore = readClassification(end);
+                first = false;
+            }
+            position = end;
+        }
+        return leftScore;
+    }
+
+    /**
+     * Reads the first 21 landmarks of a serialized NormalizedLandmarkList, later ones are
+     * ignored.
+     */
+    public void readLandmarkList(byte[] list, HandFrame hand) throws IOException {
+        start(list);
+        hand.beginUpdate();
+        int landmark = 0;
+        while (position < list.length) {
+            long tag = readVarint(list.length);
+            if (tag == (LANDMARK_LIST_LANDMARK << 3 | WIRE_LENGTH_DELIMITED)) {
+                int end = readEnd(list.length);
+                if (landmark < HandFrame.NUM_LANDMARKS) {
+                    readLandmark(end, hand, landmark);
+                }
+                landmark++;
+                position = end;
+            } else {
+                skipField(tag, list.length);
+            }
+        }
+        if (landmark < HandFrame.NUM_LANDMARKS) {
+            throw new IOException("Hand with " + landmark + " landmarks");
+        }
+    }
+
+    /**
+     * Appends a serialized NormalizedRect to a packet.
+     *
+     * @return False when the packet is full and the rectangle was ignored
+     */
+    public boolean readRect(byte[] rect, HandRectPacket packet) throws IOException {
+        start(rect);
+        float xCenter = 0;
+        float yCenter = 0;
+        float height = 0;
+        float width = 0;
+        float rotation = 0;
+        while (position < rect.length) {
+            long tag = readVarint(rect.length);
+            if ((tag & 7) != WIRE_FIXED32 || tag >>> 3 > RECT_ROTATION) {
+                skipField(tag, rect.length);
+                continue;
+            }
+            float value = readFloat(rect.length);
+            switch ((int) (tag >>> 3)) {
+                case RECT_X_CENTER:
+                    xCenter = value;
+                    break;
+                case RECT_Y_CENTER:
+                    yCenter = value;
+                    break;
+                case RECT_HEIGHT:
+                    height = value;
+                    break;
+                case RECT_WIDTH:
+                    width = value;
+                    break;
+                case RECT_ROTATION:
+                    rotation = value;
+                    break;
+                default:
+                    throw new IOException("Invalid field number 0");
+            }
+        }
+        return packet.addRect(xCenter, yCenter, width, height, rotation);
+    }
+
+    private void start(byte[] message) {
+        bytes = message;
+        position = 0;
+    }
+
+    private void readLandmark(int end, HandFrame hand, int index) throws IOException {
+        float x = 0;
+        float y = 0;
+        float z = 0;
+        while (position < end) {
+            long tag = readVarint(end);
+            if ((tag & 7) != WIRE_FIXED32 || tag >>> 3 > LANDMARK_Z) {
+                skipField(tag, end);
+                continue;
+            }
+            float value = readFloat(end);
+            switch ((int) (tag >>> 3)) {
+                case LANDMARK_X:
+                    x = value;
+                    break;
+                case LANDMARK_Y:
+                    y = value;
+                    break;
+                case LANDMARK_Z:
+                    z = value;
+                    break;
+                default:
+                    throw new IOException("Invalid field number 0");
+            }
+        }
+        hand.setLandmark(index, x, y, z);
+    }
+
+    /**
+     * @return Probability of the Left label given by a Classification
+     */
+    private float readClassification(int end) throws IOException {
+        long index = 0;
+        float score = 0;
+        while (position < end) {
+            long tag = readVarint(end);
+            if (tag == (CLASSIFICATION_INDEX << 3 | WIRE_VARINT)) {
+                index = readVarint(end);
+            } else if (tag == (CLASSIFICATION_SCORE << 3 | WIRE_FIXED32)) {
+                score = readFloat(end);
+            } else {
+                skipField(tag, end);
+            }
+        }
+        if (index == HANDEDNESS_LEFT) {
+            return score;
+        }
+        return index == HANDEDNESS_RIGHT ? 1 - score : 0.5f;
+    }
+
+    /**
+     * Moves past the value of a field whose tag was just read.
+     */
+    private void skipField(long tag, int end) throws IOException {
+        if (tag >>> 3 == 0) {
+            throw new IOException("Invalid field number 0");
+        }
+        switch ((int) (tag & 7)) {
+            case WIRE_VARINT:
+                readVarint(end);
+                break;
+            case WIRE_FIXED64:
+                advance(8, end);
+                break;
+            case WIRE_LENGTH_DELIMITED:
+                position = readEnd(end);
+                break;
+            case WIRE_START_GROUP:
+                skipGroup(tag >>> 3, end);
+                break;
+            case WIRE_FIXED32:
+                advance(4, end);
+                break;
+            default:
+                throw new IOException("Unexpected wire type " + (tag & 7));
+        }
+    }
+
+    /**
+     * Moves past the fields of a group, up to its end group tag.
+     */
+    private void skipGroup(long field, int end) throws IOException {
+        while (true) {
+            long tag = readVarint(end);
+            if ((tag & 7) == WIRE_END_GROUP) {
+                if (tag >>> 3 != field) {
+                    throw new IOException("Mismatched end group " + (tag >>> 3));
+                }
+                return;
+            }
+            skipField(tag, end);
+        }
+    }
+
+    private void advance(int length, int end) throws IOException {
+        if (length > end - position) {
+            throw new IOException("Truncated field");
+        }
+        position += length;
+    }
+
+    private float readFloat(int end) throws IOException {
+        int start = position;
+        advance(4, end);
+        return Float.intBitsToFloat((bytes[start] & 0xFF)
+                | (bytes[start + 1] & 0xFF) << 8
+                | (bytes[start + 2] & 0xFF) << 16
+                | (bytes[start + 3] & 0xFF) << 24);
+    }
+
+    /**
+     * Reads the length of a length-delimited field.
+     *
+     * @return Position after the field
+     */
+    private int readEnd(int end) throws IOException {
+        long length = readVarint(end);
+        if (length < 0 || length > end - position) {
+            throw new IOException("Truncated field of " + length + " bytes");
+        }
+        return position + (int) length;
+    }
+
+    private long readVarint(int end) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= end) {
+                throw new IOException("Truncated varint");
+            }
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Recognition stage that processes hand frames on its own thread instead of the UI thread.
+ *
+ * Frames are handed over through a single-slot queue with a latest-frame-wins policy: if the
+ * recognition thread is still busy when a new frame arrives, the pending frame is replaced and
+ * counted as dropped. What happens to a frame is up to the {@link Processor}, usually a
+ * {@link HandRecognizer} that only tells the UI about letter changes and commits.
+ * An optional {@link Scheduler} decides which frames are worth handing over at all, and learns
+ * how long the processor takes. A processor failing on a frame is reported to the
+ * {@link ErrorListener}, and the recognition thread goes on with the next frame.
+ *
+ * @param <F> Type of the frame handed over by the packet callback
+ */
+public final class RecognitionPipeline<F extends Timestamped> {
+
+    /**
+     * Handles one frame. Always called on the recognition thread.
+     */
+    public interface Processor<F> {
+        void process(F frame);
+    }
+
+    /**
+     * Takes back frames the pipeline is done with, either because they were processed or
+     * because a newer frame replaced them.
+     */
+    public interface Recycler<F> {
+        void recycle(F frame);
+    }
+
+    /**
+     * Picks the frames to process. accept and onSubmitted are called on the thread submitting
+     * the frames, onProcessed on the recognition thread.
+     */
+    public interface Scheduler<F> {
+        /**
+         * @return False to skip the frame, it is recycled without being processed
+         */
+        boolean accept(F frame);
+
+        /**
+         * @param replacedPending True when the frame replaced one that was not processed yet
+         */
+        void onSubmitted(boolean replacedPending);
+
+        /**
+         * @param processingNanos Time the processor took for one frame
+         */
+        void onProcessed(long processingNanos);
+    }
+
+    /**
+     * Hears about the frames the processor failed on, on the recognition thread.
+     */
+    public interface ErrorListener {
+        void onError(RuntimeException error);
+    }
+
+    // Longest idle wait of the recognition thread between two checks of the slot.
+    private static final long PARK_TIMEOUT_MILLIS = 500;
+
+    private final String name;
+    private final Processor<F> processor;
+    private final Recycler<F> recycler;
+
+    // Single-slot handoff between the packet callback (producer) and the recognition thread.
+    private final AtomicReference<F> pending = new AtomicReference<>();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong processedFrames = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+    private volatile Scheduler<F> scheduler;
+    private volatile ErrorListener errorListener;
+
+    private volatile boolean running;
+    // Current recognition thread, a thread that is not the worker any more ends its loop.
+    private volatile Thread worker;
+
+    /**
+     * @param name Name of the recognition thread
+     * @param processor Handles the frames
+     * @param recycler Takes back the frames, may be null
+     */
+    public RecognitionPipeline(String name, Processor<F> processor, Recycler<F> recycler) {
+        this.name = name;
+        this.processor = processor;
+        this.recycler = recycler;
+    }
+
+    /**
+     * @param scheduler Picks the frames to process, null to process every frame
+     */
+    public void setScheduler(Scheduler<F> scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param errorListener Hears about the processor failures, null to let them end the
+     *                      recognition thread through its uncaught exception handler
+     */
+    public void setErrorListener(ErrorListener errorListener) {
+        this.errorListener = errorListener;
+    }
+
+    /**
+     * Starts the recognition thread. Calling it on a running pipeline does nothing. State the
+     * processor kept from before can be reset just before, the new thread will see it. A frame
+     * submitted while the pipeline was stopped is recycled, it is never processed.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        recycle(pending.getAndSet(null));
+        running = true;
+        Thread thread = new Thread(this::runLoop, name);
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the recognition thread and discards the pending frame, if any. Waits for the frame
+     * being processed, the processor is not called any more once this returns.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = worker;
+        worker = null;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        recycle(pending.getAndSet(null));
+    }
+
+    /**
+     * Hands a frame over to the recognition thread. Never blocks the caller. A frame submitted
+     * while the pipeline is stopped, like one of a callback still in flight after a pause, is
+     * recycled right away.
+     *
+     * @param frame Frame to process
+     * @return True when an older frame that was not processed yet got replaced
+     */
+    public boolean submit(F frame) {
+        if (!running) {
+            recycle(frame);
+            return false;
+        }
+        Scheduler<F> scheduler = this.scheduler;
+        if (scheduler != null && !scheduler.accept(frame)) {
+            skippedFrames.incrementAndGet();
+            recycle(frame);
+            return false;
+        }
+        F displaced = pending.getAndSet(frame);
+        LockSupport.unpark(worker);
+        if (scheduler != null) {
+            scheduler.onSubmitted(displaced != null);
+        }
+        if (displaced != null) {
+            droppedFrames.incrementAndGet();
+            recycle(displaced);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of frames replaced before the recognition thread could process them
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return Number of frames the scheduler did not accept
+     */
+    public long getSkippedFrames() {
+        return skippedFrames.get();
+    }
+
+    /**
+     * @return Number of frames processed since the pipeline was created
+     */
+    public long getProcessedFrames() {
+        return processedFrames.get();
+    }
+
+    private void runLoop() {
+        while (worker == Thread.currentThread()) {
+            F frame = pending.getAndSet(null);
+            if (frame == null) {
+                // Spurious wake-ups are fine, the slot is checked again on every iteration.
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(PARK_TIMEOUT_MILLIS));
+                continue;
+            }
+            try {
+                long start = System.nanoTime();
+                processor.process(frame);
+                Scheduler<F> scheduler = this.scheduler;
+                if (scheduler != null) {
+                    scheduler.onProcessed(System.nanoTime() - start);
+                }
+                processedFrames.incrementAndGet();
+            } catch (RuntimeException e) {
+                ErrorListener errorListener = this.errorListener;
+                if (errorListener == null) {
+                    throw e;
+                }
+                errorListener.onError(e);
+            } finally {
+                recycle(frame);
+            }
+        }
+    }
+
+    private void recycle(F frame) {
+        if (frame != null && recycler != null) {
+            recycler.recycle(frame);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Builds the signed sentence from committed letters, correcting misread letters with a
+ * {@link Lexicon}.
+ *
+ * The text is kept in a growable char buffer: the finished words, then the word being signed.
+ * While a word is signed, a beam search follows the most likely paths through the lexicon trie.
+ * Every letter extends each path with every child of its node, scored with the cost of that
+ * letter, or skips the letter as a misread at a fixed cost. Only the beamWidth paths with the
+ * lowest cost plus lowest word cost below them are kept, so a letter costs at most beamWidth x
+ * 27 steps whatever the size of the lexicon. When the word ends, the best path ending on a
+ * word is written, unless the letters as read, with the cost of an unknown word, are more
+ * likely.
+ *
+ * Not thread-safe, use it from one thread only, the recognition thread once it is handed to a
+ * {@link LetterPresenter}.
+ */
+public final class SentenceBuilder implements CharSequence {
+    // Confidence given to letters committed without scores.
+    public static final float DEFAULT_CONFIDENCE = 0.8f;
+    public static final int DEFAULT_BEAM_WIDTH = 16;
+
+    // Cost of a committed letter that is not part of the word.
+    static final float SKIP_COST = 3.5f;
+    // Cost of a word that is not in the lexicon, on top of the cost of its letters.
+    static final float UNKNOWN_WORD_COST = 12f;
+
+    private final Lexicon lexicon;
+    private final int beamWidth;
+    private final LetterScores scores = new LetterScores();
+
+    private char[] text = new char[64];
+    // Finished words, then the word being signed.
+    private int committedLength;
+    private int length;
+
+    // Letters of the current word as read, with their cost.
+    private char[] letters = new char[16];
+    private int letterCount;
+    private float letterCost;
+
+    // Paths of the current word, best first, and their extensions by the next letter.
+    private final int[] beamNodes;
+    private final float[] beamCosts;
+    private int beamSize;
+    private final int[] candidateNodes;
+    private final float[] candidateCosts;
+    private final float[] candidateRanks;
+
+    /**
+     * @param lexicon Known words, null to write the letters as read
+     * @param beamWidth Number of paths kept per letter
+     */
+    public SentenceBuilder(Lexicon lexicon, int beamWidth) {
+        if (beamWidth < 1) {
+            throw new IllegalArgumentException("Beam width must be positive: " + beamWidth);
+        }
+        this.lexicon = lexicon;
+        this.beamWidth = beamWidth;
+        beamNodes = new int[beamWidth];
+        beamCosts = new float[beamWidth];
+        candidateNodes = new int[beamWidth * (LetterScores.LETTER_COUNT + 1)];
+        candidateCosts = new float[candidateNodes.length];
+        candidateRanks = new float[candidateNodes.length];
+        startWord();
+    }
+
+    /**
+     * Adds a committed gesture, read with DEFAULT_CONFIDENCE.
+     *
+     * @param gesture Code of a letter, SPACE to end the word, NONE is ignored, see
+     *                {@link Gestures}
+     */
+    public void addLetter(int gesture) {
+        if (gesture == Gestures.SPACE) {
+            endWord();
+        } else if (Gestures.isLetter(gesture)) {
+            scores.setObserved(Gestures.letter(gesture), DEFAULT_CONFIDENCE);
+            addLetter(scores);
+        }
+    }
+
+    /**
+     * Adds a committed gesture, the letters sharing DEFAULT_CONFIDENCE by their confidence in
+     * the result, so the lexicon can prefer a letter that got fewer votes.
+     *
+     * @param result Committed gesture, only read during the call
+     */
+    public void addLetter(GestureResult result) {
+        int gesture = result.getCode();
+        if (gesture == Gestures.SPACE) {
+            endWord();
+        } else if (Gestures.isLetter(gesture)) {
+            scores.setObserved(result, DEFAULT_CONFIDENCE);
+            addLetter(scores);
+        }
+    }
+
+    /**
+     * Adds a committed letter of the current word.
+     *
+     * @param scores Evidence for every letter, only read during the call
+     */
+    public void addLetter(LetterScores scores) {
+        char best = scores.best();
+        if (letterCount == letters.length) {
+            letters = Arrays.copyOf(letters, letterCount * 2);
+        }
+        letters[letterCount++] = best;
+        letterCost += scores.cost(best);
+        if (lexicon != null) {
+            extendBeam(scores);
+        }
+        showWord(false);
+    }
+
+    /**
+     * Writes the best reading of the current word followed by a space.
+     */
+    public void endWord() {
+        finishWord();
+        append(' ');
+        committedLength = length;
+    }
+
+    /**
+     * Forgets the whole sentence.
+     */
+    public void clear() {
+        committedLength = 0;
+        length = 0;
+        startWord();
+    }
+
+    /**
+     * Copies characters of the sentence, like String.getChars.
+     */
+    public void getChars(int start, int end, char[] target, int targetStart) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(start + ".." + end + " of " + length);
+        }
+        System.arraycopy(text, start, target, targetStart, end - start);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index + " of " + length);
+        }
+        return text[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(start + ".." + end + " of " + length);
+        }
+        return new String(text, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(text, 0, length);
+    }
+
+    private void finishWord() {
+        if (letterCount > 0) {
+            showWord(true);
+        }
+        committedLength = length;
+        startWord();
+    }
+
+    private void startWord() {
+        letterCount = 0;
+        letterCost = 0;
+        beamNodes[0] = Lexicon.ROOT;
+        beamCosts[0] = 0;
+        beamSize = 1;
+    }
+
+    private void extendBeam(LetterScores scores) {
+        int count = 0;
+        for (int path = 0; path < beamSize; path++) {
+            int node = beamNodes[path];
+            float cost = beamCosts[path];
+            count = addCandidate(count, node, cost + SKIP_COST);
+            int first = lexicon.firstChild(node);
+            for (int child = first; child < first + lexicon.childCount(node); child++) {
+                float childCost = scores.cost(lexicon.letter(child));
+                if (childCost != Float.POSITIVE_INFINITY) {
+                    count = addCandidate(count, child, cost + childCost);
+                }
+            }
+        }
+        // Keeps the best candidates, each node once.
+        beamSize = 0;
+        while (beamSize < beamWidth) {
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (candidateRanks[i] != Float.POSITIVE_INFINITY
+                        && (best < 0 || candidateRanks[i] < candidateRanks[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            candidateRanks[best] = Float.POSITIVE_INFINITY;
+            if (!inBeam(candidateNodes[best])) {
+                beamNodes[beamSize] = candidateNodes[best];
+                beamCosts[beamSize] = candidateCosts[best];
+                beamSize++;
+            }
+        }
+    }
+
+    private int addCandidate(int count, int node, float cost) {
+        candidateNodes[count] = node;
+        candidateCosts[count] = cost;
+        candidateRanks[count] = cost + lexicon.prefixCost(node);
+        return count + 1;
+    }
+
+    private boolean inBeam(int node) {
+        for (int path = 0; path < beamSize; path++) {
+            if (beamNodes[path] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the best reading of the current word after the finished words.
+     *
+     * @param complete True to only accept whole words, false to accept word beginnings
+     */
+    private void showWord(boolean complete) {
+        int bestNode = Lexicon.NONE;
+        float bestCost = letterCost + UNKNOWN_WORD_COST;
+        if (lexicon != null) {
+            for (int path = 0; path < beamSize; path++) {
+                int node = beamNodes[path];
+                if (node == Lexicon.ROOT) {
+                    // Every letter skipped, the letters as read say more.
+                    continue;
+                }
+                float cost = beamCosts[path]
+                        + (complete ? lexicon.wordCost(node) : lexicon.prefixCost(node));
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestNode = node;
+                }
+            }
+        }
+        length = committedLength;
+        if (bestNode == Lexicon.NONE) {
+            for (int i = 0; i < letterCount; i++) {
+                append(letters[i]);
+            }
+        } else {
+            ensureCapacity(length + lexicon.depth(bestNode));
+            length += lexicon.spell(bestNode, text, length);
+        }
+    }
+
+    private void append(char c) {
+        ensureCapacity(length + 1);
+        text[length++] = c;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > text.length) {
+            text = Arrays.copyOf(text, Math.max(capacity, text.length * 2));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StreamTokenizer;
+
+/**
+ * Tuning thresholds of the recognition, loaded from a JSON object so they can be changed
+ * without a rebuild:
+ * <pre>
+ * {"name": "low end", "maxFrameStride": 4, "letterRepeatIntervalMillis": 1200}
+ * </pre>
+ * Missing keys keep their {@link #DEFAULT} value, see KEYS for the known ones. Numbers are
+ * plain decimals, without exponent.
+ *
+ * Immutable, so a new profile can be published through a volatile field and picked up by
+ * every recognizer at the start of its next packet, see
+ * {@link HandRecognizer#setThresholds(ThresholdProfile)}.
+ */
+public final class ThresholdProfile {
+    private static final String NAME = "name";
+    private static final String[] KEYS = {
+            // Largest distance of the near(a,b) rule predicate, in normalized image units.
+            "nearDistance",
+            // Largest landmark move for which a held hand keeps its letter, 0 disables reuse.
+            "reuseThreshold",
+            // Static letter decision, see LetterDebouncer.
+            "letterWindowSize",
+            "letterMinVotes",
+            // Motion letter decision, the hand only moves for a moment.
+            "motionWindowSize",
+            "motionMinVotes",
+            // Time a letter is held before it is committed again.
+            "letterRepeatIntervalMillis",
+            // Frames further apart than that do not vote together.
+            "maxFrameGapMillis",
+            // Frame skipping, see AdaptiveFrameScheduler.
+            "maxFrameStride",
+            "stillHandThreshold",
+            "maxStillIntervalMillis",
+            // Letters drawn in the air, see TrajectoryMatcher.
+            "minPathLength",
+            "maxTrajectoryDistance",
+    };
+    private static final double[] DEFAULT_VALUES = {
+            0.1, 0.005, 5, 4, 3, 2, 1000, 300, 3, 0.1, 250, 0.4, 0.02,
+    };
+
+    public static final ThresholdProfile DEFAULT = new ThresholdProfile("default", DEFAULT_VALUES);
+
+    private final String name;
+    private final double nearDistance;
+    private final float reuseThreshold;
+    private final int letterWindowSize;
+    private final int letterMinVotes;
+    private final int motionWindowSize;
+    private final int motionMinVotes;
+    private final long letterRepeatIntervalMicros;
+    private final long maxFrameGapMicros;
+    private final int maxFrameStride;
+    private final float stillHandThreshold;
+    private final long maxStillIntervalMicros;
+    private final float minPathLength;
+    private final float maxTrajectoryDistance;
+
+    private ThresholdProfile(String name, double[] values) {
+        this.name = name;
+        int key = 0;
+        nearDistance = positive(values, key++);
+        reuseThreshold = (float) positive(values, key++);
+        letterWindowSize = count(values, key++);
+        letterMinVotes = count(values, key++);
+        motionWindowSize = count(values, key++);
+        motionMinVotes = count(values, key++);
+        letterRepeatIntervalMicros = micros(values, key++);
+        maxFrameGapMicros = micros(values, key++);
+        maxFrameStride = count(values, key++);
+        stillHandThreshold = (float) positive(values, key++);
+        maxStillIntervalMicros = micros(values, key++);
+        minPathLength = (float) positive(values, key++);
+        maxTrajectoryDistance = (float) positive(values, key);
+        if (letterMinVotes > letterWindowSize || motionMinVotes > motionWindowSize) {
+            throw new IllegalArgumentException("More votes needed than frames in the window");
+        }
+    }
+
+    /**
+     * Parses a profile.
+     *
+     * @param reader Source of the JSON object
+     * @throws IOException When the profile cannot be read
+     * @throws IllegalArgumentException When it is malformed, has an unknown key or a value out
+     *                                  of range
+     */
+    public static ThresholdProfile parse(Reader reader) throws IOException {
+        StreamTokenizer tokens = new StreamTokenizer(reader);
+        tokens.ordinaryChar('/');
+        String name = DEFAULT.name;
+        double[] values = DEFAULT_VALUES.clone();
+        expect(tokens, '{');
+        if (tokens.nextToken() != '}') {
+            tokens.pushBack();
+            do {
+                expect(tokens, '"');
+                String key = tokens.sval;
+                expect(tokens, ':');
+                if (key.equals(NAME)) {
+                    expect(tokens, '"');
+                    name = tokens.sval;
+                } else {
+                    int index = indexOf(key);
+                    if (index < 0) {
+                        throw new IllegalArgumentException(
+                                "Line " + tokens.lineno() + ": unknown threshold " + key);
+                    }
+                    expect(tokens, StreamTokenizer.TT_NUMBER);
+                    values[index] = tokens.nval;
+                }
+            } while (tokens.nextToken() == ',');
+            tokens.pushBack();
+            expect(tokens, '}');
+        }
+        expect(tokens, StreamTokenizer.TT_EOF);
+        return new ThresholdProfile(name, values);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getNearDistance() {
+        return nearDistance;
+    }
+
+    public float getReuseThreshold() {
+        return reuseThreshold;
+    }
+
+    public int getLetterWindowSize() {
+        return letterWindowSize;
+    }
+
+    public int getMaxFrameStride() {
+        return maxFrameStride;
+    }
+
+    public float getStillHandThreshold() {
+        return stillHandThreshold;
+    }
+
+    public long getMaxStillIntervalMicros() {
+        return maxStillIntervalMicros;
+    }
+
+    public float getMinPathLength() {
+        return minPathLength;
+    }
+
+    public float getMaxTrajectoryDistance() {
+        return maxTrajectoryDistance;
+    }
+
+    /**
+     * @return Debouncer of the static letters of one hand
+     */
+    public LetterDebouncer newLetterDebouncer() {
+        return new LetterDebouncer(letterWindowSize, letterMinVotes, letterRepeatIntervalMicros,
+                maxFrameGapMicros);
+    }
+
+    /**
+     * @return Debouncer of the motion letters of one hand
+     */
+    public LetterDebouncer newMotionDebouncer() {
+        return new LetterDebouncer(motionWindowSize, motionMinVotes, letterRepeatIntervalMicros,
+                maxFrameGapMicros);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(name);
+        Object[] values = {
+                nearDistance, reuseThreshold, letterWindowSize, letterMinVotes, motionWindowSize,
+                motionMinVotes, letterRepeatIntervalMicros / 1000.0, maxFrameGapMicros / 1000.0,
+                maxFrameStride, stillHandThreshold, maxStillIntervalMicros / 1000.0,
+                minPathLength, maxTrajectoryDistance,
+        };
+        for (int i = 0; i < KEYS.length; i++) {
+            out.append(i == 0 ? ": " : ", ").append(KEYS[i]).append('=').append(values[i]);
+        }
+        return out.toString();
+    }
+
+    private static int indexOf(String key) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void expect(StreamTokenizer tokens, int type) throws IOException {
+        if (tokens.nextToken() != type) {
+            throw new IllegalArgumentException(
+                    "Line " + tokens.lineno() + ": unexpected " + tokens);
+        }
+    }
+
+    private static double positive(double[] values, int key) {
+        if (!(values[key] >= 0)) {
+            throw new IllegalArgumentException(KEYS[key] + " must not be negative: " + values[key]);
+        }
+        return values[key];
+    }
+
+    private static int count(double[] values, int key) {
+        double value = values[key];
+        if (value != Math.rint(value) || value < 1 || value > 1000) {
+            throw new IllegalArgumentException(KEYS[key] + " must be within 1 and 1000: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long micros(double[] values, int key) {
+        return Math.round(positive(values, key) * 1000);
+    }
+}
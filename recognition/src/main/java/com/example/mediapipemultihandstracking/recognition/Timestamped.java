@@ -0,0 +1,11 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+/**
+ * Something received in a MediaPipe packet.
+ */
+public interface Timestamped {
+    /**
+     * @return Timestamp of the packet, in microseconds
+     */
+    long getTimestamp();
+}
@@ -0,0 +1,392 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recognizes letters drawn in the air, like J and Z, by matching the recent path of a point of
+ * the hand against motion templates with dynamic time warping.
+ *
+ * Templates are read from a table, one per line:
+ * <pre>
+ * Z   8   D   0,0 1,0 0,1 1,1
+ * </pre>
+ * The letter, the tracked point (a landmark index, or "rect" for the center of the hand
+ * rectangle), the letters the hand may show while drawing ("*" for any) and the drawn path as
+ * x,y corners in image orientation, Y pointing down.
+ *
+ * The path of a {@link MotionTracker} is cut into a few windows ending at the newest sample,
+ * from {@link #WINDOW_MICROS}. Each window is resampled into {@link #POINTS} points evenly spaced
+ * along the path, so the speed of the hand does not matter, then centered and scaled to a unit
+ * size, so neither do its position and the size of the drawing. Windows whose path is shorter
+ * than a fraction of the hand height are ignored, which skips the matching entirely while the
+ * hand holds still.
+ *
+ * Matching uses a Sakoe-Chiba band of {@link #BAND} points, a cheap lower bound from the first
+ * and last points, and abandons a template as soon as every warping path is already worse than
+ * the best match so far. The cost per frame is bounded by windows x templates x points x band,
+ * whatever the history held by the tracker.
+ *
+ * Not thread-safe, every thread needs its own matcher.
+ */
+public final class TrajectoryMatcher {
+    // Name of the template table bundled next to this class.
+    public static final String DEFAULT_TEMPLATES = "motion_templates.txt";
+    // Tracked point of templates drawn by the whole hand.
+    public static final int RECT_CENTER = -1;
+
+    static final int POINTS = 16;
+    static final int BAND = 3;
+    static final long[] WINDOW_MICROS = {500_000, 750_000, 1_000_000};
+    // Fewest samples in a window.
+    private static final int MIN_SAMPLES = 6;
+    // Pose mask of templates drawn whatever the hand shows.
+    private static final int ANY_POSE = -1;
+
+    // Gesture code of every template.
+    private final int[] letters;
+    private final int[] sources;
+    // Bit i set when the hand may show gesture code i while drawing.
+    private final int[] poses;
+    private final float[][] templateX;
+    private final float[][] templateY;
+    // Shortest path matched, in hand heights.
+    private float minPathLength = ThresholdProfile.DEFAULT.getMinPathLength();
+    // Largest mean squared distance between matched points of the path and the template.
+    private float maxDistance = ThresholdProfile.DEFAULT.getMaxTrajectoryDistance();
+
+    // Scratch space of one match.
+    private float[] distances = new float[0];
+    private final float[] pathX = new float[POINTS];
+    private final float[] pathY = new float[POINTS];
+    private final float[] previousRow = new float[POINTS];
+    private final float[] row = new float[POINTS];
+
+    private TrajectoryMatcher(int[] letters, int[] sources, int[] poses,
+                              float[][] templateX, float[][] templateY) {
+        this.letters = letters;
+        this.sources = sources;
+        this.poses = poses;
+        this.templateX = templateX;
+        this.templateY = templateY;
+    }
+
+    /**
+     * Compiles the template table bundled with the app.
+     */
+    public static TrajectoryMatcher loadDefault() {
+        try (InputStream in = TrajectoryMatcher.class.getResourceAsStream(DEFAULT_TEMPLATES)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing motion templates " + DEFAULT_TEMPLATES);
+            }
+            return compile(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read motion templates " + DEFAULT_TEMPLATES, e);
+        }
+    }
+
+    /**
+     * Compiles a template table. Empty lines and lines starting with # are ignored.
+     *
+     * @param reader Source of the template table
+     * @return Matcher of the templates
+     * @throws IOException When the table cannot be read
+     * @throws IllegalArgumentException When a line is malformed
+     */
+    public static TrajectoryMatcher compile(Reader reader) throws IOException {
+        List<Integer> letters = new ArrayList<>();
+        List<Integer> sources = new ArrayList<>();
+        List<Integer> poses = new ArrayList<>();
+        List<float[]> templateX = new ArrayList<>();
+        List<float[]> templateY = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            if (tokens.length < 5) {
+                throw new IllegalArgumentException(
+                        "Line " + lineNumber + ": expected a letter, a point, poses and a path");
+            }
+            try {
+                letters.add(Gestures.code(tokens[0]));
+                sources.add(parseSource(tokens[1]));
+                poses.add(parsePoses(tokens[2]));
+                float[] cornerX = new float[tokens.length - 3];
+                float[] cornerY = new float[tokens.length - 3];
+                for (int i = 3; i < tokens.length; i++) {
+                    String[] corner = tokens[i].split(",");
+                    if (corner.length != 2) {
+                        throw new IllegalArgumentException("Bad corner " + tokens[i]);
+                    }
+                    cornerX[i - 3] = Float.parseFloat(corner[0]);
+                    cornerY[i - 3] = Float.parseFloat(corner[1]);
+                }
+                float[] x = new float[POINTS];
+                float[] y = new float[POINTS];
+                if (!resample(cornerX, cornerY, cornerX.length, x, y)) {
+                    throw new IllegalArgumentException("Empty path");
+                }
+                templateX.add(x);
+                templateY.add(y);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return new TrajectoryMatcher(toArray(letters), toArray(sources), toArray(poses),
+                templateX.toArray(new float[0][]), templateY.toArray(new float[0][]));
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static int parsePoses(String token) {
+        if (token.equals("*")) {
+            return ANY_POSE;
+        }
+        int mask = 0;
+        for (String pose : token.split(",")) {
+            mask |= 1 << Gestures.code(pose);
+        }
+        return mask;
+    }
+
+    private static int parseSource(String token) {
+        if (token.equals("rect")) {
+            return RECT_CENTER;
+        }
+        int landmark = Integer.parseInt(token);
+        if (landmark < 0 || landmark >= HandFrame.NUM_LANDMARKS) {
+            throw new IllegalArgumentException("Bad landmark " + token);
+        }
+        return landmark;
+    }
+
+    /**
+     * @return Landmarks tracked by the templates, in table order, without the rectangle center
+     */
+    public int[] getLandmarkSources() {
+        return Arrays.stream(sources).filter(source -> source != RECT_CENTER).distinct().toArray();
+    }
+
+    /**
+     * Uses the shortest path and the largest distance of a profile for the next matches.
+     */
+    public void setThresholds(ThresholdProfile profile) {
+        minPathLength = profile.getMinPathLength();
+        maxDistance = profile.getMaxTrajectoryDistance();
+    }
+
+    /**
+     * Matches the recent path of one point of the hand.
+     *
+     * @param tracker Recent positions of the point, with the height of the hand
+     * @param source Landmark index of the point, or RECT_CENTER
+     * @param pose Gesture code shown by the hand in the newest frame, NONE when unknown
+     * @return Gesture code of the closest template of the point, NONE when none is close enough
+     */
+    public int match(MotionTracker tracker, int source, int pose) {
+        if (tracker.size() < MIN_SAMPLES) {
+            return Gestures.NONE;
+        }
+        if (distances.length < tracker.capacity()) {
+            distances = new float[tracker.capacity()];
+        }
+        // Path lengths back from the newest sample, shared by every window.
+        long newest = tracker.timestamp(0);
+        long longestWindow = WINDOW_MICROS[WINDOW_MICROS.length - 1];
+        int maxSpan = 0;
+        distances[0] = 0;
+        while (maxSpan + 1 < tracker.size()
+                && newest - tracker.timestamp(maxSpan + 1) <= longestWindow) {
+            maxSpan++;
+            float dx = tracker.centerX(maxSpan - 1) - tracker.centerX(maxSpan);
+            float dy = tracker.centerY(maxSpan - 1) - tracker.centerY(maxSpan);
+            distances[maxSpan] = distances[maxSpan - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        float minLength = minPathLength * tracker.height(0);
+        if (distances[maxSpan] < minLength) {
+            return Gestures.NONE;
+        }
+
+        float best = maxDistance * POINTS;
+        int bestTemplate = -1;
+        int previousSpan = -1;
+        for (long window : WINDOW_MICROS) {
+            int span = 0;
+            while (span < maxSpan && newest - tracker.timestamp(span + 1) <= window) {
+                span++;
+            }
+            if (span == previousSpan || span + 1 < MIN_SAMPLES
+                    || distances[span] < minLength || distances[span] == 0) {
+                continue;
+            }
+            previousSpan = span;
+            resample(tracker, span);
+            for (int template = 0; template < letters.length; template++) {
+                if (sources[template] != source || (poses[template] & 1 << pose) == 0) {
+                    continue;
+                }
+                float distance = distance(templateX[template], templateY[template], best);
+                if (distance < best) {
+                    best = distance;
+                    bestTemplate = template;
+                }
+            }
+        }
+        return bestTemplate < 0 ? Gestures.NONE : letters[bestTemplate];
+    }
+
+    /**
+     * Resamples the last span steps of the tracker into pathX and pathY, oldest first.
+     */
+    private void resample(MotionTracker tracker, int span) {
+        float length = distances[span];
+        // Current step, from the sample at age + 1 to the one at age.
+        int age = span - 1;
+        for (int point = 0; point < POINTS; point++) {
+            float at = length * point / (POINTS - 1);
+            while (age > 0 && length - distances[age] < at) {
+                age--;
+            }
+            float stepLength = distances[age + 1] - distances[age];
+            float t = stepLength == 0 ? 0 : (at - length + distances[age + 1]) / stepLength;
+            float fromX = tracker.centerX(age + 1);
+            float fromY = tracker.centerY(age + 1);
+            pathX[point] = fromX + t * (tracker.centerX(age) - fromX);
+            pathY[point] = fromY + t * (tracker.centerY(age) - fromY);
+        }
+        normalize(pathX, pathY);
+    }
+
+    /**
+     * Resamples a polyline of count corners into POINTS points, centered and scaled.
+     *
+     * @return False when the polyline has no length
+     */
+    private static boolean resample(float[] cornerX, float[] cornerY, int count,
+                                    float[] x, float[] y) {
+        float[] cumulative = new float[count];
+        for (int i = 1; i < count; i++) {
+            float dx = cornerX[i] - cornerX[i - 1];
+            float dy = cornerY[i] - cornerY[i - 1];
+            cumulative[i] = cumulative[i - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        float length = cumulative[count - 1];
+        if (count < 2 || length == 0) {
+            return false;
+        }
+        int segment = 1;
+        for (int point = 0; point < POINTS; point++) {
+            float at = length * point / (POINTS - 1);
+            while (segment < count - 1 && cumulative[segment] < at) {
+                segment++;
+            }
+            float segmentLength = cumulative[segment] - cumulative[segment - 1];
+            float t = segmentLength == 0 ? 0 : (at - cumulative[segment - 1]) / segmentLength;
+            x[point] = cornerX[segment - 1] + t * (cornerX[segment] - cornerX[segment - 1]);
+            y[point] = cornerY[segment - 1] + t * (cornerY[segment] - cornerY[segment - 1]);
+        }
+        normalize(x, y);
+        return true;
+    }
+
+    /**
+     * Moves the centroid of the points to the origin and scales their larger extent to 1,
+     * keeping the aspect ratio.
+     */
+    private static void normalize(float[] x, float[] y) {
+        float sumX = 0;
+        float sumY = 0;
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < POINTS; i++) {
+            sumX += x[i];
+            sumY += y[i];
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        float scale = Math.max(maxX - minX, maxY - minY);
+        float meanX = sumX / POINTS;
+        float meanY = sumY / POINTS;
+        for (int i = 0; i < POINTS; i++) {
+            x[i] = (x[i] - meanX) / scale;
+            y[i] = (y[i] - meanY) / scale;
+        }
+    }
+
+    /**
+     * Banded DTW distance between the resampled path and a template, summed squared distances
+     * of the matched points.
+     *
+     * @param limit Distance above which the exact value does not matter
+     * @return Distance, or Float.MAX_VALUE once it is known to exceed limit
+     */
+    private float distance(float[] x, float[] y, float limit) {
+        // The first and last points are always matched together.
+        if (cost(0, x, y, 0) + cost(POINTS - 1, x, y, POINTS - 1) >= limit) {
+            return Float.MAX_VALUE;
+        }
+        float[] previous = previousRow;
+        float[] current = row;
+        Arrays.fill(previous, Float.MAX_VALUE);
+        for (int i = 0; i < POINTS; i++) {
+            int from = Math.max(0, i - BAND);
+            int to = Math.min(POINTS - 1, i + BAND);
+            Arrays.fill(current, Float.MAX_VALUE);
+            float rowMin = Float.MAX_VALUE;
+            for (int j = from; j <= to; j++) {
+                float before;
+                if (i == 0 && j == 0) {
+                    before = 0;
+                } else {
+                    before = previous[j];
+                    if (j > 0) {
+                        before = Math.min(before, Math.min(previous[j - 1], current[j - 1]));
+                    }
+                }
+                if (before == Float.MAX_VALUE) {
+                    continue;
+                }
+                float value = before + cost(i, x, y, j);
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            // Every warping path crosses this row, none can end below its minimum.
+            if (rowMin >= limit) {
+                return Float.MAX_VALUE;
+            }
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[POINTS - 1];
+    }
+
+    private float cost(int pathPoint, float[] x, float[] y, int templatePoint) {
+        float dx = pathX[pathPoint] - x[templatePoint];
+        float dy = pathY[pathPoint] - y[templatePoint];
+        return dx * dx + dy * dy;
+    }
+}
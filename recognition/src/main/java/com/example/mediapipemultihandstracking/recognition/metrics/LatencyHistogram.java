@@ -0,0 +1,118 @@
+package com.example.mediapipemultihandstracking.recognition.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, with fixed log-linear buckets.
+ *
+ * Like an HDR histogram, every power of two is split into SUB_BUCKETS linear buckets, so a
+ * bucket is at most 1/SUB_BUCKETS of its values wide: 8 sub-buckets keep the relative error
+ * under 12.5% from 1 ns to about 18 minutes, in 312 buckets. Values below SUB_BUCKETS get a
+ * bucket each, larger ones than the last bucket land in it.
+ *
+ * Recording is an index computation and two atomic adds, from any thread, without allocating.
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Highest power of two with its own buckets, 2^40 ns is about 18 minutes.
+    private static final int MAX_EXPONENT = 40;
+    public static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos Duration to add, negative durations count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * Copies the bucket counts. Values recorded during the copy may be missing.
+     *
+     * @param target Receives BUCKET_COUNT counts
+     * @return Number of values in the copied buckets
+     */
+    public long copyCounts(long[] target) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] = counts.get(i);
+            total += target[i];
+        }
+        return total;
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param value Non-negative duration
+     * @return Bucket holding the duration
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS * (shift + 1) + subBucket;
+    }
+
+    /**
+     * @return Smallest duration of a bucket
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Duration below which a share of the values lie, from bucket counts.
+     *
+     * @param counts Bucket counts, BUCKET_COUNT of them
+     * @param quantile Share of the values, within [0, 1]
+     * @return Middle of the bucket holding the quantile, 0 when there are no values
+     */
+    public static long valueAtQuantile(long[] counts, double quantile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long low = bucketLowerBound(i);
+                long high = i + 1 < BUCKET_COUNT ? bucketLowerBound(i + 1) : low;
+                return (low + high) / 2;
+            }
+        }
+        return bucketLowerBound(counts.length - 1);
+    }
+}
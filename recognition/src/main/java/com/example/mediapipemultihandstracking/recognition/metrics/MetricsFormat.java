@@ -0,0 +1,25 @@
+package com.example.mediapipemultihandstracking.recognition.metrics;
+
+/**
+ * Layout of metrics dumps, written by {@link PipelineMetrics} and read by
+ * {@link MetricsSnapshot}.
+ *
+ * Everything is big endian, strings are modified UTF-8 as written by DataOutput.writeUTF:
+ * <ul>
+ *     <li>the magic "PMET", the version and the sub-bucket bits of the histograms (ints),</li>
+ *     <li>the wall clock time of the dump in milliseconds and the time covered by the metrics
+ *     in nanoseconds (longs), then a free label naming the build and device,</li>
+ *     <li>the counter count, then for each counter its name and value,</li>
+ *     <li>the stage count, then for each stage its name, value count, sum and max (longs), the
+ *     number of non-empty buckets and for each of them its index (int) and count (long),</li>
+ *     <li>the span count, then for each recent span, oldest first, its stage (int), packet
+ *     timestamp and duration in nanoseconds (longs).</li>
+ * </ul>
+ */
+final class MetricsFormat {
+    static final int MAGIC = 0x504D4554;
+    static final int VERSION = 1;
+
+    private MetricsFormat() {
+    }
+}
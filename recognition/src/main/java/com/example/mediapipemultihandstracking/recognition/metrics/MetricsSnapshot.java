@@ -0,0 +1,259 @@
+package com.example.mediapipemultihandstracking.recognition.metrics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Metrics dump read back on the desktop, see {@link MetricsFormat}.
+ *
+ * Run it with several dumps to compare builds or devices: every dump is printed as a table of
+ * counters and stage latencies, and the stages of each following dump are compared to the
+ * first one.
+ */
+public final class MetricsSnapshot {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final String label;
+    private final long dumpedAtMillis;
+    private final long coveredNanos;
+    private final String[] counterNames;
+    private final long[] counterValues;
+    private final String[] stageNames;
+    private final long[] stageCounts;
+    private final long[] stageSums;
+    private final long[] stageMaxima;
+    private final long[][] stageBuckets;
+    private final int[] spanStages;
+    private final long[] spanTimestamps;
+    private final long[] spanNanos;
+
+    private MetricsSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != MetricsFormat.MAGIC) {
+            throw new IOException("Not a metrics dump");
+        }
+        int version = in.readInt();
+        if (version != MetricsFormat.VERSION) {
+            throw new IOException("Unsupported metrics dump version " + version);
+        }
+        int subBucketBits = in.readInt();
+        if (subBucketBits != LatencyHistogram.SUB_BUCKET_BITS) {
+            throw new IOException("Unsupported histogram layout " + subBucketBits);
+        }
+        dumpedAtMillis = in.readLong();
+        coveredNanos = in.readLong();
+        label = in.readUTF();
+
+        int counters = in.readInt();
+        counterNames = new String[counters];
+        counterValues = new long[counters];
+        for (int i = 0; i < counters; i++) {
+            counterNames[i] = in.readUTF();
+            counterValues[i] = in.readLong();
+        }
+
+        int stages = in.readInt();
+        stageNames = new String[stages];
+        stageCounts = new long[stages];
+        stageSums = new long[stages];
+        stageMaxima = new long[stages];
+        stageBuckets = new long[stages][LatencyHistogram.BUCKET_COUNT];
+        for (int stage = 0; stage < stages; stage++) {
+            stageNames[stage] = in.readUTF();
+            stageCounts[stage] = in.readLong();
+            stageSums[stage] = in.readLong();
+            stageMaxima[stage] = in.readLong();
+            int buckets = in.readInt();
+            for (int i = 0; i < buckets; i++) {
+                int index = in.readInt();
+                if (index < 0 || index >= LatencyHistogram.BUCKET_COUNT) {
+                    throw new IOException("Bucket out of range: " + index);
+                }
+                stageBuckets[stage][index] = in.readLong();
+            }
+        }
+
+        int spans = in.readInt();
+        spanStages = new int[spans];
+        spanTimestamps = new long[spans];
+        spanNanos = new long[spans];
+        for (int i = 0; i < spans; i++) {
+            spanStages[i] = in.readInt();
+            spanTimestamps[i] = in.readLong();
+            spanNanos[i] = in.readLong();
+        }
+    }
+
+    /**
+     * @param stream Dump written by {@link PipelineMetrics#writeTo}
+     * @throws IOException When the stream does not hold a metrics dump
+     */
+    public static MetricsSnapshot read(InputStream stream) throws IOException {
+        return new MetricsSnapshot(new DataInputStream(stream));
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getDumpedAtMillis() {
+        return dumpedAtMillis;
+    }
+
+    /**
+     * @return Time from the creation of the metrics to the dump
+     */
+    public long getCoveredNanos() {
+        return coveredNanos;
+    }
+
+    /**
+     * @return Value of a counter, -1 when the dump does not have it
+     */
+    public long getCounter(String name) {
+        for (int i = 0; i < counterNames.length; i++) {
+            if (counterNames[i].equals(name)) {
+                return counterValues[i];
+            }
+        }
+        return -1;
+    }
+
+    public int getStageCount() {
+        return stageNames.length;
+    }
+
+    public String getStageName(int stage) {
+        return stageNames[stage];
+    }
+
+    /**
+     * @return Index of a stage, -1 when the dump does not have it
+     */
+    public int indexOfStage(String name) {
+        for (int stage = 0; stage < stageNames.length; stage++) {
+            if (stageNames[stage].equals(name)) {
+                return stage;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Number of measurements of a stage
+     */
+    public long getCount(int stage) {
+        return stageCounts[stage];
+    }
+
+    public double getMeanNanos(int stage) {
+        return stageCounts[stage] == 0 ? 0 : stageSums[stage] / (double) stageCounts[stage];
+    }
+
+    public long getMaxNanos(int stage) {
+        return stageMaxima[stage];
+    }
+
+    /**
+     * @param quantile Share of the measurements, within [0, 1]
+     * @return Duration below which that share of the measurements lie, within 12.5%
+     */
+    public long getQuantileNanos(int stage, double quantile) {
+        return LatencyHistogram.valueAtQuantile(stageBuckets[stage], quantile);
+    }
+
+    /**
+     * @return Number of recent measurements kept with their packet timestamp, oldest first
+     */
+    public int getSpanCount() {
+        return spanStages.length;
+    }
+
+    public int getSpanStage(int span) {
+        return spanStages[span];
+    }
+
+    public long getSpanTimestamp(int span) {
+        return spanTimestamps[span];
+    }
+
+    public long getSpanNanos(int span) {
+        return spanNanos[span];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%s, %.1f s%n", label, coveredNanos / 1e9));
+        for (int i = 0; i < counterNames.length; i++) {
+            out.append(String.format(Locale.ROOT, "  %-18s %d%n",
+                    counterNames[i], counterValues[i]));
+        }
+        out.append(String.format(Locale.ROOT, "  %-12s %8s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+        for (int stage = 0; stage < stageNames.length; stage++) {
+            out.append(String.format(Locale.ROOT, "  %-12s %8d %9.1f", stageNames[stage],
+                    stageCounts[stage], getMeanNanos(stage) / 1e3));
+            for (double quantile : QUANTILES) {
+                out.append(String.format(Locale.ROOT, " %9.1f",
+                        getQuantileNanos(stage, quantile) / 1e3));
+            }
+            out.append(String.format(Locale.ROOT, " %9.1f%n", stageMaxima[stage] / 1e3));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Changes of the stage latencies of this dump relative to another one, in percent of the
+     * other one.
+     */
+    public String compareTo(MetricsSnapshot base) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%s vs %s%n", label, base.label));
+        out.append(String.format(Locale.ROOT, "  %-12s %9s %9s %9s %9s%n",
+                "stage", "mean", "p50", "p90", "p99"));
+        for (int stage = 0; stage < stageNames.length; stage++) {
+            int baseStage = base.indexOfStage(stageNames[stage]);
+            if (baseStage < 0 || stageCounts[stage] == 0 || base.stageCounts[baseStage] == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.ROOT, "  %-12s %s", stageNames[stage],
+                    change(getMeanNanos(stage), base.getMeanNanos(baseStage))));
+            for (double quantile : QUANTILES) {
+                out.append(' ').append(change(getQuantileNanos(stage, quantile),
+                        base.getQuantileNanos(baseStage, quantile)));
+            }
+            out.append(String.format(Locale.ROOT, "%n"));
+        }
+        return out.toString();
+    }
+
+    private static String change(double value, double base) {
+        return String.format(Locale.ROOT, "%+8.1f%%", (value - base) * 100 / Math.max(1, base));
+    }
+
+    /**
+     * Prints metrics dumps, and compares every dump after the first one to the first one.
+     *
+     * @param args Paths of the dumps
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: MetricsSnapshot <dump> [other dumps]");
+            System.exit(1);
+        }
+        MetricsSnapshot[] snapshots = new MetricsSnapshot[args.length];
+        for (int i = 0; i < args.length; i++) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(args[i]))) {
+                snapshots[i] = read(in);
+            }
+            System.out.println(args[i] + ": " + snapshots[i]);
+        }
+        for (int i = 1; i < snapshots.length; i++) {
+            System.out.println(snapshots[i].compareTo(snapshots[0]));
+        }
+    }
+}
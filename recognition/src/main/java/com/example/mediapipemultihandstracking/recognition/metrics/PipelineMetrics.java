@@ -0,0 +1,211 @@
+package com.example.mediapipemultihandstracking.recognition.metrics;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and per-stage latency histograms of the recognition pipeline, from the landmark
+ * packet callback to the letter on screen.
+ *
+ * Every stage has a {@link LatencyHistogram}, and the most recent measurements are also kept
+ * with the timestamp of their packet in a ring buffer, so the stages of one packet can be put
+ * side by side. Recording never locks nor allocates and may happen on any thread. The end to end
+ * latency of a letter is measured from the arrival of its packet, remembered by
+ * {@link #markArrival(long, long)}.
+ *
+ * {@link #writeTo(OutputStream, String)} dumps everything in the {@link MetricsFormat} layout,
+ * {@link MetricsSnapshot} reads dumps back on the desktop.
+ */
+public final class PipelineMetrics {
+    // Stages, see STAGE_NAMES.
+    public static final int STAGE_PARSE = 0;
+    public static final int STAGE_FEATURES = 1;
+    public static final int STAGE_CLASSIFY = 2;
+    public static final int STAGE_DECISION = 3;
+    public static final int STAGE_UI_DISPATCH = 4;
+    public static final int STAGE_END_TO_END = 5;
+
+    static final String[] STAGE_NAMES = {
+            // Landmark protos parsed and copied into a landmark packet.
+            "parse",
+            // Canonical features of one hand.
+            "features",
+            // Letter of one hand, cache lookup included.
+            "classify",
+            // Drawn letters and debouncing of every hand of a packet.
+            "decision",
+            // From a committed letter to the sentence updated on the UI thread.
+            "ui dispatch",
+            // From the landmark packet callback to the sentence updated on the UI thread.
+            "end to end",
+    };
+
+    // Counters, see COUNTER_NAMES.
+    public static final int COUNTER_PACKETS = 0;
+    public static final int COUNTER_HANDS = 1;
+    public static final int COUNTER_LETTERS = 2;
+    public static final int COUNTER_DROPPED = 3;
+    public static final int COUNTER_SKIPPED = 4;
+    public static final int COUNTER_LATE = 5;
+
+    static final String[] COUNTER_NAMES = {
+            "landmark packets", "classified hands", "committed letters", "dropped packets",
+            "skipped packets", "late packets",
+    };
+
+    // Packet arrivals remembered for the end to end latency.
+    private static final int ARRIVALS = 64;
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_NAMES.length];
+
+    private final int spanCapacity;
+    private final int[] spanStages;
+    private final long[] spanTimestamps;
+    private final long[] spanNanos;
+    private final AtomicLong spanSequence = new AtomicLong();
+
+    private final long[] arrivalTimestamps = new long[ARRIVALS];
+    private final long[] arrivalNanos = new long[ARRIVALS];
+    private int nextArrival;
+
+    /**
+     * @param spanCapacity Number of recent measurements kept, rounded up to a power of two
+     */
+    public PipelineMetrics(int spanCapacity) {
+        int size = Integer.highestOneBit(Math.max(1, spanCapacity - 1)) << 1;
+        this.spanCapacity = size;
+        spanStages = new int[size];
+        spanTimestamps = new long[size];
+        spanNanos = new long[size];
+        for (int stage = 0; stage < histograms.length; stage++) {
+            histograms[stage] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records how long a stage took for a packet.
+     *
+     * @param timestamp Timestamp of the packet
+     * @param nanos Duration of the stage, from System.nanoTime
+     */
+    public void record(int stage, long timestamp, long nanos) {
+        histograms[stage].record(nanos);
+        int slot = (int) (spanSequence.getAndIncrement() & (spanCapacity - 1));
+        spanStages[slot] = stage;
+        spanTimestamps[slot] = timestamp;
+        spanNanos[slot] = nanos;
+    }
+
+    public void increment(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    /**
+     * Sets a counter kept elsewhere, like the frames dropped by the recognition pipeline, before
+     * a dump.
+     */
+    public void set(int counter, long value) {
+        counters.set(counter, value);
+    }
+
+    public long get(int counter) {
+        return counters.get(counter);
+    }
+
+    /**
+     * @return Histogram of a stage, for reads while the app runs
+     */
+    public LatencyHistogram getHistogram(int stage) {
+        return histograms[stage];
+    }
+
+    /**
+     * Remembers when a packet arrived. Called from the landmark packet callback only.
+     *
+     * @param nanos Arrival time, from System.nanoTime
+     */
+    public void markArrival(long timestamp, long nanos) {
+        int slot = nextArrival;
+        arrivalNanos[slot] = nanos;
+        arrivalTimestamps[slot] = timestamp;
+        nextArrival = (slot + 1) % ARRIVALS;
+    }
+
+    /**
+     * Records the end to end latency of a packet whose result is now on screen. Nothing is
+     * recorded when the packet is older than the remembered arrivals. An arrival overwritten
+     * during the lookup can give a wrong latency once in a while, which is fine for metrics.
+     *
+     * @param nanos Time the result was shown, from System.nanoTime
+     */
+    public void recordShown(long timestamp, long nanos) {
+        for (int slot = 0; slot < ARRIVALS; slot++) {
+            if (arrivalTimestamps[slot] == timestamp && arrivalNanos[slot] != 0) {
+                record(STAGE_END_TO_END, timestamp, nanos - arrivalNanos[slot]);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the counters, the histograms and the recent measurements. Values recorded during the
+     * dump may be missing from it.
+     *
+     * @param label Names the build and device, to tell dumps apart
+     */
+    public void writeTo(OutputStream stream, String label) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MetricsFormat.MAGIC);
+        out.writeInt(MetricsFormat.VERSION);
+        out.writeInt(LatencyHistogram.SUB_BUCKET_BITS);
+        out.writeLong(System.currentTimeMillis());
+        out.writeLong(System.nanoTime() - startNanos);
+        out.writeUTF(label);
+
+        out.writeInt(COUNTER_NAMES.length);
+        for (int counter = 0; counter < COUNTER_NAMES.length; counter++) {
+            out.writeUTF(COUNTER_NAMES[counter]);
+            out.writeLong(counters.get(counter));
+        }
+
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        out.writeInt(STAGE_NAMES.length);
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            LatencyHistogram histogram = histograms[stage];
+            long total = histogram.copyCounts(counts);
+            int buckets = 0;
+            for (long count : counts) {
+                if (count != 0) {
+                    buckets++;
+                }
+            }
+            out.writeUTF(STAGE_NAMES[stage]);
+            out.writeLong(total);
+            out.writeLong(histogram.getSum());
+            out.writeLong(histogram.getMax());
+            out.writeInt(buckets);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    out.writeInt(i);
+                    out.writeLong(counts[i]);
+                }
+            }
+        }
+
+        long end = spanSequence.get();
+        long start = Math.max(0, end - spanCapacity);
+        out.writeInt((int) (end - start));
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i & (spanCapacity - 1));
+            out.writeInt(spanStages[slot]);
+            out.writeLong(spanTimestamps[slot]);
+            out.writeLong(spanNanos[slot]);
+        }
+        out.flush();
+    }
+}
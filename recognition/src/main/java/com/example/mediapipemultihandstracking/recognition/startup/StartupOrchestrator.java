@@ -0,0 +1,274 @@
+package com.example.mediapipemultihandstracking.recognition.startup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the phases of the app startup, each as soon as the phases it depends on are done, so
+ * independent phases overlap instead of running one after the other on the main thread.
+ *
+ * A phase runs either on the background executor, like loading native libraries or a graph, or
+ * on the main executor, like touching views or starting the camera. A signal is a phase done
+ * from the outside, by {@link #signal(String)}, like a permission being granted.
+ * Every phase is timed while it runs, every signal from the start, and the listener hears about
+ * them on the main executor. When a phase fails, the phases depending on it never run and the
+ * listener is told once.
+ *
+ * Thread-safe, phases are added before {@link #start()} and signals can come from any thread at
+ * any time.
+ */
+public final class StartupOrchestrator {
+    /**
+     * Work of a phase.
+     */
+    public interface Phase {
+        void run() throws Exception;
+    }
+
+    /**
+     * Hears about the progress of the startup, on the main executor.
+     */
+    public interface Listener {
+        /**
+         * @param startNanos Time from {@link #start()} to the start of the phase, or to the start
+         *                   itself for a signal
+         * @param durationNanos Time the phase took, or the signal was waited for
+         */
+        void onPhaseDone(String name, long startNanos, long durationNanos);
+
+        /**
+         * @param totalNanos Time from {@link #start()} to the end of the last phase
+         */
+        void onStartupDone(long totalNanos);
+
+        void onStartupFailed(String name, Throwable error);
+    }
+
+    private final Executor background;
+    private final Executor main;
+    private final Listener listener;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    // Time of start(), -1 before.
+    private long startTime = -1;
+    private int remaining;
+    private boolean failed;
+
+    /**
+     * @param background Runs the background phases, several at a time when it has the threads
+     * @param main Runs the main phases and the listener calls, in order
+     */
+    public StartupOrchestrator(Executor background, Executor main, Listener listener) {
+        this.background = background;
+        this.main = main;
+        this.listener = listener;
+    }
+
+    /**
+     * @param onMain True to run the phase on the main executor, false on the background one
+     * @param dependencies Names of the phases and signals to wait for
+     */
+    public synchronized void addPhase(String name, boolean onMain, Phase phase,
+                                      String... dependencies) {
+        add(new Node(name, onMain, phase, dependencies));
+    }
+
+    /**
+     * Adds a phase done by {@link #signal(String)}.
+     */
+    public synchronized void addSignal(String name) {
+        add(new Node(name, false, null, new String[0]));
+    }
+
+    /**
+     * Starts the phases that do not wait for anything.
+     *
+     * @throws IllegalStateException When a dependency is unknown or phases wait for each other
+     */
+    public void start() {
+        List<Node> ready = new ArrayList<>();
+        synchronized (this) {
+            if (startTime >= 0) {
+                throw new IllegalStateException("Started already");
+            }
+            for (Node node : nodes.values()) {
+                for (String dependency : node.dependencies) {
+                    Node other = nodes.get(dependency);
+                    if (other == null) {
+                        throw new IllegalStateException(
+                                node.name + " depends on unknown phase " + dependency);
+                    }
+                    other.dependents.add(node);
+                }
+                node.waiting = node.dependencies.length;
+            }
+            checkAcyclic();
+            startTime = System.nanoTime();
+            remaining = nodes.size();
+            for (Node node : nodes.values()) {
+                node.startTime = startTime;
+                if (node.phase != null && node.waiting == 0) {
+                    ready.add(node);
+                }
+            }
+            for (Node node : nodes.values()) {
+                if (node.phase == null && node.signaled) {
+                    // Signaled before the start.
+                    done(node, startTime, ready);
+                }
+            }
+        }
+        schedule(ready);
+    }
+
+    /**
+     * Marks a signal done, nothing happens when it was already. Can be called before
+     * {@link #start()}.
+     */
+    public void signal(String name) {
+        List<Node> ready = new ArrayList<>();
+        synchronized (this) {
+            Node node = nodes.get(name);
+            if (node == null || node.phase != null) {
+                throw new IllegalArgumentException("Not a signal: " + name);
+            }
+            if (node.signaled) {
+                return;
+            }
+            node.signaled = true;
+            if (startTime < 0) {
+                return;
+            }
+            done(node, System.nanoTime(), ready);
+        }
+        schedule(ready);
+    }
+
+    /**
+     * @return Whether a phase or signal is done
+     */
+    public synchronized boolean isDone(String name) {
+        Node node = nodes.get(name);
+        return node != null && node.durationNanos >= 0;
+    }
+
+    /**
+     * @return Time a phase took, or a signal was waited for, -1 when it is not done
+     */
+    public synchronized long getDurationNanos(String name) {
+        Node node = nodes.get(name);
+        return node != null ? node.durationNanos : -1;
+    }
+
+    private void add(Node node) {
+        if (startTime >= 0) {
+            throw new IllegalStateException("Started already");
+        }
+        if (nodes.put(node.name, node) != null) {
+            throw new IllegalArgumentException("Phase added twice: " + node.name);
+        }
+    }
+
+    /**
+     * Fails when some phases can never start, because they wait for each other.
+     */
+    private void checkAcyclic() {
+        Map<Node, Integer> waiting = new LinkedHashMap<>();
+        List<Node> free = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            waiting.put(node, node.waiting);
+            if (node.waiting == 0) {
+                free.add(node);
+            }
+        }
+        int reached = 0;
+        while (!free.isEmpty()) {
+            Node node = free.remove(free.size() - 1);
+            reached++;
+            for (Node dependent : node.dependents) {
+                if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+                    free.add(dependent);
+                }
+            }
+        }
+        if (reached != nodes.size()) {
+            throw new IllegalStateException("Phases depend on each other");
+        }
+    }
+
+    private void schedule(List<Node> ready) {
+        for (Node node : ready) {
+            (node.onMain ? main : background).execute(() -> run(node));
+        }
+    }
+
+    private void run(Node node) {
+        synchronized (this) {
+            if (failed) {
+                return;
+            }
+            node.startTime = System.nanoTime();
+        }
+        try {
+            node.phase.run();
+        } catch (Exception | LinkageError e) {
+            synchronized (this) {
+                if (failed) {
+                    return;
+                }
+                failed = true;
+            }
+            main.execute(() -> listener.onStartupFailed(node.name, e));
+            return;
+        }
+        List<Node> ready = new ArrayList<>();
+        synchronized (this) {
+            done(node, System.nanoTime(), ready);
+        }
+        schedule(ready);
+    }
+
+    /**
+     * Records the end of a phase and collects the dependents it was the last one to wait for.
+     */
+    private void done(Node node, long end, List<Node> ready) {
+        long start = node.startTime - startTime;
+        long duration = end - node.startTime;
+        node.durationNanos = duration;
+        main.execute(() -> listener.onPhaseDone(node.name, start, duration));
+        if (failed) {
+            return;
+        }
+        for (Node dependent : node.dependents) {
+            if (--dependent.waiting == 0) {
+                ready.add(dependent);
+            }
+        }
+        if (--remaining == 0) {
+            long total = end - startTime;
+            main.execute(() -> listener.onStartupDone(total));
+        }
+    }
+
+    private static final class Node {
+        final String name;
+        final boolean onMain;
+        // Null for a signal.
+        final Phase phase;
+        final String[] dependencies;
+        final List<Node> dependents = new ArrayList<>();
+        int waiting;
+        boolean signaled;
+        long startTime;
+        long durationNanos = -1;
+
+        Node(String name, boolean onMain, Phase phase, String[] dependencies) {
+            this.name = name;
+            this.onMain = onMain;
+            this.phase = phase;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.mediapipemultihandstracking.recognition.trace;
+
+/**
+ * Layout of landmark trace files.
+ *
+ * A trace starts with the magic "HTRC" and a version, both as big endian ints, followed by
+ * records. A record is
+ * <ul>
+ *     <li>its type byte, {@link #RECORD_LANDMARKS} or {@link #RECORD_RECTS}, and 0 past the
+ *     last record,</li>
+ *     <li>the packet timestamp as a zigzag varint delta to the previous record,</li>
+ *     <li>the number of hands or rectangles as a varint,</li>
+ *     <li>every float of every hand (x, y, z of 21 landmarks) or rectangle (x center, y center,
+ *     width, height, rotation) as a zigzag varint delta between its IEEE 754 bits and the bits
+ *     of the same value in the previous record of that type.</li>
+ * </ul>
+ * Deltas of raw bits are lossless, and small for the slowly moving values of a tracked hand.
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x48545243;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    static final byte RECORD_END = 0;
+    static final byte RECORD_LANDMARKS = 1;
+    static final byte RECORD_RECTS = 2;
+
+    // Type byte, timestamp and count, each varint at most 10 bytes.
+    static final int MAX_RECORD_HEADER_SIZE = 1 + 10 + 5;
+    static final int MAX_VARINT32_SIZE = 5;
+
+    private TraceFormat() {
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
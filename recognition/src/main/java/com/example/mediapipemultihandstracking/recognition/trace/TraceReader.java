@@ -0,0 +1,144 @@
+package com.example.mediapipemultihandstracking.recognition.trace;
+
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.HandRectPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads back the records of a trace written by {@link TraceWriter}. Decoding allocates nothing,
+ * records are written into packets owned by the caller.
+ */
+public final class TraceReader implements Closeable {
+    public static final int END = TraceFormat.RECORD_END;
+    public static final int LANDMARKS = TraceFormat.RECORD_LANDMARKS;
+    public static final int RECTS = TraceFormat.RECORD_RECTS;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+
+    private final int[] previousLandmarkBits = new int[LandmarkPacket.MAX_HANDS * HandFrame.NUM_COORDINATES];
+    private final int[] previousRectBits = new int[HandRectPacket.MAX_RECTS * HandRectPacket.RECT_STRIDE];
+    private long previousTimestamp;
+
+    private TraceReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        FileChannel channel = file.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.remaining() < TraceFormat.HEADER_SIZE
+                || buffer.getInt() != TraceFormat.MAGIC) {
+            file.close();
+            throw new IOException("Not a landmark trace: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != TraceFormat.VERSION) {
+            file.close();
+            throw new IOException("Unsupported trace version " + version + ": " + path);
+        }
+    }
+
+    public static TraceReader open(File path) throws IOException {
+        return new TraceReader(path);
+    }
+
+    /**
+     * Decodes the next record.
+     *
+     * @param landmarks Filled when the record holds landmarks
+     * @param rects Filled when the record holds hand rectangles
+     * @return {@link #LANDMARKS}, {@link #RECTS} or {@link #END} past the last record
+     * @throws IOException When the record is corrupted
+     */
+    public int next(LandmarkPacket landmarks, HandRectPacket rects) throws IOException {
+        if (!buffer.hasRemaining()) {
+            return END;
+        }
+        try {
+            byte type = buffer.get();
+            if (type == TraceFormat.RECORD_END) {
+                return END;
+            }
+            long timestamp = previousTimestamp + TraceFormat.unzigzag(readVarint64());
+            previousTimestamp = timestamp;
+            int count = readVarint32();
+            if (type == TraceFormat.RECORD_LANDMARKS) {
+                if (count > LandmarkPacket.MAX_HANDS) {
+                    throw new IOException("Too many hands in record: " + count);
+                }
+                landmarks.reset(timestamp);
+                for (int hand = 0; hand < count; hand++) {
+                    readValues(landmarks.addHand().coordinates(), previousLandmarkBits,
+                            hand * HandFrame.NUM_COORDINATES, HandFrame.NUM_COORDINATES);
+                }
+                return LANDMARKS;
+            } else if (type == TraceFormat.RECORD_RECTS) {
+                if (count > HandRectPacket.MAX_RECTS) {
+                    throw new IOException("Too many rectangles in record: " + count);
+                }
+                rects.reset(timestamp);
+                for (int rect = 0; rect < count; rect++) {
+                    int offset = rect * HandRectPacket.RECT_STRIDE;
+                    rects.addRect(
+                            readValue(previousRectBits, offset),
+                            readValue(previousRectBits, offset + 1),
+                            readValue(previousRectBits, offset + 2),
+                            readValue(previousRectBits, offset + 3),
+                            readValue(previousRectBits, offset + 4));
+                }
+                return RECTS;
+            }
+            throw new IOException("Unknown record type " + type);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated record", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void readValues(float[] values, int[] previousBits, int previousOffset, int length)
+            throws IOException {
+        for (int i = 0; i < length; i++) {
+            values[i] = readValue(previousBits, previousOffset + i);
+        }
+    }
+
+    private float readValue(int[] previousBits, int index) throws IOException {
+        int bits = previousBits[index] + TraceFormat.unzigzag(readVarint32());
+        previousBits[index] = bits;
+        return Float.intBitsToFloat(bits);
+    }
+
+    private int readVarint32() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private long readVarint64() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.mediapipemultihandstracking.recognition.trace;
+
+import com.example.mediapipemultihandstracking.recognition.GestureRuleEngine;
+import com.example.mediapipemultihandstracking.recognition.Gestures;
+import com.example.mediapipemultihandstracking.recognition.HandGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.HandRectPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+import com.example.mediapipemultihandstracking.recognition.MotionGestureCalculator;
+import com.example.mediapipemultihandstracking.recognition.MotionTracker;
+import com.example.mediapipemultihandstracking.recognition.OneEuroFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Feeds a recorded trace through the gesture calculators as fast as possible, without Android.
+ *
+ * Landmark records go to the {@link HandGestureCalculator} and rectangle records to the
+ * {@link MotionGestureCalculator} through a {@link MotionTracker} of the first hand, the same
+ * way the app does with live packets. An optional {@link OneEuroFilter} smooths the landmarks of
+ * the first hand before they are classified.
+ */
+public final class TraceReplayer {
+    private static final int MOTION_HISTORY_SIZE = 32;
+
+    /**
+     * Outcome of one replay.
+     */
+    public static final class Result {
+        public long landmarkPackets;
+        public long rectPackets;
+        // Packets for which a calculator returned a letter.
+        public long letters;
+        // Landmark packets whose letter differs from the one of the previous landmark packet.
+        public long flips;
+        public long elapsedNanos;
+
+        public double packetsPerSecond() {
+            return (landmarkPackets + rectPackets) * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * @return Fraction of the landmark packets that changed the letter
+         */
+        public double flipRate() {
+            return flips / (double) Math.max(1, landmarkPackets);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d landmark packets, %d rect packets, %d letters, %d flips in %.3f ms"
+                            + " (%.0f packets/s)",
+                    landmarkPackets, rectPackets, letters, flips, elapsedNanos / 1e6,
+                    packetsPerSecond());
+        }
+    }
+
+    private final HandGestureCalculator gestureCalculator;
+    private final MotionGestureCalculator motionCalculator;
+    private final LandmarkPacket landmarks = new LandmarkPacket();
+    private final HandRectPacket rects = new HandRectPacket();
+    private final MotionTracker motionTracker = new MotionTracker(MOTION_HISTORY_SIZE);
+    private OneEuroFilter landmarkFilter;
+
+    public TraceReplayer(HandGestureCalculator gestureCalculator,
+                         MotionGestureCalculator motionCalculator) {
+        this.gestureCalculator = gestureCalculator;
+        this.motionCalculator = motionCalculator;
+    }
+
+    /**
+     * @param landmarkFilter Filter applied to the first hand before classification, null to
+     *                       classify the recorded landmarks
+     */
+    public void setLandmarkFilter(OneEuroFilter landmarkFilter) {
+        this.landmarkFilter = landmarkFilter;
+    }
+
+    /**
+     * Replays a whole trace.
+     *
+     * @param trace Trace file
+     * @return Counts and time spent decoding and classifying
+     * @throws IOException When the trace cannot be read
+     */
+    public Result replay(File trace) throws IOException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        int previousLetter = Gestures.NONE;
+        if (landmarkFilter != null) {
+            landmarkFilter.reset();
+        }
+        try (TraceReader reader = TraceReader.open(trace)) {
+            int type;
+            while ((type = reader.next(landmarks, rects)) != TraceReader.END) {
+                int letter = Gestures.NONE;
+                if (type == TraceReader.LANDMARKS) {
+                    result.landmarkPackets++;
+                    if (landmarkFilter != null) {
+                        if (landmarks.getHandCount() > 0) {
+                            landmarkFilter.filter(landmarks.getHand(0), landmarks.getTimestamp());
+                        } else {
+                            landmarkFilter.reset();
+                        }
+                    }
+                    letter = gestureCalculator.handGestureCalculator(landmarks);
+                    if (letter != previousLetter) {
+                        result.flips++;
+                        previousLetter = letter;
+                    }
+                } else {
+                    result.rectPackets++;
+                    if (rects.getRectCount() > 0) {
+                        motionTracker.update(rects.getTimestamp(), rects.xCenter(0),
+                                rects.yCenter(0), rects.height(0));
+                        letter = motionCalculator.handGestureMoveCalculator(motionTracker);
+                    } else {
+                        motionTracker.reset();
+                    }
+                }
+                if (letter != Gestures.NONE) {
+                    result.letters++;
+                }
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Replays a trace several times and prints the throughput and flips of each run.
+     *
+     * @param args Path of the trace, number of runs (default 5), then optionally the min cutoff,
+     *             beta and derivative cutoff of a landmark filter
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: TraceReplayer <trace> [runs] [minCutoff beta dCutoff]");
+            System.exit(1);
+        }
+        File trace = new File(args[0]);
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        GestureRuleEngine rules = GestureRuleEngine.loadDefault();
+        for (int run = 1; run <= runs; run++) {
+            TraceReplayer replayer = new TraceReplayer(
+                    new HandGestureCalculator(rules), new MotionGestureCalculator());
+            if (args.length > 4) {
+                replayer.setLandmarkFilter(new OneEuroFilter(Double.parseDouble(args[2]),
+                        Double.parseDouble(args[3]), Double.parseDouble(args[4])));
+            }
+            System.out.println("Run " + run + ": " + replayer.replay(trace));
+        }
+    }
+}
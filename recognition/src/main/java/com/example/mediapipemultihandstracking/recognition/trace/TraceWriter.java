@@ -0,0 +1,143 @@
+package com.example.mediapipemultihandstracking.recognition.trace;
+
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.HandRectPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends landmark and hand rectangle packets to a trace file, see {@link TraceFormat}.
+ *
+ * The file is written through a memory-mapped window that moves forward in fixed chunks, so a
+ * record costs a few memory writes and no system call. Bytes past the last record stay zero,
+ * which readers take as the end of the trace, so a trace cut short by a crash is still readable.
+ * The file is truncated to its real length on {@link #close()}.
+ *
+ * Both write methods may be called from different packet callback threads.
+ */
+public final class TraceWriter implements Closeable {
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer window;
+    // File offset of the first byte of the window.
+    private long windowStart;
+
+    // Values of the previous record of each type, the next one is encoded against them.
+    private final int[] previousLandmarkBits = new int[LandmarkPacket.MAX_HANDS * HandFrame.NUM_COORDINATES];
+    private final int[] previousRectBits = new int[HandRectPacket.MAX_RECTS * HandRectPacket.RECT_STRIDE];
+    private long previousTimestamp;
+    private boolean closed;
+
+    private TraceWriter(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        window = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK_SIZE);
+        window.putInt(TraceFormat.MAGIC);
+        window.putInt(TraceFormat.VERSION);
+    }
+
+    /**
+     * Creates a new trace, replacing the file if it exists.
+     *
+     * @param path File to write
+     * @return Writer positioned after the header
+     * @throws IOException When the file cannot be created or mapped
+     */
+    public static TraceWriter create(File path) throws IOException {
+        return new TraceWriter(path);
+    }
+
+    public synchronized void writeLandmarks(LandmarkPacket packet) throws IOException {
+        int handCount = packet.getHandCount();
+        writeHeader(TraceFormat.RECORD_LANDMARKS, packet.getTimestamp(), handCount,
+                handCount * HandFrame.NUM_COORDINATES);
+        for (int hand = 0; hand < handCount; hand++) {
+            writeValues(packet.getHand(hand).coordinates(), 0, previousLandmarkBits,
+                    hand * HandFrame.NUM_COORDINATES, HandFrame.NUM_COORDINATES);
+        }
+    }
+
+    public synchronized void writeRects(HandRectPacket packet) throws IOException {
+        int rectCount = packet.getRectCount();
+        writeHeader(TraceFormat.RECORD_RECTS, packet.getTimestamp(), rectCount,
+                rectCount * HandRectPacket.RECT_STRIDE);
+        writeValues(packet.values(), 0, previousRectBits, 0,
+                rectCount * HandRectPacket.RECT_STRIDE);
+    }
+
+    /**
+     * @return Number of bytes written so far, header included
+     */
+    public synchronized long length() {
+        return windowStart + window.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long length = length();
+        window.force();
+        window = null;
+        channel.truncate(length);
+        file.close();
+    }
+
+    private void writeHeader(byte type, long timestamp, int count, int valueCount)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Trace is closed");
+        }
+        ensureCapacity(TraceFormat.MAX_RECORD_HEADER_SIZE
+                + valueCount * TraceFormat.MAX_VARINT32_SIZE);
+        window.put(type);
+        writeVarint64(TraceFormat.zigzag(timestamp - previousTimestamp));
+        writeVarint32(count);
+        previousTimestamp = timestamp;
+    }
+
+    private void writeValues(float[] values, int offset, int[] previousBits, int previousOffset,
+                             int length) {
+        for (int i = 0; i < length; i++) {
+            int bits = Float.floatToRawIntBits(values[offset + i]);
+            writeVarint32(TraceFormat.zigzag(bits - previousBits[previousOffset + i]));
+            previousBits[previousOffset + i] = bits;
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        windowStart += window.position();
+        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                Math.max(CHUNK_SIZE, bytes));
+    }
+
+    private void writeVarint32(int value) {
+        while ((value & ~0x7F) != 0) {
+            window.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        window.put((byte) value);
+    }
+
+    private void writeVarint64(long value) {
+        while ((value & ~0x7FL) != 0) {
+            window.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        window.put((byte) value);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveFrameSchedulerTest {
+    private static final long FRAME = 33_333;
+    private static final long BUDGET_NANOS = 100_000_000;
+
+    private final LandmarkPacket packet = new LandmarkPacket();
+
+    @Test
+    public void skipsStillHandsButStillClassifiesThemRegularly() {
+        AdaptiveFrameScheduler scheduler =
+                new AdaptiveFrameScheduler(BUDGET_NANOS, 1, 0.1f, 250_000, 5);
+        int accepted = 0;
+        for (int frame = 0; frame < 30; frame++) {
+            if (scheduler.accept(hand(frame * FRAME, 0))) {
+                accepted++;
+            }
+        }
+        // The first frame and 5 still ones, then one frame every 250 ms.
+        assertEquals(1 + 5 + 3, accepted);
+        // A move of a third of the palm is classified right away.
+        assertTrue(scheduler.accept(hand(30 * FRAME, 0.02f)));
+        assertTrue(scheduler.accept(hand(31 * FRAME, 0.02f)));
+    }
+
+    @Test
+    public void classifiesHandsAppearingAndLeaving() {
+        AdaptiveFrameScheduler scheduler =
+                new AdaptiveFrameScheduler(BUDGET_NANOS, 1, 0.1f, 250_000, 0);
+        assertTrue(scheduler.accept(hand(0, 0)));
+        assertFalse(scheduler.accept(hand(FRAME, 0)));
+        packet.reset(2 * FRAME);
+        assertTrue(scheduler.accept(packet));
+        assertFalse(scheduler.accept(packet));
+    }
+
+    @Test
+    public void raisesTheStrideUnderLoadAndLowersItAfterwards() {
+        AdaptiveFrameScheduler scheduler =
+                new AdaptiveFrameScheduler(BUDGET_NANOS, 3, 0.1f, 250_000, Integer.MAX_VALUE);
+        // Processing takes longer than the packet interval, every packet finds the queue busy.
+        int frame = 0;
+        for (; frame < 10 * AdaptiveFrameScheduler.ADAPT_INTERVAL; frame++) {
+            if (scheduler.accept(hand(frame * FRAME, frame * 0.1f))) {
+                scheduler.onSubmitted(true);
+                scheduler.onProcessed(60_000_000);
+            }
+        }
+        assertEquals(3, scheduler.getStride());
+
+        int accepted = 0;
+        for (int i = 0; i < 30; i++, frame++) {
+            if (scheduler.accept(hand(frame * FRAME, frame * 0.1f))) {
+                accepted++;
+            }
+        }
+        assertEquals(10, accepted);
+
+        // Processing got fast again.
+        for (int i = 0; i < 20 * AdaptiveFrameScheduler.ADAPT_INTERVAL; i++, frame++) {
+            if (scheduler.accept(hand(frame * FRAME, frame * 0.1f))) {
+                scheduler.onSubmitted(false);
+                scheduler.onProcessed(5_000_000);
+            }
+        }
+        assertEquals(1, scheduler.getStride());
+    }
+
+    @Test
+    public void pipelineRecyclesSkippedFrames() {
+        AdaptiveFrameScheduler scheduler =
+                new AdaptiveFrameScheduler(BUDGET_NANOS, 1, 0.1f, 250_000, 0);
+        LandmarkPacket.Pool pool = new LandmarkPacket.Pool(2);
+        RecognitionPipeline<LandmarkPacket> pipeline =
+                new RecognitionPipeline<>("Test", frame -> { }, pool);
+        pipeline.setScheduler(scheduler);
+        pipeline.start();
+        pipeline.submit(handFrom(pool.acquire(), 0, 0));
+        LandmarkPacket still = handFrom(pool.acquire(), FRAME, 0);
+        assertFalse(pipeline.submit(still));
+        pipeline.stop();
+        assertEquals(1, pipeline.getSkippedFrames());
+        // The skipped packet went back to the pool, with the processed one.
+        LandmarkPacket first = pool.acquire();
+        assertTrue(first == still || pool.acquire() == still);
+    }
+
+    private LandmarkPacket hand(long timestamp, float offset) {
+        return handFrom(packet, timestamp, offset);
+    }
+
+    /**
+     * @return Packet holding one hand with a palm about 0.05 long, shifted right by offset
+     */
+    private static LandmarkPacket handFrom(LandmarkPacket packet, long timestamp, float offset) {
+        packet.reset(timestamp);
+        HandFrame hand = packet.addHand();
+        hand.beginUpdate();
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            hand.setLandmark(i, 0.5f + offset + (i % 4) * 0.02f, 0.6f - (i / 4) * 0.025f, 0);
+        }
+        return packet;
+    }
+}
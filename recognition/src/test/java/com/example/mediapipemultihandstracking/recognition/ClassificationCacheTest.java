@@ -0,0 +1,77 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClassificationCacheTest {
+    private static final float THRESHOLD = 0.005f;
+
+    @Test
+    public void recomputingMovedFingersOnlyGivesTheFullResult() {
+        GestureRuleEngine rules = GestureRuleEngine.loadDefault();
+        HandGestureCalculator calculator = new HandGestureCalculator(rules);
+        SyntheticHands hands = new SyntheticHands(3);
+        HandFrame pose = new HandFrame();
+        HandFrame hand = new HandFrame();
+        Random random = new Random(5);
+        for (int sample = 0; sample < 2_000; sample++) {
+            ClassificationCache cache = new ClassificationCache(THRESHOLD);
+            hands.randomPose(hand);
+            assertEquals(ClassificationCache.MISS, cache.lookup(hand));
+            calculator.handGestureCalculator(hand, null, cache);
+
+            // Moves the landmarks of one finger to the ones of another random pose.
+            hands.randomPose(pose);
+            int first = 1 + random.nextInt(5) * 4;
+            hand.beginUpdate();
+            for (int i = first; i < first + 4; i++) {
+                hand.setLandmark(i, pose.x(i), pose.y(i), pose.z(i));
+            }
+            int incremental = cache.lookup(hand);
+            if (incremental == ClassificationCache.MISS) {
+                incremental = calculator.handGestureCalculator(hand, null, cache);
+            }
+            assertEquals(rules.classify(hand), incremental);
+        }
+    }
+
+    @Test
+    public void reusesTheLetterOfAHeldHand() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame a = corpus.getHand(corpus.indicesOf("A")[0]);
+        List<String> commits = new ArrayList<>();
+        HandRecognizer recognizer = new HandRecognizer(
+                new HandGestureCalculator(GestureRuleEngine.loadDefault()), 1,
+                () -> new LetterDebouncer(5, 4, 1_000_000, 300_000), new LetterListener() {
+            @Override
+            public void onLetterChanged(int hand, int letter) {
+            }
+
+            @Override
+            public void onLetterCommitted(int hand, GestureResult result) {
+                commits.add(Gestures.name(result.getCode()));
+            }
+        });
+        recognizer.setReuseThreshold(THRESHOLD);
+
+        LandmarkPacket packet = new LandmarkPacket();
+        for (int frame = 0; frame < 40; frame++) {
+            packet.reset(frame * 33_333L);
+            // Jitter well below the threshold.
+            float dx = frame % 2 == 0 ? 0.001f : -0.001f;
+            HandFrame hand = packet.addHand();
+            hand.beginUpdate();
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                hand.setLandmark(i, a.x(i) + dx, a.y(i), a.z(i));
+            }
+            recognizer.process(packet);
+        }
+        assertEquals("[A, A]", commits.toString());
+        assertEquals(39, recognizer.getCacheHits());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecisionTreeClassifierTest {
+
+    @Test
+    public void writesTheBundledTreeBackUnchanged() throws IOException {
+        ByteArrayOutputStream bundled = new ByteArrayOutputStream();
+        try (InputStream in = DecisionTreeClassifier.class.getResourceAsStream(
+                DecisionTreeClassifier.DEFAULT_TREE)) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bundled.write(buffer, 0, read);
+            }
+        }
+        DecisionTreeClassifier tree =
+                DecisionTreeClassifier.read(new ByteArrayInputStream(bundled.toByteArray()));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        tree.write(written);
+        assertArrayEquals(bundled.toByteArray(), written.toByteArray());
+    }
+
+    @Test
+    public void agreesWithTheRulesOnMostOfTheCorpus() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        GestureClassifier rules = GestureRuleEngine.loadDefault();
+        GestureClassifier tree = DecisionTreeClassifier.loadDefault();
+        FeatureExtractor extractor = new FeatureExtractor();
+        HandFeatures features = new HandFeatures();
+        int rulesCorrect = 0;
+        int treeCorrect = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            HandFrame hand = corpus.getHand(i);
+            extractor.extract(hand, features);
+            if (rules.classify(hand, features) == corpus.getGesture(i)) {
+                rulesCorrect++;
+            }
+            if (tree.classify(hand, features) == corpus.getGesture(i)) {
+                treeCorrect++;
+            }
+        }
+        // The corpus is labelled by the rules, the tree only learned them from other poses.
+        assertEquals(corpus.size(), rulesCorrect);
+        assertTrue(treeCorrect + " of " + corpus.size(), treeCorrect >= 0.9 * corpus.size());
+    }
+
+    @Test
+    public void learnsASeparableProblem() {
+        // Hands with the index up are "D", the other ones are "".
+        DecisionTreeTrainer trainer = new DecisionTreeTrainer(4, 1);
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        FeatureExtractor extractor = new FeatureExtractor();
+        HandFeatures features = new HandFeatures();
+        for (int i = 0; i < corpus.size(); i++) {
+            extractor.extract(corpus.getHand(i), features);
+            boolean indexUp = features.values()[HandFeatures.FINGER_STATES] == 1;
+            trainer.add(features, indexUp ? "D" : "");
+        }
+        DecisionTreeClassifier tree = trainer.train();
+        assertEquals(3, tree.getNodeCount());
+        for (int i = 0; i < corpus.size(); i++) {
+            extractor.extract(corpus.getHand(i), features);
+            boolean indexUp = features.values()[HandFeatures.FINGER_STATES] == 1;
+            assertEquals(indexUp ? Gestures.code("D") : Gestures.NONE,
+                    tree.classify(corpus.getHand(i), features));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticsTest {
+    @Test
+    public void dumpsTheEventsOldestFirst() throws IOException {
+        Diagnostics diagnostics = new Diagnostics(8, Diagnostics.LEVEL_DEBUG);
+        diagnostics.record(Diagnostics.LEVEL_DEBUG, Diagnostics.EVENT_LANDMARK_PACKET, 10, 2, 1, 0);
+        diagnostics.record(Diagnostics.LEVEL_DEBUG, Diagnostics.EVENT_PALM_BASE, 10,
+                1, 0.25f, 0.5f);
+        diagnostics.record(Diagnostics.LEVEL_DEBUG, Diagnostics.EVENT_RECT_PACKET, 20, 1);
+        diagnostics.record(Diagnostics.LEVEL_DEBUG, 9, 30, 1);
+
+        assertEquals("[TS:10] landmarks hands=2 dropped=1 skipped=0\n"
+                + "[TS:10] palm base hand=1 x0=0.25 x17=0.5\n"
+                + "[TS:20] rects count=1 x=0 y=0\n"
+                + "[TS:30] event 9\n", dump(diagnostics));
+    }
+
+    @Test
+    public void formatsLettersAsCharacters() throws IOException {
+        Diagnostics diagnostics = new Diagnostics(8, Diagnostics.LEVEL_INFO);
+        diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_LETTER_CHANGED, 1,
+                Diagnostics.letterValue(Gestures.code("B")), 0, 0);
+        diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_LETTER_CHANGED, 2,
+                Diagnostics.letterValue(Gestures.NONE), 1, 0);
+        diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_LETTER_COMMITTED, 3,
+                Diagnostics.letterValue(Gestures.SPACE), 0, 0);
+
+        assertEquals("[TS:1] letter changed B hand=0\n"
+                + "[TS:2] letter changed - hand=1\n"
+                + "[TS:3] letter committed   hand=0\n", dump(diagnostics));
+    }
+
+    @Test
+    public void keepsTheNewestEventsWhenFull() throws IOException {
+        // Rounded up to 4 events.
+        Diagnostics diagnostics = new Diagnostics(3, Diagnostics.LEVEL_DEBUG);
+        for (int i = 0; i < 6; i++) {
+            diagnostics.record(Diagnostics.LEVEL_DEBUG, Diagnostics.EVENT_RECT_PACKET, i, i);
+        }
+
+        assertEquals(6, diagnostics.getRecordedCount());
+        assertEquals("[TS:2] rects count=2 x=0 y=0\n"
+                + "[TS:3] rects count=3 x=0 y=0\n"
+                + "[TS:4] rects count=4 x=0 y=0\n"
+                + "[TS:5] rects count=5 x=0 y=0\n", dump(diagnostics));
+    }
+
+    @Test
+    public void recordsNothingAboveTheLevel() throws IOException {
+        Diagnostics diagnostics = new Diagnostics(8, Diagnostics.LEVEL_INFO);
+        assertTrue(diagnostics.isEnabled(Diagnostics.LEVEL_INFO));
+        assertFalse(diagnostics.isEnabled(Diagnostics.LEVEL_DEBUG));
+        diagnostics.record(Diagnostics.LEVEL_DEBUG, Diagnostics.EVENT_RECT_PACKET, 1, 1);
+        diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_RECT_PACKET, 2, 2);
+
+        diagnostics.setLevel(Diagnostics.LEVEL_OFF);
+        assertFalse(diagnostics.isEnabled(Diagnostics.LEVEL_INFO));
+        diagnostics.record(Diagnostics.LEVEL_INFO, Diagnostics.EVENT_RECT_PACKET, 3, 3);
+
+        assertEquals(1, diagnostics.getRecordedCount());
+        assertEquals("[TS:2] rects count=2 x=0 y=0\n", dump(diagnostics));
+    }
+
+    private static String dump(Diagnostics diagnostics) throws IOException {
+        StringBuilder out = new StringBuilder();
+        diagnostics.dump(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureExtractorTest {
+    private static final float TOLERANCE = 1e-4f;
+
+    @Test
+    public void putsTheWristAtTheOriginAndThePalmUp() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFeatures features = new HandFeatures();
+        assertTrue(new FeatureExtractor().extract(corpus.getHand(0), features));
+        assertEquals(0, features.x(0), 0);
+        assertEquals(0, features.y(0), 0);
+        assertEquals(0, features.x(9), TOLERANCE);
+        assertEquals(-1, features.y(9), TOLERANCE);
+        assertEquals((float) corpus.getHand(0).distance(0, 9), features.getPalmSize(), TOLERANCE);
+    }
+
+    @Test
+    public void ignoresPositionScaleAndTilt() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        FeatureExtractor extractor = new FeatureExtractor();
+        HandFeatures expected = new HandFeatures();
+        HandFeatures actual = new HandFeatures();
+        HandFrame moved = new HandFrame();
+        for (int pose = 0; pose < corpus.size(); pose++) {
+            HandFrame hand = corpus.getHand(pose);
+            extractor.extract(hand, expected);
+            // Half the size, tilted by 30 degrees around the wrist and moved to the side.
+            double cos = Math.cos(Math.PI / 6);
+            double sin = Math.sin(Math.PI / 6);
+            moved.beginUpdate();
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                double x = (hand.x(i) - hand.x(0)) * 0.5;
+                double y = (hand.y(i) - hand.y(0)) * 0.5;
+                moved.setLandmark(i, (float) (0.2 + cos * x - sin * y),
+                        (float) (0.3 + sin * x + cos * y), hand.z(i) * 0.5f);
+            }
+            extractor.extract(moved, actual);
+            float[] canonical = new float[HandFrame.NUM_COORDINATES];
+            System.arraycopy(actual.values(), 0, canonical, 0, canonical.length);
+            float[] reference = new float[HandFrame.NUM_COORDINATES];
+            System.arraycopy(expected.values(), 0, reference, 0, reference.length);
+            assertArrayEquals("Pose " + pose, reference, canonical, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void rejectsDegeneratePalms() {
+        HandFrame hand = new HandFrame();
+        HandFeatures features = new HandFeatures();
+        assertFalse(new FeatureExtractor().extract(hand, features));
+        assertFalse(features.isValid());
+        assertEquals(0, features.values()[HandFeatures.ORIENTATION_X], 0);
+    }
+}
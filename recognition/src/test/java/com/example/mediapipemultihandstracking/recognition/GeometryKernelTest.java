@@ -0,0 +1,147 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeometryKernelTest {
+    private static final int PAIRS = HandFrame.NUM_LANDMARKS * HandFrame.NUM_LANDMARKS;
+    private static final int[] TIPS = {4, 8, 12, 16, 20};
+    // Distances closer than that, relatively, are ties float rounding may decide either way.
+    private static final double TIE = 1e-5;
+
+    @Test
+    public void decidesLikeEuclideanDistancesOnAGrid() {
+        // Coordinates on a 1/64 grid make every squared distance exact in float, so ties are
+        // real ties and both sides have to agree on every single comparison.
+        Random random = new Random(3);
+        HandFrame hand = new HandFrame();
+        for (int sample = 0; sample < 200; sample++) {
+            hand.beginUpdate();
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                hand.setLandmark(i, random.nextInt(65) / 64f, random.nextInt(65) / 64f, 0);
+            }
+            float[] coordinates = hand.coordinates();
+            for (int first = 0; first < PAIRS; first++) {
+                int a = first / HandFrame.NUM_LANDMARKS;
+                int b = first % HandFrame.NUM_LANDMARKS;
+                for (int second = 0; second < PAIRS; second++) {
+                    int p = second / HandFrame.NUM_LANDMARKS;
+                    int q = second % HandFrame.NUM_LANDMARKS;
+                    assertEquals(hand.distance(a, b) < hand.distance(p, q),
+                            GeometryKernel.isCloser(coordinates, a, b, p, q));
+                }
+                assertEquals(hand.distance(a, b) < 0.25,
+                        GeometryKernel.isWithin(coordinates, a, b, 0.25f * 0.25f));
+            }
+            assertEquals(referenceFingerStates(hand), GestureRuleEngine.fingerStates(hand));
+            assertEquals(referenceAllWithin(hand, 0.5), GeometryKernel.allWithin(
+                    coordinates, TIPS, 0.25f));
+        }
+    }
+
+    @Test
+    public void decidesLikeEuclideanDistancesOnHands() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        SyntheticHands synthetic = new SyntheticHands(9);
+        Random random = new Random(4);
+        HandFrame hand = new HandFrame();
+        int ties = 0;
+        int samples = 50_000;
+        for (int sample = 0; sample < samples; sample++) {
+            if (sample < corpus.size()) {
+                hand.copyFrom(corpus.getHand(sample));
+            } else if (sample % 2 == 0) {
+                synthetic.randomPose(hand);
+            } else {
+                hand.beginUpdate();
+                for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                    hand.setLandmark(i, random.nextFloat(), random.nextFloat(), 0);
+                }
+            }
+            float[] coordinates = hand.coordinates();
+            for (int i = 0; i < 64; i++) {
+                int a = random.nextInt(HandFrame.NUM_LANDMARKS);
+                int b = random.nextInt(HandFrame.NUM_LANDMARKS);
+                int p = random.nextInt(HandFrame.NUM_LANDMARKS);
+                int q = random.nextInt(HandFrame.NUM_LANDMARKS);
+                double ab = hand.distance(a, b);
+                double pq = hand.distance(p, q);
+                assertEquals(ab * ab, GeometryKernel.distanceSquared(coordinates, a, b),
+                        1e-6 * Math.max(ab * ab, 1e-6));
+                if (!isTie(ab, pq)) {
+                    assertEquals(ab < pq, GeometryKernel.isCloser(coordinates, a, b, p, q));
+                }
+                if (!isTie(ab, 0.1)) {
+                    assertEquals(ab < 0.1,
+                            GeometryKernel.isWithin(coordinates, a, b, (float) (0.1 * 0.1)));
+                }
+            }
+            if (hasFingerStateTie(hand)) {
+                ties++;
+            } else {
+                assertEquals(referenceFingerStates(hand), GestureRuleEngine.fingerStates(hand));
+            }
+            for (int finger = 0; finger < 5; finger++) {
+                assertEquals(GestureRuleEngine.fingerStates(hand) & fingerBits(finger),
+                        GestureRuleEngine.fingerState(hand, finger));
+            }
+        }
+        assertTrue("Ties: " + ties, ties < samples / 1000);
+    }
+
+    /**
+     * Finger states as computed before the kernel, on Euclidean distances.
+     */
+    private static int referenceFingerStates(HandFrame hand) {
+        int states = hand.distance(4, 13) < hand.distance(3, 13)
+                ? GestureRuleEngine.THUMB_BEND : GestureRuleEngine.THUMB_OPEN;
+        for (int finger = 0; finger < 4; finger++) {
+            int tip = 8 + 4 * finger;
+            int base = tip - 3;
+            if (hand.y(tip) < hand.y(tip - 1) && hand.y(tip - 1) < hand.y(tip - 2)
+                    && hand.y(tip - 2) < hand.y(base)) {
+                states |= GestureRuleEngine.INDEX_UP << 2 * finger;
+            } else if (hand.distance(tip, 0) < hand.distance(base, 0)) {
+                states |= GestureRuleEngine.INDEX_DOWN << 2 * finger;
+            }
+        }
+        return states;
+    }
+
+    private static boolean referenceAllWithin(HandFrame hand, double radius) {
+        for (int i = 0; i < TIPS.length; i++) {
+            for (int j = i + 1; j < TIPS.length; j++) {
+                if (hand.distance(TIPS[i], TIPS[j]) >= radius) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasFingerStateTie(HandFrame hand) {
+        if (isTie(hand.distance(4, 13), hand.distance(3, 13))) {
+            return true;
+        }
+        for (int tip = 8; tip <= 20; tip += 4) {
+            if (isTie(hand.distance(tip, 0), hand.distance(tip - 3, 0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int fingerBits(int finger) {
+        return finger == 0
+                ? GestureRuleEngine.THUMB_OPEN | GestureRuleEngine.THUMB_BEND
+                : 3 << 2 * (finger - 1);
+    }
+
+    private static boolean isTie(double a, double b) {
+        return Math.abs(a - b) <= TIE * Math.max(a, b);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Hand-built poses and the letters the original if/else chain of MainActivity gave them, so the
+ * rule table is checked against the chain it replaced rather than against itself.
+ */
+public class GestureRuleEngineTest {
+    private final GestureRuleEngine engine = GestureRuleEngine.loadDefault();
+
+    @Test
+    public void signsTheLetterOfTheOriginalChain() {
+        assertLetter("A", new Pose().set(3, 0.55f, 0.6f).set(4, 0.6f, 0.5f));
+        assertLetter("B", new Pose().up(1).up(2).up(3).up(4).thumbBend().mirror());
+        assertLetter("C", new Pose()
+                .set(6, 0.6f, 0.42f).set(7, 0.5f, 0.28f).set(8, 0.42f, 0.3f)
+                .set(10, 0.48f, 0.4f).set(11, 0.4f, 0.28f).set(12, 0.35f, 0.32f)
+                .set(14, 0.36f, 0.42f).set(15, 0.3f, 0.3f).set(16, 0.28f, 0.35f)
+                .set(18, 0.24f, 0.48f).set(19, 0.2f, 0.35f).set(20, 0.22f, 0.4f));
+        assertLetter("E", fistOnTheKnuckles());
+        assertLetter("F", new Pose().up(2).up(3).up(4)
+                .set(6, 0.66f, 0.45f).set(7, 0.7f, 0.42f).set(8, 0.7f, 0.46f)
+                .set(3, 0.78f, 0.6f).set(4, 0.74f, 0.5f));
+        assertLetter("G", new Pose().side(1, -0.08f)
+                .set(10, 0.55f, 0.56f).set(11, 0.6f, 0.6f).set(12, 0.65f, 0.57f));
+        assertLetter("H", new Pose().side(1, -0.08f).side(2, -0.04f)
+                .set(2, 0.6f, 0.5f).set(3, 0.56f, 0.45f).set(4, 0.52f, 0.42f));
+        assertLetter("I", new Pose().thumbBend().up(4));
+        assertLetter("J", new Pose().side(4, -0.08f));
+        assertLetter("L", new Pose().up(1).mirror());
+        assertLetter("M", threeFingersOverTheThumb());
+        assertLetter("N", new Pose().thumbBend()
+                .set(16, 0.4f, 0.8f).set(20, 0.3f, 0.82f).mirror());
+        assertLetter("P", new Pose().up(1, 0.03f).up(2, -0.03f)
+                .set(2, 0.6f, 0.6f).set(3, 0.55f, 0.6f).set(4, 0.48f, 0.62f).flipY());
+        assertLetter("Q", new Pose().up(1).flipY());
+        assertLetter("R", new Pose().thumbBend().up(1, -0.04f).up(2, -0.005f)
+                .set(6, 0.57f, 0.43f));
+        assertLetter("S", new Pose().thumbBend()
+                .set(8, 0.56f, 0.62f).set(12, 0.5f, 0.62f)
+                .set(16, 0.44f, 0.64f).set(20, 0.38f, 0.66f));
+        assertLetter("U", new Pose().thumbBend().up(1, -0.02f).up(2, 0.01f).mirror());
+        assertLetter("V", new Pose().thumbBend().up(1, 0.03f).up(2, -0.03f));
+        assertLetter("W", new Pose().up(1).up(2).up(3).set(4, 0.3f, 0.68f));
+        assertLetter("X", new Pose().set(3, 0.52f, 0.5f).set(4, 0.56f, 0.55f)
+                .set(6, 0.62f, 0.43f).set(7, 0.62f, 0.35f).set(8, 0.66f, 0.38f));
+        assertLetter("Y", new Pose().up(4));
+        assertLetter("SPACE", new Pose()
+                .set(2, 0.7f, 0.55f).set(3, 0.72f, 0.45f).set(4, 0.74f, 0.35f)
+                .set(6, 0.62f, 0.45f).set(7, 0.62f, 0.4f).set(8, 0.62f, 0.43f)
+                .set(10, 0.5f, 0.42f).set(11, 0.5f, 0.37f).set(12, 0.5f, 0.4f)
+                .set(14, 0.38f, 0.45f).set(15, 0.38f, 0.4f).set(16, 0.38f, 0.43f)
+                .set(18, 0.26f, 0.5f).set(19, 0.27f, 0.45f).set(20, 0.28f, 0.48f));
+    }
+
+    @Test
+    public void acceptsEitherSideOfTheSplitRules() {
+        // Index up alone with the thumb bent, or touching the pinky tip with the thumb.
+        assertLetter("D", new Pose().thumbBend().up(1));
+        assertLetter("D", new Pose().up(1).side(2, -0.05f)
+                .set(3, 0.4f, 0.7f).set(4, 0.28f, 0.7f));
+        // Thumb between the spread index and middle, or against the base of the index.
+        assertLetter("K", new Pose().up(1, 0.03f).up(2, -0.04f).mirror()
+                .set(2, 0.36f, 0.72f).set(3, 0.42f, 0.58f).set(4, 0.42f, 0.4f));
+        assertLetter("K", new Pose().up(1, 0.03f).up(2, -0.03f)
+                .set(2, 0.6f, 0.6f).set(3, 0.55f, 0.6f).set(4, 0.48f, 0.62f));
+        // Both palm orientations.
+        assertLetter("O", fingertipsOnTheThumb());
+        assertLetter("O", fingertipsOnTheThumb().mirror());
+        // Index tip away from the middle one, or middle tip away from the ring one.
+        assertLetter("T", thumbUnderTheIndex());
+        assertLetter("T", thumbUnderTheIndex().set(8, 0.45f, 0.6f));
+    }
+
+    @Test
+    public void honorsTheNegatedPredicates() {
+        // Index, middle and ring tips all together.
+        assertLetter("", thumbUnderTheIndex().set(8, 0.45f, 0.6f).set(16, 0.44f, 0.64f));
+        // C keeps the thumb away from the fingertips.
+        assertLetter("", new Pose()
+                .set(6, 0.6f, 0.42f).set(7, 0.5f, 0.28f).set(8, 0.42f, 0.3f)
+                .set(10, 0.48f, 0.4f).set(11, 0.4f, 0.28f).set(12, 0.35f, 0.32f)
+                .set(14, 0.36f, 0.42f).set(15, 0.3f, 0.3f).set(16, 0.28f, 0.35f)
+                .set(18, 0.24f, 0.48f).set(19, 0.2f, 0.35f).set(20, 0.22f, 0.4f)
+                .set(4, 0.45f, 0.35f));
+        // L keeps the thumb away from the index, with it the pose reads as T.
+        assertLetter("T", new Pose().up(1).mirror().set(4, 0.4f, 0.35f));
+        // B shows the palm.
+        assertLetter("", new Pose().up(1).up(2).up(3).up(4).thumbBend());
+        // E has no finger curled to the wrist.
+        assertLetter("", fistOnTheKnuckles().set(8, 0.38f, 0.62f));
+        // M keeps the thumb tip out from under the middle finger.
+        assertLetter("", threeFingersOverTheThumb().set(4, 0.5f, 0.6f));
+        // N has no finger up, with the index up the pose reads as D.
+        assertLetter("D", new Pose().thumbBend()
+                .set(16, 0.4f, 0.8f).set(20, 0.3f, 0.82f).mirror().up(1));
+    }
+
+    private static Pose fistOnTheKnuckles() {
+        return new Pose().thumbBend()
+                .set(6, 0.62f, 0.45f).set(7, 0.62f, 0.47f).set(8, 0.62f, 0.5f)
+                .set(10, 0.5f, 0.42f).set(11, 0.5f, 0.44f).set(12, 0.5f, 0.47f)
+                .set(14, 0.38f, 0.45f).set(15, 0.38f, 0.47f).set(16, 0.38f, 0.5f)
+                .set(18, 0.26f, 0.5f).set(19, 0.26f, 0.52f).set(20, 0.26f, 0.55f)
+                .mirror();
+    }
+
+    private static Pose fingertipsOnTheThumb() {
+        return new Pose().set(3, 0.5f, 0.62f).set(4, 0.56f, 0.45f)
+                .set(6, 0.64f, 0.4f).set(7, 0.63f, 0.36f).set(8, 0.6f, 0.42f)
+                .set(10, 0.52f, 0.38f).set(11, 0.54f, 0.36f).set(12, 0.54f, 0.4f)
+                .set(14, 0.42f, 0.42f).set(15, 0.46f, 0.4f).set(16, 0.5f, 0.43f)
+                .set(18, 0.34f, 0.46f).set(19, 0.42f, 0.45f).set(20, 0.5f, 0.48f);
+    }
+
+    private static Pose threeFingersOverTheThumb() {
+        return new Pose().set(8, 0.62f, 0.7f).set(12, 0.55f, 0.7f).set(16, 0.48f, 0.7f)
+                .set(20, 0.3f, 0.8f).mirror();
+    }
+
+    private static Pose thumbUnderTheIndex() {
+        return new Pose().thumbBend().side(1, 0.05f).set(4, 0.64f, 0.5f).mirror();
+    }
+
+    private void assertLetter(String expected, Pose pose) {
+        int code = expected.isEmpty() ? Gestures.NONE : Gestures.code(expected);
+        assertEquals(Gestures.name(code), Gestures.name(engine.classify(pose.frame)));
+    }
+
+    /**
+     * Hand in image coordinates, the wrist at the bottom and the index on the right, with every
+     * finger curled and the thumb open. Indices passed to set() after mirror() or flipY() are
+     * placed on the turned hand.
+     */
+    private static final class Pose {
+        private static final float[][] BASES = {
+                {0.5f, 0.9f}, {0.62f, 0.85f}, {0.62f, 0.55f}, {0.5f, 0.52f}, {0.38f, 0.55f},
+                {0.26f, 0.6f}};
+        // Sideways lean of each finger, up and curled, so no two joints share an x.
+        private static final float[] UP_LEAN = {0, 0.005f, -0.005f, 0, 0.005f};
+        private static final float[] DOWN_LEAN = {0, 0.01f, 0.01f, 0, 0.005f};
+
+        final HandFrame frame = new HandFrame();
+
+        Pose() {
+            set(0, BASES[0][0], BASES[0][1]);
+            set(1, BASES[1][0], BASES[1][1]);
+            for (int finger = 1; finger <= 4; finger++) {
+                set(finger * 4 + 1, BASES[finger + 1][0], BASES[finger + 1][1]);
+                down(finger);
+            }
+            thumbOpen();
+        }
+
+        Pose set(int index, float x, float y) {
+            frame.beginUpdate();
+            frame.setLandmark(index, x, y, 0);
+            return this;
+        }
+
+        /**
+         * @param finger 1 for the index to 4 for the pinky
+         */
+        Pose up(int finger) {
+            return up(finger, UP_LEAN[finger]);
+        }
+
+        Pose up(int finger, float lean) {
+            int base = finger * 4 + 1;
+            for (int joint = 1; joint <= 3; joint++) {
+                set(base + joint, frame.x(base) + lean * joint, frame.y(base) - 0.12f * joint);
+            }
+            return this;
+        }
+
+        Pose down(int finger) {
+            int base = finger * 4 + 1;
+            float x = frame.x(base);
+            float y = frame.y(base);
+            float lean = DOWN_LEAN[finger];
+            return set(base + 1, x, y - 0.06f)
+                    .set(base + 2, x + lean, y + 0.02f)
+                    .set(base + 3, x + 2 * lean, y + 0.11f);
+        }
+
+        /**
+         * Points a finger sideways, slightly down so it is never up.
+         */
+        Pose side(int finger, float step) {
+            int base = finger * 4 + 1;
+            for (int joint = 1; joint <= 3; joint++) {
+                set(base + joint, frame.x(base) + step * joint, frame.y(base) + 0.02f * joint);
+            }
+            return this;
+        }
+
+        Pose thumbOpen() {
+            return set(2, 0.7f, 0.75f).set(3, 0.78f, 0.68f).set(4, 0.86f, 0.62f);
+        }
+
+        Pose thumbBend() {
+            return set(2, 0.66f, 0.75f).set(3, 0.6f, 0.68f).set(4, 0.48f, 0.65f);
+        }
+
+        /**
+         * Turns the hand into a left one, or shows its palm.
+         */
+        Pose mirror() {
+            frame.beginUpdate();
+            frame.mirror();
+            return this;
+        }
+
+        /**
+         * Turns the hand upside down.
+         */
+        Pose flipY() {
+            for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                set(i, frame.x(i), 1 - frame.y(i));
+            }
+            return this;
+        }
+    }
+}
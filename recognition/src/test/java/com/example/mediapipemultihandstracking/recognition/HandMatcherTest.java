@@ -0,0 +1,37 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HandMatcherTest {
+
+    @Test
+    public void followsHandsWhenThePacketOrderChanges() {
+        HandMatcher matcher = new HandMatcher(4, 0.25f);
+        int[] slots = new int[2];
+        assertEquals(0b11, matcher.match(new float[]{0.2f, 0.8f}, new float[]{0.5f, 0.5f}, 2, slots));
+        assertArrayEquals(new int[]{0, 1}, slots);
+
+        // Same hands, slightly moved and listed the other way around.
+        assertEquals(0, matcher.match(new float[]{0.78f, 0.23f}, new float[]{0.5f, 0.52f}, 2, slots));
+        assertArrayEquals(new int[]{1, 0}, slots);
+    }
+
+    @Test
+    public void givesNewHandsAFreshSlot() {
+        HandMatcher matcher = new HandMatcher(2, 0.25f);
+        int[] slots = new int[2];
+        matcher.match(new float[]{0.2f}, new float[]{0.5f}, 1, slots);
+        assertEquals(0b01, matcher.getActiveSlots());
+
+        // The hand jumped across the image, it is treated as another hand.
+        assertEquals(0b10, matcher.match(new float[]{0.9f}, new float[]{0.5f}, 1, slots));
+        assertEquals(1, slots[0]);
+        assertEquals(0b10, matcher.getActiveSlots());
+
+        assertEquals(0, matcher.match(new float[0], new float[0], 0, slots));
+        assertEquals(0, matcher.getActiveSlots());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HandRecognizerTest {
+    private static final long FRAME = 33_333;
+
+    @Test
+    public void recognizesBothHandsIndependently() {
+        assertEquals("0:A 1:L", run(null));
+    }
+
+    @Test
+    public void givesTheSameLettersOnAnExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("0:A 1:L", run(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failsThePacketOfAHandFailingOnTheExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Fails on the second hand, the one classified on the executor.
+            GestureClassifier failing = (hand, features) -> {
+                if (hand.x(0) > 0.5f) {
+                    throw new IllegalStateException("classifier failed");
+                }
+                return Gestures.NONE;
+            };
+            HandRecognizer recognizer = new HandRecognizer(new HandGestureCalculator(failing),
+                    2, () -> new LetterDebouncer(5, 4, 1_000_000, 300_000),
+                    committing(new ArrayList<>()));
+            recognizer.setExecutor(executor);
+            LandmarkPacket packet = new LandmarkPacket();
+            packet.reset(0);
+            HandFrame hand = new HandFrame();
+            new SyntheticHands(3).randomPose(hand);
+            moved(hand, packet.addHand(), 0.2f - hand.x(0), 0);
+            moved(hand, packet.addHand(), 0.8f - hand.x(0), 0);
+            try {
+                recognizer.process(packet);
+                fail();
+            } catch (IllegalStateException expected) {
+                assertEquals("classifier failed", expected.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void recognizesZDrawnWithTheIndex() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame d = corpus.getHand(corpus.indicesOf("D")[0]);
+        List<String> commits = new ArrayList<>();
+        HandRecognizer recognizer = new HandRecognizer(
+                new HandGestureCalculator(GestureRuleEngine.loadDefault()), 1,
+                () -> new LetterDebouncer(5, 4, 1_000_000, 300_000), committing(commits));
+        recognizer.setTrajectoryMatcher(TrajectoryMatcher.loadDefault());
+
+        // Holds D, draws a Z over 20 frames and holds D again.
+        float[] cornersX = {0, 0.2f, 0, 0.2f};
+        float[] cornersY = {0, 0, 0.2f, 0.2f};
+        LandmarkPacket packet = new LandmarkPacket();
+        for (int frame = 0; frame < 35; frame++) {
+            float dx = cornersX[0];
+            float dy = cornersY[0];
+            if (frame >= 20) {
+                dx = cornersX[3];
+                dy = cornersY[3];
+            } else if (frame > 5) {
+                float at = (frame - 5) * 3 / 15f;
+                int corner = Math.min(2, (int) at);
+                float t = at - corner;
+                dx = cornersX[corner] + t * (cornersX[corner + 1] - cornersX[corner]);
+                dy = cornersY[corner] + t * (cornersY[corner + 1] - cornersY[corner]);
+            }
+            packet.reset(frame * FRAME);
+            moved(d, packet.addHand(), dx - 0.1f, dy - 0.1f);
+            recognizer.process(packet);
+        }
+        assertEquals("[0:D, 0:Z, 0:D]", commits.toString());
+    }
+
+    @Test
+    public void mirrorsTheHandsLabeledRight() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame a = corpus.getHand(corpus.indicesOf("A")[0]);
+        List<String> commits = new ArrayList<>();
+        HandRecognizer recognizer = new HandRecognizer(
+                new HandGestureCalculator(GestureRuleEngine.loadDefault()), 1,
+                () -> new LetterDebouncer(5, 4, 1_000_000, 300_000), committing(commits));
+        recognizer.setHandednessMirroring(true);
+
+        // A signed with the other hand, the handedness model being unsure at first.
+        float[] leftScores = {0.45f, 0.2f, 0.6f, 0.1f, 0.1f, 0.1f};
+        LandmarkPacket packet = new LandmarkPacket();
+        for (int frame = 0; frame < leftScores.length; frame++) {
+            packet.reset(frame * FRAME);
+            HandFrame hand = packet.addHand();
+            hand.copyFrom(a);
+            hand.mirror();
+            packet.resetHandedness();
+            packet.addHandedness(leftScores[frame]);
+            packet.setHalves(frame * FRAME, true, false, true);
+            recognizer.process(packet);
+        }
+        assertEquals("[0:A]", commits.toString());
+    }
+
+    /**
+     * Signs A with one hand and L with the other for ten frames, with the packet order of the
+     * hands swapped on every other frame.
+     *
+     * @return Letters committed per slot
+     */
+    private static String run(ExecutorService executor) {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame a = corpus.getHand(corpus.indicesOf("A")[0]);
+        HandFrame l = corpus.getHand(corpus.indicesOf("L")[0]);
+        List<String> commits = new ArrayList<>();
+        HandRecognizer recognizer = new HandRecognizer(
+                new HandGestureCalculator(GestureRuleEngine.loadDefault()), 2,
+                () -> new LetterDebouncer(5, 4, 1_000_000, 300_000), committing(commits));
+        recognizer.setExecutor(executor);
+
+        LandmarkPacket packet = new LandmarkPacket();
+        for (int frame = 0; frame < 10; frame++) {
+            packet.reset(frame * FRAME);
+            HandFrame first = frame % 2 == 0 ? a : l;
+            HandFrame second = frame % 2 == 0 ? l : a;
+            moved(first, packet.addHand(), first == a ? -0.3f : 0.3f, 0);
+            moved(second, packet.addHand(), second == a ? -0.3f : 0.3f, 0);
+            recognizer.process(packet);
+        }
+        commits.sort(null);
+        return String.join(" ", commits);
+    }
+
+    private static LetterListener committing(List<String> commits) {
+        return new LetterListener() {
+            @Override
+            public void onLetterChanged(int hand, int letter) {
+            }
+
+            @Override
+            public void onLetterCommitted(int hand, GestureResult result) {
+                commits.add(hand + ":" + Gestures.name(result.getCode()));
+            }
+        };
+    }
+
+    /**
+     * Copies a hand, moved so the two hands of a packet do not overlap.
+     */
+    private static void moved(HandFrame source, HandFrame target, float dx, float dy) {
+        target.beginUpdate();
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            target.setLandmark(i, source.x(i) + dx, source.y(i) + dy, source.z(i));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LetterDebouncerTest {
+    private static final long FRAME = 33_333;
+    private static final int A = Gestures.code("A");
+    private static final int B = Gestures.code("B");
+    private static final int L = Gestures.code("L");
+    private static final int V = Gestures.code("V");
+
+    @Test
+    public void ignoresSingleNoisyFrames() {
+        LetterDebouncer debouncer = new LetterDebouncer(5, 4, 1_000_000, 300_000);
+        int[] letters = {A, A, B, A, A, A, Gestures.code("C"), A, A};
+        int commits = 0;
+        for (int i = 0; i < letters.length; i++) {
+            int committed = debouncer.update(letters[i], i * FRAME);
+            if (committed != Gestures.NONE) {
+                assertEquals(A, committed);
+                commits++;
+            }
+        }
+        assertEquals(1, commits);
+        assertEquals(A, debouncer.getStableLetter());
+    }
+
+    @Test
+    public void repeatsHeldLettersOnPacketTime() {
+        LetterDebouncer debouncer = new LetterDebouncer(3, 2, 1_000_000, 300_000);
+        assertEquals(Gestures.NONE, debouncer.update(L, 0));
+        assertEquals(L, debouncer.update(L, FRAME));
+        assertEquals(Gestures.NONE, debouncer.update(L, 500_000));
+        assertEquals(L, debouncer.update(L, 1_000_000 + FRAME));
+    }
+
+    @Test
+    public void forgetsFramesAcrossGaps() {
+        LetterDebouncer debouncer = new LetterDebouncer(3, 2, 1_000_000, 300_000);
+        debouncer.update(V, 0);
+        // The hand was lost for a second, the old frame does not vote anymore.
+        assertEquals(Gestures.NONE, debouncer.update(V, 1_000_000));
+        assertEquals(V, debouncer.update(V, 1_000_000 + FRAME));
+    }
+
+    @Test
+    public void commitsTheVotesOfTheWindow() {
+        LetterDebouncer debouncer = new LetterDebouncer(5, 3, 1_000_000, 300_000);
+        int[] letters = {B, B, A, Gestures.NONE, A, A};
+        for (int i = 0; i < letters.length; i++) {
+            debouncer.update(letters[i], i * FRAME);
+        }
+        // The first B left the window.
+        GestureResult committed = debouncer.getCommitted();
+        assertEquals(A, committed.getCode());
+        assertEquals(0.6f, committed.getConfidence(A), 1e-6f);
+        assertEquals(0.2f, committed.getConfidence(B), 1e-6f);
+        assertEquals(0.2f, committed.getConfidence(Gestures.NONE), 1e-6f);
+
+        LetterScores scores = new LetterScores();
+        scores.setObserved(committed, 0.8f);
+        // A and B share the confidence by their votes, the other letters the rest.
+        assertEquals(-Math.log(0.8 * 0.75 + 0.2 * 0.25 / 25), scores.cost('A'), 1e-5);
+        assertEquals(-Math.log(0.8 * 0.25 + 0.2 * 0.75 / 25), scores.cost('B'), 1e-5);
+        assertEquals(-Math.log(0.2 / 25), scores.cost('C'), 1e-5);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LetterPresenterTest {
+    private final List<String> shown = new ArrayList<>();
+    private final GestureResult result = new GestureResult();
+    private int frameRequests;
+    private final LetterPresenter presenter =
+            new LetterPresenter(new SentenceBuilder(null, 4), 2, () -> frameRequests++);
+    private final LetterPresenter.Display display = new LetterPresenter.Display() {
+        @Override
+        public void showGesture(char[] text, int length) {
+            shown.add("gesture " + new String(text, 0, length));
+        }
+
+        @Override
+        public void showSentence(char[] text, int length) {
+            shown.add("sentence " + new String(text, 0, length));
+        }
+    };
+
+    @Test
+    public void asksForOneFrameAndShowsTheLatestState() {
+        presenter.publish();
+        presenter.render(display);
+        shown.clear();
+
+        presenter.setHandLetter(0, Gestures.code("A"));
+        presenter.publish();
+        presenter.setHandLetter(1, Gestures.code("B"));
+        presenter.publish();
+        commit("A");
+        presenter.publish();
+        assertEquals(2, frameRequests);
+
+        presenter.render(display);
+        assertEquals("[gesture A B, sentence A]", shown.toString());
+        // Nothing published since.
+        presenter.render(display);
+        assertEquals(2, shown.size());
+    }
+
+    @Test
+    public void onlyTouchesTheViewsThatChanged() {
+        presenter.setHandLetter(0, Gestures.code("A"));
+        presenter.publish();
+        presenter.render(display);
+        shown.clear();
+
+        commit("B");
+        presenter.publish();
+        presenter.render(display);
+        assertEquals("[sentence B]", shown.toString());
+
+        // Changed and back before the frame.
+        presenter.setHandLetter(0, Gestures.code("C"));
+        presenter.publish();
+        presenter.setHandLetter(0, Gestures.code("A"));
+        presenter.publish();
+        presenter.render(display);
+        assertEquals("[sentence B]", shown.toString());
+
+        // The held motion letter replaces the static ones.
+        presenter.setMotionLetter(1, Gestures.code("J"));
+        presenter.publish();
+        presenter.render(display);
+        presenter.setMotionLetter(1, Gestures.NONE);
+        presenter.publish();
+        presenter.render(display);
+        assertEquals("[sentence B, gesture J, gesture A]", shown.toString());
+    }
+
+    @Test
+    public void rendersWhileTheRecognitionThreadPublishes() throws InterruptedException {
+        int letters = 5_000;
+        Thread recognition = new Thread(() -> {
+            GestureResult result = new GestureResult();
+            for (int i = 0; i < letters; i++) {
+                // Every letter is a word of its own, the sentence grows by one character.
+                result.set(i % 2 == 0 ? Gestures.code("A") : Gestures.SPACE);
+                presenter.commitLetter(result, i);
+                presenter.publish();
+            }
+        });
+        int[] last = {0};
+        boolean[] consistent = {true};
+        LetterPresenter.Display lengths = new LetterPresenter.Display() {
+            @Override
+            public void showGesture(char[] text, int length) {
+            }
+
+            @Override
+            public void showSentence(char[] text, int length) {
+                char end = length % 2 == 1 ? 'A' : ' ';
+                consistent[0] &= length > last[0] && text[length - 1] == end;
+                last[0] = length;
+            }
+        };
+        recognition.start();
+        while (recognition.isAlive()) {
+            presenter.render(lengths);
+        }
+        presenter.render(lengths);
+        assertTrue(consistent[0]);
+        assertEquals(letters, last[0]);
+    }
+
+    private void commit(String letter) {
+        result.set(Gestures.code(letter));
+        presenter.commitLetter(result, 0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MotionTrackerTest {
+
+    @Test
+    public void keepsTheNewestSamplesWhenFull() {
+        MotionTracker tracker = new MotionTracker(4);
+        for (int i = 0; i < 10; i++) {
+            tracker.update(i * 100_000L, i * 0.01f, 0.5f, 0.3f);
+        }
+        assertEquals(4, tracker.size());
+        assertEquals(9 * 0.01f, tracker.centerX(0), 0);
+        assertEquals(6 * 0.01f, tracker.centerX(3), 0);
+        assertEquals(600_000L, tracker.timestamp(3));
+    }
+
+    @Test
+    public void measuresMovement() {
+        MotionTracker tracker = new MotionTracker(8);
+        // 0.01 to the right every 100 ms.
+        for (int i = 0; i < 5; i++) {
+            tracker.update(i * 100_000L, 0.5f + i * 0.01f, 0.5f, 0.3f);
+        }
+        assertEquals(0.04, tracker.displacement(4), 1e-6);
+        assertEquals(0.04, tracker.pathLength(4), 1e-6);
+        assertEquals(0.1, tracker.velocityX(4), 1e-5);
+        assertEquals(0, tracker.velocityY(4), 1e-6);
+        assertEquals(0, tracker.direction(4));
+    }
+}
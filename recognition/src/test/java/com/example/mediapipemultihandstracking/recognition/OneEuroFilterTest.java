@@ -0,0 +1,86 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import com.example.mediapipemultihandstracking.recognition.trace.TraceReplayer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OneEuroFilterTest {
+    private static final int FRAMES_PER_POSE = 20;
+    private static final float JITTER = 0.005f;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void passesTheFirstFrameThrough() {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame hand = new HandFrame();
+        hand.copyFrom(corpus.getHand(0));
+        new OneEuroFilter(1, 5, 1).filter(hand, 0);
+        assertArrayEquals(corpus.getHand(0).coordinates(), hand.coordinates(), 0);
+    }
+
+    @Test
+    public void halvesTheFlipsOfARecordedSession() throws IOException {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        File trace = folder.newFile("session.htrc");
+        SyntheticTraces.writeSigningSession(trace, corpus, FRAMES_PER_POSE, JITTER, 7);
+
+        GestureRuleEngine rules = GestureRuleEngine.loadDefault();
+        TraceReplayer replayer = new TraceReplayer(
+                new HandGestureCalculator(rules), new MotionGestureCalculator());
+        TraceReplayer.Result raw = replayer.replay(trace);
+        replayer.setLandmarkFilter(new OneEuroFilter(1, 5, 1));
+        TraceReplayer.Result filtered = replayer.replay(trace);
+
+        assertTrue(raw + " / " + filtered, filtered.flips * 2 < raw.flips);
+    }
+
+    @Test
+    public void keepsTheLatencyOfTheDebouncedLetter() {
+        double raw = meanLatency(null);
+        double filtered = meanLatency(new OneEuroFilter(1, 5, 1));
+        assertTrue(raw + " / " + filtered, filtered <= raw + 0.5);
+    }
+
+    /**
+     * Signs every pose of the corpus with jitter and measures how many frames it takes until the
+     * debounced letter is the one of the clean pose.
+     */
+    private static double meanLatency(OneEuroFilter filter) {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        GestureRuleEngine rules = GestureRuleEngine.loadDefault();
+        LetterDebouncer debouncer = new LetterDebouncer(5, 4, 1_000_000, 300_000);
+        Random random = new Random(11);
+        HandFrame hand = new HandFrame();
+        long timestamp = 0;
+        long frames = 0;
+        int reached = 0;
+        for (int pose = 0; pose < corpus.size(); pose++) {
+            int expected = rules.classify(corpus.getHand(pose));
+            for (int i = 0; i < FRAMES_PER_POSE; i++) {
+                timestamp += SyntheticTraces.FRAME_INTERVAL_MICROS;
+                SyntheticTraces.jitter(corpus.getHand(pose), hand, JITTER, random);
+                if (filter != null) {
+                    filter.filter(hand, timestamp);
+                }
+                debouncer.update(rules.classify(hand), timestamp);
+                if (debouncer.getStableLetter() == expected) {
+                    frames += i;
+                    reached++;
+                    break;
+                }
+            }
+        }
+        return frames / (double) reached;
+    }
+}
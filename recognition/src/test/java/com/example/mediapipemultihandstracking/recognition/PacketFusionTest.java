@@ -0,0 +1,227 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PacketFusionTest {
+    private static final long FRAME = 33_333;
+
+    private final LandmarkPacket.Pool pool = new LandmarkPacket.Pool(4);
+    private final List<Long> timestamps = new ArrayList<>();
+    private final List<String> halves = new ArrayList<>();
+    private final PacketFusion fusion = new PacketFusion(4, FRAME, pool, this::received);
+
+    @Test
+    public void joinsBothHalvesOfATimestamp() {
+        landmarks(0);
+        rects(0);
+        rects(FRAME);
+        landmarks(FRAME);
+        assertEquals("[0, 33333]", timestamps.toString());
+        assertEquals("[LR, LR]", halves.toString());
+        assertEquals(0, fusion.getPartialFrames());
+    }
+
+    @Test
+    public void sendsAFrameWithoutItsHalfOnceItsStreamMovesOn() {
+        landmarks(0);
+        assertTrue(timestamps.isEmpty());
+        rects(FRAME);
+        // The rectangles of the first frame come too late.
+        assertNull(fusion.beginRects(0));
+        landmarks(FRAME);
+
+        assertEquals("[0, 33333]", timestamps.toString());
+        assertEquals("[L, LR]", halves.toString());
+        assertEquals(1, fusion.getPartialFrames());
+        assertEquals(1, fusion.getLatePackets());
+    }
+
+    @Test
+    public void waitsForASilentStreamAtMostMaxWait() {
+        landmarks(0);
+        landmarks(FRAME);
+        assertTrue(timestamps.isEmpty());
+        landmarks(2 * FRAME);
+        assertEquals("[0]", timestamps.toString());
+        assertEquals("[L]", halves.toString());
+    }
+
+    @Test
+    public void waitsForAStreamRunningAFrameBehind() {
+        rects(0);
+        rects(FRAME);
+        landmarks(0);
+        rects(2 * FRAME);
+        landmarks(FRAME);
+        landmarks(2 * FRAME);
+        assertEquals("[0, 33333, 66666]", timestamps.toString());
+        assertEquals("[LR, LR, LR]", halves.toString());
+    }
+
+    @Test
+    public void sendsTheOldestFrameWhenTheRingIsFull() {
+        PacketFusion fusion = new PacketFusion(2, Long.MAX_VALUE, pool, this::received);
+        for (int frame = 0; frame < 3; frame++) {
+            HandRectPacket packet = fusion.beginRects(frame * FRAME);
+            packet.reset(frame * FRAME);
+            fusion.endRects(frame * FRAME, true);
+        }
+        assertEquals("[0]", timestamps.toString());
+        assertEquals("[R]", halves.toString());
+    }
+
+    @Test
+    public void joinsTheHandednessAsAThirdHalf() {
+        PacketFusion fusion = new PacketFusion(4, 0, true, pool, this::received);
+        LandmarkPacket packet = fusion.beginLandmarks(0);
+        packet.reset(0);
+        packet.addHand();
+        fusion.endLandmarks(0, true);
+        fusion.beginRects(0).reset(0);
+        fusion.endRects(0, true);
+        assertTrue(timestamps.isEmpty());
+        packet = fusion.beginHandedness(0);
+        packet.resetHandedness();
+        packet.addHandedness(0.9f);
+        fusion.endHandedness(0, true);
+
+        assertEquals("[0]", timestamps.toString());
+        assertEquals("[LRH]", halves.toString());
+        assertEquals(0.9f, packet.getLeftScore(0), 0);
+        assertEquals(0.5f, packet.getLeftScore(1), 0);
+    }
+
+    @Test
+    public void joinsStreamsOfTwoThreads() throws InterruptedException {
+        joinStreams(false);
+    }
+
+    @Test
+    public void joinsStreamsOfThreeThreads() throws InterruptedException {
+        joinStreams(true);
+    }
+
+    private void joinStreams(boolean handedness) throws InterruptedException {
+        int frames = 20_000;
+        int streams = handedness ? 3 : 2;
+        Random random = new Random(7);
+        boolean[][] skipped = new boolean[streams][frames];
+        for (int frame = 0; frame < frames; frame++) {
+            // Any half may be missing, not all of them.
+            int missing = random.nextInt(4 * streams);
+            if (missing < streams) {
+                skipped[missing][frame] = true;
+            }
+        }
+        List<LandmarkPacket> sent = new ArrayList<>();
+        long[] delivered = new long[streams];
+        int[] mixed = new int[1];
+        PacketFusion fusion = new PacketFusion(4, 0, handedness, pool, frame -> {
+            // All halves were written for this timestamp.
+            if (frame.hasLandmarks() && (long) frame.getHand(0).x(0) != frame.getTimestamp()
+                    || frame.hasRects() && (long) frame.getRects().xCenter(0)
+                    != frame.getTimestamp()
+                    || frame.hasHandedness() && (long) frame.getLeftScore(0)
+                    != frame.getTimestamp()) {
+                mixed[0]++;
+            }
+            sent.add(frame);
+        });
+        Thread[] threads = new Thread[streams];
+        threads[0] = new Thread(() -> {
+            for (int frame = 0; frame < frames; frame++) {
+                if (!skipped[0][frame]) {
+                    LandmarkPacket packet = fusion.beginLandmarks(frame);
+                    if (packet != null) {
+                        packet.reset(frame);
+                        packet.addHand().setLandmark(0, frame, 0, 0);
+                        fusion.endLandmarks(frame, true);
+                    }
+                    delivered[0]++;
+                }
+            }
+        });
+        threads[1] = new Thread(() -> {
+            for (int frame = 0; frame < frames; frame++) {
+                if (!skipped[1][frame]) {
+                    HandRectPacket packet = fusion.beginRects(frame);
+                    if (packet != null) {
+                        packet.reset(frame);
+                        packet.addRect(frame, 0, 0, 0, 0);
+                        fusion.endRects(frame, true);
+                    }
+                    delivered[1]++;
+                }
+            }
+        });
+        if (handedness) {
+            threads[2] = new Thread(() -> {
+                for (int frame = 0; frame < frames; frame++) {
+                    if (!skipped[2][frame]) {
+                        LandmarkPacket packet = fusion.beginHandedness(frame);
+                        if (packet != null) {
+                            packet.resetHandedness();
+                            packet.addHandedness(frame);
+                            fusion.endHandedness(frame, true);
+                        }
+                        delivered[2]++;
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, mixed[0]);
+        long joined = 0;
+        long previous = -1;
+        for (LandmarkPacket frame : sent) {
+            assertTrue(frame.getTimestamp() > previous);
+            previous = frame.getTimestamp();
+            joined += (frame.hasLandmarks() ? 1 : 0) + (frame.hasRects() ? 1 : 0)
+                    + (frame.hasHandedness() ? 1 : 0);
+        }
+        // Every half was either sent with its frame or counted as late, the last frame can
+        // still wait for its missing half.
+        assertFalse(sent.isEmpty());
+        long pending = -joined - fusion.getLatePackets();
+        for (long count : delivered) {
+            pending += count;
+        }
+        assertTrue("Pending halves: " + pending, pending >= 0 && pending < streams);
+    }
+
+    private void landmarks(long timestamp) {
+        LandmarkPacket packet = fusion.beginLandmarks(timestamp);
+        packet.reset(timestamp);
+        packet.addHand();
+        fusion.endLandmarks(timestamp, true);
+    }
+
+    private void rects(long timestamp) {
+        HandRectPacket packet = fusion.beginRects(timestamp);
+        packet.reset(timestamp);
+        packet.addRect(0.5f, 0.5f, 0.2f, 0.2f, 0);
+        fusion.endRects(timestamp, true);
+    }
+
+    private void received(LandmarkPacket frame) {
+        timestamps.add(frame.getTimestamp());
+        halves.add((frame.hasLandmarks() ? "L" : "") + (frame.hasRects() ? "R" : "")
+                + (frame.hasHandedness() ? "H" : ""));
+        pool.recycle(frame);
+    }
+}
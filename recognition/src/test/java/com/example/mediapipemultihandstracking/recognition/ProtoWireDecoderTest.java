@@ -0,0 +1,233 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProtoWireDecoderTest {
+
+    @Test
+    public void readsLandmarksLikeProtobuf() throws IOException {
+        SyntheticHands hands = new SyntheticHands(11);
+        ProtoWireDecoder decoder = new ProtoWireDecoder();
+        LandmarkPacket packet = new LandmarkPacket();
+        HandFrame hand = new HandFrame();
+        for (int sample = 0; sample < 500; sample++) {
+            byte[][] lists = new byte[1 + sample % LandmarkPacket.MAX_HANDS][];
+            for (int i = 0; i < lists.length; i++) {
+                hands.randomPose(hand);
+                lists[i] = LandmarkProtos.landmarkList(hand).toByteArray();
+            }
+            decoder.readLandmarks(lists, sample, packet);
+
+            assertEquals(sample, packet.getTimestamp());
+            assertEquals(lists.length, packet.getHandCount());
+            for (int i = 0; i < lists.length; i++) {
+                DynamicMessage list = DynamicMessage.parseFrom(LandmarkProtos.LANDMARK_LIST,
+                        lists[i]);
+                assertLandmarks(list, packet.getHand(i));
+            }
+        }
+    }
+
+    @Test
+    public void skipsUnknownFieldsAndKeepsTheLastValue() throws IOException {
+        HandFrame source = new HandFrame();
+        new SyntheticHands(4).randomPose(source);
+        DynamicMessage list = LandmarkProtos.landmarkList(source);
+        // Fields of every wire type the decoder does not know, and x written twice.
+        UnknownFieldSet unknown = UnknownFieldSet.newBuilder()
+                .addField(1, UnknownFieldSet.Field.newBuilder().addFixed32(
+                        Float.floatToIntBits(0.25f)).build())
+                .addField(9, UnknownFieldSet.Field.newBuilder().addVarint(-1L).build())
+                .addField(10, UnknownFieldSet.Field.newBuilder().addFixed64(42L).build())
+                .addField(11, UnknownFieldSet.Field.newBuilder().addLengthDelimited(
+                        ByteString.copyFromUtf8("left")).build())
+                .addField(12, UnknownFieldSet.Field.newBuilder().addFixed32(7).build())
+                .build();
+        DynamicMessage.Builder builder = list.toBuilder().setUnknownFields(unknown);
+        DynamicMessage landmark = LandmarkProtos.getLandmark(list, 3);
+        builder.setRepeatedField(LandmarkProtos.LANDMARK_LIST.findFieldByName("landmark"), 3,
+                landmark.toBuilder().setUnknownFields(unknown).build());
+        // A 22nd landmark without z, ignored.
+        builder.addRepeatedField(LandmarkProtos.LANDMARK_LIST.findFieldByName("landmark"),
+                DynamicMessage.newBuilder(LandmarkProtos.LANDMARK)
+                        .setField(LandmarkProtos.LANDMARK.findFieldByName("x"), 0.5f)
+                        .build());
+        byte[] bytes = builder.build().toByteArray();
+
+        HandFrame hand = new HandFrame();
+        new ProtoWireDecoder().readLandmarkList(bytes, hand);
+        DynamicMessage parsed = DynamicMessage.parseFrom(LandmarkProtos.LANDMARK_LIST, bytes);
+        assertLandmarks(parsed, hand);
+        assertEquals(0.25f, hand.x(3), 0);
+    }
+
+    @Test
+    public void readsRectsLikeProtobuf() throws IOException {
+        Random random = new Random(8);
+        ProtoWireDecoder decoder = new ProtoWireDecoder();
+        HandRectPacket packet = new HandRectPacket();
+        for (int sample = 0; sample < 500; sample++) {
+            byte[][] rects = new byte[1 + sample % (HandRectPacket.MAX_RECTS + 1)][];
+            for (int i = 0; i < rects.length; i++) {
+                rects[i] = LandmarkProtos.rect(random.nextFloat(), random.nextFloat(),
+                        random.nextFloat(), random.nextFloat(),
+                        (random.nextFloat() - 0.5f) * 6, random.nextLong()).toByteArray();
+            }
+            decoder.readRects(rects, sample, packet);
+
+            // Rectangles past MAX_RECTS are dropped.
+            int count = Math.min(rects.length, HandRectPacket.MAX_RECTS);
+            assertEquals(count, packet.getRectCount());
+            for (int i = 0; i < count; i++) {
+                DynamicMessage rect = DynamicMessage.parseFrom(LandmarkProtos.RECT, rects[i]);
+                assertBits(LandmarkProtos.getFloat(rect, "x_center"), packet.xCenter(i));
+                assertBits(LandmarkProtos.getFloat(rect, "y_center"), packet.yCenter(i));
+                assertBits(LandmarkProtos.getFloat(rect, "width"), packet.width(i));
+                assertBits(LandmarkProtos.getFloat(rect, "height"), packet.height(i));
+                assertBits(LandmarkProtos.getFloat(rect, "rotation"), packet.rotation(i));
+            }
+        }
+
+        // Missing fields read as 0.
+        packet.reset(0);
+        decoder.readRect(new byte[0], packet);
+        assertEquals(0, packet.width(0), 0);
+        assertEquals(0, packet.rotation(0), 0);
+    }
+
+    @Test
+    public void rejectsWhatProtobufRejects() throws IOException {
+        HandFrame hand = new HandFrame();
+        new SyntheticHands(2).randomPose(hand);
+        byte[] list = LandmarkProtos.landmarkList(hand).toByteArray();
+        ProtoWireDecoder decoder = new ProtoWireDecoder();
+        int rejected = 0;
+        for (int length = 1; length < list.length; length++) {
+            byte[] truncated = Arrays.copyOf(list, length);
+            if (parses(LandmarkProtos.LANDMARK_LIST, truncated)) {
+                continue;
+            }
+            rejected++;
+            try {
+                decoder.readLandmarkList(truncated, new HandFrame());
+                fail("Truncated at " + length);
+            } catch (IOException expected) {
+            }
+        }
+        assertTrue(rejected > list.length / 2);
+
+        byte[] rect = LandmarkProtos.rect(0.5f, 0.5f, 0.2f, 0.3f, 1, 7).toByteArray();
+        for (int length = 1; length < rect.length; length++) {
+            byte[] truncated = Arrays.copyOf(rect, length);
+            HandRectPacket packet = new HandRectPacket();
+            try {
+                decoder.readRect(truncated, packet);
+                // Cut between two fields, the first fields are kept.
+                assertTrue(parses(LandmarkProtos.RECT, truncated));
+                DynamicMessage parsed = DynamicMessage.parseFrom(LandmarkProtos.RECT, truncated);
+                assertBits(LandmarkProtos.getFloat(parsed, "width"), packet.width(0));
+                assertBits(LandmarkProtos.getFloat(parsed, "rotation"), packet.rotation(0));
+            } catch (IOException e) {
+                assertFalse(parses(LandmarkProtos.RECT, truncated));
+            }
+        }
+
+        // A group is skipped like any unknown field.
+        byte[] group = {11, 13, 0, 0, -128, 63, 12, 21, 0, 0, -128, 63};
+        assertTrue(parses(LandmarkProtos.RECT, group));
+        HandRectPacket packet = new HandRectPacket();
+        decoder.readRect(group, packet);
+        assertEquals(0, packet.xCenter(0), 0);
+        assertEquals(1, packet.yCenter(0), 0);
+
+        // Field number 0, an unterminated group and a stray end group.
+        for (byte[] invalid : new byte[][] {{5, 0, 0, 0, 0}, {11, 13, 0, 0, 0, 0}, {12}}) {
+            assertFalse(parses(LandmarkProtos.RECT, invalid));
+            try {
+                decoder.readRect(invalid, new HandRectPacket());
+                fail(Arrays.toString(invalid));
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void rejectsAHandWithMissingLandmarks() throws IOException {
+        HandFrame hand = new HandFrame();
+        new SyntheticHands(6).randomPose(hand);
+        DynamicMessage list = LandmarkProtos.landmarkList(hand);
+        DynamicMessage.Builder partial = DynamicMessage.newBuilder(LandmarkProtos.LANDMARK_LIST);
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS - 1; i++) {
+            partial.addRepeatedField(LandmarkProtos.LANDMARK_LIST.findFieldByName("landmark"),
+                    LandmarkProtos.getLandmark(list, i));
+        }
+        try {
+            new ProtoWireDecoder().readLandmarks(
+                    new byte[][] {partial.build().toByteArray()}, 0, new LandmarkPacket());
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void readsTheLeftScoreOfTheTopHandednessLabel() throws IOException {
+        DynamicMessage right = LandmarkProtos.handedness("Right", 0.75f);
+        DynamicMessage both = right.toBuilder()
+                .addRepeatedField(LandmarkProtos.CLASSIFICATION_LIST.findFieldByName(
+                        "classification"), LandmarkProtos.handedness("Left", 0.25f)
+                        .getRepeatedField(LandmarkProtos.CLASSIFICATION_LIST.findFieldByName(
+                                "classification"), 0))
+                .build();
+        byte[][] hands = {
+                LandmarkProtos.handedness("Left", 0.9f).toByteArray(),
+                both.toByteArray(),
+                new byte[0],
+        };
+        LandmarkPacket packet = new LandmarkPacket();
+        new ProtoWireDecoder().readHandedness(hands, packet);
+        packet.setHalves(0, true, false, true);
+
+        assertEquals(0.9f, packet.getLeftScore(0), 1e-6f);
+        assertEquals(0.25f, packet.getLeftScore(1), 1e-6f);
+        // No label, and no fourth hand.
+        assertEquals(0.5f, packet.getLeftScore(2), 0);
+        assertEquals(0.5f, packet.getLeftScore(3), 0);
+    }
+
+    private static void assertLandmarks(DynamicMessage list, HandFrame hand) {
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            DynamicMessage landmark = LandmarkProtos.getLandmark(list, i);
+            assertBits(LandmarkProtos.getFloat(landmark, "x"), hand.x(i));
+            assertBits(LandmarkProtos.getFloat(landmark, "y"), hand.y(i));
+            assertBits(LandmarkProtos.getFloat(landmark, "z"), hand.z(i));
+        }
+    }
+
+    private static void assertBits(float expected, float actual) {
+        assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+    }
+
+    private static boolean parses(Descriptor type, byte[] bytes) {
+        try {
+            DynamicMessage.parseFrom(type, bytes);
+            return true;
+        } catch (InvalidProtocolBufferException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecognitionPipelineTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final BlockingQueue<Long> processed = new LinkedBlockingQueue<>();
+    private final List<Long> recycled = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch firstStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+    private final RecognitionPipeline<Frame> pipeline = new RecognitionPipeline<>("Test",
+            frame -> {
+                maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+                try {
+                    process(frame);
+                } finally {
+                    concurrentCalls.decrementAndGet();
+                }
+            },
+            frame -> recycled.add(frame.timestamp));
+
+    @After
+    public void stopPipeline() {
+        release.countDown();
+        pipeline.stop();
+    }
+
+    @Test
+    public void replacesThePendingFrameWhileTheThreadIsBusy() throws InterruptedException {
+        pipeline.start();
+        assertFalse(pipeline.submit(new Frame(0)));
+        await(firstStarted);
+
+        // The thread is busy with frame 0, every newer frame replaces the pending one.
+        assertFalse(pipeline.submit(new Frame(1)));
+        assertTrue(pipeline.submit(new Frame(2)));
+        assertTrue(pipeline.submit(new Frame(3)));
+        assertEquals(2, pipeline.getDroppedFrames());
+        assertEquals("[1, 2]", recycled.toString());
+
+        release.countDown();
+        assertEquals(0L, (long) processed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(3L, (long) processed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        pipeline.stop();
+
+        // Processed frames are recycled too, each frame exactly once.
+        assertEquals("[1, 2, 0, 3]", recycled.toString());
+        assertEquals(2, pipeline.getProcessedFrames());
+        assertTrue(processed.isEmpty());
+    }
+
+    @Test
+    public void stopRecyclesThePendingFrame() {
+        pipeline.start();
+        pipeline.submit(new Frame(0));
+        await(firstStarted);
+        assertFalse(pipeline.submit(new Frame(1)));
+        release.countDown();
+        pipeline.stop();
+        // Frame 1 was either processed or discarded by stop, and recycled either way.
+        assertEquals(2, recycled.size());
+        assertTrue(recycled.contains(1L));
+        assertEquals(0, pipeline.getDroppedFrames());
+    }
+
+    @Test
+    public void recyclesFramesSubmittedWhileStopped() throws InterruptedException {
+        assertFalse(pipeline.submit(new Frame(1)));
+        pipeline.start();
+        pipeline.stop();
+        assertFalse(pipeline.submit(new Frame(2)));
+        assertEquals("[1, 2]", recycled.toString());
+
+        // Neither frame reaches the processor after a restart.
+        release.countDown();
+        pipeline.start();
+        pipeline.submit(new Frame(3));
+        assertEquals(3L, (long) processed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        pipeline.stop();
+        assertTrue(processed.isEmpty());
+        assertEquals(1, pipeline.getProcessedFrames());
+    }
+
+    @Test
+    public void stopWaitsForTheFrameBeingProcessed() throws InterruptedException {
+        pipeline.start();
+        pipeline.submit(new Frame(0));
+        await(firstStarted);
+        Thread stopper = new Thread(pipeline::stop);
+        stopper.start();
+        // Longer than any frame takes, stop keeps waiting anyway.
+        stopper.join(600);
+        assertTrue(stopper.isAlive());
+
+        release.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(stopper.isAlive());
+        assertEquals(0L, (long) processed.poll());
+
+        // The old thread is gone, only the new one processes frames.
+        pipeline.start();
+        for (long timestamp = 1; timestamp <= 20; timestamp++) {
+            pipeline.submit(new Frame(timestamp));
+            Thread.sleep(1);
+        }
+        assertEquals(1, countThreads("Test"));
+        pipeline.stop();
+        assertEquals(1, maxConcurrentCalls.get());
+        assertEquals(0, countThreads("Test"));
+    }
+
+    @Test
+    public void reportsFailuresAndGoesOnWithTheNextFrame() throws InterruptedException {
+        pipeline.setErrorListener(error -> errors.add(error.getMessage()));
+        release.countDown();
+        pipeline.start();
+        pipeline.submit(new Frame(-1));
+        waitForRecycled(1);
+        pipeline.submit(new Frame(4));
+
+        assertEquals(4L, (long) processed.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // The count is bumped after the processor returns, the thread has to be done.
+        pipeline.stop();
+        assertEquals("[bad frame -1]", errors.toString());
+        assertEquals(1, pipeline.getProcessedFrames());
+    }
+
+    private void process(Frame frame) {
+        if (frame.timestamp == 0) {
+            // Holds the recognition thread busy with the first frame.
+            firstStarted.countDown();
+            await(release);
+        }
+        if (frame.timestamp < 0) {
+            throw new IllegalStateException("bad frame " + frame.timestamp);
+        }
+        processed.add(frame.timestamp);
+    }
+
+    private void waitForRecycled(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (recycled.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, recycled.size());
+    }
+
+    private static int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Frame implements Timestamped {
+        final long timestamp;
+
+        Frame(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
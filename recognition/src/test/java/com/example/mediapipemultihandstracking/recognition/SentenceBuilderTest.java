@@ -0,0 +1,97 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SentenceBuilderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheLettersAsReadWithoutLexicon() {
+        SentenceBuilder sentence = new SentenceBuilder(null, 4);
+        sign(sentence, "H", "E", "L", "P", "SPACE", "X");
+        assertEquals("HELP X", sentence.toString());
+        sentence.clear();
+        assertEquals("", sentence.toString());
+    }
+
+    @Test
+    public void correctsMisreadLetters() {
+        SentenceBuilder sentence = newSentenceBuilder();
+        // A substituted letter, then a spurious one.
+        sign(sentence, "H", "E", "L", "K", "O", "SPACE", "T", "H", "A", "N", "J", "K", "SPACE");
+        assertEquals("HELLO THANK ", sentence.toString());
+    }
+
+    @Test
+    public void keepsUnknownWords() {
+        SentenceBuilder sentence = newSentenceBuilder();
+        sign(sentence, "M", "P", "X", "SPACE", "M", "Y", "SPACE");
+        assertEquals("MPX MY ", sentence.toString());
+    }
+
+    @Test
+    public void showsTheWordWhileItIsSigned() {
+        SentenceBuilder sentence = newSentenceBuilder();
+        sign(sentence, "G", "O", "SPACE", "H", "O");
+        assertEquals("GO HO", sentence.toString());
+        assertEquals('H', sentence.charAt(3));
+        assertEquals("HO", sentence.subSequence(3, 5).toString());
+        char[] chars = new char[2];
+        sentence.getChars(0, 2, chars, 0);
+        assertEquals("GO", new String(chars));
+        sign(sentence, "M", "E");
+        assertEquals("GO HOME", sentence.toString());
+    }
+
+    @Test
+    public void readsAMappedLexicon() throws Exception {
+        LexiconBuilder builder = new LexiconBuilder();
+        builder.add("to");
+        builder.add("the");
+        builder.add("tea");
+        File file = folder.newFile("lexicon.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3});
+            out.write(builder.toByteArray());
+        }
+        Lexicon lexicon;
+        try (FileInputStream in = new FileInputStream(file)) {
+            lexicon = Lexicon.map(in.getChannel(), 3, file.length() - 3);
+        }
+        int t = lexicon.child(Lexicon.ROOT, 'T');
+        int th = lexicon.child(t, 'H');
+        int the = lexicon.child(th, 'E');
+        assertEquals(Lexicon.NONE, lexicon.child(t, 'X'));
+        assertFalse(lexicon.isWord(th));
+        assertTrue(lexicon.isWord(the));
+        // The more frequent word costs less, and the cost of a prefix is its best word.
+        assertTrue(lexicon.wordCost(lexicon.child(t, 'O')) < lexicon.wordCost(the));
+        assertEquals(lexicon.wordCost(the), lexicon.prefixCost(th), 0);
+        char[] letters = new char[3];
+        assertEquals(3, lexicon.spell(the, letters, 0));
+        assertEquals("THE", new String(letters));
+    }
+
+    private static SentenceBuilder newSentenceBuilder() {
+        return new SentenceBuilder(LexiconBuilder.loadDefault().build(),
+                SentenceBuilder.DEFAULT_BEAM_WIDTH);
+    }
+
+    private static void sign(SentenceBuilder sentence, String... letters) {
+        for (String letter : letters) {
+            sentence.addLetter(Gestures.code(letter));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ThresholdProfileTest {
+
+    @Test
+    public void missingKeysKeepTheirDefault() throws IOException {
+        ThresholdProfile profile = parse("{\"name\": \"low end\", \"maxFrameStride\": 4,\n"
+                + " \"letterRepeatIntervalMillis\": 1200, \"nearDistance\": 0.08}");
+        assertEquals("low end", profile.getName());
+        assertEquals(4, profile.getMaxFrameStride());
+        assertEquals(0.08, profile.getNearDistance(), 0);
+        assertEquals(ThresholdProfile.DEFAULT.getReuseThreshold(), profile.getReuseThreshold(), 0);
+        assertEquals(ThresholdProfile.DEFAULT.getLetterWindowSize(),
+                profile.getLetterWindowSize());
+
+        assertEquals(ThresholdProfile.DEFAULT.toString(), parse("{}").toString());
+    }
+
+    @Test
+    public void rejectsMalformedProfiles() throws IOException {
+        String[] malformed = {
+                "", "{", "{\"nearDistance\" 0.1}", "{\"nearDistance\": \"far\"}",
+                "{\"nearDistance\": 0.1,}", "{\"nearDistance\": 0.1} {}", "{\"nearDist\": 0.1}",
+                "{\"nearDistance\": -0.1}", "{\"letterWindowSize\": 2.5}",
+                "{\"letterWindowSize\": 3, \"letterMinVotes\": 4}",
+        };
+        for (String profile : malformed) {
+            try {
+                parse(profile);
+                fail(profile);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void rulesUseTheNearDistanceOfTheProfile() throws IOException {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame a = corpus.getHand(corpus.indicesOf("A")[0]);
+        GestureRuleEngine rules = GestureRuleEngine.loadDefault();
+        assertSame(rules, rules.withThresholds(ThresholdProfile.DEFAULT));
+        assertEquals(Gestures.A, rules.classify(a));
+        // No two landmarks are closer than 0.
+        assertEquals(Gestures.NONE,
+                rules.withThresholds(parse("{\"nearDistance\": 0}")).classify(a));
+    }
+
+    @Test
+    public void recognizerSwitchesAtTheNextPacket() throws IOException {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        HandFrame a = corpus.getHand(corpus.indicesOf("A")[0]);
+        List<String> commits = new ArrayList<>();
+        HandRecognizer recognizer = new HandRecognizer(
+                new HandGestureCalculator(GestureRuleEngine.loadDefault()), 1,
+                ThresholdProfile.DEFAULT::newLetterDebouncer, new LetterListener() {
+            @Override
+            public void onLetterChanged(int hand, int letter) {
+            }
+
+            @Override
+            public void onLetterCommitted(int hand, GestureResult result) {
+                commits.add(Gestures.name(result.getCode()));
+            }
+        });
+
+        LandmarkPacket packet = new LandmarkPacket();
+        packet.reset(0);
+        packet.addHand().copyFrom(a);
+        recognizer.process(packet);
+        // The default profile needs 4 votes.
+        assertEquals(0, commits.size());
+
+        recognizer.setThresholds(parse("{\"letterWindowSize\": 1, \"letterMinVotes\": 1}"));
+        packet.reset(33_333);
+        packet.addHand().copyFrom(a);
+        recognizer.process(packet);
+        assertEquals("[A]", commits.toString());
+    }
+
+    private static ThresholdProfile parse(String profile) throws IOException {
+        return ThresholdProfile.parse(new StringReader(profile));
+    }
+}
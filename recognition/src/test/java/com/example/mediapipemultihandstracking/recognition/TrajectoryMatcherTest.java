@@ -0,0 +1,131 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrajectoryMatcherTest {
+    private static final long FRAME = 33_333;
+    private static final float HAND_HEIGHT = 0.3f;
+
+    private static final float[] Z = {0, 0, 1, 0, 0, 1, 1, 1};
+    private static final float[] MIRRORED_Z = {1, 0, 0, 0, 1, 1, 0, 1};
+    private static final float[] J = {0, 0, 0, 0.6f, -0.1f, 0.85f, -0.3f, 0.95f, -0.5f, 0.8f};
+
+    @Test
+    public void recognizesZWhateverItsSizeAndSpeed() {
+        TrajectoryMatcher matcher = TrajectoryMatcher.loadDefault();
+        Random random = new Random(1);
+        for (float size : new float[]{0.15f, 0.3f}) {
+            for (int frames : new int[]{15, 20, 28}) {
+                MotionTracker tracker = draw(Z, size, frames, random);
+                assertEquals("Z", match(matcher, tracker, TrajectoryMatcher.RECT_CENTER, null));
+                // Asking again does not change the answer.
+                assertEquals("Z", match(matcher, tracker, TrajectoryMatcher.RECT_CENTER, null));
+                tracker = draw(MIRRORED_Z, size, frames, random);
+                assertEquals("Z", match(matcher, tracker, TrajectoryMatcher.RECT_CENTER, null));
+            }
+        }
+    }
+
+    @Test
+    public void recognizesJOnlyFromAPinkyPose() {
+        TrajectoryMatcher matcher = TrajectoryMatcher.loadDefault();
+        MotionTracker tracker = draw(J, 0.12f, 20, new Random(2));
+        assertEquals("J", match(matcher, tracker, 20, "J"));
+        assertEquals("J", match(matcher, tracker, 20, "I"));
+        assertEquals("", match(matcher, tracker, 20, "A"));
+        assertEquals("", match(matcher, tracker, 8, "J"));
+    }
+
+    @Test
+    public void ignoresOtherMovements() {
+        TrajectoryMatcher matcher = TrajectoryMatcher.loadDefault();
+        Random random = new Random(3);
+        float[] still = {0, 0, 0, 0.001f};
+        float[] swipe = {0, 0, 1, 0};
+        float[] vee = {0, 0, 0.5f, 1, 1, 0};
+        float[] circle = new float[34];
+        for (int i = 0; i < 17; i++) {
+            circle[2 * i] = (float) Math.cos(i * Math.PI / 8);
+            circle[2 * i + 1] = (float) Math.sin(i * Math.PI / 8);
+        }
+        for (float[] path : new float[][]{still, swipe, vee, circle}) {
+            MotionTracker tracker = draw(path, 0.2f, 20, random);
+            assertEquals("", match(matcher, tracker, TrajectoryMatcher.RECT_CENTER, null));
+            assertEquals("", match(matcher, tracker, 8, "D"));
+        }
+        assertEquals("", match(matcher, new MotionTracker(8), TrajectoryMatcher.RECT_CENTER, null));
+    }
+
+    @Test
+    public void compilesTemplates() throws Exception {
+        TrajectoryMatcher matcher = TrajectoryMatcher.compile(new StringReader(
+                "# comment\n\nL 4 * 0,0 0,1 1,1\nZ rect * 0,0 1,0 0,1 1,1\n"));
+        assertEquals(1, matcher.getLandmarkSources().length);
+        assertEquals(4, matcher.getLandmarkSources()[0]);
+        MotionTracker tracker = draw(new float[]{0, 0, 0, 1, 1, 1}, 0.2f, 20, new Random(4));
+        assertEquals("L", match(matcher, tracker, 4, "A"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedTemplates() throws Exception {
+        TrajectoryMatcher.compile(new StringReader("Z 8 * 0,0 1\n"));
+    }
+
+    /**
+     * @param pose Name of the pose, null when unknown
+     * @return Name of the matched gesture
+     */
+    private static String match(TrajectoryMatcher matcher, MotionTracker tracker, int source,
+                                String pose) {
+        int code = pose == null ? Gestures.NONE : Gestures.code(pose);
+        return Gestures.name(matcher.match(tracker, source, code));
+    }
+
+    /**
+     * Draws a path through corners at constant speed, after a short pause on the first corner,
+     * with a little noise.
+     *
+     * @param corners x,y pairs in units of size
+     * @param size Size of the drawing, in normalized image units
+     * @param frames Number of frames spent drawing
+     */
+    private static MotionTracker draw(float[] corners, float size, int frames, Random random) {
+        int count = corners.length / 2;
+        float[] cumulative = new float[count];
+        for (int i = 1; i < count; i++) {
+            cumulative[i] = cumulative[i - 1] + (float) Math.hypot(
+                    corners[2 * i] - corners[2 * i - 2], corners[2 * i + 1] - corners[2 * i - 1]);
+        }
+        MotionTracker tracker = new MotionTracker(40);
+        int frame = 0;
+        for (int i = 0; i < 5; i++, frame++) {
+            tracker.update(frame * FRAME, 0.3f + corners[0] * size + noise(random),
+                    0.3f + corners[1] * size + noise(random), HAND_HEIGHT);
+        }
+        for (int i = 1; i <= frames; i++, frame++) {
+            float at = cumulative[count - 1] * i / frames;
+            int segment = 1;
+            while (segment < count - 1 && cumulative[segment] < at) {
+                segment++;
+            }
+            float length = cumulative[segment] - cumulative[segment - 1];
+            float t = length == 0 ? 0 : (at - cumulative[segment - 1]) / length;
+            float x = corners[2 * segment - 2]
+                    + t * (corners[2 * segment] - corners[2 * segment - 2]);
+            float y = corners[2 * segment - 1]
+                    + t * (corners[2 * segment + 1] - corners[2 * segment - 1]);
+            tracker.update(frame * FRAME, 0.3f + x * size + noise(random),
+                    0.3f + y * size + noise(random), HAND_HEIGHT);
+        }
+        return tracker;
+    }
+
+    private static float noise(Random random) {
+        return (float) random.nextGaussian() * 0.002f;
+    }
+}
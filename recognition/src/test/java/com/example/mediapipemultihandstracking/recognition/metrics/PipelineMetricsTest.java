@@ -0,0 +1,89 @@
+package com.example.mediapipemultihandstracking.recognition.metrics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void bucketsAreContiguousAndNarrow() {
+        for (int i = 0; i + 1 < LatencyHistogram.BUCKET_COUNT; i++) {
+            long low = LatencyHistogram.bucketLowerBound(i);
+            long high = LatencyHistogram.bucketLowerBound(i + 1);
+            assertEquals(i, LatencyHistogram.bucketIndex(low));
+            assertEquals(i, LatencyHistogram.bucketIndex(high - 1));
+            assertTrue(i + ": " + low + ".." + high,
+                    high - low <= Math.max(1, low / LatencyHistogram.SUB_BUCKETS));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1,
+                LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void quantilesStayWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 to 10 ms, evenly.
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        assertEquals(10_000, histogram.copyCounts(counts));
+        for (double quantile : new double[] {0.1, 0.5, 0.9, 0.99}) {
+            double expected = quantile * 10_000_000;
+            long value = LatencyHistogram.valueAtQuantile(counts, quantile);
+            assertEquals("p" + quantile, expected, value, expected * 0.125);
+        }
+        assertEquals(10_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void readsBackADump() throws IOException, InterruptedException {
+        PipelineMetrics metrics = new PipelineMetrics(16);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    metrics.record(PipelineMetrics.STAGE_CLASSIFY, i, 2_000);
+                    metrics.increment(PipelineMetrics.COUNTER_HANDS);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        metrics.markArrival(42, 1_000_000);
+        metrics.recordShown(42, 31_000_000);
+        // Unknown packets are not measured.
+        metrics.recordShown(43, 31_000_000);
+        metrics.set(PipelineMetrics.COUNTER_DROPPED, 7);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metrics.writeTo(out, "test device");
+        MetricsSnapshot snapshot =
+                MetricsSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals("test device", snapshot.getLabel());
+        assertEquals(4_000, snapshot.getCounter("classified hands"));
+        assertEquals(7, snapshot.getCounter("dropped packets"));
+        int classify = snapshot.indexOfStage("classify");
+        assertEquals(4_000, snapshot.getCount(classify));
+        assertEquals(2_000, snapshot.getMeanNanos(classify), 0);
+        int endToEnd = snapshot.indexOfStage("end to end");
+        assertEquals(1, snapshot.getCount(endToEnd));
+        assertEquals(30_000_000, snapshot.getMaxNanos(endToEnd));
+
+        assertEquals(16, snapshot.getSpanCount());
+        int last = snapshot.getSpanCount() - 1;
+        assertEquals(PipelineMetrics.STAGE_END_TO_END, snapshot.getSpanStage(last));
+        assertEquals(42, snapshot.getSpanTimestamp(last));
+        assertEquals(30_000_000, snapshot.getSpanNanos(last));
+        assertTrue(snapshot.compareTo(snapshot).contains("+0.0%"));
+    }
+}
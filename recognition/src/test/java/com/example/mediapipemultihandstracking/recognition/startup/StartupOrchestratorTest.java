@@ -0,0 +1,128 @@
+package com.example.mediapipemultihandstracking.recognition.startup;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StartupOrchestratorTest {
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final StartupOrchestrator.Listener listener = new StartupOrchestrator.Listener() {
+        @Override
+        public void onPhaseDone(String name, long startNanos, long durationNanos) {
+            assertTrue(startNanos >= 0 && durationNanos >= 0);
+            events.add("done " + name);
+        }
+
+        @Override
+        public void onStartupDone(long totalNanos) {
+            events.add("startup done");
+            finished.countDown();
+        }
+
+        @Override
+        public void onStartupFailed(String name, Throwable error) {
+            events.add("failed " + name + ": " + error.getMessage());
+            finished.countDown();
+        }
+    };
+
+    @Test
+    public void runsEveryPhaseAfterItsDependencies() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run, Runnable::run,
+                listener);
+        startup.addPhase("graph", false, () -> events.add("run graph"), "libraries", "assets");
+        startup.addPhase("assets", false, () -> events.add("run assets"), "libraries");
+        startup.addPhase("libraries", false, () -> events.add("run libraries"));
+        startup.addPhase("camera", true, () -> events.add("run camera"), "graph", "permission");
+        startup.addSignal("permission");
+        startup.signal("permission");
+        startup.start();
+
+        // Signaled before the start, done as the startup starts.
+        assertEquals("[done permission, run libraries, done libraries, run assets, done assets, "
+                + "run graph, done graph, run camera, done camera, startup done]",
+                events.toString());
+        assertTrue(startup.isDone("camera"));
+    }
+
+    @Test
+    public void overlapsBackgroundPhasesWhileWaitingForASignal() throws InterruptedException {
+        ExecutorService background = Executors.newFixedThreadPool(2);
+        ExecutorService main = Executors.newSingleThreadExecutor();
+        try {
+            StartupOrchestrator startup = new StartupOrchestrator(background, main, listener);
+            // Each phase only ends once the other one started.
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            StartupOrchestrator.Phase overlapping = () -> {
+                bothStarted.countDown();
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Not overlapped");
+                }
+            };
+            startup.addPhase("libraries", false, overlapping);
+            startup.addPhase("views", false, overlapping);
+            startup.addSignal("permission");
+            startup.addPhase("camera", true, () -> events.add("run camera"),
+                    "libraries", "views", "permission");
+            startup.start();
+
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            assertFalse(finished.await(50, TimeUnit.MILLISECONDS));
+            assertFalse(startup.isDone("camera"));
+            startup.signal("permission");
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+            assertEquals("[done permission, run camera, done camera, startup done]",
+                    events.subList(2, events.size()).toString());
+            assertTrue(startup.getDurationNanos("permission") >= 50_000_000);
+        } finally {
+            background.shutdown();
+            main.shutdown();
+        }
+    }
+
+    @Test
+    public void skipsThePhasesDependingOnAFailedOne() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run, Runnable::run,
+                listener);
+        startup.addPhase("libraries", false, () -> {
+            throw new UnsatisfiedLinkError("no mediapipe_jni");
+        });
+        startup.addPhase("assets", false, () -> {
+            throw new IOException("no assets");
+        });
+        startup.addPhase("graph", false, () -> events.add("run graph"), "libraries");
+        startup.start();
+
+        assertEquals("[failed libraries: no mediapipe_jni]", events.toString());
+        assertFalse(startup.isDone("graph"));
+        assertEquals(-1, startup.getDurationNanos("graph"));
+    }
+
+    @Test
+    public void rejectsPhasesThatCanNeverStart() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run, Runnable::run,
+                listener);
+        startup.addPhase("graph", false, () -> { }, "libraries");
+        startup.addPhase("libraries", false, () -> { }, "graph");
+        try {
+            startup.start();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(events.isEmpty());
+    }
+}
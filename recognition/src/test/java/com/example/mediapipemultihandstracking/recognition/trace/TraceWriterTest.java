@@ -0,0 +1,104 @@
+package com.example.mediapipemultihandstracking.recognition.trace;
+
+import com.example.mediapipemultihandstracking.recognition.HandFrame;
+import com.example.mediapipemultihandstracking.recognition.HandRectPacket;
+import com.example.mediapipemultihandstracking.recognition.LandmarkCorpus;
+import com.example.mediapipemultihandstracking.recognition.LandmarkPacket;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TraceWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysTheExactPackets() throws IOException {
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        File file = folder.newFile("corpus.htrc");
+        LandmarkPacket landmarks = new LandmarkPacket();
+        HandRectPacket rects = new HandRectPacket();
+        try (TraceWriter writer = TraceWriter.create(file)) {
+            for (int i = 0; i < corpus.size(); i++) {
+                fill(corpus, i, landmarks, rects);
+                writer.writeLandmarks(landmarks);
+                writer.writeRects(rects);
+            }
+        }
+
+        LandmarkPacket readLandmarks = new LandmarkPacket();
+        HandRectPacket readRects = new HandRectPacket();
+        try (TraceReader reader = TraceReader.open(file)) {
+            for (int i = 0; i < corpus.size(); i++) {
+                fill(corpus, i, landmarks, rects);
+                assertEquals(TraceReader.LANDMARKS, reader.next(readLandmarks, readRects));
+                assertEquals(landmarks.getTimestamp(), readLandmarks.getTimestamp());
+                assertEquals(landmarks.getHandCount(), readLandmarks.getHandCount());
+                for (int hand = 0; hand < landmarks.getHandCount(); hand++) {
+                    assertBitsEqual(landmarks.getHand(hand).coordinates(),
+                            readLandmarks.getHand(hand).coordinates(), HandFrame.NUM_COORDINATES);
+                }
+                assertEquals(TraceReader.RECTS, reader.next(readLandmarks, readRects));
+                assertEquals(rects.getTimestamp(), readRects.getTimestamp());
+                assertEquals(rects.getRectCount(), readRects.getRectCount());
+                assertBitsEqual(rects.values(), readRects.values(),
+                        rects.getRectCount() * HandRectPacket.RECT_STRIDE);
+            }
+            assertEquals(TraceReader.END, reader.next(readLandmarks, readRects));
+        }
+    }
+
+    @Test
+    public void stopsAtTheEndOfAnUnclosedTrace() throws IOException {
+        File file = folder.newFile("unclosed.htrc");
+        LandmarkCorpus corpus = LandmarkCorpus.load();
+        LandmarkPacket landmarks = new LandmarkPacket();
+        TraceWriter writer = TraceWriter.create(file);
+        corpus.copyTo(0, landmarks);
+        writer.writeLandmarks(landmarks);
+        long length = writer.length();
+
+        // Simulates a crash: the mapped bytes reach the file but it is never truncated.
+        try (RandomAccessFile copy = new RandomAccessFile(folder.newFile("copy.htrc"), "rw");
+             RandomAccessFile original = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) original.length()];
+            original.readFully(bytes);
+            copy.write(bytes);
+            assertTrue(bytes.length > length);
+        }
+        writer.close();
+
+        try (TraceReader reader = TraceReader.open(new File(folder.getRoot(), "copy.htrc"))) {
+            assertEquals(TraceReader.LANDMARKS, reader.next(landmarks, new HandRectPacket()));
+            assertEquals(TraceReader.END, reader.next(landmarks, new HandRectPacket()));
+        }
+    }
+
+    private static void fill(LandmarkCorpus corpus, int index, LandmarkPacket landmarks,
+                             HandRectPacket rects) {
+        // Every third packet has no hand, the others one or two.
+        long timestamp = 33_333L * index;
+        landmarks.reset(timestamp);
+        rects.reset(timestamp);
+        int hands = index % 3;
+        for (int hand = 0; hand < hands; hand++) {
+            HandFrame source = corpus.getHand((index + hand) % corpus.size());
+            landmarks.addHand().copyFrom(source);
+            rects.addRect(source.x(9), source.y(9), 0.3f, 0.3f + hand, -0.1f * index);
+        }
+    }
+
+    private static void assertBitsEqual(float[] expected, float[] actual, int length) {
+        for (int i = 0; i < length; i++) {
+            assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual[i]));
+        }
+    }
+}
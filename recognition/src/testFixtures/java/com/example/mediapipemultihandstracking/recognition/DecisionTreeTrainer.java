@@ -0,0 +1,228 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Trains the {@link DecisionTreeClassifier} bundled with the app.
+ *
+ * Classic CART: every node takes the feature and threshold that lower the Gini impurity of its
+ * samples the most, until the samples are pure, too few or the tree too deep. Training poses
+ * come from {@link SyntheticHands}, labelled by the rule table, so the tree learns the rules from
+ * the hand features. Recorded and labelled poses can be used the same way.
+ */
+public final class DecisionTreeTrainer {
+    private final int maxDepth;
+    private final int minLeafSize;
+    private final List<String> labels = new ArrayList<>();
+    private final List<float[]> samples = new ArrayList<>();
+    private final List<Integer> sampleLabels = new ArrayList<>();
+
+    // Tree being built, in preorder.
+    private final List<int[]> nodes = new ArrayList<>();
+
+    /**
+     * @param maxDepth Largest number of comparisons on a path
+     * @param minLeafSize Smallest number of samples on each side of a split
+     */
+    public DecisionTreeTrainer(int maxDepth, int minLeafSize) {
+        this.maxDepth = maxDepth;
+        this.minLeafSize = minLeafSize;
+    }
+
+    /**
+     * Adds a labelled hand.
+     *
+     * @param features Features of the hand
+     * @param letter Letter of the hand, "" for no letter
+     */
+    public void add(HandFeatures features, String letter) {
+        if (!features.isValid()) {
+            return;
+        }
+        int label = labels.indexOf(letter);
+        if (label < 0) {
+            label = labels.size();
+            labels.add(letter);
+        }
+        samples.add(features.values().clone());
+        sampleLabels.add(label);
+    }
+
+    public int getSampleCount() {
+        return samples.size();
+    }
+
+    /**
+     * @return Tree fitted to the samples added so far
+     */
+    public DecisionTreeClassifier train() {
+        nodes.clear();
+        Integer[] indices = new Integer[samples.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        build(indices, 0, indices.length, 0);
+
+        int[] features = new int[nodes.size()];
+        short[] thresholds = new short[nodes.size()];
+        int[] rightChildren = new int[nodes.size()];
+        int[] nodeLabels = new int[nodes.size()];
+        for (int node = 0; node < nodes.size(); node++) {
+            int[] values = nodes.get(node);
+            features[node] = values[0];
+            thresholds[node] = (short) values[1];
+            rightChildren[node] = values[2];
+            nodeLabels[node] = values[3];
+        }
+        return new DecisionTreeClassifier(labels.toArray(new String[0]), features, thresholds,
+                rightChildren, nodeLabels);
+    }
+
+    private void build(Integer[] indices, int from, int to, int depth) {
+        int[] counts = counts(indices, from, to);
+        int majority = 0;
+        for (int label = 1; label < counts.length; label++) {
+            if (counts[label] > counts[majority]) {
+                majority = label;
+            }
+        }
+        int count = to - from;
+        if (depth == maxDepth || counts[majority] == count || count < 2 * minLeafSize) {
+            nodes.add(new int[]{DecisionTreeClassifier.LEAF, 0, 0, majority});
+            return;
+        }
+
+        double parentImpurity = gini(counts, count);
+        double bestImpurity = parentImpurity;
+        int bestFeature = -1;
+        int bestThreshold = 0;
+        int[] left = new int[counts.length];
+        for (int feature = 0; feature < HandFeatures.FEATURE_COUNT; feature++) {
+            final int sortFeature = feature;
+            Arrays.sort(indices, from, to,
+                    Comparator.comparingDouble(i -> samples.get(i)[sortFeature]));
+            Arrays.fill(left, 0);
+            for (int split = from + 1; split < to; split++) {
+                left[sampleLabels.get(indices[split - 1])]++;
+                int leftCount = split - from;
+                if (leftCount < minLeafSize || to - split < minLeafSize) {
+                    continue;
+                }
+                float below = samples.get(indices[split - 1])[feature];
+                float above = samples.get(indices[split])[feature];
+                // Only split where the quantized threshold separates both samples.
+                int threshold = quantize((below + above) / 2);
+                if (threshold / DecisionTreeClassifier.THRESHOLD_SCALE <= below
+                        || threshold / DecisionTreeClassifier.THRESHOLD_SCALE > above) {
+                    continue;
+                }
+                double impurity = 0;
+                int rightCount = count - leftCount;
+                double leftSum = 0;
+                double rightSum = 0;
+                for (int label = 0; label < counts.length; label++) {
+                    double l = left[label];
+                    double r = counts[label] - left[label];
+                    leftSum += l * l;
+                    rightSum += r * r;
+                }
+                impurity += leftCount - leftSum / leftCount;
+                impurity += rightCount - rightSum / rightCount;
+                impurity /= count;
+                if (impurity < bestImpurity - 1e-9) {
+                    bestImpurity = impurity;
+                    bestFeature = feature;
+                    bestThreshold = threshold;
+                }
+            }
+        }
+        if (bestFeature < 0) {
+            nodes.add(new int[]{DecisionTreeClassifier.LEAF, 0, 0, majority});
+            return;
+        }
+
+        // Partition around the threshold, smaller values first.
+        final int splitFeature = bestFeature;
+        final float threshold = bestThreshold / DecisionTreeClassifier.THRESHOLD_SCALE;
+        Arrays.sort(indices, from, to,
+                Comparator.comparingDouble(i -> samples.get(i)[splitFeature]));
+        int split = from;
+        while (split < to && samples.get(indices[split])[splitFeature] < threshold) {
+            split++;
+        }
+        int[] values = {bestFeature, bestThreshold, 0, 0};
+        nodes.add(values);
+        build(indices, from, split, depth + 1);
+        values[2] = nodes.size();
+        build(indices, split, to, depth + 1);
+    }
+
+    private int[] counts(Integer[] indices, int from, int to) {
+        int[] counts = new int[labels.size()];
+        for (int i = from; i < to; i++) {
+            counts[sampleLabels.get(indices[i])]++;
+        }
+        return counts;
+    }
+
+    private static double gini(int[] counts, int count) {
+        double sum = 0;
+        for (int c : counts) {
+            sum += (double) c * c;
+        }
+        return (count - sum / count) / count;
+    }
+
+    private static int quantize(float value) {
+        int quantized = Math.round(value * DecisionTreeClassifier.THRESHOLD_SCALE);
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, quantized));
+    }
+
+    /**
+     * Adds synthetic poses of every letter of the corpus, labelled by the rule table.
+     *
+     * @param rules Rules labelling the poses
+     * @param hands Pose generator
+     * @param samplesPerLetter Poses per letter, and per poses without letter
+     */
+    public void addSyntheticPoses(GestureRuleEngine rules, SyntheticHands hands,
+                                  int samplesPerLetter) {
+        FeatureExtractor extractor = new FeatureExtractor();
+        HandFrame hand = new HandFrame();
+        HandFeatures features = new HandFeatures();
+        for (String letter : LandmarkCorpus.LETTERS) {
+            for (int i = 0; i < samplesPerLetter; i++) {
+                hands.poseFor(rules, letter, hand);
+                extractor.extract(hand, features);
+                add(features, letter);
+            }
+        }
+    }
+
+    /**
+     * Regenerates the decision tree bundled with the app.
+     *
+     * @param args Path of the tree to write, poses per letter (default 1500), max depth
+     *             (default 30), min leaf size (default 1)
+     */
+    public static void main(String[] args) throws IOException {
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+        int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int minLeafSize = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        DecisionTreeTrainer trainer = new DecisionTreeTrainer(maxDepth, minLeafSize);
+        trainer.addSyntheticPoses(GestureRuleEngine.loadDefault(), new SyntheticHands(20200701L),
+                samples);
+        DecisionTreeClassifier tree = trainer.train();
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            tree.write(out);
+        }
+        System.out.println(trainer.getSampleCount() + " poses, " + tree.getNodeCount()
+                + " nodes, depth " + tree.getDepth());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Labelled hand poses for every static letter, read from landmark_corpus.csv.
+ *
+ * Each line holds a label followed by the x, y, z of the 21 landmarks. The label "" stands for
+ * a pose without letter. Regenerate the file with {@link SyntheticHands#main(String[])} whenever
+ * the rule table changes.
+ */
+public final class LandmarkCorpus {
+    public static final String RESOURCE = "landmark_corpus.csv";
+
+    // Every label of the corpus, "Z" is missing because it is only signed with a movement.
+    public static final String[] LETTERS = {
+            "A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N", "O", "P", "Q",
+            "R", "S", "T", "U", "V", "W", "X", "Y", "SPACE", ""};
+
+    private final List<String> labels;
+    private final List<HandFrame> hands;
+
+    private LandmarkCorpus(List<String> labels, List<HandFrame> hands) {
+        this.labels = Collections.unmodifiableList(labels);
+        this.hands = Collections.unmodifiableList(hands);
+    }
+
+    public static LandmarkCorpus load() {
+        try (InputStream in = LandmarkCorpus.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing corpus " + RESOURCE);
+            }
+            BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<String> labels = new ArrayList<>();
+            List<HandFrame> hands = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != HandFrame.NUM_COORDINATES + 1) {
+                    throw new IllegalStateException("Malformed corpus line: " + line);
+                }
+                HandFrame hand = new HandFrame();
+                for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                    hand.setLandmark(i,
+                            Float.parseFloat(fields[1 + i * 3]),
+                            Float.parseFloat(fields[2 + i * 3]),
+                            Float.parseFloat(fields[3 + i * 3]));
+                }
+                labels.add(fields[0]);
+                hands.add(hand);
+            }
+            return new LandmarkCorpus(labels, hands);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read corpus " + RESOURCE, e);
+        }
+    }
+
+    public int size() {
+        return hands.size();
+    }
+
+    public String getLabel(int index) {
+        return labels.get(index);
+    }
+
+    /**
+     * @return Gesture code of the label of a pose, see {@link Gestures}
+     */
+    public int getGesture(int index) {
+        return Gestures.code(labels.get(index));
+    }
+
+    public HandFrame getHand(int index) {
+        return hands.get(index);
+    }
+
+    /**
+     * @return Indices of the poses labelled with the given letter
+     */
+    public int[] indicesOf(String letter) {
+        int count = 0;
+        int[] indices = new int[size()];
+        for (int i = 0; i < size(); i++) {
+            if (labels.get(i).equals(letter)) {
+                indices[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(indices, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Copies a pose into a reusable landmark packet.
+     *
+     * @param index Index of the pose
+     * @param packet Packet to fill, it ends up holding a single hand
+     */
+    public void copyTo(int index, LandmarkPacket packet) {
+        packet.reset(index);
+        packet.addHand().copyFrom(hands.get(index));
+    }
+}
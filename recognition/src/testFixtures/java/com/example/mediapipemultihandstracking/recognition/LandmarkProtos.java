@@ -0,0 +1,144 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * The MediaPipe landmark.proto, rect.proto and classification.proto messages, rebuilt as
+ * protobuf-java descriptors so tests and benchmarks can serialize and parse them without the
+ * generated classes of the app.
+ */
+public final class LandmarkProtos {
+    public static final Descriptor LANDMARK;
+    public static final Descriptor LANDMARK_LIST;
+    public static final Descriptor RECT;
+    public static final Descriptor CLASSIFICATION;
+    public static final Descriptor CLASSIFICATION_LIST;
+
+    static {
+        FileDescriptorProto file = FileDescriptorProto.newBuilder()
+                .setName("mediapipe/framework/formats/landmark_and_rect.proto")
+                .setPackage("mediapipe")
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("NormalizedLandmark")
+                        .addField(field("x", 1, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("y", 2, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("z", 3, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("visibility", 4, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("presence", 5, FieldDescriptorProto.Type.TYPE_FLOAT)))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("NormalizedLandmarkList")
+                        .addField(field("landmark", 1, FieldDescriptorProto.Type.TYPE_MESSAGE)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                                .setTypeName(".mediapipe.NormalizedLandmark")))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("NormalizedRect")
+                        .addField(field("x_center", 1, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("y_center", 2, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("height", 3, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("width", 4, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("rotation", 5, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("rect_id", 6, FieldDescriptorProto.Type.TYPE_INT64)))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("Classification")
+                        .addField(field("index", 1, FieldDescriptorProto.Type.TYPE_INT32))
+                        .addField(field("score", 2, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("label", 3, FieldDescriptorProto.Type.TYPE_STRING)))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("ClassificationList")
+                        .addField(field("classification", 1,
+                                FieldDescriptorProto.Type.TYPE_MESSAGE)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                                .setTypeName(".mediapipe.Classification")))
+                .build();
+        try {
+            FileDescriptor descriptor = FileDescriptor.buildFrom(file, new FileDescriptor[0]);
+            LANDMARK = descriptor.findMessageTypeByName("NormalizedLandmark");
+            LANDMARK_LIST = descriptor.findMessageTypeByName("NormalizedLandmarkList");
+            RECT = descriptor.findMessageTypeByName("NormalizedRect");
+            CLASSIFICATION = descriptor.findMessageTypeByName("Classification");
+            CLASSIFICATION_LIST = descriptor.findMessageTypeByName("ClassificationList");
+        } catch (DescriptorValidationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LandmarkProtos() {
+    }
+
+    /**
+     * @return Landmark list of a hand, with a visibility and presence for every landmark
+     */
+    public static DynamicMessage landmarkList(HandFrame hand) {
+        DynamicMessage.Builder list = DynamicMessage.newBuilder(LANDMARK_LIST);
+        FieldDescriptor landmarks = LANDMARK_LIST.findFieldByName("landmark");
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            list.addRepeatedField(landmarks, DynamicMessage.newBuilder(LANDMARK)
+                    .setField(LANDMARK.findFieldByName("x"), hand.x(i))
+                    .setField(LANDMARK.findFieldByName("y"), hand.y(i))
+                    .setField(LANDMARK.findFieldByName("z"), hand.z(i))
+                    .setField(LANDMARK.findFieldByName("visibility"), 0.9f)
+                    .setField(LANDMARK.findFieldByName("presence"), 0.8f)
+                    .build());
+        }
+        return list.build();
+    }
+
+    public static DynamicMessage rect(float xCenter, float yCenter, float width, float height,
+                                      float rotation, long id) {
+        return DynamicMessage.newBuilder(RECT)
+                .setField(RECT.findFieldByName("x_center"), xCenter)
+                .setField(RECT.findFieldByName("y_center"), yCenter)
+                .setField(RECT.findFieldByName("width"), width)
+                .setField(RECT.findFieldByName("height"), height)
+                .setField(RECT.findFieldByName("rotation"), rotation)
+                .setField(RECT.findFieldByName("rect_id"), id)
+                .build();
+    }
+
+    /**
+     * @return Handedness of a hand, as given by the hand tracking graph: a list with the label
+     *         of handedness.txt the hand most likely has
+     */
+    public static DynamicMessage handedness(String label, float score) {
+        return DynamicMessage.newBuilder(CLASSIFICATION_LIST)
+                .addRepeatedField(CLASSIFICATION_LIST.findFieldByName("classification"),
+                        DynamicMessage.newBuilder(CLASSIFICATION)
+                                .setField(CLASSIFICATION.findFieldByName("index"),
+                                        label.equals("Left") ? 0 : 1)
+                                .setField(CLASSIFICATION.findFieldByName("score"), score)
+                                .setField(CLASSIFICATION.findFieldByName("label"), label)
+                                .build())
+                .build();
+    }
+
+    /**
+     * @return Value of a float field, its default when it is not set
+     */
+    public static float getFloat(DynamicMessage message, String field) {
+        return (Float) message.getField(message.getDescriptorForType().findFieldByName(field));
+    }
+
+    /**
+     * @return Landmark of a parsed landmark list
+     */
+    public static DynamicMessage getLandmark(DynamicMessage list, int index) {
+        return (DynamicMessage) list.getRepeatedField(
+                LANDMARK_LIST.findFieldByName("landmark"), index);
+    }
+
+    private static FieldDescriptorProto.Builder field(String name, int number,
+                                                      FieldDescriptorProto.Type type) {
+        return FieldDescriptorProto.newBuilder()
+                .setName(name)
+                .setNumber(number)
+                .setType(type)
+                .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL);
+    }
+}
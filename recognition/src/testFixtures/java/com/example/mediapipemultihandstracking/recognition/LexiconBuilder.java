@@ -0,0 +1,177 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Builds the {@link Lexicon} asset of the app from a list of words, most frequent first.
+ *
+ * Word frequencies are assumed to follow Zipf's law, the word of rank r having a probability
+ * proportional to 1 / r.
+ */
+public final class LexiconBuilder {
+    // Word list bundled next to this class.
+    public static final String DEFAULT_WORDS = "lexicon_words.txt";
+
+    private final List<String> words = new ArrayList<>();
+
+    /**
+     * Adds a word, less frequent than the ones added before. Words already added are ignored.
+     *
+     * @param word Letters from A to Z, in any case
+     */
+    public void add(String word) {
+        String upper = word.toUpperCase(Locale.ROOT);
+        for (int i = 0; i < upper.length(); i++) {
+            if (!LetterScores.isLetter(upper.charAt(i))) {
+                throw new IllegalArgumentException("Not a word from A to Z: " + word);
+            }
+        }
+        if (!upper.isEmpty() && !words.contains(upper)) {
+            words.add(upper);
+        }
+    }
+
+    /**
+     * Adds the words of a list, one per line. Empty lines and lines starting with # are ignored.
+     */
+    public void addAll(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                add(line);
+            }
+        }
+    }
+
+    public int getWordCount() {
+        return words.size();
+    }
+
+    /**
+     * @return Lexicon in the layout of {@link Lexicon}
+     */
+    public byte[] toByteArray() {
+        double harmonic = 0;
+        for (int rank = 1; rank <= words.size(); rank++) {
+            harmonic += 1.0 / rank;
+        }
+        Node root = new Node((char) 0);
+        for (int rank = 1; rank <= words.size(); rank++) {
+            Node node = root;
+            for (char letter : words.get(rank - 1).toCharArray()) {
+                node = node.children.computeIfAbsent(letter, Node::new);
+            }
+            node.wordCost = quantize(Math.log(harmonic * rank));
+        }
+        root.prefixCost();
+
+        // Breadth first, so the children of every node are next to each other.
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int index = 0; index < nodes.size(); index++) {
+            Node node = nodes.get(index);
+            node.firstChild = nodes.size();
+            for (Node child : node.children.values()) {
+                child.parent = index;
+                nodes.add(child);
+            }
+        }
+
+        ByteBuffer buffer =
+                ByteBuffer.allocate(Lexicon.HEADER_SIZE + nodes.size() * Lexicon.NODE_SIZE);
+        buffer.putInt(Lexicon.MAGIC);
+        buffer.putShort((short) Lexicon.VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(nodes.size());
+        for (Node node : nodes) {
+            buffer.put((byte) node.letter);
+            buffer.put((byte) node.children.size());
+            buffer.putShort((short) node.wordCost);
+            buffer.putShort((short) Math.min(Short.MAX_VALUE, node.prefixCost));
+            buffer.putShort((short) 0);
+            buffer.putInt(node.firstChild);
+            buffer.putInt(node.parent);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return Lexicon of the words added so far, on the heap
+     */
+    public Lexicon build() {
+        try {
+            return Lexicon.wrap(ByteBuffer.wrap(toByteArray()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return Builder holding the bundled word list
+     */
+    public static LexiconBuilder loadDefault() {
+        try (InputStream in = LexiconBuilder.class.getResourceAsStream(DEFAULT_WORDS)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing word list " + DEFAULT_WORDS);
+            }
+            LexiconBuilder builder = new LexiconBuilder();
+            builder.addAll(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return builder;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read word list " + DEFAULT_WORDS, e);
+        }
+    }
+
+    private static int quantize(double cost) {
+        return (int) Math.min(Short.MAX_VALUE, Math.round(cost * Lexicon.COST_SCALE));
+    }
+
+    /**
+     * Writes the lexicon asset of the app.
+     *
+     * @param args Path of the lexicon to write
+     */
+    public static void main(String[] args) throws IOException {
+        LexiconBuilder builder = loadDefault();
+        byte[] lexicon = builder.toByteArray();
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            out.write(lexicon);
+        }
+        System.out.println(builder.getWordCount() + " words, " + lexicon.length + " bytes");
+    }
+
+    private static final class Node {
+        final char letter;
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int wordCost = Lexicon.NO_WORD;
+        int prefixCost;
+        int firstChild;
+        int parent = Lexicon.NONE;
+
+        Node(char letter) {
+            this.letter = letter;
+        }
+
+        int prefixCost() {
+            prefixCost = wordCost == Lexicon.NO_WORD ? Integer.MAX_VALUE : wordCost;
+            for (Node child : children.values()) {
+                prefixCost = Math.min(prefixCost, child.prefixCost());
+            }
+            return prefixCost;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates plausible random hand poses for tests and benchmarks.
+ *
+ * Each finger is a chain of three bones starting at a jittered knuckle and is either kept
+ * straight, curled towards the palm or bent at random, then the whole hand is scaled, mirrored,
+ * rotated and moved around the image. Asking for a given letter samples poses until the rule
+ * engine recognizes it, which is fast enough for every static letter.
+ */
+public final class SyntheticHands {
+    // Knuckle positions (thumb CMC, index, middle, ring and pinky MCP) in bone length units.
+    private static final double[][] KNUCKLES = {
+            {-0.8, -0.5}, {-0.8, -2.0}, {-0.25, -2.2}, {0.25, -2.1}, {0.7, -1.8}};
+    // Give up after that many samples, no static letter needs more than a few thousand.
+    private static final int MAX_ATTEMPTS = 10_000_000;
+
+    private final Random random;
+    private final float[] localX = new float[HandFrame.NUM_LANDMARKS];
+    private final float[] localY = new float[HandFrame.NUM_LANDMARKS];
+
+    public SyntheticHands(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Writes a random pose into a hand frame.
+     *
+     * @param hand Frame to fill
+     */
+    public void randomPose(HandFrame hand) {
+        float wristX = 0.3f + 0.4f * random.nextFloat();
+        float wristY = 0.5f + 0.3f * random.nextFloat();
+        float scale = 0.04f + 0.05f * random.nextFloat();
+        double rotation = (random.nextDouble() - 0.5) * (random.nextInt(4) == 0 ? 3.5 : 0.8);
+        boolean mirrored = random.nextBoolean();
+
+        localX[0] = 0;
+        localY[0] = 0;
+        for (int finger = 0; finger < 5; finger++) {
+            double x = KNUCKLES[finger][0] + (random.nextDouble() - 0.5) * 0.3;
+            double y = KNUCKLES[finger][1] + (random.nextDouble() - 0.5) * 0.3;
+            int knuckle = finger * 4 + 1;
+            localX[knuckle] = (float) x;
+            localY[knuckle] = (float) y;
+
+            double angle = finger == 0
+                    ? -Math.PI / 2 - 0.9 + (random.nextDouble() - 0.5) * 1.5
+                    : -Math.PI / 2 + x * 0.3 + (random.nextDouble() - 0.5) * 0.5;
+            int mode = random.nextInt(3);
+            double boneLength = finger == 0 ? 0.7 : 0.75;
+            for (int joint = 1; joint < 4; joint++) {
+                if (mode == 0) {
+                    // Straight finger.
+                    angle += (random.nextDouble() - 0.5) * 0.15;
+                } else if (mode == 1) {
+                    // Curled towards the palm.
+                    double curl = (1.0 + random.nextDouble() * 0.6) * (joint == 1 ? 0.6 : 1);
+                    angle += (finger == 0 ? 1 : -1) * (mirrored ? -1 : 1) * curl;
+                } else {
+                    angle += (random.nextDouble() - 0.5) * 2.5;
+                }
+                x += Math.cos(angle) * boneLength;
+                y += Math.sin(angle) * boneLength;
+                localX[knuckle + joint] = (float) x;
+                localY[knuckle + joint] = (float) y;
+            }
+        }
+
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        hand.beginUpdate();
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            double x = mirrored ? -localX[i] : localX[i];
+            double y = localY[i];
+            hand.setLandmark(i,
+                    (float) (wristX + (x * cos - y * sin) * scale),
+                    (float) (wristY + (x * sin + y * cos) * scale),
+                    (float) ((random.nextDouble() - 0.5) * 0.05));
+        }
+    }
+
+    /**
+     * Samples random poses until one is recognized as the given letter.
+     *
+     * @param rules Rules deciding which letter a pose is
+     * @param letter Letter to generate, "" for a pose without letter
+     * @param hand Frame to fill
+     * @throws IllegalStateException When the letter cannot be reached
+     */
+    public void poseFor(GestureRuleEngine rules, String letter, HandFrame hand) {
+        int gesture = Gestures.code(letter);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            randomPose(hand);
+            if (rules.classify(hand) == gesture) {
+                return;
+            }
+        }
+        throw new IllegalStateException("No pose found for letter '" + letter + "'");
+    }
+
+    /**
+     * Regenerates the landmark corpus used by the tests and benchmarks.
+     *
+     * @param args Path of the CSV file to write, samples per letter (default 6)
+     */
+    public static void main(String[] args) throws IOException {
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        GestureRuleEngine rules = GestureRuleEngine.loadDefault();
+        SyntheticHands hands = new SyntheticHands(20200618L);
+        HandFrame generated = new HandFrame();
+        HandFrame rounded = new HandFrame();
+        try (PrintWriter out = new PrintWriter(args[0], StandardCharsets.UTF_8.name())) {
+            out.println("# letter,x0,y0,z0,...,x20,y20,z20 - generated by SyntheticHands");
+            for (String letter : LandmarkCorpus.LETTERS) {
+                int written = 0;
+                while (written < samples) {
+                    hands.poseFor(rules, letter, generated);
+                    // Keep only poses whose label survives the rounding of the CSV file.
+                    StringBuilder line = new StringBuilder(letter);
+                    rounded.beginUpdate();
+                    for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+                        String x = String.format(Locale.ROOT, "%.5f", generated.x(i));
+                        String y = String.format(Locale.ROOT, "%.5f", generated.y(i));
+                        String z = String.format(Locale.ROOT, "%.5f", generated.z(i));
+                        rounded.setLandmark(i, Float.parseFloat(x), Float.parseFloat(y),
+                                Float.parseFloat(z));
+                        line.append(',').append(x).append(',').append(y).append(',').append(z);
+                    }
+                    if (rules.classify(rounded) == Gestures.code(letter)) {
+                        out.println(line);
+                        written++;
+                    }
+                }
+            }
+        }
+    }
+}
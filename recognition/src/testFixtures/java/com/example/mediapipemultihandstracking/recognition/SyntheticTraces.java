@@ -0,0 +1,65 @@
+package com.example.mediapipemultihandstracking.recognition;
+
+import com.example.mediapipemultihandstracking.recognition.trace.TraceWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Writes traces that look like a signing session: every pose of the corpus is held for a
+ * number of frames while landmarks jitter and the hand rectangle drifts, at 30 frames per second.
+ */
+public final class SyntheticTraces {
+    public static final long FRAME_INTERVAL_MICROS = 33_333;
+
+    private SyntheticTraces() {
+    }
+
+    /**
+     * @param file Trace to write
+     * @param corpus Poses to sign, in corpus order
+     * @param framesPerPose Number of frames each pose is held
+     * @param jitter Standard deviation of the landmark noise, in normalized image units
+     * @param seed Seed of the noise
+     * @return Number of landmark packets written
+     */
+    public static int writeSigningSession(File file, LandmarkCorpus corpus, int framesPerPose,
+                                          float jitter, long seed) throws IOException {
+        Random random = new Random(seed);
+        LandmarkPacket landmarks = new LandmarkPacket();
+        HandRectPacket rects = new HandRectPacket();
+        int frame = 0;
+        try (TraceWriter writer = TraceWriter.create(file)) {
+            for (int pose = 0; pose < corpus.size(); pose++) {
+                HandFrame source = corpus.getHand(pose);
+                for (int i = 0; i < framesPerPose; i++, frame++) {
+                    long timestamp = frame * FRAME_INTERVAL_MICROS;
+                    landmarks.reset(timestamp);
+                    jitter(source, landmarks.addHand(), jitter, random);
+                    writer.writeLandmarks(landmarks);
+
+                    rects.reset(timestamp);
+                    rects.addRect(source.x(9) + (float) random.nextGaussian() * jitter,
+                            source.y(9) + (float) random.nextGaussian() * jitter,
+                            0.3f, 0.3f, 0f);
+                    writer.writeRects(rects);
+                }
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Copies a hand and adds gaussian noise to every coordinate.
+     */
+    public static void jitter(HandFrame source, HandFrame target, float jitter, Random random) {
+        target.beginUpdate();
+        for (int i = 0; i < HandFrame.NUM_LANDMARKS; i++) {
+            target.setLandmark(i,
+                    source.x(i) + (float) random.nextGaussian() * jitter,
+                    source.y(i) + (float) random.nextGaussian() * jitter,
+                    source.z(i) + (float) random.nextGaussian() * jitter);
+        }
+    }
+}